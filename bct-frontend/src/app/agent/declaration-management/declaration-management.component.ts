@@ -907,9 +907,15 @@ export class DeclarationManagementComponent implements OnInit {
   canCorrect(d: Declaration): boolean { return d.statut === 'REJETEE'; }
 
   openCorrectModal(d: Declaration): void {
-    this.selectedDeclaration = d;
-    this.formSubmitted       = false;
-    this.showCorrectModal    = true;
+    this.formSubmitted = false;
+    // La liste ne contient que les métadonnées : contenu et requête SQL sont chargés ici
+    this.declarationService.getDeclarationById(d.id!).subscribe({
+      next: full => {
+        this.selectedDeclaration = full;
+        this.showCorrectModal    = true;
+      },
+      error: () => this.toast.error('Impossible de charger la déclaration')
+    });
   }
 
   closeCorrectModal(): void {
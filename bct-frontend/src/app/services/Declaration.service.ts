@@ -4,7 +4,8 @@
 
 import { Injectable } from '@angular/core';
 import { HttpClient, HttpHeaders } from '@angular/common/http';
-import { Observable } from 'rxjs';
+import { Observable, throwError, timer } from 'rxjs';
+import { filter, switchMap, take } from 'rxjs/operators';
 
  
 // ── Interfaces à ajouter ──────────────────────────────────────────
@@ -67,6 +68,19 @@ export interface GenerateDeclarationRequest {
   dateFin: string;    // "2025-01-31"
 }
 
+export interface GenerationJob {
+  id: number;
+  declarationTypeId: number;
+  periode: string;
+  statut: 'EN_ATTENTE' | 'EN_COURS' | 'TERMINE' | 'ECHEC';
+  etape?: string;
+  lignesTraitees: number;
+  octetsEcrits: number;
+  lignesTotal?: number;
+  declarationId?: number;
+  messageErreur?: string;
+}
+
 export interface Declaration {
   id?: number;
   declarationType?: {
@@ -111,6 +125,9 @@ export class DeclarationService {
   // /api/declarations/** → routé vers bct-backend (8082) par l'API Gateway
   private readonly apiUrl = 'http://localhost:8088/api/declarations';
 
+  // Intervalle de suivi d'un job de génération (ms)
+  private readonly jobPollInterval = 2000;
+
   constructor(private http: HttpClient) {}
 
   private headers(): HttpHeaders {
@@ -127,8 +144,31 @@ export class DeclarationService {
     );
   }
   // ─── Génération ───────────────────────────────────────────────
+  // La génération tourne en job côté serveur : POST /jobs puis suivi de /jobs/{id}
+  // jusqu'à TERMINE (→ déclaration produite) ou ECHEC (→ erreur).
   generateDeclaration(request: GenerateDeclarationRequest): Observable<Declaration> {
-    return this.http.post<Declaration>(`${this.apiUrl}/generate`, request, { headers: this.headers() });
+    return this.http.post<GenerationJob>(`${this.apiUrl}/jobs`, request, { headers: this.headers() })
+      .pipe(switchMap(job => this.awaitJob(job.id)));
+  }
+
+  getGenerationJob(jobId: number): Observable<GenerationJob> {
+    return this.http.get<GenerationJob>(`${this.apiUrl}/jobs/${jobId}`, { headers: this.headers() });
+  }
+
+  private awaitJob(jobId: number): Observable<Declaration> {
+    return timer(this.jobPollInterval, this.jobPollInterval).pipe(
+      switchMap(() => this.getGenerationJob(jobId)),
+      filter(job => job.statut === 'TERMINE' || job.statut === 'ECHEC'),
+      take(1),
+      switchMap(job => {
+        if (job.statut === 'ECHEC' || job.declarationId == null) {
+          const message = job.messageErreur || 'La génération a échoué';
+          // Même forme que les erreurs HTTP du backend (err.error.error / err.error.message)
+          return throwError(() => ({ error: { error: message, message }, message }));
+        }
+        return this.getDeclarationById(job.declarationId);
+      })
+    );
   }
 
   // ─── Lecture ──────────────────────────────────────────────────
@@ -191,13 +231,13 @@ analyzeMappingHttp(req: AnalyzeMappingRequest): Observable<MappingAnalysisRespon
 /**
  * ✅ Génère une déclaration XML en utilisant le mapping XSD ↔ SQL validé.
  *
- * POST /api/declarations/generate-with-mapping
+ * POST /api/declarations/jobs/with-mapping, puis suivi du job jusqu'à la déclaration.
  */
 generateDeclarationWithMapping(req: GenerateWithMappingRequest): Observable<Declaration> {
-  return this.http.post<Declaration>(
-    `${this.apiUrl}/generate-with-mapping`,
+  return this.http.post<GenerationJob>(
+    `${this.apiUrl}/jobs/with-mapping`,
     req,
     { headers: this.headers() }
-  );
+  ).pipe(switchMap(job => this.awaitJob(job.id)));
 }
 }
\ No newline at end of file
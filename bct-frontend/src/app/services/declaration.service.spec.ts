@@ -1,4 +1,4 @@
-import { TestBed } from '@angular/core/testing';
+import { TestBed, fakeAsync, tick } from '@angular/core/testing';
 import { HttpClientTestingModule, HttpTestingController } from '@angular/common/http/testing';
 import { DeclarationService, Declaration, DeclarationStats } from './Declaration.service';
 
@@ -82,25 +82,64 @@ describe('DeclarationService', () => {
 
   // ── generateDeclaration ────────────────────────────────────────
 
-  it('generateDeclaration() → POST /api/declarations/generate', () => {
+  it('generateDeclaration() → POST /api/declarations/jobs puis suivi du job', fakeAsync(() => {
     const request = {
       declarationTypeId: 1,
       periode: '2025-01',
       dateDebut: '2025-01-01',
       dateFin: '2025-01-31',
     };
-    const mockDecl: Declaration = { id: 10, statut: 'GENEREE', periode: '2025-01' };
+    let result: Declaration | undefined;
 
-    service.generateDeclaration(request).subscribe(decl => {
-      expect(decl.id).toBe(10);
-      expect(decl.statut).toBe('GENEREE');
-    });
+    service.generateDeclaration(request).subscribe(decl => result = decl);
 
-    const req = httpMock.expectOne(`${baseUrl}/generate`);
-    expect(req.request.method).toBe('POST');
-    expect(req.request.body).toEqual(request);
-    req.flush(mockDecl);
-  });
+    const submit = httpMock.expectOne(`${baseUrl}/jobs`);
+    expect(submit.request.method).toBe('POST');
+    expect(submit.request.body).toEqual(request);
+    submit.flush({ id: 7, statut: 'EN_ATTENTE' });
+
+    tick(2000);
+    httpMock.expectOne(`${baseUrl}/jobs/7`).flush({ id: 7, statut: 'EN_COURS' });
+    tick(2000);
+    httpMock.expectOne(`${baseUrl}/jobs/7`).flush({ id: 7, statut: 'TERMINE', declarationId: 10 });
+    httpMock.expectOne(`${baseUrl}/10`).flush({ id: 10, statut: 'GENEREE', periode: '2025-01' });
+
+    expect(result?.id).toBe(10);
+    expect(result?.statut).toBe('GENEREE');
+    tick(2000);
+    httpMock.expectNone(`${baseUrl}/jobs/7`);
+  }));
+
+  it('generateDeclaration() — job en ECHEC → erreur avec le message du job', fakeAsync(() => {
+    let error: any;
+
+    service.generateDeclaration({
+      declarationTypeId: 1, periode: '2025-01', dateDebut: '2025-01-01', dateFin: '2025-01-31',
+    }).subscribe({ error: err => error = err });
+
+    httpMock.expectOne(`${baseUrl}/jobs`).flush({ id: 8, statut: 'EN_ATTENTE' });
+    tick(2000);
+    httpMock.expectOne(`${baseUrl}/jobs/8`).flush({ id: 8, statut: 'ECHEC', messageErreur: 'SQL invalide' });
+
+    expect(error.error.error).toBe('SQL invalide');
+  }));
+
+  it('generateDeclarationWithMapping() → POST /api/declarations/jobs/with-mapping', fakeAsync(() => {
+    let result: Declaration | undefined;
+
+    service.generateDeclarationWithMapping({
+      declarationTypeId: 2, periode: '2025-01', dateDebut: '2025-01-01', dateFin: '2025-01-31', mappings: [],
+    }).subscribe(decl => result = decl);
+
+    const submit = httpMock.expectOne(`${baseUrl}/jobs/with-mapping`);
+    expect(submit.request.method).toBe('POST');
+    submit.flush({ id: 9, statut: 'EN_ATTENTE' });
+    tick(2000);
+    httpMock.expectOne(`${baseUrl}/jobs/9`).flush({ id: 9, statut: 'TERMINE', declarationId: 11 });
+    httpMock.expectOne(`${baseUrl}/11`).flush({ id: 11, statut: 'GENEREE', periode: '2025-01' });
+
+    expect(result?.id).toBe(11);
+  }));
 
   // ── deleteDeclaration ──────────────────────────────────────────
 
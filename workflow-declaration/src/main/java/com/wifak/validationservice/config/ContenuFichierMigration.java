@@ -0,0 +1,75 @@
+package com.wifak.validationservice.config;
+
+import com.wifak.validationservice.service.DeclarationContenuService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Reprise au démarrage des anciennes déclarations dont le fichier est encore
+ * dans la colonne declarations.contenu_fichier (LONGTEXT) : le contenu passe
+ * dans le store, la colonne est vidée. Une ligne à la fois, idempotent.
+ * Sans la colonne (base neuve), il n'y a rien à faire.
+ *
+ * Stockage et référence sont écrits dans la même transaction, ligne du contenu
+ * verrouillée : un releaseIfUnused concurrent ne peut pas la supprimer entre les deux.
+ */
+@Component
+public class ContenuFichierMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ContenuFichierMigration.class);
+
+    private final JdbcTemplate              jdbcTemplate;
+    private final DeclarationContenuService contenuService;
+    private final TransactionTemplate       transactionTemplate;
+
+    public ContenuFichierMigration(JdbcTemplate jdbcTemplate, DeclarationContenuService contenuService,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate        = jdbcTemplate;
+        this.contenuService      = contenuService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM declarations WHERE contenu_hash IS NULL AND contenu_fichier IS NOT NULL",
+                    Long.class);
+        } catch (Exception e) {
+            log.debug("Aucune colonne contenu_fichier à migrer: {}", e.getMessage());
+            return;
+        }
+        if (ids.isEmpty()) return;
+
+        log.info("📦 Migration de {} fichier(s) vers le store de contenus...", ids.size());
+        int migrated = 0;
+        for (Long id : ids) {
+            try {
+                String content = jdbcTemplate.queryForObject(
+                        "SELECT contenu_fichier FROM declarations WHERE id = ?", String.class, id);
+                if (content == null) continue;
+                transactionTemplate.executeWithoutResult(status -> {
+                    DeclarationContenuService.ContenuRef ref = contenuService.store(content);
+                    contenuService.verrouiller(ref);
+                    jdbcTemplate.update(
+                            "UPDATE declarations SET contenu_hash = ?, contenu_taille = ?, contenu_codec = ?, " +
+                                    "contenu_fichier = NULL WHERE id = ?",
+                            ref.getHash(), ref.getTaille(), ref.getCodec(), id);
+                });
+                migrated++;
+            } catch (Exception e) {
+                log.warn("⚠️ Migration du contenu de la déclaration {} échouée: {}", id, e.getMessage());
+            }
+        }
+        log.info("✅ {} fichier(s) migré(s)", migrated);
+    }
+}
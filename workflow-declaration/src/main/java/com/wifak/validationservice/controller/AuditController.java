@@ -1,23 +1,30 @@
 package com.wifak.validationservice.controller;
 
 import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
 import com.wifak.validationservice.dto.AuditStatsDTO;
+import com.wifak.validationservice.service.AuditExportService;
 import com.wifak.validationservice.service.AuditService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ContrÃ´leur dÃ©diÃ© Ã  l'espace auditeur.
- * Tous les endpoints sont en lecture seule (GET uniquement).
+ * Endpoints en lecture seule (GET), sauf le recalcul des agrégats réservé à ADMIN.
  * Accessible uniquement avec le rÃ´le AUDITOR (ou ADMIN).
  *
  * Routes exposÃ©es via Gateway : /api/audit/**
@@ -27,11 +34,14 @@ import java.util.List;
 public class AuditController {
 
     private static final Logger log = LoggerFactory.getLogger(AuditController.class);
+    private static final String ERROR_KEY = "error";
 
-    private final AuditService auditService;
+    private final AuditService       auditService;
+    private final AuditExportService exportService;
 
-    public AuditController(AuditService auditService) {
-        this.auditService = auditService;
+    public AuditController(AuditService auditService, AuditExportService exportService) {
+        this.auditService  = auditService;
+        this.exportService = exportService;
     }
     // 1. TOUS LES LOGS (journal de traÃ§abilitÃ© complet)
     //    GET /api/audit/logs
@@ -59,6 +69,38 @@ public class AuditController {
 
         return ResponseEntity.ok(auditService.searchLogs(action, effectuePar, fromDt, toDt));
     }
+    // 2b. JOURNAL PAGINÉ (curseur sur dateAction, id)
+    //    GET /api/audit/logs/page?action=REJECT&from=2024-01-01&size=50&cursor=...
+    @GetMapping("/logs/page")
+    @PreAuthorize("hasAnyRole('AUDITOR', 'ADMIN')")
+    public ResponseEntity<?> getLogsPage(
+            @ModelAttribute AuditLogFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        log.info("📋 [GET] /api/audit/logs/page — action={}, user={}", filter.getAction(), filter.getEffectuePar());
+        try {
+            return ResponseEntity.ok(auditService.searchLogsPage(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+    // 2c. EXPORT EN FLUX (CSV ou NDJSON), mêmes filtres
+    //    GET /api/audit/logs/export?format=NDJSON&from=2020-01-01
+    @GetMapping("/logs/export")
+    @PreAuthorize("hasAnyRole('AUDITOR', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportLogs(
+            @ModelAttribute AuditLogFilter filter,
+            @RequestParam(defaultValue = "CSV") AuditExportService.Format format) {
+        log.info("📤 [GET] /api/audit/logs/export — format={}", format);
+        boolean csv = format == AuditExportService.Format.CSV;
+        String filename = "journal-audit-" + LocalDate.now() + (csv ? ".csv" : ".ndjson");
+        StreamingResponseBody body = out -> exportService.export(filter, format, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                                 : MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
     // 3. LOGS D'UNE DÃ‰CLARATION SPÃ‰CIFIQUE
     //    GET /api/audit/logs/declaration/{id}
     @GetMapping("/logs/declaration/{declarationId}")
@@ -84,4 +126,12 @@ public class AuditController {
         log.info("ðŸ“Š [GET] /api/audit/stats");
         return ResponseEntity.ok(auditService.getAuditStats());
     }
+    // 6. RECALCUL DES AGRÉGATS (maintenance)
+    //    POST /api/audit/rollups/rebuild
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildRollups() {
+        log.info("📊 [POST] /api/audit/rollups/rebuild");
+        return ResponseEntity.ok(Map.of("lignes", auditService.rebuildRollups()));
+    }
 }
@@ -1,15 +1,21 @@
 package com.wifak.validationservice.controller;
 
+import com.wifak.validationservice.dto.DeclarationFilter;
+import com.wifak.validationservice.dto.DeclarationSummary;
 import com.wifak.validationservice.dto.GenerateDeclarationRequest;
 import com.wifak.validationservice.dto.XsdSqlMappingRequest;
 import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationContenu;
 import com.wifak.validationservice.entities.DeclarationType;
 import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import com.wifak.validationservice.service.DeclarationContenuService;
 import com.wifak.validationservice.service.DeclarationService;
+import com.wifak.validationservice.service.SqlColumnCatalog;
 import com.wifak.validationservice.service.XsdAnalyzerService;
-import com.wifak.validationservice.service.XmlGenerationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +24,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
@@ -32,17 +40,20 @@ public class DeclarationController {
 
     private final DeclarationService        declarationService;
     private final XsdAnalyzerService        xsdAnalyzerService;
-    private final XmlGenerationService      xmlGenerationService;
+    private final SqlColumnCatalog          columnCatalog;
     private final DeclarationTypeRepository typeRepository;
+    private final DeclarationContenuService contenuService;
 
     public DeclarationController(DeclarationService declarationService,
                                  XsdAnalyzerService xsdAnalyzerService,
-                                 XmlGenerationService xmlGenerationService,
-                                 DeclarationTypeRepository typeRepository) {
+                                 SqlColumnCatalog columnCatalog,
+                                 DeclarationTypeRepository typeRepository,
+                                 DeclarationContenuService contenuService) {
         this.declarationService   = declarationService;
         this.xsdAnalyzerService   = xsdAnalyzerService;
-        this.xmlGenerationService = xmlGenerationService;
+        this.columnCatalog        = columnCatalog;
         this.typeRepository       = typeRepository;
+        this.contenuService       = contenuService;
     }
 
     private String getCurrentUsername() {
@@ -104,7 +115,8 @@ public class DeclarationController {
 
             List<String> sqlColumns;
             try {
-                sqlColumns = xmlGenerationService.extractColumnsFromSql(type.getSqlQuery(), dateDebut, dateFin);
+                // Métadonnées seules (WHERE 1=0), en cache par type tant que la requête ne change pas
+                sqlColumns = columnCatalog.columnNames(type.getId(), type.getSqlQuery(), dateDebut, dateFin);
             } catch (Exception e) {
                 log.warn("âš ï¸ Impossible d'extraire les colonnes SQL: {}", e.getMessage());
                 sqlColumns = List.of(); // On continue avec une liste vide
@@ -120,6 +132,7 @@ public class DeclarationController {
             response.put("xsdFields",           analysis.getXsdFields());
             response.put("sqlColumns",          analysis.getSqlColumns());
             response.put("autoMapped",          analysis.getAutoMapped());
+            response.put("candidates",          analysis.getCandidates());
             response.put("unmappedXsdFields",   analysis.getUnmappedXsdFields());
             response.put("unmappedSqlColumns",  analysis.getUnmappedSqlColumns());
             response.put("compatibilityScore",  analysis.getCompatibilityScore());
@@ -185,20 +198,44 @@ public class DeclarationController {
     // GET MY DECLARATIONS
     @GetMapping("/my")
     @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
-    public ResponseEntity<List<Declaration>> getMyDeclarations() {
+    public ResponseEntity<List<DeclarationSummary>> getMyDeclarations() {
         return ResponseEntity.ok(declarationService.getMyDeclarations());
     }
     // GET ALL
     @GetMapping
     @PreAuthorize("hasAnyRole('MANAGER', 'ADMIN', 'AUDITOR', 'INTERNAL')")
-    public ResponseEntity<List<Declaration>> getAllDeclarations() {
+    public ResponseEntity<List<DeclarationSummary>> getAllDeclarations() {
         return ResponseEntity.ok(declarationService.getAllDeclarations());
     }
+    // GET PAGE — curseur (dateGeneration, id), filtres optionnels
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyRole('MANAGER', 'ADMIN', 'AUDITOR', 'INTERNAL')")
+    public ResponseEntity<?> getDeclarationsPage(@ModelAttribute DeclarationFilter filter,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(declarationService.searchDeclarations(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+    // GET MY PAGE
+    @GetMapping("/my/page")
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<?> getMyDeclarationsPage(@ModelAttribute DeclarationFilter filter,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(declarationService.searchMyDeclarations(filter, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
     // GET BY ID
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('AGENT', 'MANAGER', 'ADMIN', 'INTERNAL', 'AUDITOR')")
     public ResponseEntity<Declaration> getDeclarationById(@PathVariable Long id) {
-        return ResponseEntity.ok(declarationService.findById(id));
+        return ResponseEntity.ok(declarationService.findByIdWithContent(id));
     }
     // UPDATE
     @PutMapping("/{id}")
@@ -273,17 +310,59 @@ public class DeclarationController {
     // DOWNLOAD
     @GetMapping("/{id}/download")
     @PreAuthorize("hasAnyRole('AGENT', 'MANAGER', 'ADMIN', 'INTERNAL', 'AUDITOR')")
-    public ResponseEntity<byte[]> downloadDeclaration(@PathVariable Long id) {
+    public ResponseEntity<Resource> downloadDeclaration(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) throws IOException {
         Declaration d = declarationService.findById(id);
-        if (d.getContenuFichier() == null || d.getContenuFichier().isEmpty()) {
+        DeclarationContenu contenu = contenuService.find(d.getContenuHash()).orElse(null);
+        if (contenu == null || contenu.getTailleOriginale() == 0) {
             return ResponseEntity.notFound().build();
         }
-        byte[] fileBytes = d.getContenuFichier().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        String filename  = d.getNomFichier() != null ? d.getNomFichier() : "declaration_" + id;
-        return ResponseEntity.ok()
+        String filename = d.getNomFichier() != null ? d.getNomFichier() : "declaration_" + id;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                 .header(HttpHeaders.CONTENT_TYPE, resolveContentType(filename))
-                .body(fileBytes);
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        // Client gzip : on renvoie les octets stockés tels quels, sans décompresser.
+        // Dans les deux cas le corps est lu par tranches depuis le store, pas chargé en entier.
+        boolean gzipAccepted = acceptsGzip(acceptEncoding)
+                && DeclarationContenuService.CODEC_GZIP.equals(contenu.getCodec());
+        InputStream body;
+        if (gzipAccepted) {
+            body = contenuService.openRaw(contenu);
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(contenu.getTailleCompressee());
+        } else {
+            body = contenuService.openStream(contenu);
+            response.contentLength(contenu.getTailleOriginale());
+        }
+        return response.body(new InputStreamResource(body));
+    }
+
+    // Accept-Encoding avec q-values (RFC 9110) : « gzip;q=0 » est un refus, « * » couvre gzip
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) return false;
+        Double gzip = null, joker = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String codage = parts[0].trim().toLowerCase();
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (codage.equals("gzip") || codage.equals("x-gzip")) gzip = q;
+            else if (codage.equals("*")) joker = q;
+        }
+        if (gzip != null) return gzip > 0;
+        return joker != null && joker > 0;
     }
 
     private String resolveContentType(String filename) {
@@ -5,7 +5,7 @@ import com.wifak.validationservice.entities.ValidationRule;
 import com.wifak.validationservice.repositories.ValidationRuleRepository;
 import com.wifak.validationservice.service.DeclarationTypeService;
 import com.wifak.validationservice.service.PdfGeneratorService;
-import com.wifak.validationservice.service.XmlGenerationService;
+import com.wifak.validationservice.service.SqlColumnCatalog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ByteArrayResource;
@@ -37,18 +37,18 @@ public class DeclarationTypeAdminController {
     private final DeclarationTypeService service;
     private final ValidationRuleRepository validationRuleRepository;
     private final PdfGeneratorService pdfGeneratorService;
-    private final XmlGenerationService xmlGenerationService;
+    private final SqlColumnCatalog columnCatalog;
 
     public DeclarationTypeAdminController(
             DeclarationTypeService service,
             ValidationRuleRepository validationRuleRepository,
             PdfGeneratorService pdfGeneratorService,
-            XmlGenerationService xmlGenerationService
+            SqlColumnCatalog columnCatalog
     ) {
         this.service = service;
         this.validationRuleRepository = validationRuleRepository;
         this.pdfGeneratorService = pdfGeneratorService;
-        this.xmlGenerationService = xmlGenerationService;
+        this.columnCatalog = columnCatalog;
     }
 
     // ========== CRUD ==========
@@ -104,6 +104,17 @@ public class DeclarationTypeAdminController {
         return ResponseEntity.ok(validationRuleRepository.findByDeclarationTypeId(id));
     }
 
+    @PutMapping("/{id}/validation-rules")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> saveValidationRules(@PathVariable Long id, @RequestBody List<ValidationRule> rules) {
+        log.info("💾 Sauvegarde de {} règle(s) de validation pour type: {}", rules.size(), id);
+        try {
+            return ResponseEntity.ok(service.saveValidationRules(id, rules));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+
     // ========== XSD ==========
 
     @PostMapping("/{id}/xsd")
@@ -193,9 +204,15 @@ public class DeclarationTypeAdminController {
                     return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, "Requête SQL non autorisée"));
                 }
             }
-            List<String> columns = xmlGenerationService.extractColumnsFromSql(sqlQuery, dateDebut, dateFin);
+            // Test explicite : relire les métadonnées (une vue a pu changer) et rafraîchir le cache
+            columnCatalog.evict(id);
+            List<SqlColumnCatalog.SqlColumn> columns = columnCatalog.describe(id, sqlQuery, dateDebut, dateFin);
             log.info("✅ Test SQL réussi — colonnes: {}", columns);
-            return ResponseEntity.ok(Map.of("success", true, "colonnesDisponibles", columns, MESSAGE_KEY, "Requête SQL valide"));
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "colonnesDisponibles", columns.stream().map(SqlColumnCatalog.SqlColumn::getName).toList(),
+                    "colonnes", columns,
+                    MESSAGE_KEY, "Requête SQL valide"));
         } catch (Exception e) {
             log.error("❌ Erreur test SQL: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, "Erreur lors du test SQL: " + e.getMessage()));
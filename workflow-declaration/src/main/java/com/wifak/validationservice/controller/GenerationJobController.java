@@ -0,0 +1,123 @@
+package com.wifak.validationservice.controller;
+
+import com.wifak.validationservice.dto.BatchGenerationRequest;
+import com.wifak.validationservice.dto.GenerateDeclarationRequest;
+import com.wifak.validationservice.dto.XsdSqlMappingRequest;
+import com.wifak.validationservice.entities.GenerationJob;
+import com.wifak.validationservice.service.BatchGenerationService;
+import com.wifak.validationservice.service.GenerationJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Générations asynchrones : POST renvoie immédiatement le job (202),
+ * le client interroge ensuite GET /{jobId} jusqu'à TERMINE ou ECHEC.
+ */
+@RestController
+@RequestMapping("/api/declarations/jobs")
+public class GenerationJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationJobController.class);
+    private static final String ERROR_KEY = "error";
+
+    private final GenerationJobService   jobService;
+    private final BatchGenerationService batchService;
+
+    public GenerationJobController(GenerationJobService jobService, BatchGenerationService batchService) {
+        this.jobService   = jobService;
+        this.batchService = batchService;
+    }
+
+    // POST /api/declarations/jobs — génération sans mapping
+    @PostMapping
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<?> submit(@RequestBody GenerateDeclarationRequest req) {
+        log.info("📥 Job de génération — Type: {}, Période: {}", req.getDeclarationTypeId(), req.getPeriode());
+        try {
+            GenerationJob job = jobService.submit(req.getDeclarationTypeId(), req.getPeriode(),
+                    req.getDateDebut(), req.getDateFin(), null);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+
+    // POST /api/declarations/jobs/with-mapping — génération XML avec mapping XSD ↔ SQL
+    @PostMapping("/with-mapping")
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<?> submitWithMapping(@RequestBody DeclarationController.GenerateWithMappingRequest req) {
+        log.info("📥 Job de génération avec mapping — Type: {}, Période: {}",
+                req.getDeclarationTypeId(), req.getPeriode());
+
+        if (req.getMappings() == null || req.getMappings().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, "Le mapping est obligatoire pour ce mode de génération."));
+        }
+        long requiredUnmapped = req.getMappings().stream()
+                .filter(m -> m.isRequired() && m.getSource() == XsdSqlMappingRequest.MappingSource.NONE)
+                .count();
+        if (requiredUnmapped > 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    ERROR_KEY, requiredUnmapped + " champ(s) obligatoire(s) du XSD n'ont pas de valeur assignée (ni SQL ni statique).",
+                    "type", "REQUIRED_FIELDS_MISSING"));
+        }
+
+        try {
+            GenerationJob job = jobService.submit(req.getDeclarationTypeId(), req.getPeriode(),
+                    req.getDateDebut(), req.getDateFin(), req.getMappings());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+
+    // POST /api/declarations/jobs/batch — un job par type actif pour la période
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<?> submitBatch(@RequestBody BatchGenerationRequest req) {
+        log.info("📥 Génération par lot — Période: {}, Types: {}",
+                req.getPeriode(), req.getTypeCodes() != null ? req.getTypeCodes() : "tous actifs");
+        try {
+            BatchGenerationService.BatchReport report = batchService.launch(
+                    req.getPeriode(), req.getDateDebut(), req.getDateFin(), req.getTypeCodes());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+
+    // GET /api/declarations/jobs/batch/{lotId} — rapport consolidé du lot
+    @GetMapping("/batch/{lotId}")
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<?> getBatch(@PathVariable String lotId) {
+        try {
+            return ResponseEntity.ok(batchService.getReport(lotId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+
+    // GET /api/declarations/jobs/{jobId} — statut, étape, lignes et octets
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<?> getJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(jobService.getJob(jobId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(ERROR_KEY, e.getMessage()));
+        }
+    }
+
+    // GET /api/declarations/jobs/my — derniers jobs de l'utilisateur
+    @GetMapping("/my")
+    @PreAuthorize("hasAnyRole('AGENT', 'ADMIN')")
+    public ResponseEntity<List<GenerationJob>> getMyJobs() {
+        return ResponseEntity.ok(jobService.getMyJobs());
+    }
+}
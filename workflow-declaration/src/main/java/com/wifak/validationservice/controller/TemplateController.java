@@ -1,6 +1,7 @@
 package com.wifak.validationservice.controller;
 
 import com.wifak.validationservice.service.TemplateService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -24,6 +25,9 @@ public class TemplateController {
     private static final String ERROR_KEY = "error";
     private final TemplateService templateService;
 
+    @Value("${file.generated-dir:uploads}")
+    private String generatedDir;
+
     public TemplateController(TemplateService templateService) {
         this.templateService = templateService;
     }
@@ -89,7 +93,7 @@ public class TemplateController {
             );
 
             // Ã¢Å“â€¦ CrÃƒÂ©er le dossier uploads s'il n'existe pas
-            Path uploadsDir = Paths.get("uploads");
+            Path uploadsDir = Paths.get(generatedDir);
             if (!Files.exists(uploadsDir)) {
                 Files.createDirectories(uploadsDir);
             }
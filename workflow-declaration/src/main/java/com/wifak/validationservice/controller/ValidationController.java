@@ -1,6 +1,8 @@
 package com.wifak.validationservice.controller;
 
 import com.wifak.validationservice.dto.AiValidationResult;
+import com.wifak.validationservice.dto.DeclarationSummary;
+import com.wifak.validationservice.dto.PendingQueue;
 import com.wifak.validationservice.dto.RejectRequest;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.ValidationLog;
@@ -65,11 +67,29 @@ public class ValidationController {
     // 5. PENDING
     @GetMapping("/pending")
     @PreAuthorize("hasRole('MANAGER')")
-    public ResponseEntity<List<Declaration>> getPendingDeclarations() {
+    public ResponseEntity<List<DeclarationSummary>> getPendingDeclarations() {
         log.info("ðŸ“‹ [GET] /api/validation/pending");
         return ResponseEntity.ok(validationService.getPendingDeclarations());
     }
 
+    // 5b. FILE DE VALIDATION — paginée, triée par ancienneté (AGE) ou échéance (ECHEANCE)
+    @GetMapping("/pending/queue")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<PendingQueue> getPendingQueue(
+            @RequestParam(defaultValue = "AGE") PendingQueue.Tri tri,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        log.info("📋 [GET] /api/validation/pending/queue — tri: {}, page: {}", tri, page);
+        return ResponseEntity.ok(validationService.getPendingQueue(tri, page, size));
+    }
+
+    // 5c. BADGE — compteurs seuls
+    @GetMapping("/pending/count")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<PendingQueue.Compteurs> getPendingCount() {
+        return ResponseEntity.ok(validationService.getPendingCompteurs());
+    }
+
     // 6. STATS
     @GetMapping("/stats")
     @PreAuthorize("hasAnyRole('MANAGER', 'ADMIN', 'AUDITOR')")
@@ -112,6 +132,15 @@ public class ValidationController {
         return ResponseEntity.ok(validationService.compareWithPrevious(id, previousId));
     }
 
+    // 10 bis. COMPARAISON — déclaration de la période précédente trouvée côté serveur
+    // (chemin littéral : prioritaire sur /compare/{previousId})
+    @GetMapping("/{id}/compare/previous")
+    @PreAuthorize("hasRole('MANAGER')")
+    public ResponseEntity<Map<String, Object>> compareWithPreviousPeriod(@PathVariable Long id) {
+        log.info("📈 [GET] /api/validation/{}/compare/previous", id);
+        return ResponseEntity.ok(validationService.compareWithPreviousPeriod(id));
+    }
+
     // 11. REJECT TEMPLATES â€” templates de motifs de rejet prÃ©dÃ©finis
     @GetMapping("/reject-templates")
     @PreAuthorize("hasAnyRole('MANAGER', 'ADMIN', 'AGENT')")
@@ -1,5 +1,7 @@
 package com.wifak.validationservice.dto;
 
+import com.wifak.validationservice.entities.Declaration;
+
 import java.time.LocalDateTime;
 
 /**
@@ -24,6 +26,25 @@ public class AuditLogDTO {
 
     public AuditLogDTO() {}
 
+    // Constructeur utilisé par les requêtes JPQL « select new » de ValidationLogRepository
+    public AuditLogDTO(Long id, Long declarationId, String declarationCode, String declarationNom,
+                       String declarationPeriode, Declaration.DeclarationStatut declarationStatut,
+                       String action, String statutAvant, String statutApres,
+                       String effectuePar, String commentaire, LocalDateTime dateAction) {
+        this.id                 = id;
+        this.declarationId      = declarationId;
+        this.declarationCode    = declarationCode;
+        this.declarationNom     = declarationNom;
+        this.declarationPeriode = declarationPeriode;
+        this.declarationStatut  = declarationStatut != null ? declarationStatut.name() : null;
+        this.action             = action;
+        this.statutAvant        = statutAvant;
+        this.statutApres        = statutApres;
+        this.effectuePar        = effectuePar;
+        this.commentaire        = commentaire;
+        this.dateAction         = dateAction;
+    }
+
     // ─── Getters / Setters ───────────────────────────────────────
 
     public Long getId() { return id; }
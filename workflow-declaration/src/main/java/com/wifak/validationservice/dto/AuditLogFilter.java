@@ -0,0 +1,33 @@
+package com.wifak.validationservice.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filtres du journal d'audit (paramètres de requête). Tout champ null est ignoré.
+ */
+public class AuditLogFilter {
+
+    private String action;
+    private String effectuePar;
+    private Long declarationId;
+    // Bornes incluses sur la date de l'action
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    public AuditLogFilter() {}
+
+    public String getAction()              { return action; }
+    public void setAction(String v)        { this.action = v; }
+    public String getEffectuePar()         { return effectuePar; }
+    public void setEffectuePar(String v)   { this.effectuePar = v; }
+    public Long getDeclarationId()         { return declarationId; }
+    public void setDeclarationId(Long v)   { this.declarationId = v; }
+    public LocalDate getFrom()             { return from; }
+    public void setFrom(LocalDate v)       { this.from = v; }
+    public LocalDate getTo()               { return to; }
+    public void setTo(LocalDate v)         { this.to = v; }
+}
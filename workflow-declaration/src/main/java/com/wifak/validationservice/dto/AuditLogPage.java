@@ -0,0 +1,23 @@
+package com.wifak.validationservice.dto;
+
+import java.util.List;
+
+/**
+ * Page du journal d'audit triée par (dateAction, id) décroissants.
+ * {@code nextCursor} est à renvoyer tel quel pour la page suivante ; null = dernière page.
+ */
+public class AuditLogPage {
+
+    private final List<AuditLogDTO> items;
+    private final String nextCursor;
+
+    public AuditLogPage(List<AuditLogDTO> items, String nextCursor) {
+        this.items      = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AuditLogDTO> getItems() { return items; }
+    public String getNextCursor()       { return nextCursor; }
+    public boolean isHasMore()          { return nextCursor != null; }
+    public int getSize()                { return items.size(); }
+}
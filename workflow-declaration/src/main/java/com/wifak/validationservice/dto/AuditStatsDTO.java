@@ -34,6 +34,10 @@ public class AuditStatsDTO {
     // ── Répartition par action ────────────────────────────────────
     private Map<String, Long> actionCounts;     // { SUBMIT: 12, VALIDATE: 8, ... }
 
+    // ── Activité dans le temps ────────────────────────────────────
+    private List<PeriodCount> activiteParJour;  // 30 derniers jours, yyyy-MM-dd
+    private List<PeriodCount> activiteParMois;  // 12 derniers mois, yyyy-MM
+
     public AuditStatsDTO() {}
 
     // ─── Getters / Setters ───────────────────────────────────────
@@ -86,6 +90,12 @@ public class AuditStatsDTO {
     public Map<String, Long> getActionCounts() { return actionCounts; }
     public void setActionCounts(Map<String, Long> v) { this.actionCounts = v; }
 
+    public List<PeriodCount> getActiviteParJour() { return activiteParJour; }
+    public void setActiviteParJour(List<PeriodCount> v) { this.activiteParJour = v; }
+
+    public List<PeriodCount> getActiviteParMois() { return activiteParMois; }
+    public void setActiviteParMois(List<PeriodCount> v) { this.activiteParMois = v; }
+
     // ─── Nested DTO ──────────────────────────────────────────────
 
     public static class UserActionCount {
@@ -103,4 +113,20 @@ public class AuditStatsDTO {
         public long getCount() { return count; }
         public void setCount(long v) { this.count = v; }
     }
+
+    public static class PeriodCount {
+        private String periode;
+        private long   count;
+
+        public PeriodCount(String periode, long count) {
+            this.periode = periode;
+            this.count   = count;
+        }
+
+        public String getPeriode() { return periode; }
+        public void setPeriode(String v) { this.periode = v; }
+
+        public long getCount() { return count; }
+        public void setCount(long v) { this.count = v; }
+    }
 }
@@ -0,0 +1,31 @@
+package com.wifak.validationservice.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class BatchGenerationRequest {
+
+    private String periode;
+    private LocalDate dateDebut;
+    private LocalDate dateFin;
+    // Vide = tous les types actifs
+    private List<String> typeCodes;
+
+    public BatchGenerationRequest() {}
+
+    public BatchGenerationRequest(String periode, LocalDate dateDebut, LocalDate dateFin, List<String> typeCodes) {
+        this.periode = periode;
+        this.dateDebut = dateDebut;
+        this.dateFin = dateFin;
+        this.typeCodes = typeCodes;
+    }
+
+    public String getPeriode()                      { return periode; }
+    public void setPeriode(String v)                { this.periode = v; }
+    public LocalDate getDateDebut()                 { return dateDebut; }
+    public void setDateDebut(LocalDate v)           { this.dateDebut = v; }
+    public LocalDate getDateFin()                   { return dateFin; }
+    public void setDateFin(LocalDate v)             { this.dateFin = v; }
+    public List<String> getTypeCodes()              { return typeCodes; }
+    public void setTypeCodes(List<String> v)        { this.typeCodes = v; }
+}
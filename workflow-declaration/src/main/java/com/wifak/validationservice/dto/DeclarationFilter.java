@@ -0,0 +1,41 @@
+package com.wifak.validationservice.dto;
+
+import com.wifak.validationservice.entities.Declaration;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filtres des listes paginées (paramètres de requête). Tout champ null est ignoré.
+ */
+public class DeclarationFilter {
+
+    private Long declarationTypeId;
+    private Declaration.DeclarationStatut statut;
+    private String generePar;
+    // Bornes incluses sur la période (comparaison texte : "2025-01" ≤ p ≤ "2025-06")
+    private String periodeDebut;
+    private String periodeFin;
+    // Bornes incluses sur la date de génération
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate genereDu;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate genereAu;
+
+    public DeclarationFilter() {}
+
+    public Long getDeclarationTypeId()                     { return declarationTypeId; }
+    public void setDeclarationTypeId(Long v)               { this.declarationTypeId = v; }
+    public Declaration.DeclarationStatut getStatut()       { return statut; }
+    public void setStatut(Declaration.DeclarationStatut v) { this.statut = v; }
+    public String getGenerePar()                           { return generePar; }
+    public void setGenerePar(String v)                     { this.generePar = v; }
+    public String getPeriodeDebut()                        { return periodeDebut; }
+    public void setPeriodeDebut(String v)                  { this.periodeDebut = v; }
+    public String getPeriodeFin()                          { return periodeFin; }
+    public void setPeriodeFin(String v)                    { this.periodeFin = v; }
+    public LocalDate getGenereDu()                         { return genereDu; }
+    public void setGenereDu(LocalDate v)                   { this.genereDu = v; }
+    public LocalDate getGenereAu()                         { return genereAu; }
+    public void setGenereAu(LocalDate v)                   { this.genereAu = v; }
+}
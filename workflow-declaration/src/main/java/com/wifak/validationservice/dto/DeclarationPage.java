@@ -0,0 +1,23 @@
+package com.wifak.validationservice.dto;
+
+import java.util.List;
+
+/**
+ * Page d'une liste triée par (dateGeneration, id) décroissants.
+ * {@code nextCursor} est à renvoyer tel quel pour la page suivante ; null = dernière page.
+ */
+public class DeclarationPage {
+
+    private final List<DeclarationSummary> items;
+    private final String nextCursor;
+
+    public DeclarationPage(List<DeclarationSummary> items, String nextCursor) {
+        this.items      = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<DeclarationSummary> getItems() { return items; }
+    public String getNextCursor()              { return nextCursor; }
+    public boolean isHasMore()                 { return nextCursor != null; }
+    public int getSize()                       { return items.size(); }
+}
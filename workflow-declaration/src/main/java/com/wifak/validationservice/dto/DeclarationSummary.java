@@ -0,0 +1,115 @@
+package com.wifak.validationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Vue liste d'une déclaration : métadonnées uniquement, sans contenu,
+ * requête SQL ni mapping. Même forme JSON que {@link Declaration} pour
+ * les champs conservés ; le contenu se lit via GET /{id} ou /{id}/download.
+ */
+public class DeclarationSummary {
+
+    private final Long id;
+    private final Declaration.DeclarationStatut statut;
+    private final String periode;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final LocalDate dateDebut;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final LocalDate dateFin;
+    private final String nomFichier;
+    private final Long contenuTaille;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private final LocalDateTime dateGeneration;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private final LocalDateTime dateValidation;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private final LocalDateTime dateEnvoi;
+    private final String generePar;
+    private final String validePar;
+    private final String commentaireRejet;
+    private final TypeSummary declarationType;
+
+    // Constructeur utilisé par les requêtes JPQL « select new » de DeclarationRepository
+    public DeclarationSummary(Long id, Declaration.DeclarationStatut statut, String periode,
+                              LocalDate dateDebut, LocalDate dateFin, String nomFichier, Long contenuTaille,
+                              LocalDateTime dateGeneration, LocalDateTime dateValidation, LocalDateTime dateEnvoi,
+                              String generePar, String validePar, String commentaireRejet,
+                              Long typeId, String typeCode, String typeNom,
+                              DeclarationType.DeclarationFormat typeFormat,
+                              DeclarationType.DeclarationFrequence typeFrequence,
+                              String typeDateLimite) {
+        this.id               = id;
+        this.statut           = statut;
+        this.periode          = periode;
+        this.dateDebut        = dateDebut;
+        this.dateFin          = dateFin;
+        this.nomFichier       = nomFichier;
+        this.contenuTaille    = contenuTaille;
+        this.dateGeneration   = dateGeneration;
+        this.dateValidation   = dateValidation;
+        this.dateEnvoi        = dateEnvoi;
+        this.generePar        = generePar;
+        this.validePar        = validePar;
+        this.commentaireRejet = commentaireRejet;
+        this.declarationType  = new TypeSummary(typeId, typeCode, typeNom, typeFormat, typeFrequence, typeDateLimite);
+    }
+
+    public static DeclarationSummary of(Declaration d) {
+        DeclarationType t = d.getDeclarationType() != null ? d.getDeclarationType() : new DeclarationType();
+        return new DeclarationSummary(d.getId(), d.getStatut(), d.getPeriode(),
+                d.getDateDebut(), d.getDateFin(), d.getNomFichier(), d.getContenuTaille(),
+                d.getDateGeneration(), d.getDateValidation(), d.getDateEnvoi(),
+                d.getGenerePar(), d.getValidePar(), d.getCommentaireRejet(),
+                t.getId(), t.getCode(), t.getNom(), t.getFormat(), t.getFrequence(), t.getDateLimite());
+    }
+
+    public Long getId()                             { return id; }
+    public Declaration.DeclarationStatut getStatut() { return statut; }
+    public String getPeriode()                      { return periode; }
+    public LocalDate getDateDebut()                 { return dateDebut; }
+    public LocalDate getDateFin()                   { return dateFin; }
+    public String getNomFichier()                   { return nomFichier; }
+    public Long getContenuTaille()                  { return contenuTaille; }
+    public LocalDateTime getDateGeneration()        { return dateGeneration; }
+    public LocalDateTime getDateValidation()        { return dateValidation; }
+    public LocalDateTime getDateEnvoi()             { return dateEnvoi; }
+    public String getGenerePar()                    { return generePar; }
+    public String getValidePar()                    { return validePar; }
+    public String getCommentaireRejet()             { return commentaireRejet; }
+    public TypeSummary getDeclarationType()         { return declarationType; }
+
+    // ─── Type, sans XSD ni requête SQL ───────────────────────────
+
+    public static class TypeSummary {
+        private final Long id;
+        private final String code;
+        private final String nom;
+        private final DeclarationType.DeclarationFormat format;
+        private final DeclarationType.DeclarationFrequence frequence;
+        private final String dateLimite;
+
+        public TypeSummary(Long id, String code, String nom,
+                           DeclarationType.DeclarationFormat format,
+                           DeclarationType.DeclarationFrequence frequence,
+                           String dateLimite) {
+            this.id         = id;
+            this.code       = code;
+            this.nom        = nom;
+            this.format     = format;
+            this.frequence  = frequence;
+            this.dateLimite = dateLimite;
+        }
+
+        public Long getId()                                  { return id; }
+        public String getCode()                              { return code; }
+        public String getNom()                               { return nom; }
+        public DeclarationType.DeclarationFormat getFormat() { return format; }
+        public DeclarationType.DeclarationFrequence getFrequence() { return frequence; }
+        public String getDateLimite()                        { return dateLimite; }
+    }
+}
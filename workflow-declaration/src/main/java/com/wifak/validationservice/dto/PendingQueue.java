@@ -0,0 +1,80 @@
+package com.wifak.validationservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * File des déclarations EN_VALIDATION pour les managers : une page triée
+ * (ancienneté ou échéance) et les compteurs du badge, sans contenu de fichier.
+ */
+public class PendingQueue {
+
+    public enum Tri { AGE, ECHEANCE }
+
+    private final List<Item> items;
+    private final int page;
+    private final int size;
+    private final Tri tri;
+    private final Compteurs compteurs;
+
+    public PendingQueue(List<Item> items, int page, int size, Tri tri, Compteurs compteurs) {
+        this.items     = items;
+        this.page      = page;
+        this.size      = size;
+        this.tri       = tri;
+        this.compteurs = compteurs;
+    }
+
+    public List<Item> getItems()       { return items; }
+    public int getPage()               { return page; }
+    public int getSize()               { return size; }
+    public Tri getTri()                { return tri; }
+    public Compteurs getCompteurs()    { return compteurs; }
+    public int getTotalPages() {
+        return size == 0 ? 0 : (int) ((compteurs.getTotal() + size - 1) / size);
+    }
+
+    // ─── Ligne : résumé de la déclaration + échéance calculée ─────
+
+    public static class Item {
+        @JsonUnwrapped
+        private final DeclarationSummary declaration;
+        @JsonFormat(pattern = "yyyy-MM-dd")
+        private final LocalDate echeance;
+        private final Long joursRestants;
+        private final Long ageJours;
+
+        public Item(DeclarationSummary declaration, LocalDate echeance, Long joursRestants, Long ageJours) {
+            this.declaration   = declaration;
+            this.echeance      = echeance;
+            this.joursRestants = joursRestants;
+            this.ageJours      = ageJours;
+        }
+
+        public DeclarationSummary getDeclaration() { return declaration; }
+        public LocalDate getEcheance()             { return echeance; }
+        public Long getJoursRestants()             { return joursRestants; }
+        public Long getAgeJours()                  { return ageJours; }
+    }
+
+    // ─── Badge ────────────────────────────────────────────────────
+
+    public static class Compteurs {
+        private final long total;
+        private final long enRetard;
+        private final long echeanceProche;
+
+        public Compteurs(long total, long enRetard, long echeanceProche) {
+            this.total          = total;
+            this.enRetard       = enRetard;
+            this.echeanceProche = echeanceProche;
+        }
+
+        public long getTotal()          { return total; }
+        public long getEnRetard()       { return enRetard; }
+        public long getEcheanceProche() { return echeanceProche; }
+    }
+}
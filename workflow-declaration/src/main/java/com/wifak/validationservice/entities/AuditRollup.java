@@ -0,0 +1,52 @@
+package com.wifak.validationservice.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Nombre d'actions du workflow par (jour, action, utilisateur), incrémenté à
+ * chaque ValidationLog enregistré (voir AuditRollupService). Le tableau de bord
+ * auditeur agrège ces lignes : sa taille suit le nombre de jours actifs et
+ * d'utilisateurs, pas celle de validation_logs.
+ */
+@Entity
+@Table(name = "audit_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_audit_rollups_jour_action_user",
+                columnNames = {"jour", "action", "effectue_par"}))
+public class AuditRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate jour;
+
+    @Column(nullable = false, length = 30)
+    private String action;
+
+    @Column(name = "effectue_par", nullable = false)
+    private String effectuePar;
+
+    @Column(nullable = false)
+    private long nombre;
+
+    public AuditRollup() {}
+
+    public AuditRollup(LocalDate jour, String action, String effectuePar, long nombre) {
+        this.jour        = jour;
+        this.action      = action;
+        this.effectuePar = effectuePar;
+        this.nombre      = nombre;
+    }
+
+    public Long getId()                    { return id; }
+    public LocalDate getJour()             { return jour; }
+    public void setJour(LocalDate j)       { this.jour = j; }
+    public String getAction()              { return action; }
+    public void setAction(String a)        { this.action = a; }
+    public String getEffectuePar()         { return effectuePar; }
+    public void setEffectuePar(String u)   { this.effectuePar = u; }
+    public long getNombre()                { return nombre; }
+    public void setNombre(long n)          { this.nombre = n; }
+}
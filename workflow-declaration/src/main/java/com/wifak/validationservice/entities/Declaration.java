@@ -6,7 +6,16 @@ import java.time.LocalDateTime;
 import com.fasterxml.jackson.annotation.JsonFormat;
 
 @Entity
-@Table(name = "declarations")
+// Index (filtre, dateGeneration, id) : les listes paginées par curseur lisent l'index dans l'ordre
+@Table(name = "declarations",
+        indexes = {
+                @Index(name = "idx_declarations_contenu_hash", columnList = "contenuHash"),
+                @Index(name = "idx_declarations_generation", columnList = "dateGeneration, id"),
+                @Index(name = "idx_declarations_statut_generation", columnList = "statut, dateGeneration, id"),
+                @Index(name = "idx_declarations_genere_par_generation", columnList = "generePar, dateGeneration, id"),
+                @Index(name = "idx_declarations_type_generation", columnList = "declaration_type_id, dateGeneration, id"),
+                @Index(name = "idx_declarations_type_periode_statut", columnList = "declaration_type_id, periode, statut")
+        })
 public class Declaration {
 
     @Id
@@ -31,9 +40,19 @@ public class Declaration {
 
     private String nomFichier;
 
-    @Column(columnDefinition = "LONGTEXT")
+    // Le fichier lui-même est dans declaration_contenus (voir DeclarationContenuService) ;
+    // renseigné uniquement à la demande, jamais persisté ici.
+    @Transient
     private String contenuFichier;
 
+    @Column(length = 64)
+    private String contenuHash;
+
+    private Long contenuTaille;
+
+    @Column(length = 16)
+    private String contenuCodec;
+
     @Column(columnDefinition = "TEXT")
     private String sqlQueryUsed;
 
@@ -75,6 +94,12 @@ public class Declaration {
     public void setNomFichier(String n)         { this.nomFichier = n; }
     public String getContenuFichier()           { return contenuFichier; }
     public void setContenuFichier(String c)     { this.contenuFichier = c; }
+    public String getContenuHash()              { return contenuHash; }
+    public void setContenuHash(String h)        { this.contenuHash = h; }
+    public Long getContenuTaille()              { return contenuTaille; }
+    public void setContenuTaille(Long t)        { this.contenuTaille = t; }
+    public String getContenuCodec()             { return contenuCodec; }
+    public void setContenuCodec(String c)       { this.contenuCodec = c; }
     public String getSqlQueryUsed()             { return sqlQueryUsed; }
     public void setSqlQueryUsed(String s)       { this.sqlQueryUsed = s; }
     public String getXsdFileNameUsed()          { return xsdFileNameUsed; }
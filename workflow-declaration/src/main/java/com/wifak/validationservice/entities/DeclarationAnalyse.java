@@ -0,0 +1,59 @@
+package com.wifak.validationservice.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Résultat d'analyse (validation par règles, résumé, comparaison) d'un contenu stocké,
+ * sérialisé en JSON. Clé = empreinte du contenu (voir declaration_contenus) + type + variante :
+ * nom de fichier pour l'analyse et le résumé, empreinte du contenu précédent pour la comparaison.
+ * Un contenu modifié a une autre empreinte : les lignes existantes ne sont jamais relues pour lui.
+ */
+@Entity
+@Table(name = "declaration_analyses",
+        uniqueConstraints = @UniqueConstraint(name = "uk_declaration_analyses_cle",
+                columnNames = {"contenuHash", "type", "variante"}),
+        indexes = @Index(name = "idx_declaration_analyses_variante", columnList = "variante"))
+public class DeclarationAnalyse {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String contenuHash;
+
+    @Column(nullable = false, length = 16)
+    private String type;
+
+    @Column(nullable = false)
+    private String variante;
+
+    // Version des règles ayant produit le résultat : une autre version = recalcul
+    @Column(nullable = false)
+    private int version;
+
+    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
+    private String resultatJson;
+
+    private LocalDateTime dateCalcul;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        dateCalcul = LocalDateTime.now();
+    }
+
+    public Long getId()                         { return id; }
+    public String getContenuHash()              { return contenuHash; }
+    public void setContenuHash(String h)        { this.contenuHash = h; }
+    public String getType()                     { return type; }
+    public void setType(String t)               { this.type = t; }
+    public String getVariante()                 { return variante; }
+    public void setVariante(String v)           { this.variante = v; }
+    public int getVersion()                     { return version; }
+    public void setVersion(int v)               { this.version = v; }
+    public String getResultatJson()             { return resultatJson; }
+    public void setResultatJson(String json)    { this.resultatJson = json; }
+    public LocalDateTime getDateCalcul()        { return dateCalcul; }
+}
@@ -0,0 +1,33 @@
+package com.wifak.validationservice.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * Nombre de déclarations par statut, tenu à jour dans la transaction de chaque
+ * changement de statut (voir DeclarationCompteurService) : les tableaux de bord
+ * lisent six lignes au lieu de compter la table declarations.
+ */
+@Entity
+@Table(name = "declaration_compteurs")
+public class DeclarationCompteur {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Declaration.DeclarationStatut statut;
+
+    @Column(nullable = false)
+    private long nombre;
+
+    public DeclarationCompteur() {}
+
+    public DeclarationCompteur(Declaration.DeclarationStatut statut, long nombre) {
+        this.statut = statut;
+        this.nombre = nombre;
+    }
+
+    public Declaration.DeclarationStatut getStatut()       { return statut; }
+    public void setStatut(Declaration.DeclarationStatut s) { this.statut = s; }
+    public long getNombre()                                { return nombre; }
+    public void setNombre(long n)                          { this.nombre = n; }
+}
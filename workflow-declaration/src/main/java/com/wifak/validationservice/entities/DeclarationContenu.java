@@ -0,0 +1,60 @@
+package com.wifak.validationservice.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Fichier généré, stocké une seule fois par empreinte SHA-256 (contenu non compressé).
+ * Plusieurs déclarations au contenu identique partagent la même ligne.
+ */
+@Entity
+@Table(name = "declaration_contenus")
+public class DeclarationContenu {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, length = 16)
+    private String codec;
+
+    @Column(nullable = false)
+    private long tailleOriginale;
+
+    @Column(nullable = false)
+    private long tailleCompressee;
+
+    // Jamais lue par l'entité (findById la chargerait en entier) : voir ContenuBlobStore
+    @Lob
+    @Column(columnDefinition = "LONGBLOB", nullable = false)
+    private byte[] donnees;
+
+    private LocalDateTime dateCreation;
+
+    public DeclarationContenu() {}
+
+    /** Métadonnées sans les octets (DeclarationContenuRepository.findInfo). */
+    public DeclarationContenu(String hash, String codec, long tailleOriginale, long tailleCompressee) {
+        this.hash             = hash;
+        this.codec            = codec;
+        this.tailleOriginale  = tailleOriginale;
+        this.tailleCompressee = tailleCompressee;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        dateCreation = LocalDateTime.now();
+    }
+
+    public String getHash()                     { return hash; }
+    public void setHash(String h)               { this.hash = h; }
+    public String getCodec()                    { return codec; }
+    public void setCodec(String c)              { this.codec = c; }
+    public long getTailleOriginale()            { return tailleOriginale; }
+    public void setTailleOriginale(long t)      { this.tailleOriginale = t; }
+    public long getTailleCompressee()           { return tailleCompressee; }
+    public void setTailleCompressee(long t)     { this.tailleCompressee = t; }
+    public byte[] getDonnees()                  { return donnees; }
+    public void setDonnees(byte[] d)            { this.donnees = d; }
+    public LocalDateTime getDateCreation()      { return dateCreation; }
+}
@@ -0,0 +1,127 @@
+package com.wifak.validationservice.entities;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Demande de génération asynchrone. La ligne est créée avant l'exécution,
+ * de sorte qu'un job en attente ou interrompu est relancé au redémarrage.
+ *
+ * Le job appartient à l'instance qui l'a en file ({@code proprietaire}) tant que
+ * son bail court : l'instance le prolonge périodiquement, avec l'avancement.
+ * Une autre instance ne reprend le job qu'une fois le bail expiré.
+ */
+@Entity
+@Table(name = "generation_jobs",
+        indexes = {
+                @Index(name = "idx_generation_jobs_statut_bail", columnList = "statut, bailExpiration"),
+                @Index(name = "idx_generation_jobs_lot", columnList = "lotId")
+        })
+public class GenerationJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long declarationTypeId;
+
+    // Lot de génération par période (null = job isolé)
+    @Column(length = 36)
+    private String lotId;
+
+    @Column(nullable = false)
+    private String periode;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate dateDebut;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate dateFin;
+
+    // Mapping XSD ↔ SQL sérialisé ; null = génération sans mapping
+    @JsonIgnore
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String mappingJson;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatut statut = JobStatut.EN_ATTENTE;
+
+    private String etape;
+    private long lignesTraitees;
+    private long octetsEcrits;
+    private Long lignesTotal;
+
+    private Long declarationId;
+
+    // Instance propriétaire et fin de son bail (null une fois le job terminé)
+    @Column(length = 100)
+    private String proprietaire;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime bailExpiration;
+
+    @Column(columnDefinition = "TEXT")
+    private String messageErreur;
+
+    private String demandePar;
+
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime dateDemande;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime dateDemarrage;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime dateTerminaison;
+
+    public enum JobStatut {
+        EN_ATTENTE, EN_COURS, TERMINE, ECHEC
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (dateDemande == null) dateDemande = LocalDateTime.now();
+    }
+
+    public Long getId()                          { return id; }
+    public void setId(Long id)                   { this.id = id; }
+    public Long getDeclarationTypeId()           { return declarationTypeId; }
+    public void setDeclarationTypeId(Long v)     { this.declarationTypeId = v; }
+    public String getLotId()                     { return lotId; }
+    public void setLotId(String v)               { this.lotId = v; }
+    public String getPeriode()                   { return periode; }
+    public void setPeriode(String p)             { this.periode = p; }
+    public LocalDate getDateDebut()              { return dateDebut; }
+    public void setDateDebut(LocalDate d)        { this.dateDebut = d; }
+    public LocalDate getDateFin()                { return dateFin; }
+    public void setDateFin(LocalDate d)          { this.dateFin = d; }
+    public String getMappingJson()               { return mappingJson; }
+    public void setMappingJson(String m)         { this.mappingJson = m; }
+    public JobStatut getStatut()                 { return statut; }
+    public void setStatut(JobStatut s)           { this.statut = s; }
+    public String getEtape()                     { return etape; }
+    public void setEtape(String e)               { this.etape = e; }
+    public long getLignesTraitees()              { return lignesTraitees; }
+    public void setLignesTraitees(long v)        { this.lignesTraitees = v; }
+    public long getOctetsEcrits()                { return octetsEcrits; }
+    public void setOctetsEcrits(long v)          { this.octetsEcrits = v; }
+    public Long getLignesTotal()                 { return lignesTotal; }
+    public void setLignesTotal(Long v)           { this.lignesTotal = v; }
+    public Long getDeclarationId()               { return declarationId; }
+    public void setDeclarationId(Long v)         { this.declarationId = v; }
+    public String getProprietaire()              { return proprietaire; }
+    public void setProprietaire(String v)        { this.proprietaire = v; }
+    public LocalDateTime getBailExpiration()     { return bailExpiration; }
+    public void setBailExpiration(LocalDateTime v) { this.bailExpiration = v; }
+    public String getMessageErreur()             { return messageErreur; }
+    public void setMessageErreur(String v)       { this.messageErreur = v; }
+    public String getDemandePar()                { return demandePar; }
+    public void setDemandePar(String v)          { this.demandePar = v; }
+    public LocalDateTime getDateDemande()        { return dateDemande; }
+    public void setDateDemande(LocalDateTime v)  { this.dateDemande = v; }
+    public LocalDateTime getDateDemarrage()      { return dateDemarrage; }
+    public void setDateDemarrage(LocalDateTime v) { this.dateDemarrage = v; }
+    public LocalDateTime getDateTerminaison()    { return dateTerminaison; }
+    public void setDateTerminaison(LocalDateTime v) { this.dateTerminaison = v; }
+}
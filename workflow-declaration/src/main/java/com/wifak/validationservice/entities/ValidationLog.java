@@ -8,7 +8,14 @@ import java.time.LocalDateTime;
  * Stocké dans la base wifak_validation (propre à ce microservice).
  */
 @Entity
-@Table(name = "validation_logs")
+// Index (filtre, dateAction, id) : journal paginé par curseur et export lus dans l'ordre de l'index
+@Table(name = "validation_logs",
+        indexes = {
+                @Index(name = "idx_validation_logs_date", columnList = "dateAction, id"),
+                @Index(name = "idx_validation_logs_action_date", columnList = "action, dateAction, id"),
+                @Index(name = "idx_validation_logs_user_date", columnList = "effectuePar, dateAction, id"),
+                @Index(name = "idx_validation_logs_declaration_date", columnList = "declarationId, dateAction")
+        })
 public class ValidationLog {
 
     @Id
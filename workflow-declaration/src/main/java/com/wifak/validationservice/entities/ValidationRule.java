@@ -26,11 +26,17 @@ public class ValidationRule {
     @Column(length = 255)
     private String messageErreur;
 
+    // Paramètre de la règle : longueur (LONGUEUR_MIN/MAX), valeurs séparées par des virgules
+    // (VALEURS_AUTORISEES), expression régulière (FORMAT_REGEX) ou comparaison (CALCUL, ex. "<= MontantCredit")
+    @Column(length = 255)
+    private String parametre;
+
     private boolean obligatoire = true;
 
     public enum TypeValidation {
         CHAMP_OBLIGATOIRE, FORMAT_DATE, FORMAT_MONTANT,
-        LONGUEUR_MIN, LONGUEUR_MAX, VALEUR_NUMERIQUE, VALEUR_POSITIVE
+        LONGUEUR_MIN, LONGUEUR_MAX, VALEUR_NUMERIQUE, VALEUR_POSITIVE,
+        VALEURS_AUTORISEES, FORMAT_REGEX, CALCUL
     }
 
     public ValidationRule() {}
@@ -45,6 +51,8 @@ public class ValidationRule {
     public void setTypeValidation(TypeValidation t) { this.typeValidation = t; }
     public String getMessageErreur()            { return messageErreur; }
     public void setMessageErreur(String m)      { this.messageErreur = m; }
+    public String getParametre()                { return parametre; }
+    public void setParametre(String p)          { this.parametre = p; }
     public boolean isObligatoire()              { return obligatoire; }
     public void setObligatoire(boolean o)       { this.obligatoire = o; }
 }
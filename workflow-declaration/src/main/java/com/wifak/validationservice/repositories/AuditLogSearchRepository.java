@@ -0,0 +1,26 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Journal d'audit filtré, trié par (dateAction, id) décroissants.
+ */
+public interface AuditLogSearchRepository {
+
+    /**
+     * Au plus {@code limit} lignes strictement après le curseur
+     * ({@code afterDate}/{@code afterId}, null pour la première page).
+     */
+    List<AuditLogDTO> searchAuditLogs(AuditLogFilter filter, LocalDateTime afterDate, Long afterId, int limit);
+
+    /**
+     * Toutes les lignes du filtre, lues au fil du curseur JDBC.
+     * À consommer dans une transaction puis fermer (try-with-resources).
+     */
+    Stream<AuditLogDTO> streamAuditLogs(AuditLogFilter filter);
+}
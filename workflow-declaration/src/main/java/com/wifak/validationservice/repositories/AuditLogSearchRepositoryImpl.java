@@ -0,0 +1,84 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Même projection que {@link ValidationLogRepository#AUDIT_SELECT} ; seuls les
+ * filtres renseignés entrent dans le WHERE, et le curseur remplace l'OFFSET.
+ * L'export lit le résultat en avant seulement : avec MySQL, un fetch size de
+ * {@code Integer.MIN_VALUE} fait remonter les lignes une à une du socket.
+ */
+class AuditLogSearchRepositoryImpl implements AuditLogSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.audit.export-fetch-size:${app.generation.fetch-size:-2147483648}}")
+    private int exportFetchSize;
+
+    @Override
+    public List<AuditLogDTO> searchAuditLogs(AuditLogFilter filter, LocalDateTime afterDate, Long afterId, int limit) {
+        return buildQuery(filter, afterDate, afterId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Stream<AuditLogDTO> streamAuditLogs(AuditLogFilter filter) {
+        return buildQuery(filter, null, null)
+                .setHint("org.hibernate.fetchSize", exportFetchSize)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream();
+    }
+
+    private TypedQuery<AuditLogDTO> buildQuery(AuditLogFilter filter, LocalDateTime afterDate, Long afterId) {
+        AuditLogFilter f = filter != null ? filter : new AuditLogFilter();
+        List<String> where = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+
+        if (f.getAction() != null && !f.getAction().isBlank()) {
+            where.add("l.action = :action");
+            params.put("action", f.getAction().toUpperCase());
+        }
+        if (f.getEffectuePar() != null && !f.getEffectuePar().isBlank()) {
+            where.add("l.effectuePar = :effectuePar");
+            params.put("effectuePar", f.getEffectuePar());
+        }
+        if (f.getDeclarationId() != null) {
+            where.add("l.declarationId = :declarationId");
+            params.put("declarationId", f.getDeclarationId());
+        }
+        if (f.getFrom() != null) {
+            where.add("l.dateAction >= :from");
+            params.put("from", f.getFrom().atStartOfDay());
+        }
+        if (f.getTo() != null) {
+            where.add("l.dateAction < :to");
+            params.put("to", f.getTo().plusDays(1).atStartOfDay());
+        }
+        if (afterDate != null && afterId != null) {
+            where.add("(l.dateAction < :afterDate OR (l.dateAction = :afterDate AND l.id < :afterId))");
+            params.put("afterDate", afterDate);
+            params.put("afterId", afterId);
+        }
+
+        String jpql = ValidationLogRepository.AUDIT_SELECT
+                + (where.isEmpty() ? "" : "WHERE " + String.join(" AND ", where) + " ")
+                + "ORDER BY l.dateAction DESC, l.id DESC";
+        TypedQuery<AuditLogDTO> query = entityManager.createQuery(jpql, AuditLogDTO.class);
+        params.forEach(query::setParameter);
+        return query;
+    }
+}
@@ -0,0 +1,51 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.entities.AuditRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AuditRollupRepository extends JpaRepository<AuditRollup, Long> {
+
+    // Insertion ou incrément en une instruction : la première action du jour ne peut pas
+    // se heurter à uk_audit_rollups_jour_action_user
+    @Modifying
+    @Query(value = "INSERT INTO audit_rollups (jour, action, effectue_par, nombre) "
+            + "VALUES (:jour, :action, :effectuePar, 1) "
+            + "ON DUPLICATE KEY UPDATE nombre = nombre + 1", nativeQuery = true)
+    int increment(@Param("jour") LocalDate jour,
+                  @Param("action") String action,
+                  @Param("effectuePar") String effectuePar);
+
+    // Comptage et écriture dans la même instruction : les logs lus restent verrouillés
+    // jusqu'au commit, un increment concurrent s'applique avant ou après, jamais perdu
+    @Modifying
+    @Query(value = "INSERT INTO audit_rollups (jour, action, effectue_par, nombre) "
+            + "SELECT s.jour, s.action, s.effectue_par, s.nombre FROM ("
+            + "SELECT DATE(date_action) AS jour, action, effectue_par, COUNT(*) AS nombre "
+            + "FROM validation_logs GROUP BY DATE(date_action), action, effectue_par) s "
+            + "ON DUPLICATE KEY UPDATE nombre = s.nombre", nativeQuery = true)
+    int rebuildFromLogs();
+
+    /** [action, nombre] */
+    @Query("select r.action, sum(r.nombre) from AuditRollup r group by r.action")
+    List<Object[]> sumByAction();
+
+    /** [utilisateur, nombre] pour les actions données, du plus actif au moins actif */
+    @Query("select r.effectuePar, sum(r.nombre) from AuditRollup r where r.action in :actions "
+            + "group by r.effectuePar order by sum(r.nombre) desc, r.effectuePar")
+    List<Object[]> sumByUser(@Param("actions") Collection<String> actions, Pageable pageable);
+
+    /** [jour, nombre] à partir de {@code depuis}, jours sans activité absents */
+    @Query("select r.jour, sum(r.nombre) from AuditRollup r where r.jour >= :depuis "
+            + "group by r.jour order by r.jour")
+    List<Object[]> sumByJourSince(@Param("depuis") LocalDate depuis);
+}
@@ -0,0 +1,27 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.entities.DeclarationAnalyse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DeclarationAnalyseRepository extends JpaRepository<DeclarationAnalyse, Long> {
+
+    Optional<DeclarationAnalyse> findByContenuHashAndTypeAndVariante(String contenuHash, String type, String variante);
+
+    // Analyses du contenu et comparaisons qui l'utilisent comme période précédente
+    @Modifying
+    @Query("delete from DeclarationAnalyse a where a.contenuHash = :hash or (a.type = 'COMPARAISON' and a.variante = :hash)")
+    int deleteByContenu(@Param("hash") String contenuHash);
+
+    // Analyses par règles des déclarations d'un type, dont les règles viennent de changer
+    @Modifying
+    @Query("delete from DeclarationAnalyse a where a.type = 'ANALYSE' and a.contenuHash in "
+            + "(select d.contenuHash from Declaration d where d.declarationType.id = :typeId)")
+    int deleteAnalysesByDeclarationType(@Param("typeId") Long typeId);
+}
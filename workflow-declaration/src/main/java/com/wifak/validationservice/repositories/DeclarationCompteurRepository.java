@@ -0,0 +1,31 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationCompteur;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DeclarationCompteurRepository extends JpaRepository<DeclarationCompteur, Declaration.DeclarationStatut> {
+
+    // Incrément atomique côté base : pas de lecture-modification-écriture entre deux transactions
+    @Modifying
+    @Query("update DeclarationCompteur c set c.nombre = c.nombre + :delta where c.statut = :statut")
+    int increment(@Param("statut") Declaration.DeclarationStatut statut, @Param("delta") long delta);
+
+    // Ligne créée à zéro si absente, laissée telle quelle sinon (recount la met à jour)
+    @Modifying
+    @Query(value = "INSERT INTO declaration_compteurs (statut, nombre) VALUES (:statut, 0) "
+            + "ON DUPLICATE KEY UPDATE nombre = nombre", nativeQuery = true)
+    int insertIfAbsent(@Param("statut") String statut);
+
+    // Comptage et écriture dans la même instruction : les lignes lues sont verrouillées
+    // jusqu'au commit, aucune transition validée entre-temps n'est écrasée
+    @Modifying
+    @Query(value = "UPDATE declaration_compteurs c SET c.nombre = "
+            + "(SELECT COUNT(*) FROM declarations d WHERE d.statut = c.statut)", nativeQuery = true)
+    int recount();
+}
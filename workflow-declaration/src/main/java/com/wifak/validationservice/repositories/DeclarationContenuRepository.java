@@ -0,0 +1,22 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.entities.DeclarationContenu;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DeclarationContenuRepository extends JpaRepository<DeclarationContenu, String> {
+
+    // Métadonnées seules : donnees (LONGBLOB) n'est pas sélectionnée, voir ContenuBlobStore
+    @Query("select new com.wifak.validationservice.entities.DeclarationContenu("
+            + "c.hash, c.codec, c.tailleOriginale, c.tailleCompressee) from DeclarationContenu c where c.hash = :hash")
+    Optional<DeclarationContenu> findInfo(@Param("hash") String hash);
+
+    // Verrou exclusif sur la ligne jusqu'à la fin de la transaction, sans lire les octets
+    @Query(value = "SELECT hash FROM declaration_contenus WHERE hash = :hash FOR UPDATE", nativeQuery = true)
+    Optional<String> lockByHash(@Param("hash") String hash);
+}
@@ -1,17 +1,64 @@
 package com.wifak.validationservice.repositories;
 
+import com.wifak.validationservice.dto.DeclarationSummary;
 import com.wifak.validationservice.entities.Declaration;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface DeclarationRepository extends JpaRepository<Declaration, Long> {
+public interface DeclarationRepository extends JpaRepository<Declaration, Long>, DeclarationSearchRepository {
     List<Declaration> findByGenerePar(String username);
     List<Declaration> findByStatut(Declaration.DeclarationStatut statut);
     List<Declaration> findByDeclarationTypeId(Long typeId);
     List<Declaration> findByPeriode(String periode);
     List<Declaration> findByDeclarationTypeIdAndPeriode(Long typeId, String periode);
     long countByStatut(Declaration.DeclarationStatut statut);
+
+    // [statut, nombre] en une seule passe — base de reconstruction des compteurs
+    @Query("select d.statut, count(d) from Declaration d group by d.statut")
+    List<Object[]> countGroupByStatut();
+    // Lecture verrouillante (dernière version validée, pas le snapshot de la transaction)
+    @Query(value = "SELECT id FROM declarations WHERE contenu_hash = :hash LIMIT 1 FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsByContenuHash(@Param("hash") String contenuHash);
+
+    // Déclaration de comparaison : une recherche dans idx_declarations_type_periode_statut
+    @Query("select d.id from Declaration d where d.declarationType.id = :typeId and d.periode = :periode "
+            + "and d.statut in :statuts order by d.dateGeneration desc, d.id desc")
+    List<Long> findLatestIdsByTypeAndPeriode(@Param("typeId") Long typeId,
+                                             @Param("periode") String periode,
+                                             @Param("statuts") Collection<Declaration.DeclarationStatut> statuts,
+                                             Pageable pageable);
+
+    // ── Vues liste : métadonnées seules (ni SQL, ni mapping, ni XSD du type) ──
+
+    String SUMMARY_SELECT = "select new com.wifak.validationservice.dto.DeclarationSummary("
+            + "d.id, d.statut, d.periode, d.dateDebut, d.dateFin, d.nomFichier, d.contenuTaille, "
+            + "d.dateGeneration, d.dateValidation, d.dateEnvoi, d.generePar, d.validePar, d.commentaireRejet, "
+            + "t.id, t.code, t.nom, t.format, t.frequence, t.dateLimite) "
+            + "from Declaration d join d.declarationType t ";
+
+    @Query(SUMMARY_SELECT + "order by d.id")
+    List<DeclarationSummary> findAllSummaries();
+
+    @Query(SUMMARY_SELECT + "where d.generePar = :username order by d.id")
+    List<DeclarationSummary> findSummariesByGenerePar(@Param("username") String username);
+
+    @Query(SUMMARY_SELECT + "where d.statut = :statut order by d.id")
+    List<DeclarationSummary> findSummariesByStatut(@Param("statut") Declaration.DeclarationStatut statut);
+
+    // File de validation : plus anciennes d'abord, lue dans idx_declarations_statut_generation
+    @Query(SUMMARY_SELECT + "where d.statut = :statut order by d.dateGeneration asc, d.id asc")
+    List<DeclarationSummary> findSummariesByStatutOldestFirst(@Param("statut") Declaration.DeclarationStatut statut,
+                                                              Pageable pageable);
+
+    // [dateLimite du type, dateFin, nombre] : l'échéance ne dépend que de ce couple
+    @Query("select t.dateLimite, d.dateFin, count(d) from Declaration d join d.declarationType t "
+            + "where d.statut = :statut group by t.dateLimite, d.dateFin")
+    List<Object[]> countByEcheanceSource(@Param("statut") Declaration.DeclarationStatut statut);
 }
@@ -0,0 +1,49 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.dto.DeclarationFilter;
+import com.wifak.validationservice.dto.DeclarationSummary;
+import com.wifak.validationservice.entities.Declaration;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Recherche paginée par clé (dateGeneration, id) avec filtres optionnels,
+ * et page de la file de validation triée par échéance.
+ */
+public interface DeclarationSearchRepository {
+
+    /**
+     * Déclarations strictement après le curseur ({@code afterDate}, {@code afterId}) dans l'ordre
+     * (dateGeneration desc, id desc). Curseur null = première page.
+     */
+    List<DeclarationSummary> searchSummaries(DeclarationFilter filter,
+                                             LocalDateTime afterDate, Long afterId, int limit);
+
+    /**
+     * Page de {@code statut} restreinte aux {@code groupes}, dans l'ordre
+     * (rang du groupe, dateGeneration, id) : le rang est porté par un CASE sur
+     * la clé (dateLimite, dateFin), OFFSET/LIMIT s'appliquent en base.
+     */
+    List<DeclarationSummary> findSummariesByEcheanceGroupes(Declaration.DeclarationStatut statut,
+                                                            List<EcheanceGroupe> groupes,
+                                                            int offset, int limit);
+
+    /** Clé (dateLimite du type, dateFin) d'un groupe d'échéance et son rang dans le tri. */
+    final class EcheanceGroupe {
+        private final String    dateLimite;
+        private final LocalDate dateFin;
+        private final int       rang;
+
+        public EcheanceGroupe(String dateLimite, LocalDate dateFin, int rang) {
+            this.dateLimite = dateLimite;
+            this.dateFin    = dateFin;
+            this.rang       = rang;
+        }
+
+        public String getDateLimite() { return dateLimite; }
+        public LocalDate getDateFin() { return dateFin; }
+        public int getRang()          { return rang; }
+    }
+}
@@ -0,0 +1,123 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.dto.DeclarationFilter;
+import com.wifak.validationservice.dto.DeclarationSummary;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seuls les filtres renseignés entrent dans le WHERE : la requête reste
+ * couverte par l'index composite correspondant (voir {@link Declaration}),
+ * et le curseur remplace l'OFFSET — une page coûte le même prix quel que
+ * soit son rang.
+ */
+class DeclarationSearchRepositoryImpl implements DeclarationSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<DeclarationSummary> searchSummaries(DeclarationFilter filter,
+                                                    LocalDateTime afterDate, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DeclarationSummary> q = cb.createQuery(DeclarationSummary.class);
+        Root<Declaration> d = q.from(Declaration.class);
+        Join<Declaration, DeclarationType> t = d.join("declarationType");
+        selectSummary(cb, q, d, t);
+
+        Path<LocalDateTime> dateGeneration = d.get("dateGeneration");
+        Path<Long> id = d.get("id");
+        List<Predicate> where = new ArrayList<>();
+
+        if (filter.getDeclarationTypeId() != null) {
+            where.add(cb.equal(t.get("id"), filter.getDeclarationTypeId()));
+        }
+        if (filter.getStatut() != null) {
+            where.add(cb.equal(d.get("statut"), filter.getStatut()));
+        }
+        if (filter.getGenerePar() != null && !filter.getGenerePar().isBlank()) {
+            where.add(cb.equal(d.get("generePar"), filter.getGenerePar()));
+        }
+        if (filter.getPeriodeDebut() != null && !filter.getPeriodeDebut().isBlank()) {
+            where.add(cb.greaterThanOrEqualTo(d.get("periode"), filter.getPeriodeDebut()));
+        }
+        if (filter.getPeriodeFin() != null && !filter.getPeriodeFin().isBlank()) {
+            where.add(cb.lessThanOrEqualTo(d.get("periode"), filter.getPeriodeFin()));
+        }
+        if (filter.getGenereDu() != null) {
+            where.add(cb.greaterThanOrEqualTo(dateGeneration, filter.getGenereDu().atStartOfDay()));
+        }
+        if (filter.getGenereAu() != null) {
+            where.add(cb.lessThan(dateGeneration, filter.getGenereAu().plusDays(1).atStartOfDay()));
+        }
+        if (afterDate != null && afterId != null) {
+            where.add(cb.or(
+                    cb.lessThan(dateGeneration, afterDate),
+                    cb.and(cb.equal(dateGeneration, afterDate), cb.lessThan(id, afterId))));
+        }
+
+        q.where(where.toArray(new Predicate[0]));
+        q.orderBy(cb.desc(dateGeneration), cb.desc(id));
+
+        return entityManager.createQuery(q)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<DeclarationSummary> findSummariesByEcheanceGroupes(Declaration.DeclarationStatut statut,
+                                                                   List<EcheanceGroupe> groupes,
+                                                                   int offset, int limit) {
+        if (groupes.isEmpty()) return List.of();
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DeclarationSummary> q = cb.createQuery(DeclarationSummary.class);
+        Root<Declaration> d = q.from(Declaration.class);
+        Join<Declaration, DeclarationType> t = d.join("declarationType");
+        selectSummary(cb, q, d, t);
+
+        Path<String> dateLimite = t.get("dateLimite");
+        Path<LocalDate> dateFin = d.get("dateFin");
+        List<Predicate> cles = new ArrayList<>();
+        CriteriaBuilder.Case<Integer> rang = cb.selectCase();
+        for (EcheanceGroupe g : groupes) {
+            Predicate cle = cb.and(
+                    g.getDateLimite() != null ? cb.equal(dateLimite, g.getDateLimite()) : cb.isNull(dateLimite),
+                    g.getDateFin() != null ? cb.equal(dateFin, g.getDateFin()) : cb.isNull(dateFin));
+            cles.add(cle);
+            rang = rang.when(cle, g.getRang());
+        }
+        Expression<Integer> ordre = rang.otherwise(Integer.MAX_VALUE);
+
+        q.where(cb.equal(d.get("statut"), statut), cb.or(cles.toArray(new Predicate[0])));
+        q.orderBy(cb.asc(ordre), cb.asc(d.get("dateGeneration")), cb.asc(d.get("id")));
+
+        return entityManager.createQuery(q)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static void selectSummary(CriteriaBuilder cb, CriteriaQuery<DeclarationSummary> q,
+                                      Root<Declaration> d, Join<Declaration, DeclarationType> t) {
+        q.select(cb.construct(DeclarationSummary.class,
+                d.get("id"), d.get("statut"), d.get("periode"),
+                d.get("dateDebut"), d.get("dateFin"), d.get("nomFichier"), d.get("contenuTaille"),
+                d.get("dateGeneration"), d.get("dateValidation"), d.get("dateEnvoi"),
+                d.get("generePar"), d.get("validePar"), d.get("commentaireRejet"),
+                t.get("id"), t.get("code"), t.get("nom"), t.get("format"), t.get("frequence"), t.get("dateLimite")));
+    }
+}
@@ -2,9 +2,23 @@ package com.wifak.validationservice.repositories;
 
 import com.wifak.validationservice.entities.DeclarationType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface DeclarationTypeRepository extends JpaRepository<DeclarationType, Long> {
     Optional<DeclarationType> findByCode(String code);
+    List<DeclarationType> findByActifTrue();
+
+    // Version du type sans charger XSD ni requête SQL (voir ValidationPlanCache)
+    @Query("select t.id as id, t.derniereModification as derniereModification from DeclarationType t where t.code = :code")
+    Optional<TypeVersion> findVersionByCode(@Param("code") String code);
+
+    interface TypeVersion {
+        Long getId();
+        LocalDateTime getDerniereModification();
+    }
 }
@@ -0,0 +1,99 @@
+package com.wifak.validationservice.repositories;
+
+import com.wifak.validationservice.entities.GenerationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJob, Long> {
+    List<GenerationJob> findTop50ByDemandeParOrderByDateDemandeDesc(String demandePar);
+    List<GenerationJob> findByLotIdOrderByIdAsc(String lotId);
+
+    // Jobs non terminés sans propriétaire vivant : bail expiré ou jamais attribué
+    @Query("select j from GenerationJob j where j.statut in :statuts "
+            + "and (j.bailExpiration is null or j.bailExpiration < :maintenant) order by j.dateDemande asc")
+    List<GenerationJob> findResumable(@Param("statuts") Collection<GenerationJob.JobStatut> statuts,
+                                      @Param("maintenant") LocalDateTime maintenant);
+
+    // Prise du job par UPDATE conditionnel : une seule instance obtient 1, les autres 0
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.proprietaire = :proprietaire, j.bailExpiration = :bail, "
+            + "j.statut = :attente, j.etape = :etape, j.lignesTraitees = 0, j.octetsEcrits = 0, j.lignesTotal = null "
+            + "where j.id = :id and j.statut in :statuts "
+            + "and (j.bailExpiration is null or j.bailExpiration < :maintenant)")
+    int claim(@Param("id") Long id,
+              @Param("proprietaire") String proprietaire,
+              @Param("bail") LocalDateTime bail,
+              @Param("attente") GenerationJob.JobStatut attente,
+              @Param("etape") String etape,
+              @Param("statuts") Collection<GenerationJob.JobStatut> statuts,
+              @Param("maintenant") LocalDateTime maintenant);
+
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.bailExpiration = :bail "
+            + "where j.proprietaire = :proprietaire and j.statut in :statuts")
+    int renewLeases(@Param("proprietaire") String proprietaire,
+                    @Param("statuts") Collection<GenerationJob.JobStatut> statuts,
+                    @Param("bail") LocalDateTime bail);
+
+    // Avancement d'un job en cours, lisible depuis n'importe quelle instance
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.etape = :etape, j.lignesTraitees = :lignes, j.octetsEcrits = :octets, "
+            + "j.lignesTotal = :total where j.id = :id and j.proprietaire = :proprietaire and j.statut = :enCours")
+    int saveProgress(@Param("id") Long id,
+                     @Param("proprietaire") String proprietaire,
+                     @Param("enCours") GenerationJob.JobStatut enCours,
+                     @Param("etape") String etape,
+                     @Param("lignes") long lignes,
+                     @Param("octets") long octets,
+                     @Param("total") Long total);
+
+    // Démarrage par le propriétaire du bail seulement : 0 si le job a été repris ailleurs
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.statut = :enCours, j.etape = :etape, j.dateDemarrage = :demarrage "
+            + "where j.id = :id and j.proprietaire = :proprietaire and j.statut in :statuts")
+    int markStarted(@Param("id") Long id,
+                    @Param("proprietaire") String proprietaire,
+                    @Param("enCours") GenerationJob.JobStatut enCours,
+                    @Param("etape") String etape,
+                    @Param("demarrage") LocalDateTime demarrage,
+                    @Param("statuts") Collection<GenerationJob.JobStatut> statuts);
+
+    // État final écrit par le propriétaire du bail seulement : 0 = exécution supplantée
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.statut = :statut, j.etape = :etape, j.messageErreur = :erreur, "
+            + "j.declarationId = :declarationId, j.lignesTraitees = :lignes, j.octetsEcrits = :octets, "
+            + "j.lignesTotal = :total, j.dateTerminaison = :terminaison, j.bailExpiration = null "
+            + "where j.id = :id and j.proprietaire = :proprietaire and j.statut = :enCours")
+    int complete(@Param("id") Long id,
+                 @Param("proprietaire") String proprietaire,
+                 @Param("enCours") GenerationJob.JobStatut enCours,
+                 @Param("statut") GenerationJob.JobStatut statut,
+                 @Param("etape") String etape,
+                 @Param("erreur") String erreur,
+                 @Param("declarationId") Long declarationId,
+                 @Param("lignes") long lignes,
+                 @Param("octets") long octets,
+                 @Param("total") Long total,
+                 @Param("terminaison") LocalDateTime terminaison);
+
+    // Job pris mais non mis en file (file pleine) : rendu aux autres instances
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.proprietaire = null, j.bailExpiration = null "
+            + "where j.id = :id and j.proprietaire = :proprietaire")
+    int releaseLease(@Param("id") Long id, @Param("proprietaire") String proprietaire);
+}
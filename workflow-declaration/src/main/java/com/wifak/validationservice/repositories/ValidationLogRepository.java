@@ -1,5 +1,6 @@
 package com.wifak.validationservice.repositories;
 
+import com.wifak.validationservice.dto.AuditLogDTO;
 import com.wifak.validationservice.entities.ValidationLog;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,7 +11,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface ValidationLogRepository extends JpaRepository<ValidationLog, Long> {
+public interface ValidationLogRepository extends JpaRepository<ValidationLog, Long>, AuditLogSearchRepository {
 
     /** Historique complet d'une déclaration, du plus récent au plus ancien */
     List<ValidationLog> findByDeclarationIdOrderByDateActionDesc(Long declarationId);
@@ -81,6 +82,34 @@ public interface ValidationLogRepository extends JpaRepository<ValidationLog, Lo
             @Param("from")           LocalDateTime from,
             @Param("to")             LocalDateTime to);
 
+    // ── Journal d'audit : log + déclaration + type en une requête ──
+    // Jointure gauche : un log dont la déclaration a été supprimée reste affiché, sans ses infos.
+
+    String AUDIT_SELECT = "SELECT new com.wifak.validationservice.dto.AuditLogDTO("
+            + "l.id, l.declarationId, t.code, t.nom, d.periode, d.statut, "
+            + "l.action, l.statutAvant, l.statutApres, l.effectuePar, l.commentaire, l.dateAction) "
+            + "FROM ValidationLog l "
+            + "LEFT JOIN Declaration d ON d.id = l.declarationId "
+            + "LEFT JOIN d.declarationType t ";
+
+    @Query(AUDIT_SELECT + "ORDER BY l.dateAction DESC")
+    List<AuditLogDTO> findAuditLogs();
+
+    @Query(AUDIT_SELECT + "WHERE l.declarationId = :declarationId ORDER BY l.dateAction DESC")
+    List<AuditLogDTO> findAuditLogsByDeclarationId(@Param("declarationId") Long declarationId);
+
+    @Query(AUDIT_SELECT + "WHERE " +
+           "(:action IS NULL OR l.action = :action) AND " +
+           "(:effectuePar IS NULL OR l.effectuePar = :effectuePar) AND " +
+           "(:from IS NULL OR l.dateAction >= :from) AND " +
+           "(:to IS NULL OR l.dateAction <= :to) " +
+           "ORDER BY l.dateAction DESC")
+    List<AuditLogDTO> findAuditLogsWithFilters(
+            @Param("action")      String action,
+            @Param("effectuePar") String effectuePar,
+            @Param("from")        LocalDateTime from,
+            @Param("to")          LocalDateTime to);
+
     /** Utilisateurs distincts ayant effectué des actions */
     @Query("SELECT DISTINCT l.effectuePar FROM ValidationLog l ORDER BY l.effectuePar")
     List<String> findDistinctEffectuePar();
@@ -3,11 +3,18 @@ package com.wifak.validationservice.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wifak.validationservice.dto.AiValidationResult;
 import org.slf4j.Logger;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * AiDeclarationService Ã¢â‚¬â€ Validation 100% rÃƒÂ¨gles mÃƒÂ©tier locale (sans IA / sans cloud)
@@ -47,6 +54,9 @@ public class AiDeclarationService {
     private static final double TOLERANCE_MONTANT   = 0.01;
     private static final int RISK_SCORE_FAIBLE      = 70;
     private static final int RISK_SCORE_MOYEN       = 40;
+    private static final int TOP_MOUVEMENTS         = 10;
+    private static final double SEUIL_VARIATION_ENTITE = 50.0;   // %, comme l'alerte sur les totaux
+    private static final String XML_MALFORME        = "XML malformÃƒÂ© Ã¢â‚¬â€ syntaxe invalide (balises non fermÃƒÂ©es, caractÃƒÂ¨res interdits, etc.)";
 
     // Ã¢â€â‚¬Ã¢â€â‚¬ Taux de provision rÃƒÂ©glementaires BCT par classe de risque Ã¢â€â‚¬Ã¢â€â‚¬
     private static final Map<String, Double> TAUX_PROVISION = Map.of(
@@ -61,6 +71,45 @@ public class AiDeclarationService {
     private static final Set<String> TYPES_CLIENT      = Set.of("ENTREPRISE", "PME", "TPE", "GE", "STARTUP");
     private static final Set<String> TYPES_CONTREP     = Set.of("ENTREPRISE", "BANQUE", "ETAT", "PARTICULIER");
     private static final Set<String> TYPES_ENGAGEMENT  = Set.of("BILAN", "HORS_BILAN");
+
+    // ── Évaluation parallèle des règles par ligne (gros fichiers) ──
+    // null = tout est évalué sur le thread de lecture
+    private final ForkJoinPool reglesPool;
+    private final int lignesParLot;
+    private final int maxLotsEnCours;
+    // Règles ValidationRule du type, en plus des règles BCT ci-dessous
+    private final ValidationPlanCache planCache;
+
+    @Autowired
+    public AiDeclarationService(@Value("${app.validation.parallel.threads:0}") int threads,
+                                @Value("${app.validation.parallel.lignes-par-lot:2000}") int lignesParLot,
+                                ValidationPlanCache planCache) {
+        this(buildPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors()), lignesParLot, planCache);
+    }
+
+    AiDeclarationService(ForkJoinPool reglesPool, int lignesParLot, ValidationPlanCache planCache) {
+        this.planCache      = planCache;
+        this.reglesPool     = reglesPool;
+        this.lignesParLot   = Math.max(1, lignesParLot);
+        // Lecture en avance bornée : au plus deux lots par worker en mémoire
+        this.maxLotsEnCours = reglesPool != null ? 2 * reglesPool.getParallelism() : 0;
+    }
+
+    // Pool dédié : les règles ne prennent pas les threads du pool commun (streams parallèles, CompletableFuture)
+    private static ForkJoinPool buildPool(int threads) {
+        if (threads <= 1) return null;
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("regles-bct-" + worker.getPoolIndex());
+            return worker;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reglesPool != null) reglesPool.shutdown();
+    }
+
     // POINT D'ENTRÃƒâ€°E PRINCIPAL Ã¢â‚¬â€ BF10 + BF15
     // Validation complÃƒÂ¨te par rÃƒÂ¨gles mÃƒÂ©tier Ã¢â‚¬â€ rÃƒÂ©sultat instantanÃƒÂ©
     public AiValidationResult analyzeDeclaration(String contenu, String nomFichier) {
@@ -80,55 +129,83 @@ public class AiDeclarationService {
     }
     // VALIDATION MÃƒâ€°TIER PRINCIPALE
     private AiValidationResult validateBusinessRules(String contenu, String nomFichier, String format) {
-        String typeDeclaration = detectTypeDeclaration(nomFichier, contenu);
-        log.info("Ã°Å¸â€œâ€¹ Type dÃƒÂ©claration dÃƒÂ©tectÃƒÂ©: {}", typeDeclaration);
-
         List<String> anomalies = new ArrayList<>();
         int score = SCORE_INITIAL;
 
-        // Ã¢â€â‚¬Ã¢â€â‚¬ 1. Validation de l'en-tÃƒÂªte Ã¢â€â‚¬Ã¢â€â‚¬
-        Map<String, String> entete = extractEssentialFields(contenu);
-        List<String> enteteErrors = validateEntete(entete, contenu);
+        // ── Une seule passe StAX : bonne formation, en-tête, puis chaque ligne dès sa lecture ──
+        List<String> lignesErrors = new ArrayList<>();
+        List<String> fictifErrors = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        String[] typeDeclaration = {detectTypeFromFileName(nomFichier)};
+        ValidationPlan[] plan = {null};
+        DeclarationXmlReader.Entete entete;
+        int nbLignes = 0;
+        if ("XML".equals(format)) {
+            DeclarationXmlReader reader = new DeclarationXmlReader(new StringReader(contenu));
+            EvaluationParLots lots = reglesPool != null ? new EvaluationParLots(lignesErrors, fictifErrors) : null;
+            try {
+                nbLignes = reader.read((num, ligne) -> {
+                    if (typeDeclaration[0] == null) {
+                        // L'en-tête précède <Donnees> : le code déclaré est connu à la première ligne
+                        typeDeclaration[0] = detectTypeFromEntete(reader.getEntete());
+                    }
+                    if (plan[0] == null) {
+                        plan[0] = planCache.plan(typeDeclaration[0]);
+                    }
+                    // Unicité jugée ici, dans l'ordre du fichier : le résultat ne dépend pas du parallélisme
+                    boolean doublon = isDoublon(typeDeclaration[0], ligne, ids);
+                    if (lots != null) {
+                        lots.ajouter(typeDeclaration[0], plan[0], num, ligne, doublon);
+                    } else {
+                        checkLigne(typeDeclaration[0], plan[0], num, ligne, doublon, lignesErrors);
+                        detectFictiveData(num, ligne, fictifErrors);
+                    }
+                });
+                if (lots != null) lots.terminer();
+            } catch (XMLStreamException e) {
+                if (lots != null) lots.annuler();
+                log.warn("❌ XML malformé: {}", e.getMessage());
+                return reject(List.of(XML_MALFORME), 0);
+            }
+            entete = reader.getEntete();
+        } else {
+            entete = new DeclarationXmlReader.Entete();
+        }
+        if (typeDeclaration[0] == null) {
+            typeDeclaration[0] = detectTypeFromEntete(entete);
+        }
+        log.info("Ã°Å¸â€œâ€¹ Type dÃƒÂ©claration dÃƒÂ©tectÃƒÂ©: {}", typeDeclaration[0]);
+
+        // ── 1. Validation de l'en-tête ──
+        List<String> enteteErrors = validateEntete(entete);
         anomalies.addAll(enteteErrors);
         score -= enteteErrors.size() * PENALITE_ENTETE;
 
-        // Ã¢â€â‚¬Ã¢â€â‚¬ 2. Extraction et validation des lignes Ã¢â€â‚¬Ã¢â€â‚¬
-        List<Map<String, String>> lignes = extractLignes(contenu);
-
-        // VÃƒÂ©rification du nombre de lignes vs NombreLignes dÃƒÂ©clarÃƒÂ©
-        String nombreLignesDeclare = extractTagOutsideLignes(contenu, "nombrelignes");
+        // ── 2. Nombre de lignes vs NombreLignes déclaré ──
+        String nombreLignesDeclare = entete.getNombreLignes();
         if (nombreLignesDeclare != null) {
             try {
                 int declared = Integer.parseInt(nombreLignesDeclare.trim());
-                if (declared != lignes.size()) {
+                if (declared != nbLignes) {
                     anomalies.add(String.format(
                             "IncohÃƒÂ©rence du nombre de lignes : en-tÃƒÂªte dÃƒÂ©clare %d ligne(s) mais %d ligne(s) trouvÃƒÂ©e(s) dans <Donnees>",
-                            declared, lignes.size()));
+                            declared, nbLignes));
                     score -= PENALITE_INCOHERENCE;
                 }
             } catch (NumberFormatException e) { log.debug("Non-numeric NombreLignes, skipping: {}", e.getMessage()); }
         }
 
-        if (lignes.isEmpty()) {
+        if (nbLignes == 0) {
             anomalies.add("Aucune ligne de donnÃƒÂ©es trouvÃƒÂ©e dans <Donnees> Ã¢â‚¬â€ la dÃƒÂ©claration est vide");
             score -= PENALITE_VIDE;
         } else {
-            // Ã¢â€â‚¬Ã¢â€â‚¬ 3. Validation par type de dÃƒÂ©claration Ã¢â€â‚¬Ã¢â€â‚¬
-            List<String> lignesErrors = switch (typeDeclaration) {
-                case "BCT_01" -> validateBCT01(lignes);
-                case "BCT_02" -> validateBCT02(lignes);
-                case "BCT_03" -> validateBCT03(lignes);
-                case "BCT_04" -> validateBCT04(lignes);
-                case "BCT_05", "BCT-05" -> validateBCT05(lignes);
-                default -> validateGeneric(lignes);
-            };
+            // ── 3. Règles par type de déclaration (évaluées pendant la lecture) ──
             anomalies.addAll(lignesErrors);
-            // PÃƒÂ©nalitÃƒÂ© proportionnelle : chaque anomalie sur lignes rÃƒÂ©duit le score
+            // Pénalité proportionnelle : chaque anomalie sur lignes réduit le score
             score -= (int) Math.min(PENALITE_LIGNES_MAX, lignesErrors.size() * PENALITE_LIGNES_UNIT);
         }
 
-        // Ã¢â€â‚¬Ã¢â€â‚¬ 4. DÃƒÂ©tection de donnÃƒÂ©es fictives / de test Ã¢â€â‚¬Ã¢â€â‚¬
-        List<String> fictifErrors = detectFictiveData(lignes, typeDeclaration);
+        // ── 4. Données fictives / de test ──
         anomalies.addAll(fictifErrors);
         score -= fictifErrors.size() * PENALITE_FICTIF;
 
@@ -151,13 +228,13 @@ public class AiDeclarationService {
         return result;
     }
     // VALIDATION EN-TÃƒÅ TE
-    private List<String> validateEntete(Map<String, String> entete, String contenu) {
+    private List<String> validateEntete(DeclarationXmlReader.Entete entete) {
         List<String> errors = new ArrayList<>();
 
-        String periode  = entete.get("periode");
-        String debut    = entete.get("date_debut");
-        String fin      = entete.get("date_fin");
-        String code     = entete.get("code");
+        String periode  = entete.getPeriode();
+        String debut    = entete.getDateDebut();
+        String fin      = entete.getDateFin();
+        String code     = entete.getCode();
 
         if (isBlankOrFictive(code)) {
             errors.add("En-tÃƒÂªte : CodeDeclaration absent ou vide");
@@ -191,188 +268,248 @@ public class AiDeclarationService {
 
         return errors;
     }
-    // BCT_01 Ã¢â‚¬â€ Risques de Change et de Taux
-    private List<String> validateBCT01(List<Map<String, String>> lignes) {
-        List<String> errors = new ArrayList<>();
-        Set<String> ids = new HashSet<>();
+    // RÈGLES PAR LIGNE — doublon : identifiant déjà vu sur une ligne précédente (voir isDoublon)
+    // Règles BCT codées ici, puis règles du type en base ; un type sans l'un ni l'autre passe par checkGeneric
+    private void checkLigne(String type, ValidationPlan plan, int num, Map<String, String> l,
+                            boolean doublon, List<String> errors) {
+        switch (type) {
+            case "BCT_01" -> checkBCT01(num, l, doublon, errors);
+            case "BCT_02" -> checkBCT02(num, l, doublon, errors);
+            case "BCT_03" -> checkBCT03(num, l, doublon, errors);
+            case "BCT_04" -> checkBCT04(num, l, doublon, errors);
+            case "BCT_05", "BCT-05" -> checkBCT05(num, l, doublon, errors);
+            default -> {
+                if (plan.isEmpty()) checkGeneric(num, l, errors);
+            }
+        }
+        plan.evaluer(num, l, errors);
+    }
+
+    // Identifiant unique par type : IdClient (01, 04, 05), IdContrepartie (03), aucun sinon
+    private boolean isDoublon(String type, Map<String, String> l, Set<String> ids) {
+        String champ = switch (type) {
+            case "BCT_01", "BCT_04", "BCT_05", "BCT-05" -> "IdClient";
+            case "BCT_03" -> "IdContrepartie";
+            default -> null;
+        };
+        if (champ == null) return false;
+        String id = l.get(champ);
+        return !isBlank(id) && !ids.add(id);
+    }
+
+    /**
+     * Lots de lignes évalués sur {@link #reglesPool} pendant que la lecture continue.
+     * Les erreurs de chaque lot sont fusionnées dans l'ordre des lots : anomalies et
+     * score sont identiques à l'évaluation séquentielle. Un fichier plus court qu'un lot
+     * est évalué sur le thread de lecture, sans passer par le pool.
+     */
+    private final class EvaluationParLots {
+        private final List<String> lignesErrors;
+        private final List<String> fictifErrors;
+        private final Deque<ForkJoinTask<Lot>> enCours = new ArrayDeque<>();
+        private Lot courant;
+
+        EvaluationParLots(List<String> lignesErrors, List<String> fictifErrors) {
+            this.lignesErrors = lignesErrors;
+            this.fictifErrors = fictifErrors;
+        }
+
+        void ajouter(String type, ValidationPlan plan, int num, Map<String, String> ligne, boolean doublon) {
+            if (courant == null) {
+                courant = new Lot(type, plan, num);
+            }
+            // La map du lecteur est réutilisée d'une ligne à l'autre : copie obligatoire
+            courant.lignes.add(new HashMap<>(ligne));
+            if (doublon) courant.doublons.set(courant.lignes.size() - 1);
+            if (courant.lignes.size() == lignesParLot) {
+                Lot lot = courant;
+                courant = null;
+                enCours.addLast(reglesPool.submit(lot::evaluer, lot));
+                // Lecture en avance bornée : on attend le plus ancien lot avant d'en lire d'autres
+                while (enCours.size() > maxLotsEnCours) {
+                    fusionner(enCours.removeFirst().join());
+                }
+            }
+        }
+
+        void terminer() {
+            Lot dernier = courant;
+            courant = null;
+            // Le lot incomplet est évalué ici pendant que le pool termine les autres
+            if (dernier != null) dernier.evaluer();
+            while (!enCours.isEmpty()) {
+                fusionner(enCours.removeFirst().join());
+            }
+            if (dernier != null) fusionner(dernier);
+        }
+
+        void annuler() {
+            enCours.forEach(task -> task.cancel(false));
+            enCours.clear();
+        }
 
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-            String id = l.get("IdClient");
+        private void fusionner(Lot lot) {
+            lignesErrors.addAll(lot.lignesErrors);
+            fictifErrors.addAll(lot.fictifErrors);
+        }
+    }
 
-            errors.addAll(checkRequired(num, l, "IdClient", "NomClient", "TypeRisque",
-                    "MontantExposition", "Devise", "DateEcheance", "TauxApplique"));
+    private final class Lot {
+        private final String type;
+        private final ValidationPlan plan;
+        private final int premiereLigne;
+        private final List<Map<String, String>> lignes = new ArrayList<>(lignesParLot);
+        private final BitSet doublons = new BitSet();
+        private final List<String> lignesErrors = new ArrayList<>();
+        private final List<String> fictifErrors = new ArrayList<>();
+
+        Lot(String type, ValidationPlan plan, int premiereLigne) {
+            this.type          = type;
+            this.plan          = plan;
+            this.premiereLigne = premiereLigne;
+        }
 
-            if (!isBlank(id)) {
-                if (!ids.add(id))
-                    errors.add("Ligne " + num + " : IdClient '" + id + "' en double (doit ÃƒÂªtre unique)");
+        void evaluer() {
+            for (int i = 0; i < lignes.size(); i++) {
+                int num = premiereLigne + i;
+                Map<String, String> l = lignes.get(i);
+                checkLigne(type, plan, num, l, doublons.get(i), lignesErrors);
+                detectFictiveData(num, l, fictifErrors);
             }
-            checkEnum(num, l, "TypeRisque", TYPES_RISQUE, errors);
-            checkPositiveAmount(num, l, "MontantExposition", errors);
-            checkPositiveAmount(num, l, "TauxApplique", errors);
-            checkDateFormat(num, l, "DateEcheance", errors);
         }
-        return errors;
     }
-    // BCT_02 Ã¢â‚¬â€ Positions de Change
-    private List<String> validateBCT02(List<Map<String, String>> lignes) {
-        List<String> errors = new ArrayList<>();
+    // BCT_01 Ã¢â‚¬â€ Risques de Change et de Taux
+    private void checkBCT01(int num, Map<String, String> l, boolean doublon, List<String> errors) {
+        String id = l.get("IdClient");
 
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-
-            errors.addAll(checkRequired(num, l, "DatePosition", "Devise",
-                    "PositionAchat", "PositionVente", "PositionNette", "LimiteAuthorisee"));
-
-            checkNonNegativeAmount(num, l, "PositionAchat", errors);
-            checkNonNegativeAmount(num, l, "PositionVente", errors);
-            checkPositiveAmount(num, l, "LimiteAuthorisee", errors);
-            checkDateFormat(num, l, "DatePosition", errors);
-
-            // VÃƒÂ©rifier PositionNette = PositionAchat - PositionVente
-            Double achat  = parseDouble(l.get("PositionAchat"));
-            Double vente  = parseDouble(l.get("PositionVente"));
-            Double nette  = parseDouble(l.get("PositionNette"));
-            if (achat != null && vente != null && nette != null) {
-                double expected = achat - vente;
-                if (Math.abs(nette - expected) > 0.01) {
-                    errors.add(String.format(
-                            "Ligne %d : PositionNette (%.2f) Ã¢â€°Â  PositionAchat - PositionVente (%.2f)",
-                            num, nette, expected));
-                }
+        errors.addAll(checkRequired(num, l, "IdClient", "NomClient", "TypeRisque",
+                "MontantExposition", "Devise", "DateEcheance", "TauxApplique"));
+
+        if (doublon) {
+            errors.add("Ligne " + num + " : IdClient '" + id + "' en double (doit ÃƒÂªtre unique)");
+        }
+        checkEnum(num, l, "TypeRisque", TYPES_RISQUE, errors);
+        checkPositiveAmount(num, l, "MontantExposition", errors);
+        checkPositiveAmount(num, l, "TauxApplique", errors);
+        checkDateFormat(num, l, "DateEcheance", errors);
+    }
+    // BCT_02 Ã¢â‚¬â€ Positions de Change
+    private void checkBCT02(int num, Map<String, String> l, boolean doublon, List<String> errors) {
+        errors.addAll(checkRequired(num, l, "DatePosition", "Devise",
+                "PositionAchat", "PositionVente", "PositionNette", "LimiteAuthorisee"));
+
+        checkNonNegativeAmount(num, l, "PositionAchat", errors);
+        checkNonNegativeAmount(num, l, "PositionVente", errors);
+        checkPositiveAmount(num, l, "LimiteAuthorisee", errors);
+        checkDateFormat(num, l, "DatePosition", errors);
+
+        // VÃƒÂ©rifier PositionNette = PositionAchat - PositionVente
+        Double achat  = parseDouble(l.get("PositionAchat"));
+        Double vente  = parseDouble(l.get("PositionVente"));
+        Double nette  = parseDouble(l.get("PositionNette"));
+        if (achat != null && vente != null && nette != null) {
+            double expected = achat - vente;
+            if (Math.abs(nette - expected) > 0.01) {
+                errors.add(String.format(
+                        "Ligne %d : PositionNette (%.2f) Ã¢â€°Â  PositionAchat - PositionVente (%.2f)",
+                        num, nette, expected));
             }
         }
-        return errors;
     }
     // BCT_03 Ã¢â‚¬â€ Grandes Expositions
-    private List<String> validateBCT03(List<Map<String, String>> lignes) {
-        List<String> errors = new ArrayList<>();
-        Set<String> ids = new HashSet<>();
+    private void checkBCT03(int num, Map<String, String> l, boolean doublon, List<String> errors) {
+        String id = l.get("IdContrepartie");
 
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-            String id = l.get("IdContrepartie");
+        errors.addAll(checkRequired(num, l, "IdContrepartie", "NomContrepartie",
+                "TypeContrepartie", "MontantExposition", "PourcentageFP", "TypeEngagement"));
 
-            errors.addAll(checkRequired(num, l, "IdContrepartie", "NomContrepartie",
-                    "TypeContrepartie", "MontantExposition", "PourcentageFP", "TypeEngagement"));
+        if (doublon) {
+            errors.add("Ligne " + num + " : IdContrepartie '" + id + "' en double");
+        }
+        checkEnum(num, l, "TypeContrepartie", TYPES_CONTREP, errors);
+        checkEnum(num, l, "TypeEngagement",   TYPES_ENGAGEMENT, errors);
+        checkPositiveAmount(num, l, "MontantExposition", errors);
 
-            if (!isBlank(id)) {
-                if (!ids.add(id))
-                    errors.add("Ligne " + num + " : IdContrepartie '" + id + "' en double");
-            }
-            checkEnum(num, l, "TypeContrepartie", TYPES_CONTREP, errors);
-            checkEnum(num, l, "TypeEngagement",   TYPES_ENGAGEMENT, errors);
-            checkPositiveAmount(num, l, "MontantExposition", errors);
-
-            // PourcentageFP doit ÃƒÂªtre entre 0 et 100
-            Double pct = parseDouble(l.get("PourcentageFP"));
-            if (pct != null && (pct <= 0 || pct > 100)) {
-                errors.add("Ligne " + num + " : PourcentageFP (" + pct + ") doit ÃƒÂªtre entre 0 et 100");
-            }
+        // PourcentageFP doit ÃƒÂªtre entre 0 et 100
+        Double pct = parseDouble(l.get("PourcentageFP"));
+        if (pct != null && (pct <= 0 || pct > 100)) {
+            errors.add("Ligne " + num + " : PourcentageFP (" + pct + ") doit ÃƒÂªtre entre 0 et 100");
         }
-        return errors;
     }
     // BCT_04 Ã¢â‚¬â€ OpÃƒÂ©rations Bancaires Trimestrielles
-    private List<String> validateBCT04(List<Map<String, String>> lignes) {
-        List<String> errors = new ArrayList<>();
-        Set<String> ids = new HashSet<>();
-
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-            String id = l.get("IdClient");
+    private void checkBCT04(int num, Map<String, String> l, boolean doublon, List<String> errors) {
+        String id = l.get("IdClient");
 
-            errors.addAll(checkRequired(num, l, "IdClient", "NomClient", "TypeOperation",
-                    "MontantOperation", "DateOperation", "Devise", "StatutOperation"));
+        errors.addAll(checkRequired(num, l, "IdClient", "NomClient", "TypeOperation",
+                "MontantOperation", "DateOperation", "Devise", "StatutOperation"));
 
-            if (!isBlank(id)) {
-                if (!ids.add(id))
-                    errors.add("Ligne " + num + " : IdClient '" + id + "' en double");
-            }
-            checkEnum(num, l, "TypeOperation",   TYPES_OPERATION, errors);
-            checkEnum(num, l, "StatutOperation", STATUTS_OPERATION, errors);
-            checkPositiveAmount(num, l, "MontantOperation", errors);
-            checkDateFormat(num, l, "DateOperation", errors);
+        if (doublon) {
+            errors.add("Ligne " + num + " : IdClient '" + id + "' en double");
         }
-        return errors;
+        checkEnum(num, l, "TypeOperation",   TYPES_OPERATION, errors);
+        checkEnum(num, l, "StatutOperation", STATUTS_OPERATION, errors);
+        checkPositiveAmount(num, l, "MontantOperation", errors);
+        checkDateFormat(num, l, "DateOperation", errors);
     }
     // BCT_05 Ã¢â‚¬â€ CrÃƒÂ©dits AccordÃƒÂ©s aux Entreprises
-    private List<String> validateBCT05(List<Map<String, String>> lignes) {
-        List<String> errors = new ArrayList<>();
-        Set<String> ids = new HashSet<>();
+    private void checkBCT05(int num, Map<String, String> l, boolean doublon, List<String> errors) {
+        String id = l.get("IdClient");
 
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-            String id = l.get("IdClient");
+        errors.addAll(checkRequired(num, l, "IdClient", "NomClient", "MontantCredit",
+                "MontantImpaye", "ClasseRisque", "Provision", "DureeRetard",
+                "TypeClient", "DateClassification"));
 
-            errors.addAll(checkRequired(num, l, "IdClient", "NomClient", "MontantCredit",
-                    "MontantImpaye", "ClasseRisque", "Provision", "DureeRetard",
-                    "TypeClient", "DateClassification"));
-
-            if (!isBlank(id)) {
-                if (!ids.add(id))
-                    errors.add("Ligne " + num + " : IdClient '" + id + "' en double (doit ÃƒÂªtre unique)");
-            }
+        if (doublon) {
+            errors.add("Ligne " + num + " : IdClient '" + id + "' en double (doit ÃƒÂªtre unique)");
+        }
 
-            checkEnum(num, l, "ClasseRisque", CLASSES_RISQUE, errors);
-            checkEnum(num, l, "TypeClient",   TYPES_CLIENT, errors);
-            checkPositiveAmount(num, l, "MontantCredit", errors);
-            checkDateFormat(num, l, "DateClassification", errors);
+        checkEnum(num, l, "ClasseRisque", CLASSES_RISQUE, errors);
+        checkEnum(num, l, "TypeClient",   TYPES_CLIENT, errors);
+        checkPositiveAmount(num, l, "MontantCredit", errors);
+        checkDateFormat(num, l, "DateClassification", errors);
 
-            Double credit    = parseDouble(l.get("MontantCredit"));
-            Double impaye    = parseDouble(l.get("MontantImpaye"));
-            Double provision = parseDouble(l.get("Provision"));
-            String classe    = l.get("ClasseRisque");
+        Double credit    = parseDouble(l.get("MontantCredit"));
+        Double impaye    = parseDouble(l.get("MontantImpaye"));
+        Double provision = parseDouble(l.get("Provision"));
+        String classe    = l.get("ClasseRisque");
 
-            // RÃƒÂ¨gle critique : MontantImpaye Ã¢â€°Â¤ MontantCredit
-            if (credit != null && impaye != null && impaye > credit + TOLERANCE_MONTANT) {
-                errors.add(String.format(
-                        "Ligne %d [%s] CRITIQUE : MontantImpaye (%.2f TND) > MontantCredit (%.2f TND) Ã¢â‚¬â€ incohÃƒÂ©rence mathÃƒÂ©matique",
-                        num, id != null ? id : "?", impaye, credit));
-            }
+        // RÃƒÂ¨gle critique : MontantImpaye Ã¢â€°Â¤ MontantCredit
+        if (credit != null && impaye != null && impaye > credit + TOLERANCE_MONTANT) {
+            errors.add(String.format(
+                    "Ligne %d [%s] CRITIQUE : MontantImpaye (%.2f TND) > MontantCredit (%.2f TND) Ã¢â‚¬â€ incohÃƒÂ©rence mathÃƒÂ©matique",
+                    num, id != null ? id : "?", impaye, credit));
+        }
 
-            // RÃƒÂ¨gle provision : Provision Ã¢â€°Â¥ MontantImpaye Ãƒâ€” taux(classe)
-            if (classe != null && impaye != null && provision != null) {
-                Double taux = TAUX_PROVISION.get(classe.toUpperCase());
-                if (taux != null) {
-                    double mini = impaye * taux;
-                    if (provision < mini - TOLERANCE_MONTANT) {
-                        errors.add(String.format(
-                                "Ligne %d [%s] : Provision insuffisante (%.2f TND) < minimum rÃƒÂ©glementaire BCT (%.2f TND) pour classe %s (taux %.0f%%)",
-                                num, id != null ? id : "?", provision, mini, classe, taux * 100));
-                    }
+        // RÃƒÂ¨gle provision : Provision Ã¢â€°Â¥ MontantImpaye Ãƒâ€” taux(classe)
+        if (classe != null && impaye != null && provision != null) {
+            Double taux = TAUX_PROVISION.get(classe.toUpperCase());
+            if (taux != null) {
+                double mini = impaye * taux;
+                if (provision < mini - TOLERANCE_MONTANT) {
+                    errors.add(String.format(
+                            "Ligne %d [%s] : Provision insuffisante (%.2f TND) < minimum rÃƒÂ©glementaire BCT (%.2f TND) pour classe %s (taux %.0f%%)",
+                            num, id != null ? id : "?", provision, mini, classe, taux * 100));
                 }
             }
+        }
 
-            // DureeRetard doit ÃƒÂªtre Ã¢â€°Â¥ 0
-            Double retard = parseDouble(l.get("DureeRetard"));
-            if (retard != null && retard < 0) {
-                errors.add("Ligne " + num + " : DureeRetard (" + retard.intValue() + ") ne peut pas ÃƒÂªtre nÃƒÂ©gatif");
-            }
+        // DureeRetard doit ÃƒÂªtre Ã¢â€°Â¥ 0
+        Double retard = parseDouble(l.get("DureeRetard"));
+        if (retard != null && retard < 0) {
+            errors.add("Ligne " + num + " : DureeRetard (" + retard.intValue() + ") ne peut pas ÃƒÂªtre nÃƒÂ©gatif");
+        }
 
-            // ImpayÃƒÂ© doit ÃƒÂªtre Ã¢â€°Â¥ 0
-            if (impaye != null && impaye < 0) {
-                errors.add("Ligne " + num + " : MontantImpaye (" + impaye + ") ne peut pas ÃƒÂªtre nÃƒÂ©gatif");
-            }
+        // ImpayÃƒÂ© doit ÃƒÂªtre Ã¢â€°Â¥ 0
+        if (impaye != null && impaye < 0) {
+            errors.add("Ligne " + num + " : MontantImpaye (" + impaye + ") ne peut pas ÃƒÂªtre nÃƒÂ©gatif");
         }
-        return errors;
     }
     // VALIDATION GÃƒâ€°NÃƒâ€°RIQUE (type inconnu)
-    private List<String> validateGeneric(List<Map<String, String>> lignes) {
-        List<String> errors = new ArrayList<>();
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-            long emptyFields = l.values().stream().filter(this::isBlank).count();
-            if (emptyFields > 0) {
-                errors.add("Ligne " + num + " : " + emptyFields + " champ(s) vide(s) dÃƒÂ©tectÃƒÂ©(s)");
-            }
+    private void checkGeneric(int num, Map<String, String> l, List<String> errors) {
+        long emptyFields = l.values().stream().filter(this::isBlank).count();
+        if (emptyFields > 0) {
+            errors.add("Ligne " + num + " : " + emptyFields + " champ(s) vide(s) dÃƒÂ©tectÃƒÂ©(s)");
         }
-        return errors;
     }
     // DÃƒâ€°TECTION DE DONNÃƒâ€°ES FICTIVES / DE TEST
     private static final Set<String> MOTS_FICTIFS = Set.of(
@@ -380,35 +517,29 @@ public class AiDeclarationService {
             "exemple", "example", "fictif", "fake", "dummy", "toto", "titi",
             "aaa", "bbb", "ccc", "foo", "bar", "sample"
     );
-
-    private List<String> detectFictiveData(List<Map<String, String>> lignes, String type) {
-        List<String> errors = new ArrayList<>();
-        for (int i = 0; i < lignes.size(); i++) {
-            Map<String, String> l = lignes.get(i);
-            int num = i + 1;
-            for (Map.Entry<String, String> entry : l.entrySet()) {
-                String val = entry.getValue();
-                if (val != null && MOTS_FICTIFS.contains(val.toLowerCase().trim())) {
-                    errors.add("Ligne " + num + " : Champ '" + entry.getKey() +
-                            "' contient une valeur fictive/de test ('" + val + "')");
-                }
-            }
-            // DÃƒÂ©tecter si tous les montants sont ÃƒÂ  0
-            String[] montantFields = {"MontantCredit", "MontantImpaye", "MontantOperation",
-                    "MontantExposition", "PositionAchat", "PositionVente"};
-            boolean allZero = Arrays.stream(montantFields)
-                    .map(f -> parseDouble(l.get(f)))
-                    .filter(Objects::nonNull)
-                    .allMatch(v -> v == 0.0);
-            long montantCount = Arrays.stream(montantFields)
-                    .map(f -> parseDouble(l.get(f)))
-                    .filter(Objects::nonNull)
-                    .count();
-            if (montantCount > 0 && allZero) {
-                errors.add("Ligne " + num + " : Tous les montants sont ÃƒÂ  zÃƒÂ©ro Ã¢â‚¬â€ donnÃƒÂ©es probablement fictives ou non initialisÃƒÂ©es");
+    private static final String[] MONTANT_FIELDS = {"MontantCredit", "MontantImpaye", "MontantOperation",
+            "MontantExposition", "PositionAchat", "PositionVente"};
+
+    private void detectFictiveData(int num, Map<String, String> l, List<String> errors) {
+        for (Map.Entry<String, String> entry : l.entrySet()) {
+            String val = entry.getValue();
+            if (val != null && MOTS_FICTIFS.contains(val.toLowerCase().trim())) {
+                errors.add("Ligne " + num + " : Champ '" + entry.getKey() +
+                        "' contient une valeur fictive/de test ('" + val + "')");
             }
         }
-        return errors;
+        // DÃƒÂ©tecter si tous les montants sont ÃƒÂ  0
+        boolean allZero = Arrays.stream(MONTANT_FIELDS)
+                .map(f -> parseDouble(l.get(f)))
+                .filter(Objects::nonNull)
+                .allMatch(v -> v == 0.0);
+        long montantCount = Arrays.stream(MONTANT_FIELDS)
+                .map(f -> parseDouble(l.get(f)))
+                .filter(Objects::nonNull)
+                .count();
+        if (montantCount > 0 && allZero) {
+            errors.add("Ligne " + num + " : Tous les montants sont ÃƒÂ  zÃƒÂ©ro Ã¢â‚¬â€ donnÃƒÂ©es probablement fictives ou non initialisÃƒÂ©es");
+        }
     }
     // BF15 Ã¢â‚¬â€ RÃƒâ€°SUMÃƒâ€° ANALYTIQUE (pour le tableau de bord)
     public Map<String, Object> buildAiSummary(String contenu, String nomFichier) {
@@ -421,70 +552,72 @@ public class AiDeclarationService {
             return summary;
         }
 
-        Map<String, String> essentials = extractEssentialFields(contenu);
-        summary.put("periode",        essentials.getOrDefault("periode", "Ã¢â‚¬â€"));
-        summary.put("dateDebut",       essentials.getOrDefault("date_debut", "Ã¢â‚¬â€"));
-        summary.put("dateFin",         essentials.getOrDefault("date_fin", "Ã¢â‚¬â€"));
-        summary.put("codeDeclaration", essentials.getOrDefault("code", "Ã¢â‚¬â€"));
-
-        List<Map<String, String>> lignes = extractLignes(contenu);
-        summary.put("nombreLignes", lignes.size());
+        // Colonnes lues une fois ; totaux, répartition et anomalies = boucles sur les tableaux
+        DeclarationColonnes colonnes = DeclarationColonnes.lire(contenu);
+        if (colonnes.isMalforme()) {
+            // Résumé partiel : lignes lues avant l'erreur de syntaxe
+            log.warn("⚠️ Résumé sur XML malformé ({} lignes lues)", colonnes.getTaille());
+        }
+        double totalCredit    = colonnes.totalCredit();
+        double totalImpaye    = colonnes.totalImpaye();
+        double totalProvision = colonnes.totalProvision();
 
-        double totalCredit = 0, totalImpaye = 0, totalProvision = 0;
-        Map<String, Integer> classeCount = new LinkedHashMap<>();
         List<Map<String, Object>> anomalies = new ArrayList<>();
-
-        int idx = 0;
-        for (Map<String, String> ligne : lignes) {
-            idx++;
-            Double credit    = parseDouble(ligne.get("MontantCredit"));
-            Double impaye    = parseDouble(ligne.get("MontantImpaye"));
-            Double provision = parseDouble(ligne.get("Provision"));
-            String classe    = ligne.get("ClasseRisque");
-            String idClient  = ligne.getOrDefault("IdClient", ligne.getOrDefault("idClient", "L" + idx));
-
-            if (credit    != null) totalCredit    += credit;
-            if (impaye    != null) totalImpaye    += impaye;
-            if (provision != null) totalProvision += provision;
-            if (classe    != null) classeCount.merge(classe.toUpperCase(), 1, Integer::sum);
-
-            if (credit != null && impaye != null && impaye > credit + TOLERANCE_MONTANT) {
-                anomalies.add(buildAnomalie(idx, idClient, "MONTANT_IMPAYE_INCOHERENT", "CRITIQUE",
+        int critiques = 0, majeures = 0;
+        for (int i = 0; i < colonnes.getTaille(); i++) {
+            double credit    = colonnes.credit(i);
+            double impaye    = colonnes.impaye(i);
+            double provision = colonnes.provision(i);
+            if (Double.isNaN(impaye)) continue;   // aucune règle sans impayé
+
+            if (!Double.isNaN(credit) && impaye > credit + TOLERANCE_MONTANT) {
+                anomalies.add(buildAnomalie(i + 1, idClient(colonnes, i), "MONTANT_IMPAYE_INCOHERENT", "CRITIQUE",
                         String.format("ImpayÃƒÂ© (%.0f TND) > CrÃƒÂ©dit (%.0f TND)", impaye, credit)));
+                critiques++;
             }
-            if (classe != null && impaye != null && provision != null) {
+            String classe = colonnes.classe(i);
+            if (classe != null && !Double.isNaN(provision)) {
                 Double taux = TAUX_PROVISION.get(classe.toUpperCase());
                 if (taux != null) {
                     double mini = impaye * taux;
                     if (provision < mini - TOLERANCE_MONTANT) {
-                        anomalies.add(buildAnomalie(idx, idClient, "PROVISION_INSUFFISANTE", "MAJEURE",
+                        anomalies.add(buildAnomalie(i + 1, idClient(colonnes, i), "PROVISION_INSUFFISANTE", "MAJEURE",
                                 String.format("Provision %.0f TND < minimum %.0f TND (classe %s, taux %.0f%%)",
                                         provision, mini, classe, taux * 100)));
+                        majeures++;
                     }
                 }
             }
         }
 
+        DeclarationXmlReader.Entete entete = colonnes.getEntete();
+        summary.put("periode",         orDefault(entete.getPeriode(),   "Ã¢â‚¬â€"));
+        summary.put("dateDebut",       orDefault(entete.getDateDebut(), "Ã¢â‚¬â€"));
+        summary.put("dateFin",         orDefault(entete.getDateFin(),   "Ã¢â‚¬â€"));
+        summary.put("codeDeclaration", orDefault(entete.getCode(),      "Ã¢â‚¬â€"));
+        summary.put("nombreLignes", colonnes.getTaille());
+        if (colonnes.isMalforme()) summary.put("avertissement", XML_MALFORME);
+
         summary.put("totalMontantCredit",  totalCredit);
         summary.put("totalMontantImpaye",  totalImpaye);
         summary.put("totalProvision",       totalProvision);
         summary.put("tauxImpayeGlobal",     totalCredit > 0 ? (totalImpaye / totalCredit) * 100 : 0.0);
-        summary.put("repartitionClasses",   classeCount);
+        summary.put("repartitionClasses",   colonnes.repartitionClasses());
+        Map<String, Integer> devises = colonnes.repartitionDevises();
+        if (!devises.isEmpty()) summary.put("repartitionDevises", devises);
         summary.put("anomaliesDetaillees",  anomalies);
-        summary.put("nombreAnomaliesCritiques", anomalies.stream().filter(a -> "CRITIQUE".equals(a.get("severity"))).count());
-        summary.put("nombreAnomaliesMajeures",  anomalies.stream().filter(a -> "MAJEURE".equals(a.get("severity"))).count());
+        summary.put("nombreAnomaliesCritiques", (long) critiques);
+        summary.put("nombreAnomaliesMajeures",  (long) majeures);
 
-        int riskScore = computeRiskScore(anomalies, totalCredit, totalImpaye);
+        int riskScore = computeRiskScore(critiques, majeures, totalCredit, totalImpaye);
         summary.put("riskScore", riskScore);
         summary.put("riskLevel", riskScore >= RISK_SCORE_FAIBLE ? "FAIBLE" : riskScore >= RISK_SCORE_MOYEN ? "MOYEN" : "ELEVE");
 
         return summary;
     }
     // BF16 Ã¢â‚¬â€ SCORE DE RISQUE
-    private int computeRiskScore(List<Map<String, Object>> anomalies, double totalCredit, double totalImpaye) {
+    private int computeRiskScore(long critiques, long majeures, double totalCredit, double totalImpaye) {
         int score = SCORE_INITIAL;
-        long critiques = anomalies.stream().filter(a -> "CRITIQUE".equals(a.get("severity"))).count();
-        long majeures  = anomalies.stream().filter(a -> "MAJEURE".equals(a.get("severity"))).count();
         score -= (int)(critiques * PENALITE_CRITIQUE);
         score -= (int)(majeures  * PENALITE_MAJEURE);
         if (totalCredit > 0) {
@@ -496,20 +629,42 @@ public class AiDeclarationService {
     }
     // BF15 Ã¢â‚¬â€ COMPARAISON AVEC PÃƒâ€°RIODE PRÃƒâ€°CÃƒâ€°DENTE
     public Map<String, Object> compareWithPrevious(String contenuCurrent, String contenuPrevious) {
-        Map<String, Object> result = new LinkedHashMap<>();
         if (contenuPrevious == null || contenuPrevious.isBlank()) {
+            return compareWithPrevious(() -> new StringReader(contenuCurrent), contenuCurrent.length(), null, 0);
+        }
+        return compareWithPrevious(() -> new StringReader(contenuCurrent), contenuCurrent.length(),
+                () -> new StringReader(contenuPrevious), contenuPrevious.length());
+    }
+
+    /** Contenus lus en flux ; {@code previous} null = aucune déclaration de comparaison. */
+    public Map<String, Object> compareWithPrevious(DeclarationDiff.Source current, long tailleCurrent,
+                                                   DeclarationDiff.Source previous, long taillePrevious) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (previous == null) {
             result.put("available", false);
             result.put("message", "Aucune dÃƒÂ©claration prÃƒÂ©cÃƒÂ©dente disponible pour comparaison");
             return result;
         }
-        Map<String, Object> curr = buildAiSummary(contenuCurrent, "current.xml");
-        Map<String, Object> prev = buildAiSummary(contenuPrevious, "previous.xml");
+        // Une lecture par fichier : totaux globaux et différence par client dans la même passe
+        DeclarationDiff diff = DeclarationDiff.comparer(current, tailleCurrent, previous, taillePrevious,
+                TOP_MOUVEMENTS, SEUIL_VARIATION_ENTITE);
+        int curr = DeclarationDiff.COURANTE, prev = DeclarationDiff.PRECEDENTE;
+        double variationCredit = computeVariation(diff.totalCredit(curr), diff.totalCredit(prev));
+        double variationImpaye = computeVariation(diff.totalImpaye(curr), diff.totalImpaye(prev));
         result.put("available",         true);
-        result.put("variationCredit",    computeVariation(curr, prev, "totalMontantCredit"));
-        result.put("variationImpaye",    computeVariation(curr, prev, "totalMontantImpaye"));
-        result.put("variationProvision", computeVariation(curr, prev, "totalProvision"));
-        result.put("variationLignes",    computeVariation(curr, prev, "nombreLignes"));
-        result.put("alerteVariation",    isVariationAnormale(curr, prev));
+        result.put("variationCredit",    variationCredit);
+        result.put("variationImpaye",    variationImpaye);
+        result.put("variationProvision", computeVariation(diff.totalProvision(curr), diff.totalProvision(prev)));
+        result.put("variationLignes",    computeVariation(diff.getLignes(curr), diff.getLignes(prev)));
+        result.put("alerteVariation",    Math.abs(variationCredit) > SEUIL_VARIATION_ENTITE
+                                      || Math.abs(variationImpaye) > SEUIL_VARIATION_ENTITE);
+        if (diff.isMalforme()) result.put("avertissement", XML_MALFORME);
+
+        result.put("entites",              diff.entites());
+        result.put("principauxMouvements", diff.principauxMouvements());
+        result.put("entitesApparues",      diff.apparues());
+        result.put("entitesDisparues",     diff.disparues());
+        result.put("depassementsSeuil",    diff.depassementsSeuil());
         return result;
     }
     // BF17 Ã¢â‚¬â€ TEMPLATES DE MOTIFS DE REJET
@@ -579,25 +734,12 @@ public class AiDeclarationService {
             errors.add("Fichier vide Ã¢â‚¬â€ aucune donnÃƒÂ©e ÃƒÂ  analyser");
             return errors;
         }
-        if ("XML".equals(format) && !isWellFormedXml(contenu)) {
-            errors.add("XML malformÃƒÂ© Ã¢â‚¬â€ syntaxe invalide (balises non fermÃƒÂ©es, caractÃƒÂ¨res interdits, etc.)");
-        }
         if ("CSV".equals(format) && contenu.split("\n").length < 2) {
             errors.add("CSV invalide Ã¢â‚¬â€ au moins une ligne d'en-tÃƒÂªte et une ligne de donnÃƒÂ©es requises");
         }
         return errors;
     }
 
-    private boolean isWellFormedXml(String xml) {
-        try {
-            javax.xml.parsers.DocumentBuilderFactory f = javax.xml.parsers.DocumentBuilderFactory.newInstance();
-            f.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            f.newDocumentBuilder().parse(new org.xml.sax.InputSource(new java.io.StringReader(xml)));
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
     // DÃƒâ€°TECTION FORMAT ET TYPE
     private String detectFormat(String nomFichier, String contenu) {
         if (nomFichier != null) {
@@ -612,7 +754,7 @@ public class AiDeclarationService {
         return "TXT";
     }
 
-    private String detectTypeDeclaration(String nomFichier, String contenu) {
+    private String detectTypeFromFileName(String nomFichier) {
         if (nomFichier != null) {
             String upper = nomFichier.toUpperCase();
             if (upper.contains("BCT_01") || upper.contains("BCT-01")) return "BCT_01";
@@ -621,34 +763,24 @@ public class AiDeclarationService {
             if (upper.contains("BCT_04") || upper.contains("BCT-04")) return "BCT_04";
             if (upper.contains("BCT_05") || upper.contains("BCT-05")) return "BCT_05";
         }
-        Pattern p = Pattern.compile("<CodeDeclaration>(.*?)</CodeDeclaration>", Pattern.CASE_INSENSITIVE);
-        Matcher m = p.matcher(contenu);
-        if (m.find()) return m.group(1).trim();
-        Pattern pAttr = Pattern.compile("code=[\"']([^\"']+)[\"']", Pattern.CASE_INSENSITIVE);
-        Matcher mAttr = pAttr.matcher(contenu.substring(0, Math.min(500, contenu.length())));
-        if (mAttr.find()) return mAttr.group(1).trim();
-        return "INCONNU";
+        return null;
+    }
+
+    private String detectTypeFromEntete(DeclarationXmlReader.Entete entete) {
+        String code = entete.getCodeDeclaration();
+        return code != null && !code.isBlank() ? code.trim() : "INCONNU";
     }
     // UTILITAIRES Ã¢â‚¬â€ Comparaison pÃƒÂ©riodes
-    private double computeVariation(Map<String, Object> curr, Map<String, Object> prev, String key) {
-        try {
-            double c = toDouble(curr.get(key));
-            double p = toDouble(prev.get(key));
-            if (p == 0) return c > 0 ? 100.0 : 0.0;
-            return ((c - p) / Math.abs(p)) * 100.0;
-        } catch (Exception e) { return 0; }
+    private double computeVariation(double c, double p) {
+        if (p == 0) return c > 0 ? 100.0 : 0.0;
+        return ((c - p) / Math.abs(p)) * 100.0;
     }
 
-    private boolean isVariationAnormale(Map<String, Object> curr, Map<String, Object> prev) {
-        return Math.abs(computeVariation(curr, prev, "totalMontantCredit")) > 50
-                || Math.abs(computeVariation(curr, prev, "totalMontantImpaye")) > 50;
+    private String idClient(DeclarationColonnes colonnes, int i) {
+        String id = colonnes.id(i);
+        return id != null ? id : "L" + (i + 1);
     }
 
-    private double toDouble(Object o) {
-        if (o == null) return 0;
-        if (o instanceof Number n) return n.doubleValue();
-        try { return Double.parseDouble(o.toString()); } catch (Exception e) { return 0; }
-    }
     // UTILITAIRES Ã¢â‚¬â€ Extraction XML
     private Double parseDouble(String s) {
         if (s == null || s.isBlank()) return null;
@@ -656,69 +788,8 @@ public class AiDeclarationService {
         catch (NumberFormatException e) { return null; }
     }
 
-    private Map<String, String> extractEssentialFields(String xml) {
-        Map<String, String> result = new HashMap<>();
-        Pattern rootAttr = Pattern.compile("<(?![?!/])\\w+\\s+([^>]*)>", Pattern.DOTALL);
-        Matcher rm = rootAttr.matcher(xml);
-        if (rm.find()) {
-            Pattern attr = Pattern.compile("(\\w+)\\s*=\\s*[\"']([^\"']*)[\"']", Pattern.CASE_INSENSITIVE);
-            Matcher am = attr.matcher(rm.group(1));
-            while (am.find()) {
-                switch (am.group(1).toLowerCase()) {
-                    case "code"      -> result.put("code",       am.group(2));
-                    case "periode"   -> result.put("periode",    am.group(2));
-                    case "datedebut" -> result.put("date_debut", am.group(2));
-                    case "datefin"   -> result.put("date_fin",   am.group(2));
-                }
-            }
-        }
-        for (String tag : Arrays.asList("code", "periode", "date_debut", "date_fin")) {
-            if (!result.containsKey(tag)) {
-                String value = extractTagOutsideLignes(xml, tag);
-                if (value != null) result.put(tag, value);
-            }
-        }
-        return result;
-    }
-
-    private String extractTagOutsideLignes(String xml, String tagName) {
-        List<String> variants = switch (tagName.toLowerCase()) {
-            case "code"        -> Arrays.asList("code", "CodeDeclaration", "codeDeclaration");
-            case "periode"     -> Arrays.asList("periode", "Periode");
-            case "date_debut"  -> Arrays.asList("date_debut", "DateDebut", "dateDebut");
-            case "date_fin"    -> Arrays.asList("date_fin", "DateFin", "dateFin");
-            case "nombrelignes"-> Arrays.asList("nombreLignes", "NombreLignes", "nombre_lignes");
-            default            -> List.of(tagName);
-        };
-        for (String variant : variants) {
-            Pattern p = Pattern.compile("<" + variant + "\\b[^>]*>(.*?)</" + variant + ">",
-                    Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-            Matcher m = p.matcher(xml);
-            while (m.find()) {
-                int start = m.start();
-                String before = xml.substring(0, start);
-                if (before.lastIndexOf("<Ligne") > before.lastIndexOf("</Ligne>")) continue;
-                String val = m.group(1).trim();
-                if (!val.isEmpty()) return val;
-            }
-        }
-        return null;
-    }
-
-    private List<Map<String, String>> extractLignes(String xml) {
-        List<Map<String, String>> lignes = new ArrayList<>();
-        Pattern lignePattern = Pattern.compile("<Ligne\\b[^>]*>(.*?)</Ligne>",
-                Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-        Matcher m = lignePattern.matcher(xml);
-        while (m.find()) {
-            Map<String, String> fields = new HashMap<>();
-            Pattern tagPattern = Pattern.compile("<([a-zA-Z_][\\w\\-]*)\\b[^>]*>(.*?)</\\1>",
-                    Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
-            Matcher tm = tagPattern.matcher(m.group(1));
-            while (tm.find()) fields.put(tm.group(1), tm.group(2).trim());
-            lignes.add(fields);
-        }
-        return lignes;
+    private String orDefault(String value, String defaut) {
+        return value != null ? value : defaut;
     }
 
     private Map<String, Object> buildAnomalie(int ligne, String client, String type, String severity, String detail) {
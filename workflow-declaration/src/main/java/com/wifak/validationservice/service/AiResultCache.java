@@ -0,0 +1,123 @@
+package com.wifak.validationservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.AiValidationResult;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationAnalyse;
+import com.wifak.validationservice.repositories.DeclarationAnalyseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Résultats de AiDeclarationService conservés en base, à côté du contenu analysé
+ * (table declaration_analyses, clé = empreinte SHA-256 du contenu).
+ *
+ * Ouvrir une déclaration déjà analysée ne relit ni ne parse le fichier. patchContent et
+ * updateDeclaration changent l'empreinte : l'ancien résultat n'est plus jamais servi, et
+ * il est supprimé avec le contenu orphelin (DeclarationContenuService.releaseIfUnused).
+ *
+ * Métriques : ai.result.cache{result=hit|miss}, ai.result.compute.
+ */
+@Service
+public class AiResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AiResultCache.class);
+
+    static final String ANALYSE     = "ANALYSE";
+    static final String RESUME      = "RESUME";
+    static final String COMPARAISON = "COMPARAISON";
+
+    // À incrémenter à chaque changement des règles ou du format des résultats
+    static final int VERSION = 3;
+
+    private final DeclarationAnalyseRepository repository;
+    private final ObjectMapper objectMapper;
+    private final JavaType resultType;
+    private final JavaType mapType;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer   computeTimer;
+
+    public AiResultCache(DeclarationAnalyseRepository repository, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.repository   = repository;
+        this.objectMapper = objectMapper;
+        this.resultType   = objectMapper.constructType(AiValidationResult.class);
+        this.mapType      = objectMapper.getTypeFactory().constructType(new TypeReference<Map<String, Object>>() {});
+        this.hits = Counter.builder("ai.result.cache")
+                .description("Accès aux résultats d'analyse conservés")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("ai.result.cache")
+                .description("Accès aux résultats d'analyse conservés")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.computeTimer = Timer.builder("ai.result.compute")
+                .description("Durée d'une analyse recalculée depuis le contenu")
+                .register(meterRegistry);
+    }
+
+    public AiValidationResult analyse(Declaration declaration, Supplier<AiValidationResult> calcul) {
+        return lire(ANALYSE, declaration.getContenuHash(), declaration.getNomFichier(), resultType, calcul);
+    }
+
+    public Map<String, Object> resume(Declaration declaration, Supplier<Map<String, Object>> calcul) {
+        return lire(RESUME, declaration.getContenuHash(), declaration.getNomFichier(), mapType, calcul);
+    }
+
+    /** Sans déclaration précédente, rien n'est conservé : le calcul ne lit aucun fichier. */
+    public Map<String, Object> comparaison(Declaration courante, Declaration precedente,
+                                           Supplier<Map<String, Object>> calcul) {
+        if (precedente == null || precedente.getContenuHash() == null) {
+            return calcul.get();
+        }
+        return lire(COMPARAISON, courante.getContenuHash(), precedente.getContenuHash(), mapType, calcul);
+    }
+
+    private <T> T lire(String type, String contenuHash, String variante, JavaType javaType, Supplier<T> calcul) {
+        if (contenuHash == null) {
+            return calcul.get();
+        }
+        String cle = variante != null ? variante : "";
+        Optional<DeclarationAnalyse> existante = repository.findByContenuHashAndTypeAndVariante(contenuHash, type, cle);
+        if (existante.isPresent() && existante.get().getVersion() == VERSION) {
+            try {
+                T resultat = objectMapper.readValue(existante.get().getResultatJson(), javaType);
+                hits.increment();
+                return resultat;
+            } catch (JsonProcessingException e) {
+                log.warn("⚠️ Résultat {} illisible pour {}, recalcul: {}", type, contenuHash, e.getMessage());
+            }
+        }
+        misses.increment();
+        T resultat = computeTimer.record(calcul);
+
+        DeclarationAnalyse analyse = existante.orElseGet(DeclarationAnalyse::new);
+        analyse.setContenuHash(contenuHash);
+        analyse.setType(type);
+        analyse.setVariante(cle);
+        analyse.setVersion(VERSION);
+        try {
+            analyse.setResultatJson(objectMapper.writeValueAsString(resultat));
+            repository.save(analyse);
+            log.info("💾 Résultat {} conservé — {}", type, contenuHash);
+        } catch (JsonProcessingException e) {
+            log.warn("⚠️ Résultat {} non sérialisable: {}", type, e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // Calcul concurrent du même résultat : la ligne déjà insérée fait foi
+            log.debug("Résultat {} déjà conservé pour {}", type, contenuHash);
+        }
+        return resultat;
+    }
+}
@@ -0,0 +1,100 @@
+package com.wifak.validationservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
+import com.wifak.validationservice.repositories.ValidationLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export du journal d'audit en CSV ou NDJSON, écrit ligne à ligne sur la
+ * réponse HTTP pendant la lecture du curseur : rien n'est accumulé en mémoire,
+ * quel que soit le nombre d'années exportées.
+ */
+@Service
+public class AuditExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditExportService.class);
+
+    private static final String SEPARATOR = ";";
+    private static final int FLUSH_EVERY = 500;
+    private static final String[] CSV_HEADER = {
+            "id", "dateAction", "action", "statutAvant", "statutApres", "effectuePar", "commentaire",
+            "declarationId", "declarationCode", "declarationNom", "declarationPeriode", "declarationStatut"
+    };
+
+    public enum Format { CSV, NDJSON }
+
+    private final ValidationLogRepository logRepository;
+    private final ObjectMapper            objectMapper;
+
+    public AuditExportService(ValidationLogRepository logRepository, ObjectMapper objectMapper) {
+        this.logRepository = logRepository;
+        this.objectMapper  = objectMapper;
+    }
+
+    /**
+     * Écrit le journal filtré sur {@code out} (non fermé).
+     * La transaction lecture seule couvre toute la lecture du curseur.
+     *
+     * @return nombre de lignes exportées
+     */
+    @Transactional(readOnly = true)
+    public long export(AuditLogFilter filter, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long count = 0;
+        if (format == Format.CSV) {
+            writer.write(String.join(SEPARATOR, CSV_HEADER));
+            writer.write('\n');
+        }
+        try (Stream<AuditLogDTO> logs = logRepository.streamAuditLogs(filter)) {
+            Iterator<AuditLogDTO> it = logs.iterator();
+            while (it.hasNext()) {
+                AuditLogDTO l = it.next();
+                if (format == Format.CSV) writeCsv(writer, l);
+                else writer.write(objectMapper.writeValueAsString(l));
+                writer.write('\n');
+                if (++count % FLUSH_EVERY == 0) writer.flush();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("📤 Journal d'audit exporté — {} ligne(s), format {}", count, format);
+        return count;
+    }
+
+    private void writeCsv(Writer w, AuditLogDTO l) throws IOException {
+        Object[] values = {
+                l.getId(), l.getDateAction(), l.getAction(), l.getStatutAvant(), l.getStatutApres(),
+                l.getEffectuePar(), l.getCommentaire(), l.getDeclarationId(), l.getDeclarationCode(),
+                l.getDeclarationNom(), l.getDeclarationPeriode(), l.getDeclarationStatut()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) w.write(SEPARATOR);
+            w.write(escape(values[i]));
+        }
+    }
+
+    private String escape(Object val) {
+        if (val == null) return "";
+        String strVal = val.toString();
+        if (strVal.contains(SEPARATOR) || strVal.contains("\"") || strVal.contains("\n") || strVal.contains("\r")) {
+            strVal = "\"" + strVal.replace("\"", "\"\"") + "\"";
+        }
+        return strVal;
+    }
+}
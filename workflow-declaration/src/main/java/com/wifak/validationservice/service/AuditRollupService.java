@@ -0,0 +1,98 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.dto.AuditStatsDTO;
+import com.wifak.validationservice.repositories.AuditRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Agrégats du journal d'audit (table audit_rollups).
+ *
+ * ValidationService appelle {@link #record} après chaque log ; les statistiques
+ * auditeur ne lisent plus que ces agrégats. Le recalcul depuis validation_logs
+ * parcourt tout le journal : au démarrage, il n'est lancé que si la table est vide
+ * (première mise en service) ou si {@code app.audit.rollups.rebuild-on-startup} est
+ * activé ; sinon à la demande (POST /api/audit/rollups/rebuild, ADMIN), par exemple
+ * après une écriture d'agrégat perdue.
+ */
+@Service
+public class AuditRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditRollupService.class);
+
+    private final AuditRollupRepository rollupRepository;
+    private final boolean               rebuildOnStartup;
+
+    public AuditRollupService(AuditRollupRepository rollupRepository,
+                              @Value("${app.audit.rollups.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.rollupRepository = rollupRepository;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @Transactional
+    public void record(String action, String effectuePar, LocalDateTime dateAction) {
+        LocalDate jour = dateAction != null ? dateAction.toLocalDate() : LocalDate.now();
+        rollupRepository.increment(jour, action, effectuePar);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void onApplicationReady() {
+        if (rebuildOnStartup) {
+            rebuild();
+        } else if (rollupRepository.count() == 0) {
+            // Sans agrégats, les statistiques auditeur tomberaient à zéro : amorçage unique.
+            // Plusieurs instances peuvent le lancer ensemble, le recalcul est idempotent.
+            log.info("📊 Agrégats d'audit absents — recalcul initial");
+            rebuild();
+        }
+    }
+
+    /**
+     * Recalcule les agrégats depuis validation_logs, en une seule instruction : sans
+     * risque pour les increments concurrents, y compris ceux d'une autre instance.
+     */
+    @Transactional
+    public int rebuild() {
+        int lignes = rollupRepository.rebuildFromLogs();
+        log.info("📊 Agrégats d'audit recalculés: {} ligne(s) écrite(s)", lignes);
+        return lignes;
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, Long> getActionCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByAction()) {
+            counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AuditStatsDTO.UserActionCount> getTopUsers(Collection<String> actions, int limit) {
+        return rollupRepository.sumByUser(actions, PageRequest.of(0, limit)).stream()
+                .map(r -> new AuditStatsDTO.UserActionCount((String) r[0], ((Number) r[1]).longValue()))
+                .collect(Collectors.toList());
+    }
+
+    /** Nombre d'actions par jour depuis {@code depuis} (inclus) ; jours absents = aucune activité. */
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> getDailyCounts(LocalDate depuis) {
+        Map<LocalDate, Long> parJour = new TreeMap<>();
+        for (Object[] row : rollupRepository.sumByJourSince(depuis)) {
+            parJour.put((LocalDate) row[0], ((Number) row[1]).longValue());
+        }
+        return parJour;
+    }
+}
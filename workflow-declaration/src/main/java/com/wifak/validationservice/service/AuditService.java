@@ -1,15 +1,17 @@
 package com.wifak.validationservice.service;
 
 import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
+import com.wifak.validationservice.dto.AuditLogPage;
 import com.wifak.validationservice.dto.AuditStatsDTO;
-import com.wifak.validationservice.entities.Declaration;
-import com.wifak.validationservice.entities.ValidationLog;
 import com.wifak.validationservice.repositories.ValidationLogRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -22,19 +24,28 @@ public class AuditService {
 
     private static final Logger log = LoggerFactory.getLogger(AuditService.class);
 
+    private static final int TOP_USERS      = 5;
+    private static final int JOURS_ACTIVITE = 30;
+    private static final int MOIS_ACTIVITE  = 12;
+
+    static final int PAGE_SIZE_DEFAUT = 50;
+    static final int PAGE_SIZE_MAX    = 200;
+
     private final ValidationLogRepository logRepository;
     private final DeclarationService      declarationService;
+    private final AuditRollupService      rollupService;
 
     public AuditService(ValidationLogRepository logRepository,
-                        DeclarationService declarationService) {
-        this.logRepository     = logRepository;
+                        DeclarationService declarationService,
+                        AuditRollupService rollupService) {
+        this.logRepository      = logRepository;
         this.declarationService = declarationService;
+        this.rollupService      = rollupService;
     }
-    // 1. TOUS LES LOGS (enrichis avec infos déclaration)
+    // 1. TOUS LES LOGS (enrichis avec infos déclaration, jointure côté base)
     public List<AuditLogDTO> getAllLogs() {
         log.info("📋 [AuditService] getAllLogs");
-        List<ValidationLog> logs = logRepository.findAllByOrderByDateActionDesc();
-        return enrichLogs(logs);
+        return logRepository.findAuditLogs();
     }
     // 2. LOGS FILTRÉS
     public List<AuditLogDTO> searchLogs(String action, String effectuePar,
@@ -42,13 +53,27 @@ public class AuditService {
         log.info("🔍 [AuditService] searchLogs — action={}, user={}", action, effectuePar);
         String actionParam      = (action      != null && !action.isBlank())      ? action.toUpperCase() : null;
         String effectueParParam = (effectuePar != null && !effectuePar.isBlank()) ? effectuePar          : null;
-        List<ValidationLog> logs = logRepository.findWithFilters(actionParam, effectueParParam, from, to);
-        return enrichLogs(logs);
+        return logRepository.findAuditLogsWithFilters(actionParam, effectueParParam, from, to);
+    }
+    // 2b. JOURNAL PAGINÉ PAR CURSEUR (dateAction, id)
+    public AuditLogPage searchLogsPage(AuditLogFilter filter, String cursor, Integer size) {
+        int limit = size == null ? PAGE_SIZE_DEFAUT : Math.max(1, Math.min(size, PAGE_SIZE_MAX));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        // Une ligne de plus que demandé : sa présence indique qu'il reste une page
+        List<AuditLogDTO> rows = logRepository.searchAuditLogs(filter,
+                after != null ? after.getDate() : null, after != null ? after.getId() : null, limit + 1);
+        if (rows.size() <= limit) {
+            return new AuditLogPage(rows, null);
+        }
+        List<AuditLogDTO> items = rows.subList(0, limit);
+        AuditLogDTO last = items.get(limit - 1);
+        return new AuditLogPage(items, KeysetCursor.encode(last.getDateAction(), last.getId()));
     }
     // 3. LOGS D'UNE DÉCLARATION
     public List<AuditLogDTO> getLogsByDeclaration(Long declarationId) {
         log.info("📜 [AuditService] getLogsByDeclaration — id={}", declarationId);
-        return enrichLogs(logRepository.findByDeclarationIdOrderByDateActionDesc(declarationId));
+        return logRepository.findAuditLogsByDeclarationId(declarationId);
     }
     // 4. UTILISATEURS DISTINCTS
     public List<String> getDistinctUsers() {
@@ -80,80 +105,41 @@ public class AuditService {
             log.warn("⚠️ Impossible de récupérer les stats déclarations: {}", e.getMessage());
         }
 
-        // Stats logs
-        List<ValidationLog> allLogs = logRepository.findAll();
-        stats.setTotalLogs(allLogs.size());
-        stats.setTotalSoumissions(allLogs.stream().filter(l -> "SUBMIT".equals(l.getAction())).count());
-        stats.setTotalValidations(allLogs.stream().filter(l -> "VALIDATE".equals(l.getAction())).count());
-        stats.setTotalRejets(allLogs.stream().filter(l -> "REJECT".equals(l.getAction())).count());
-        stats.setTotalEnvois(allLogs.stream().filter(l -> "SEND".equals(l.getAction())).count());
-
-        Map<String, Long> actionCounts = allLogs.stream()
-                .collect(Collectors.groupingBy(ValidationLog::getAction, Collectors.counting()));
+        // Stats logs — lues dans audit_rollups, indépendantes de la taille de validation_logs
+        Map<String, Long> actionCounts = rollupService.getActionCounts();
         stats.setActionCounts(actionCounts);
+        stats.setTotalLogs(actionCounts.values().stream().mapToLong(Long::longValue).sum());
+        stats.setTotalSoumissions(actionCounts.getOrDefault("SUBMIT", 0L));
+        stats.setTotalValidations(actionCounts.getOrDefault("VALIDATE", 0L));
+        stats.setTotalRejets(actionCounts.getOrDefault("REJECT", 0L));
+        stats.setTotalEnvois(actionCounts.getOrDefault("SEND", 0L));
+
+        stats.setTopAgents(rollupService.getTopUsers(List.of("SUBMIT"), TOP_USERS));
+        stats.setTopManagers(rollupService.getTopUsers(List.of("VALIDATE", "REJECT"), TOP_USERS));
+
+        // Un an de buckets journaliers au plus : les mois se déduisent des jours
+        LocalDate today = LocalDate.now();
+        YearMonth premierMois = YearMonth.from(today).minusMonths(MOIS_ACTIVITE - 1);
+        Map<LocalDate, Long> parJour = rollupService.getDailyCounts(premierMois.atDay(1));
+
+        List<AuditStatsDTO.PeriodCount> jours = new ArrayList<>();
+        for (LocalDate j = today.minusDays(JOURS_ACTIVITE - 1); !j.isAfter(today); j = j.plusDays(1)) {
+            jours.add(new AuditStatsDTO.PeriodCount(j.toString(), parJour.getOrDefault(j, 0L)));
+        }
+        stats.setActiviteParJour(jours);
 
-        List<AuditStatsDTO.UserActionCount> topAgents = allLogs.stream()
-                .filter(l -> "SUBMIT".equals(l.getAction()))
-                .collect(Collectors.groupingBy(ValidationLog::getEffectuePar, Collectors.counting()))
-                .entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
-                .map(e -> new AuditStatsDTO.UserActionCount(e.getKey(), e.getValue()))
-                .collect(Collectors.toList());
-        stats.setTopAgents(topAgents);
-
-        List<AuditStatsDTO.UserActionCount> topManagers = allLogs.stream()
-                .filter(l -> "VALIDATE".equals(l.getAction()) || "REJECT".equals(l.getAction()))
-                .collect(Collectors.groupingBy(ValidationLog::getEffectuePar, Collectors.counting()))
-                .entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
-                .map(e -> new AuditStatsDTO.UserActionCount(e.getKey(), e.getValue()))
-                .collect(Collectors.toList());
-        stats.setTopManagers(topManagers);
+        Map<YearMonth, Long> parMois = new TreeMap<>();
+        for (int i = 0; i < MOIS_ACTIVITE; i++) parMois.put(premierMois.plusMonths(i), 0L);
+        parJour.forEach((j, n) -> parMois.merge(YearMonth.from(j), n, Long::sum));
+        stats.setActiviteParMois(parMois.entrySet().stream()
+                .map(e -> new AuditStatsDTO.PeriodCount(e.getKey().toString(), e.getValue()))
+                .collect(Collectors.toList()));
 
         return stats;
     }
-    // UTILITAIRES PRIVÉS
-    private List<AuditLogDTO> enrichLogs(List<ValidationLog> logs) {
-        if (logs.isEmpty()) return Collections.emptyList();
-
-        Set<Long> declIds = logs.stream().map(ValidationLog::getDeclarationId).collect(Collectors.toSet());
-
-        Map<Long, Declaration> declCache = new HashMap<>();
-        for (Long id : declIds) {
-            try {
-                Declaration decl = declarationService.findById(id);
-                if (decl != null) declCache.put(id, decl);
-            } catch (Exception e) {
-                log.debug("⚠️ Déclaration {} non trouvée: {}", id, e.getMessage());
-            }
-        }
-
-        return logs.stream()
-                .map(l -> toAuditLogDTO(l, declCache.get(l.getDeclarationId())))
-                .collect(Collectors.toList());
-    }
 
-    private AuditLogDTO toAuditLogDTO(ValidationLog vlog, Declaration decl) {
-        AuditLogDTO dto = new AuditLogDTO();
-        dto.setId(vlog.getId());
-        dto.setDeclarationId(vlog.getDeclarationId());
-        dto.setAction(vlog.getAction());
-        dto.setStatutAvant(vlog.getStatutAvant());
-        dto.setStatutApres(vlog.getStatutApres());
-        dto.setEffectuePar(vlog.getEffectuePar());
-        dto.setCommentaire(vlog.getCommentaire());
-        dto.setDateAction(vlog.getDateAction());
-
-        if (decl != null) {
-            dto.setDeclarationPeriode(decl.getPeriode());
-            dto.setDeclarationStatut(decl.getStatut() != null ? decl.getStatut().name() : null);
-            if (decl.getDeclarationType() != null) {
-                dto.setDeclarationCode(decl.getDeclarationType().getCode());
-                dto.setDeclarationNom(decl.getDeclarationType().getNom());
-            }
-        }
-        return dto;
+    /** Recalcule audit_rollups depuis validation_logs (maintenance, voir AuditRollupService). */
+    public int rebuildRollups() {
+        return rollupService.rebuild();
     }
 }
@@ -0,0 +1,187 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.DeclarationType;
+import com.wifak.validationservice.entities.GenerationJob;
+import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Génération de fin de période : un job par type actif, tous rattachés au même lot.
+ *
+ * Les jobs passent par le pool borné de {@link GenerationJobService} — le
+ * parallélisme vers MySQL reste plafonné — et chacun s'exécute dans sa propre
+ * transaction : l'échec d'un type n'interrompt pas les autres. Au-delà de la file,
+ * les jobs restent EN_ATTENTE et sont lancés par la reprise au fil des places libérées.
+ */
+@Service
+public class BatchGenerationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchGenerationService.class);
+
+    private final DeclarationTypeRepository typeRepository;
+    private final GenerationJobService      jobService;
+
+    public BatchGenerationService(DeclarationTypeRepository typeRepository,
+                                  GenerationJobService jobService) {
+        this.typeRepository = typeRepository;
+        this.jobService     = jobService;
+    }
+
+    // ── Lancement ──────────────────────────────────────────────────
+
+    /**
+     * Lance la génération de la période pour tous les types actifs, ou pour
+     * {@code typeCodes} s'il est renseigné. Dates absentes : déduites de {@code periode}
+     * et de la fréquence de chaque type (mois, trimestre civil, année…), voir
+     * {@link PeriodeCalculator#bornes}.
+     */
+    public BatchReport launch(String periode, LocalDate dateDebut, LocalDate dateFin, List<String> typeCodes) {
+        if (periode == null || periode.isBlank()) {
+            throw new IllegalArgumentException("La période est obligatoire");
+        }
+        if ((dateDebut == null || dateFin == null) && PeriodeCalculator.bornes(periode, null) == null) {
+            throw new IllegalArgumentException("Période « " + periode
+                    + " » : dates obligatoires si la période n'est pas au format yyyy-MM, yyyy-MM-dd, yyyy-T1 ou yyyy");
+        }
+
+        String lotId = UUID.randomUUID().toString();
+        BatchReport report = new BatchReport(lotId, periode);
+        log.info("🗂️ Lot {} — génération de la période {} ({} → {})", lotId, periode,
+                dateDebut != null ? dateDebut : "selon fréquence", dateFin != null ? dateFin : "selon fréquence");
+
+        for (DeclarationType type : resolveTypes(typeCodes, report)) {
+            String raisonIgnore = checkType(type);
+            if (raisonIgnore != null) {
+                report.add(new BatchLine(type.getId(), type.getCode(), "IGNORE", null, null, raisonIgnore));
+                continue;
+            }
+            LocalDate debut = dateDebut, fin = dateFin;
+            if (debut == null || fin == null) {
+                PeriodeCalculator.Bornes bornes = PeriodeCalculator.bornes(periode, type.getFrequence());
+                if (debut == null) debut = bornes.getDebut();
+                if (fin == null)   fin   = bornes.getFin();
+            }
+            try {
+                GenerationJob job = jobService.submitInLot(lotId, type.getId(), periode, debut, fin);
+                report.add(new BatchLine(type.getId(), type.getCode(),
+                        job.getStatut().name(), job.getId(), null, job.getMessageErreur()));
+            } catch (Exception e) {
+                log.warn("⚠️ Lot {} — type {} non lancé: {}", lotId, type.getCode(), e.getMessage());
+                report.add(new BatchLine(type.getId(), type.getCode(),
+                        GenerationJob.JobStatut.ECHEC.name(), null, null, e.getMessage()));
+            }
+        }
+
+        log.info("✅ Lot {} — {} type(s) lancé(s), {} ignoré(s), {} en échec",
+                lotId, report.getEnAttente() + report.getEnCours() + report.getTermines(),
+                report.getIgnores(), report.getEchecs());
+        return report;
+    }
+
+    private List<DeclarationType> resolveTypes(List<String> typeCodes, BatchReport report) {
+        if (typeCodes == null || typeCodes.isEmpty()) {
+            return typeRepository.findByActifTrue();
+        }
+        List<DeclarationType> types = new ArrayList<>();
+        for (String code : new LinkedHashSet<>(typeCodes)) {
+            typeRepository.findByCode(code).ifPresentOrElse(types::add,
+                    () -> report.add(new BatchLine(null, code, "IGNORE", null, null, "Type inconnu")));
+        }
+        return types;
+    }
+
+    // Mêmes règles que DeclarationService.validateType, vérifiées avant de créer le job
+    private String checkType(DeclarationType type) {
+        if (!type.isActif()) return "Type inactif";
+        if (type.getSqlQuery() == null || type.getSqlQuery().trim().isEmpty()) {
+            return "Requête SQL non configurée";
+        }
+        return null;
+    }
+
+    // ── Rapport consolidé ──────────────────────────────────────────
+
+    /** État courant d'un lot, reconstitué depuis ses jobs. */
+    public BatchReport getReport(String lotId) {
+        List<GenerationJob> jobs = jobService.getLotJobs(lotId);
+        if (jobs.isEmpty()) {
+            throw new RuntimeException("Lot de génération introuvable: " + lotId);
+        }
+        Set<Long> typeIds = jobs.stream().map(GenerationJob::getDeclarationTypeId).collect(Collectors.toSet());
+        Map<Long, String> codes = typeRepository.findAllById(typeIds).stream()
+                .collect(Collectors.toMap(DeclarationType::getId, DeclarationType::getCode));
+
+        BatchReport report = new BatchReport(lotId, jobs.get(0).getPeriode());
+        for (GenerationJob job : jobs) {
+            report.add(new BatchLine(job.getDeclarationTypeId(),
+                    codes.getOrDefault(job.getDeclarationTypeId(), String.valueOf(job.getDeclarationTypeId())),
+                    job.getStatut().name(), job.getId(), job.getDeclarationId(), job.getMessageErreur()));
+        }
+        return report;
+    }
+
+    public static class BatchReport {
+        private final String lotId;
+        private final String periode;
+        private final List<BatchLine> lignes = new ArrayList<>();
+
+        public BatchReport(String lotId, String periode) {
+            this.lotId   = lotId;
+            this.periode = periode;
+        }
+
+        void add(BatchLine ligne) { lignes.add(ligne); }
+
+        private long count(String statut) {
+            return lignes.stream().filter(l -> statut.equals(l.getStatut())).count();
+        }
+
+        public String getLotId()            { return lotId; }
+        public String getPeriode()          { return periode; }
+        public List<BatchLine> getLignes()  { return lignes; }
+        public int getTotal()               { return lignes.size(); }
+        public long getEnAttente()          { return count(GenerationJob.JobStatut.EN_ATTENTE.name()); }
+        public long getEnCours()            { return count(GenerationJob.JobStatut.EN_COURS.name()); }
+        public long getTermines()           { return count(GenerationJob.JobStatut.TERMINE.name()); }
+        public long getEchecs()             { return count(GenerationJob.JobStatut.ECHEC.name()); }
+        public long getIgnores()            { return count("IGNORE"); }
+        public boolean isComplet()          { return getEnAttente() == 0 && getEnCours() == 0; }
+    }
+
+    public static class BatchLine {
+        private final Long   typeId;
+        private final String typeCode;
+        private final String statut;
+        private final Long   jobId;
+        private final Long   declarationId;
+        private final String message;
+
+        public BatchLine(Long typeId, String typeCode, String statut,
+                         Long jobId, Long declarationId, String message) {
+            this.typeId        = typeId;
+            this.typeCode      = typeCode;
+            this.statut        = statut;
+            this.jobId         = jobId;
+            this.declarationId = declarationId;
+            this.message       = message;
+        }
+
+        public Long getTypeId()          { return typeId; }
+        public String getTypeCode()      { return typeCode; }
+        public String getStatut()        { return statut; }
+        public Long getJobId()           { return jobId; }
+        public Long getDeclarationId()   { return declarationId; }
+        public String getMessage()       { return message; }
+    }
+}
@@ -0,0 +1,145 @@
+package com.wifak.validationservice.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Index des colonnes SQL pour l'auto-mapping XSD ↔ SQL : trigrammes du nom normalisé
+ * (minuscules, sans « _ », « - » ni espaces) et mots du nom (camelCase, séparateurs, chiffres).
+ *
+ * Pour un champ XSD, seules les colonnes qui partagent au moins un trigramme ou un mot
+ * sont évaluées. Le score (0 à 1) est le meilleur de :
+ * <ul>
+ *   <li>Dice sur les trigrammes — abréviations (« MNT_IMPAYE » ↔ « MontantImpaye ») ;</li>
+ *   <li>mots : 0,5 + 0,5 × court/long si tous les mots du nom le plus court sont dans
+ *       l'autre (« nom » ↔ « NomClient »), sinon Jaccard.</li>
+ * </ul>
+ * Nom normalisé identique → 1.
+ */
+public final class ColonneIndex {
+
+    private static final Pattern SEPARATEURS = Pattern.compile(
+            "[_\\-\\s.]+|(?<=[a-z])(?=[A-Z])|(?<=[A-Z])(?=[A-Z][a-z])|(?<=[A-Za-z])(?=\\d)|(?<=\\d)(?=[A-Za-z])");
+
+    private final List<String> colonnes;
+    private final int[] nombreTrigrammes;
+    private final int[] nombreMots;
+    private final Map<String, Integer> exacts = new HashMap<>();
+    private final Map<String, List<Integer>> parTrigramme = new HashMap<>();
+    private final Map<String, List<Integer>> parMot = new HashMap<>();
+
+    private ColonneIndex(List<String> colonnes) {
+        this.colonnes = List.copyOf(colonnes);
+        this.nombreTrigrammes = new int[colonnes.size()];
+        this.nombreMots = new int[colonnes.size()];
+        for (int c = 0; c < colonnes.size(); c++) {
+            String norm = normaliser(colonnes.get(c));
+            exacts.putIfAbsent(norm, c);
+            Set<String> trigrammes = trigrammes(norm);
+            Set<String> mots = mots(colonnes.get(c));
+            nombreTrigrammes[c] = trigrammes.size();
+            nombreMots[c] = mots.size();
+            for (String t : trigrammes) parTrigramme.computeIfAbsent(t, k -> new ArrayList<>()).add(c);
+            for (String m : mots)       parMot.computeIfAbsent(m, k -> new ArrayList<>()).add(c);
+        }
+    }
+
+    public static ColonneIndex of(List<String> colonnes) {
+        return new ColonneIndex(colonnes);
+    }
+
+    /** Colonnes proches de {@code champ}, score décroissant (ordre des colonnes à égalité). */
+    public List<Candidat> candidats(String champ, double scoreMin, int max) {
+        String norm = normaliser(champ);
+        Set<String> trigrammes = trigrammes(norm);
+        Set<String> mots = mots(champ);
+
+        int[] trigrammesCommuns = new int[colonnes.size()];
+        int[] motsCommuns = new int[colonnes.size()];
+        List<Integer> touchees = new ArrayList<>();
+        for (String t : trigrammes) {
+            for (int c : parTrigramme.getOrDefault(t, List.of())) {
+                if (trigrammesCommuns[c]++ == 0) touchees.add(c);
+            }
+        }
+        for (String m : mots) {
+            for (int c : parMot.getOrDefault(m, List.of())) {
+                if (motsCommuns[c]++ == 0 && trigrammesCommuns[c] == 0) touchees.add(c);
+            }
+        }
+        Integer exact = exacts.get(norm);
+        if (exact != null && trigrammesCommuns[exact] == 0 && motsCommuns[exact] == 0) touchees.add(exact);
+
+        List<Candidat> candidats = new ArrayList<>();
+        for (int c : touchees) {
+            double score;
+            if (exact != null && exact == c) {
+                score = 1.0;
+            } else {
+                double dice = 2.0 * trigrammesCommuns[c] / (trigrammes.size() + nombreTrigrammes[c]);
+                score = Math.max(dice, scoreMots(motsCommuns[c], mots.size(), nombreMots[c]));
+            }
+            if (score >= scoreMin) candidats.add(new Candidat(colonnes.get(c), c, score));
+        }
+        candidats.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : Integer.compare(a.rang, b.rang));
+        return candidats.size() > max ? new ArrayList<>(candidats.subList(0, max)) : candidats;
+    }
+
+    private static double scoreMots(int communs, int a, int b) {
+        if (communs == 0) return 0;
+        int court = Math.min(a, b), grand = Math.max(a, b);
+        if (communs == court) return 0.5 + 0.5 * court / grand;
+        return (double) communs / (a + b - communs);
+    }
+
+    static String normaliser(String nom) {
+        if (nom == null) return "";
+        return nom.toLowerCase(Locale.ROOT)
+                .replace("_", "")
+                .replace("-", "")
+                .replace(" ", "");
+    }
+
+    private static Set<String> trigrammes(String norm) {
+        Set<String> trigrammes = new HashSet<>();
+        if (norm.isEmpty()) return trigrammes;
+        if (norm.length() < 3) {
+            trigrammes.add(norm);
+            return trigrammes;
+        }
+        for (int i = 0; i + 3 <= norm.length(); i++) trigrammes.add(norm.substring(i, i + 3));
+        return trigrammes;
+    }
+
+    private static Set<String> mots(String nom) {
+        Set<String> mots = new LinkedHashSet<>();
+        if (nom == null) return mots;
+        for (String m : SEPARATEURS.split(nom.trim())) {
+            if (!m.isEmpty()) mots.add(m.toLowerCase(Locale.ROOT));
+        }
+        return mots;
+    }
+
+    public static final class Candidat {
+        private final String colonne;
+        private final int    rang;
+        private final double score;
+
+        Candidat(String colonne, int rang, double score) {
+            this.colonne = colonne;
+            this.rang    = rang;
+            this.score   = score;
+        }
+
+        public String getColonne() { return colonne; }
+        /** Similarité arrondie à 2 décimales. */
+        public double getScore()   { return Math.round(score * 100) / 100.0; }
+    }
+}
@@ -0,0 +1,127 @@
+package com.wifak.validationservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+
+/**
+ * Accès en flux à declaration_contenus.donnees (LONGBLOB), sans jamais charger
+ * la colonne entière dans une entité.
+ *
+ * L'écriture lie le fichier compressé à la requête par {@code setBinaryStream}.
+ * La lecture se fait par tranches ({@code SUBSTRING}) : chaque tranche est une requête
+ * courte sur la clé primaire, aucune connexion n'est gardée entre deux lectures du flux.
+ */
+@Component
+public class ContenuBlobStore {
+
+    static final int TRANCHE_PAR_DEFAUT = 1024 * 1024;
+
+    private static final String INSERT_SQL = "INSERT INTO declaration_contenus "
+            + "(hash, codec, taille_originale, taille_compressee, donnees, date_creation) "
+            + "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP) "
+            + "ON DUPLICATE KEY UPDATE hash = hash";
+
+    private static final String TRANCHE_SQL =
+            "SELECT SUBSTRING(donnees, ?, ?) FROM declaration_contenus WHERE hash = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int          tranche;
+
+    @Autowired
+    public ContenuBlobStore(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, TRANCHE_PAR_DEFAUT);
+    }
+
+    ContenuBlobStore(JdbcTemplate jdbcTemplate, int tranche) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tranche      = tranche;
+    }
+
+    /**
+     * Insertion idempotente du fichier compressé {@code fichier} : 0 si une génération
+     * concurrente a déjà inséré ce hash. Rejoint la transaction en cours.
+     */
+    public int insertIfAbsent(String hash, String codec, long tailleOriginale, Path fichier) {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(fichier))) {
+            long tailleCompressee = Files.size(fichier);
+            Integer lignes = jdbcTemplate.execute(INSERT_SQL, (PreparedStatement ps) -> {
+                ps.setString(1, hash);
+                ps.setString(2, codec);
+                ps.setLong(3, tailleOriginale);
+                ps.setLong(4, tailleCompressee);
+                ps.setBinaryStream(5, in, tailleCompressee);
+                return ps.executeUpdate();
+            });
+            return lignes != null ? lignes : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du contenu compressé impossible", e);
+        }
+    }
+
+    /** Octets stockés (compressés) de {@code hash}, lus par tranches à la demande. */
+    public InputStream open(String hash, long tailleCompressee) {
+        return new TrancheInputStream(hash, tailleCompressee);
+    }
+
+    private final class TrancheInputStream extends InputStream {
+        private final String hash;
+        private final long   taille;
+        private long   position;
+        private byte[] tampon = new byte[0];
+        private int    index;
+
+        TrancheInputStream(String hash, long taille) {
+            this.hash   = hash;
+            this.taille = taille;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!remplir()) return -1;
+            return tampon[index++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!remplir()) return -1;
+            int n = Math.min(len, tampon.length - index);
+            System.arraycopy(tampon, index, b, off, n);
+            index += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return tampon.length - index;
+        }
+
+        private boolean remplir() throws IOException {
+            if (index < tampon.length) return true;
+            if (position >= taille) return false;
+            int longueur = (int) Math.min(tranche, taille - position);
+            byte[] lu = jdbcTemplate.query(TRANCHE_SQL,
+                    rs -> rs.next() ? rs.getBytes(1) : null,
+                    position + 1, longueur, hash);
+            if (lu == null) {
+                throw new IOException("Contenu " + hash + " supprimé pendant la lecture");
+            }
+            if (lu.length == 0) {
+                throw new IOException("Contenu " + hash + " tronqué à " + position + " octets sur " + taille);
+            }
+            tampon   = lu;
+            index    = 0;
+            position += lu.length;
+            return true;
+        }
+    }
+}
@@ -2,75 +2,75 @@ package com.wifak.validationservice.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 public class CsvGenerationService {
 
     private static final Logger log = LoggerFactory.getLogger(CsvGenerationService.class);
-    private final JdbcTemplate jdbcTemplate;
+    private static final String SEPARATOR = ";";
+    private final SqlStreamingService sqlStreamingService;
+    private final SqlQueryCompiler queryCompiler;
 
-    public CsvGenerationService(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public CsvGenerationService(SqlStreamingService sqlStreamingService, SqlQueryCompiler queryCompiler) {
+        this.sqlStreamingService = sqlStreamingService;
+        this.queryCompiler = queryCompiler;
     }
 
-    public String generateCsvFromSql(String sqlQuery, LocalDate dateDebut, LocalDate dateFin,
-                                     String typeCode, String periode) {
+    /**
+     * Écrit le CSV ligne par ligne dans {@code out} au fil de la lecture du ResultSet.
+     */
+    public void writeCsvFromSql(String sqlQuery, LocalDate dateDebut, LocalDate dateFin,
+                                String typeCode, String periode, Writer out) {
         log.info("📊 Génération CSV — Type: {}, Période: {}", typeCode, periode);
 
-        String executableSql = sqlQuery
-                .replace(":dateDebut", "'" + dateDebut.toString() + "'")
-                .replace(":dateFin",   "'" + dateFin.toString()   + "'");
+        // Dates liées en paramètres : même texte SQL pour toutes les périodes
+        SqlQueryCompiler.CompiledQuery query = queryCompiler.compile(sqlQuery);
 
-        List<Map<String, Object>> rows;
+        long rows;
         try {
-            rows = jdbcTemplate.queryForList(executableSql);
+            rows = sqlStreamingService.stream(query.getSql(), query.bind(dateDebut, dateFin), row -> {
+                if (row.isFirst()) {
+                    out.write(String.join(SEPARATOR, row.getColumns()));
+                    out.write("\n");
+                }
+                for (int i = 0; i < row.getColumnCount(); i++) {
+                    if (i > 0) out.write(SEPARATOR);
+                    out.write(escape(row.get(i)));
+                }
+                out.write("\n");
+            });
+        } catch (SqlStreamingService.RowStreamException e) {
+            log.error("❌ Erreur écriture CSV: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("❌ Erreur SQL CSV: {}", e.getMessage());
             throw new RuntimeException("Erreur SQL: " + e.getMessage());
         }
 
-        StringBuilder csv = new StringBuilder();
-        String separator = ";";
-
-        if (rows.isEmpty()) {
-            csv.append("# Aucune donnée pour la période ").append(periode).append("\n");
-            return csv.toString();
-        }
-
-        Set<String> columns = rows.get(0).keySet();
-        csv.append(columns.stream().collect(Collectors.joining(separator))).append("\n");
-
-        for (Map<String, Object> row : rows) {
-            String line = columns.stream().map(col -> {
-                Object val = row.get(col);
-                if (val == null) return "";
-                String strVal = val.toString();
-                if (strVal.contains(separator) || strVal.contains("\"") || strVal.contains("\n")) {
-                    strVal = "\"" + strVal.replace("\"", "\"\"") + "\"";
-                }
-                return strVal;
-            }).collect(Collectors.joining(separator));
-            csv.append(line).append("\n");
+        try {
+            if (rows == 0) {
+                out.write("# Aucune donnée pour la période " + periode + "\n");
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur d'écriture CSV", e);
         }
 
-        log.info("✅ CSV généré — {} colonnes, {} lignes", columns.size(), rows.size());
-        return csv.toString();
+        log.info("✅ CSV généré — {} lignes", rows);
     }
 
-    public List<String> extractColumnsFromSql(String sqlQuery, LocalDate dateDebut, LocalDate dateFin) {
-        String executableSql = sqlQuery
-                .replace(":dateDebut", "'" + dateDebut.toString() + "'")
-                .replace(":dateFin",   "'" + dateFin.toString()   + "'");
-        List<Map<String, Object>> rows = jdbcTemplate.queryForList(executableSql + " LIMIT 1");
-        if (rows.isEmpty()) return List.of();
-        return List.copyOf(rows.get(0).keySet());
+    private String escape(Object val) {
+        if (val == null) return "";
+        String strVal = val.toString();
+        if (strVal.contains(SEPARATOR) || strVal.contains("\"") || strVal.contains("\n")) {
+            strVal = "\"" + strVal.replace("\"", "\"\"") + "\"";
+        }
+        return strVal;
     }
 }
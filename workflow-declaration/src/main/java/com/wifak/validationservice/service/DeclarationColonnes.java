@@ -0,0 +1,157 @@
+package com.wifak.validationservice.service;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lignes d'une déclaration rangées par colonne, lues une seule fois :
+ * un {@code double[]} par montant (NaN = absent ou non numérique) et un {@code int[]}
+ * de codes pour les énumérations (ClasseRisque, Devise), avec leur dictionnaire.
+ *
+ * Résumé, score de risque et comparaison travaillent sur ces tableaux : chaque valeur
+ * est convertie une fois, et totaux / répartitions sont de simples boucles sur des primitifs.
+ * Un XML malformé donne les lignes lues avant l'erreur, avec {@link #isMalforme()}.
+ */
+public final class DeclarationColonnes {
+
+    private static final int CAPACITE_INITIALE = 256;
+
+    private int taille;
+    private double[] credit    = new double[CAPACITE_INITIALE];
+    private double[] impaye    = new double[CAPACITE_INITIALE];
+    private double[] provision = new double[CAPACITE_INITIALE];
+    private String[] ids       = new String[CAPACITE_INITIALE];
+    private final Dictionnaire classes = new Dictionnaire();
+    private final Dictionnaire devises = new Dictionnaire();
+    private DeclarationXmlReader.Entete entete;
+    private boolean malforme;
+
+    private DeclarationColonnes() {
+    }
+
+    public static DeclarationColonnes lire(String contenu) {
+        DeclarationColonnes colonnes = new DeclarationColonnes();
+        DeclarationXmlReader reader = new DeclarationXmlReader(new StringReader(contenu));
+        try {
+            reader.read((num, ligne) -> colonnes.ajouter(ligne));
+        } catch (XMLStreamException e) {
+            colonnes.malforme = true;
+        }
+        colonnes.entete = reader.getEntete();
+        return colonnes;
+    }
+
+    private void ajouter(Map<String, String> ligne) {
+        if (taille == credit.length) {
+            int capacite = taille * 2;
+            credit    = Arrays.copyOf(credit, capacite);
+            impaye    = Arrays.copyOf(impaye, capacite);
+            provision = Arrays.copyOf(provision, capacite);
+            ids       = Arrays.copyOf(ids, capacite);
+        }
+        credit[taille]    = nombre(ligne.get("MontantCredit"));
+        impaye[taille]    = nombre(ligne.get("MontantImpaye"));
+        provision[taille] = nombre(ligne.get("Provision"));
+        ids[taille]       = identifiant(ligne);
+        classes.ajouter(taille, ligne.get("ClasseRisque"));
+        devises.ajouter(taille, ligne.get("Devise"));
+        taille++;
+    }
+
+    // IdClient (BCT_01/04/05), sinon IdContrepartie (BCT_03) ; null si aucun
+    static String identifiant(Map<String, String> ligne) {
+        String id = ligne.get("IdClient");
+        if (id == null) id = ligne.get("idClient");
+        if (id == null) id = ligne.get("IdContrepartie");
+        return id;
+    }
+
+    static double nombre(String s) {
+        if (s == null || s.isBlank()) return Double.NaN;
+        try {
+            return Double.parseDouble(s.replace(",", "."));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    // ── Accès ─────────────────────────────────────────────────────
+
+    public int getTaille()                       { return taille; }
+    public boolean isMalforme()                  { return malforme; }
+    public DeclarationXmlReader.Entete getEntete() { return entete; }
+
+    public double credit(int i)                  { return credit[i]; }
+    public double impaye(int i)                  { return impaye[i]; }
+    public double provision(int i)               { return provision[i]; }
+    public String id(int i)                      { return ids[i]; }
+    /** Valeur brute de ClasseRisque pour la ligne {@code i}, null si absente. */
+    public String classe(int i)                  { return classes.valeur(i); }
+    public String devise(int i)                  { return devises.valeur(i); }
+
+    public double totalCredit()                  { return somme(credit); }
+    public double totalImpaye()                  { return somme(impaye); }
+    public double totalProvision()               { return somme(provision); }
+
+    /** Nombre de lignes par classe (en majuscules), dans l'ordre de première apparition. */
+    public Map<String, Integer> repartitionClasses() { return classes.repartition(taille); }
+    public Map<String, Integer> repartitionDevises() { return devises.repartition(taille); }
+
+    private double somme(double[] colonne) {
+        double total = 0;
+        for (int i = 0; i < taille; i++) {
+            double v = colonne[i];
+            if (!Double.isNaN(v)) total += v;
+        }
+        return total;
+    }
+
+    /** Colonne d'énumération : un code par ligne (-1 = absent), valeurs brutes dans l'ordre d'apparition. */
+    private static final class Dictionnaire {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] valeurs = new String[8];
+        private int[] parLigne = new int[CAPACITE_INITIALE];
+
+        void ajouter(int ligne, String valeur) {
+            if (ligne == parLigne.length) {
+                parLigne = Arrays.copyOf(parLigne, ligne * 2);
+            }
+            if (valeur == null) {
+                parLigne[ligne] = -1;
+                return;
+            }
+            Integer code = codes.get(valeur);
+            if (code == null) {
+                code = codes.size();
+                codes.put(valeur, code);
+                if (code == valeurs.length) valeurs = Arrays.copyOf(valeurs, code * 2);
+                valeurs[code] = valeur;
+            }
+            parLigne[ligne] = code;
+        }
+
+        String valeur(int ligne) {
+            int code = parLigne[ligne];
+            return code < 0 ? null : valeurs[code];
+        }
+
+        Map<String, Integer> repartition(int taille) {
+            int[] comptes = new int[codes.size()];
+            for (int i = 0; i < taille; i++) {
+                int code = parLigne[i];
+                if (code >= 0) comptes[code]++;
+            }
+            // Codes attribués à la première apparition : l'ordre des clés suit le fichier
+            Map<String, Integer> repartition = new LinkedHashMap<>();
+            for (int code = 0; code < comptes.length; code++) {
+                repartition.merge(valeurs[code].toUpperCase(Locale.ROOT), comptes[code], Integer::sum);
+            }
+            return repartition;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationCompteur;
+import com.wifak.validationservice.repositories.DeclarationCompteurRepository;
+import com.wifak.validationservice.repositories.DeclarationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compteurs de déclarations par statut (table declaration_compteurs).
+ *
+ * Chaque création, changement de statut ou suppression appelle {@link #transition}
+ * dans la transaction de l'appelant : un rollback annule aussi le compteur. Les
+ * compteurs sont recalculés au démarrage pour absorber toute dérive, par exemple une
+ * modification faite directement en base — par un seul UPDATE qui compte et écrit,
+ * sans risque d'écraser les transitions d'une autre instance.
+ */
+@Service
+public class DeclarationCompteurService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeclarationCompteurService.class);
+
+    private final DeclarationCompteurRepository compteurRepository;
+    private final DeclarationRepository         declarationRepository;
+
+    public DeclarationCompteurService(DeclarationCompteurRepository compteurRepository,
+                                      DeclarationRepository declarationRepository) {
+        this.compteurRepository    = compteurRepository;
+        this.declarationRepository = declarationRepository;
+    }
+
+    /**
+     * Déclaration passée de {@code avant} à {@code apres} ; null = création ou suppression.
+     * Rejoint la transaction en cours (celle qui modifie la déclaration).
+     */
+    @Transactional
+    public void transition(Declaration.DeclarationStatut avant, Declaration.DeclarationStatut apres) {
+        if (avant == apres) return;
+        if (avant != null) adjust(avant, -1);
+        if (apres != null) adjust(apres, 1);
+    }
+
+    private void adjust(Declaration.DeclarationStatut statut, long delta) {
+        if (compteurRepository.increment(statut, delta) == 0) {
+            // Table pas encore initialisée : getStats retombe sur le GROUP BY jusqu'au prochain rebuild
+            log.debug("Compteur {} absent — ajustement ignoré", statut);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public DeclarationService.DeclarationStats getStats() {
+        List<DeclarationCompteur> compteurs = compteurRepository.findAll();
+        Map<Declaration.DeclarationStatut, Long> counts = new EnumMap<>(Declaration.DeclarationStatut.class);
+        if (compteurs.size() == Declaration.DeclarationStatut.values().length) {
+            compteurs.forEach(c -> counts.put(c.getStatut(), c.getNombre()));
+        } else {
+            counts.putAll(countFromDeclarations());
+        }
+        return toStats(counts);
+    }
+
+    /**
+     * Pas de lecture puis écriture de valeurs absolues : entre les deux, une autre
+     * instance aurait pu valider une transition, qui serait perdue.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuild() {
+        for (Declaration.DeclarationStatut statut : Declaration.DeclarationStatut.values()) {
+            compteurRepository.insertIfAbsent(statut.name());
+        }
+        int lignes = compteurRepository.recount();
+        log.info("📊 Compteurs de déclarations recalculés ({} statuts)", lignes);
+    }
+
+    private Map<Declaration.DeclarationStatut, Long> countFromDeclarations() {
+        Map<Declaration.DeclarationStatut, Long> counts = new EnumMap<>(Declaration.DeclarationStatut.class);
+        for (Object[] row : declarationRepository.countGroupByStatut()) {
+            counts.put((Declaration.DeclarationStatut) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private DeclarationService.DeclarationStats toStats(Map<Declaration.DeclarationStatut, Long> counts) {
+        DeclarationService.DeclarationStats stats = new DeclarationService.DeclarationStats();
+        stats.setTotal(counts.values().stream().mapToLong(Long::longValue).sum());
+        stats.setGenerees(counts.getOrDefault(Declaration.DeclarationStatut.GENEREE, 0L));
+        stats.setEnValidation(counts.getOrDefault(Declaration.DeclarationStatut.EN_VALIDATION, 0L));
+        stats.setValidees(counts.getOrDefault(Declaration.DeclarationStatut.VALIDEE, 0L));
+        stats.setRejetees(counts.getOrDefault(Declaration.DeclarationStatut.REJETEE, 0L));
+        stats.setEnvoyees(counts.getOrDefault(Declaration.DeclarationStatut.ENVOYEE, 0L));
+        return stats;
+    }
+}
@@ -0,0 +1,305 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationContenu;
+import com.wifak.validationservice.repositories.DeclarationAnalyseRepository;
+import com.wifak.validationservice.repositories.DeclarationContenuRepository;
+import com.wifak.validationservice.repositories.DeclarationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stockage des fichiers générés, adressé par contenu.
+ *
+ * La clé est le SHA-256 du fichier non compressé : une régénération identique
+ * réutilise la ligne existante. Les déclarations ne portent que la clé,
+ * la taille et le codec. Les octets passent par {@link ContenuBlobStore}, en flux
+ * dans les deux sens : ni l'écriture ni la lecture ne chargent la colonne entière.
+ */
+@Service
+public class DeclarationContenuService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeclarationContenuService.class);
+
+    public static final String CODEC_GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DeclarationContenuRepository contenuRepository;
+    private final DeclarationRepository        declarationRepository;
+    private final DeclarationAnalyseRepository analyseRepository;
+    private final ContenuBlobStore             blobStore;
+
+    public DeclarationContenuService(DeclarationContenuRepository contenuRepository,
+                                     DeclarationRepository declarationRepository,
+                                     DeclarationAnalyseRepository analyseRepository,
+                                     ContenuBlobStore blobStore) {
+        this.contenuRepository     = contenuRepository;
+        this.declarationRepository = declarationRepository;
+        this.analyseRepository     = analyseRepository;
+        this.blobStore             = blobStore;
+    }
+
+    // ── Écriture ───────────────────────────────────────────────────
+
+    /**
+     * Enregistre le contenu s'il n'existe pas encore et renvoie sa référence.
+     * La ligne du contenu reste verrouillée jusqu'à la fin de la transaction appelante.
+     */
+    @Transactional
+    public ContenuRef store(String content) {
+        return store(out -> out.write(content), null);
+    }
+
+    /**
+     * Génère le fichier directement dans le store : {@code writer} écrit dans un flux
+     * UTF-8 → SHA-256 ({@link DigestOutputStream}) → gzip → fichier temporaire.
+     * Le contenu n'existe jamais en mémoire sous forme de String ; le gzip est
+     * transmis en flux à l'insertion. {@code verifier} (optionnel) relit le fichier
+     * décompressé avant l'enregistrement (ex. validation XSD).
+     */
+    @Transactional
+    public ContenuRef store(ContenuWriter writer, ContenuVerifier verifier) {
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("declaration-contenu-", ".gz");
+            MessageDigest digest = sha256Digest();
+            CountingOutputStream raw;
+            try (OutputStream file = Files.newOutputStream(spool)) {
+                GZIPOutputStream gz = new GZIPOutputStream(new BufferedOutputStream(file, BUFFER_SIZE), BUFFER_SIZE);
+                raw = new CountingOutputStream(new DigestOutputStream(gz, digest));
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(raw, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                    writer.write(GenerationProgress.current().track(out));
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            GenerationProgress.current().etape(GenerationProgress.Etape.STOCKAGE);
+
+            if (verifier != null) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(spool), BUFFER_SIZE)) {
+                    verifier.verifier(in);
+                }
+            }
+            return enregistrer(hash, raw.count, spool);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du contenu impossible", e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            deleteQuietly(spool);
+        }
+    }
+
+    private ContenuRef enregistrer(String hash, long taille, Path compressed) throws IOException {
+        // Ligne existante verrouillée : elle ne peut plus être libérée avant la fin de la transaction
+        if (contenuRepository.lockByHash(hash).isPresent()) {
+            log.debug("♻️ Contenu déjà stocké — {}", hash);
+            return new ContenuRef(hash, taille, CODEC_GZIP);
+        }
+
+        // existsById puis save serait une course : deux générations identiques simultanées
+        // inséreraient le même hash. L'insertion ignore la ligne si elle existe déjà
+        // (et la verrouille dans les deux cas).
+        if (blobStore.insertIfAbsent(hash, CODEC_GZIP, taille, compressed) == 0) {
+            log.debug("♻️ Contenu stocké entre-temps par une autre génération — {}", hash);
+        } else {
+            log.info("💾 Contenu stocké — {} ({} → {} octets)", hash, taille, Files.size(compressed));
+        }
+        return new ContenuRef(hash, taille, CODEC_GZIP);
+    }
+
+    /** Stocke le contenu et le rattache à la déclaration (référence + contenu en mémoire). */
+    @Transactional
+    public void attach(Declaration declaration, String content) {
+        attach(declaration, store(content));
+        declaration.setContenuFichier(content);
+    }
+
+    /**
+     * Rattache un contenu déjà stocké ; {@code contenuFichier} sera relu à la demande.
+     * La ligne du contenu reste verrouillée jusqu'à la validation de la transaction
+     * appelante : un {@link #releaseIfUnused} concurrent attend et voit la nouvelle référence.
+     */
+    @Transactional
+    public void attach(Declaration declaration, ContenuRef ref) {
+        verrouiller(ref);
+        declaration.setContenuHash(ref.getHash());
+        declaration.setContenuTaille(ref.getTaille());
+        declaration.setContenuCodec(ref.getCodec());
+        declaration.setContenuFichier(null);
+    }
+
+    /**
+     * Verrouille la ligne du contenu jusqu'à la fin de la transaction appelante : une
+     * référence posée dans la même transaction ne peut pas pointer vers un contenu
+     * supprimé par {@link #releaseIfUnused}.
+     */
+    @Transactional
+    public void verrouiller(ContenuRef ref) {
+        if (contenuRepository.lockByHash(ref.getHash()).isEmpty()) {
+            throw new IllegalStateException("Contenu supprimé avant son rattachement: " + ref.getHash());
+        }
+    }
+
+    // ── Lecture ────────────────────────────────────────────────────
+
+    /** Métadonnées du contenu (codec, tailles), sans les octets. */
+    @Transactional(readOnly = true)
+    public Optional<DeclarationContenu> find(String hash) {
+        if (hash == null) return Optional.empty();
+        return contenuRepository.findInfo(hash);
+    }
+
+    /** Contenu décompressé en texte ; null si la déclaration n'a pas de fichier. */
+    @Transactional(readOnly = true)
+    public String read(String hash) {
+        if (hash == null) return null;
+        try (InputStream in = openStream(hash)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du contenu " + hash + " impossible", e);
+        }
+    }
+
+    /** Renseigne {@code contenuFichier} depuis le store si ce n'est pas déjà fait. */
+    public Declaration hydrate(Declaration declaration) {
+        if (declaration.getContenuFichier() == null && declaration.getContenuHash() != null) {
+            declaration.setContenuFichier(read(declaration.getContenuHash()));
+        }
+        return declaration;
+    }
+
+    /** Flux décompressé de {@code hash}, lu par tranches depuis le store. */
+    public InputStream openStream(String hash) throws IOException {
+        DeclarationContenu contenu = contenuRepository.findInfo(hash)
+                .orElseThrow(() -> new RuntimeException("Contenu introuvable: " + hash));
+        return openStream(contenu);
+    }
+
+    /** Flux décompressé, lu par tranches depuis le store. */
+    public InputStream openStream(DeclarationContenu contenu) throws IOException {
+        InputStream raw = openRaw(contenu);
+        return CODEC_GZIP.equals(contenu.getCodec()) ? new GZIPInputStream(raw, BUFFER_SIZE) : raw;
+    }
+
+    /** Octets stockés tels quels (compressés selon {@code codec}), lus par tranches. */
+    public InputStream openRaw(DeclarationContenu contenu) {
+        return blobStore.open(contenu.getHash(), contenu.getTailleCompressee());
+    }
+
+    // ── Nettoyage ──────────────────────────────────────────────────
+
+    /**
+     * Supprime le contenu s'il n'est plus référencé par aucune déclaration,
+     * avec les résultats d'analyse calculés sur lui (voir AiResultCache).
+     *
+     * La ligne du contenu est verrouillée avant de chercher ses références (même verrou
+     * que {@link #attach(Declaration, ContenuRef)}), et cette recherche est elle-même une
+     * lecture verrouillante : un rattachement concurrent est soit déjà visible, soit bloqué.
+     */
+    @Transactional
+    public void releaseIfUnused(String hash) {
+        if (hash == null || contenuRepository.lockByHash(hash).isEmpty()) return;
+        if (!declarationRepository.lockIdsByContenuHash(hash).isEmpty()) return;
+        int analyses = analyseRepository.deleteByContenu(hash);
+        contenuRepository.deleteById(hash);
+        log.info("🗑️ Contenu orphelin supprimé — {} ({} analyse(s))", hash, analyses);
+    }
+
+    // ── Utilitaires ────────────────────────────────────────────────
+
+    static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(sha256Digest().digest(data));
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("⚠️ Fichier temporaire non supprimé: {}", file);
+        }
+    }
+
+    /** Écrit le fichier généré dans {@code out} (fermé par le store). */
+    @FunctionalInterface
+    public interface ContenuWriter {
+        void write(Writer out) throws Exception;
+    }
+
+    /** Relit le fichier décompressé avant son enregistrement. */
+    @FunctionalInterface
+    public interface ContenuVerifier {
+        void verifier(InputStream contenu) throws Exception;
+    }
+
+    // Octets non compressés, pour contenuTaille
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /** Référence vers un contenu stocké, telle que recopiée dans la déclaration. */
+    public static class ContenuRef {
+        private final String hash;
+        private final long   taille;
+        private final String codec;
+
+        public ContenuRef(String hash, long taille, String codec) {
+            this.hash   = hash;
+            this.taille = taille;
+            this.codec  = codec;
+        }
+
+        public String getHash()  { return hash; }
+        public long getTaille()  { return taille; }
+        public String getCodec() { return codec; }
+    }
+}
@@ -0,0 +1,288 @@
+package com.wifak.validationservice.service;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Différence par entité (IdClient, sinon IdContrepartie) entre deux déclarations,
+ * par jointure de hachage : chaque fichier est lu une seule fois.
+ *
+ * Le plus petit des deux contenus (d'après la taille annoncée) construit l'index
+ * (montants cumulés par entité) ; le plus grand est lu en flux et ses lignes sont
+ * rapprochées de l'index. Les classements (plus forts mouvements, dépassements de
+ * seuil) gardent au plus {@code topN} entrées chacun : O(n log topN) au total.
+ *
+ * Mémoire : les contenus sont lus en flux ({@link Source}, ouvert au moment de sa
+ * lecture), jamais entiers en mémoire. Restent les entités : une par client du plus
+ * petit fichier et une par client présent seulement dans le plus grand — ses lignes
+ * n'étant pas triées par client, une entité ne peut être classée qu'en fin de lecture.
+ * Ces deux maps sont le prix de la jointure sur un seul passage par fichier ; quand les
+ * populations se recouvrent peu, la seconde suit le nombre de clients du plus grand
+ * fichier. Seuls les classements sont bornés.
+ *
+ * Les totaux globaux sont cumulés pendant la même lecture.
+ */
+public final class DeclarationDiff {
+
+    public static final int COURANTE   = 0;
+    public static final int PRECEDENTE = 1;
+
+    private static final int CREDIT    = 0;
+    private static final int IMPAYE    = 1;
+    private static final int PROVISION = 2;
+    private static final double TOLERANCE_MONTANT = 0.01;
+
+    private static final Comparator<Entite> PAR_AMPLEUR =
+            Comparator.<Entite>comparingDouble(e -> e.ampleur).thenComparing(e -> e.id, Comparator.reverseOrder());
+
+    private final double seuilVariation;
+
+    private final double[][] totaux = new double[2][3];
+    private final int[] lignes = new int[2];
+    private final boolean[] malforme = new boolean[2];
+    private int sansIdentifiant;
+    private int communes, modifiees, apparues, disparues, depassements;
+
+    private final Classement mouvements;
+    private final Classement listeApparues;
+    private final Classement listeDisparues;
+    private final Classement listeDepassements;
+
+    private DeclarationDiff(int topN, double seuilVariation) {
+        this.seuilVariation    = seuilVariation;
+        this.mouvements        = new Classement(topN);
+        this.listeApparues     = new Classement(topN);
+        this.listeDisparues    = new Classement(topN);
+        this.listeDepassements = new Classement(topN);
+    }
+
+    /** Contenu d'un côté, ouvert au moment de sa lecture et fermé après. */
+    @FunctionalInterface
+    public interface Source {
+        Reader ouvrir() throws IOException;
+    }
+
+    /** Contenus déjà en mémoire (tests, appels directs). */
+    public static DeclarationDiff comparer(String courante, String precedente, int topN, double seuilVariation) {
+        return comparer(() -> new StringReader(courante), courante.length(),
+                () -> new StringReader(precedente), precedente.length(), topN, seuilVariation);
+    }
+
+    /**
+     * Mémoire en O(clients distincts des deux côtés), voir la classe.
+     *
+     * @param tailleCourante  taille (même unité des deux côtés) servant à choisir le côté indexé
+     * @param topN            taille des classements retournés
+     * @param seuilVariation  variation relative (en %) du crédit ou de l'impayé d'une entité
+     *                        au-delà de laquelle elle est signalée
+     * @throws UncheckedIOException si un contenu ne peut pas être lu
+     */
+    public static DeclarationDiff comparer(Source courante, long tailleCourante,
+                                           Source precedente, long taillePrecedente,
+                                           int topN, double seuilVariation) {
+        DeclarationDiff diff = new DeclarationDiff(topN, seuilVariation);
+        int construction = tailleCourante <= taillePrecedente ? COURANTE : PRECEDENTE;
+        int sonde = 1 - construction;
+
+        Map<String, Entite> index = new HashMap<>();
+        diff.lire(construction, construction == COURANTE ? courante : precedente,
+                id -> index.computeIfAbsent(id, Entite::new));
+
+        // Entités du plus grand fichier absentes de l'index : non bornées (voir la classe)
+        Map<String, Entite> horsIndex = new HashMap<>();
+        diff.lire(sonde, sonde == COURANTE ? courante : precedente, id -> {
+            Entite e = index.get(id);
+            return e != null ? e : horsIndex.computeIfAbsent(id, Entite::new);
+        });
+
+        diff.classer(index.values());
+        diff.classer(horsIndex.values());
+        return diff;
+    }
+
+    private interface Resolution {
+        Entite entite(String id);
+    }
+
+    private void lire(int cote, Source source, Resolution resolution) {
+        double[] total = totaux[cote];
+        try (Reader in = source.ouvrir()) {
+            new DeclarationXmlReader(in).read((num, ligne) -> {
+                lignes[cote]++;
+                double credit    = DeclarationColonnes.nombre(ligne.get("MontantCredit"));
+                double impaye    = DeclarationColonnes.nombre(ligne.get("MontantImpaye"));
+                double provision = DeclarationColonnes.nombre(ligne.get("Provision"));
+                if (!Double.isNaN(credit))    total[CREDIT]    += credit;
+                if (!Double.isNaN(impaye))    total[IMPAYE]    += impaye;
+                if (!Double.isNaN(provision)) total[PROVISION] += provision;
+
+                String id = DeclarationColonnes.identifiant(ligne);
+                if (id == null) {
+                    sansIdentifiant++;
+                    return;
+                }
+                resolution.entite(id).ajouter(cote, credit, impaye, provision);
+            });
+        } catch (XMLStreamException e) {
+            // Erreur du flux sous-jacent : pas une erreur de syntaxe du fichier
+            if (e.getNestedException() instanceof IOException io) {
+                throw new UncheckedIOException("Lecture du contenu impossible", io);
+            }
+            // Comparaison partielle : lignes lues avant l'erreur de syntaxe
+            malforme[cote] = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du contenu impossible", e);
+        }
+    }
+
+    private void classer(Collection<Entite> entites) {
+        for (Entite e : entites) {
+            boolean courante   = e.present(COURANTE);
+            boolean precedente = e.present(PRECEDENTE);
+            e.ampleur = Math.max(Math.abs(e.delta(CREDIT)), Math.max(Math.abs(e.delta(IMPAYE)), Math.abs(e.delta(PROVISION))));
+
+            if (courante && precedente) {
+                communes++;
+                if (e.ampleur <= TOLERANCE_MONTANT) continue;
+                modifiees++;
+                mouvements.offrir(e);
+                if (Math.abs(variation(e, CREDIT)) > seuilVariation || Math.abs(variation(e, IMPAYE)) > seuilVariation) {
+                    depassements++;
+                    listeDepassements.offrir(e);
+                }
+            } else if (courante) {
+                apparues++;
+                mouvements.offrir(e);
+                listeApparues.offrir(e);
+            } else {
+                disparues++;
+                mouvements.offrir(e);
+                listeDisparues.offrir(e);
+            }
+        }
+    }
+
+    // Même convention que la variation des totaux : 100 % si rien la période précédente
+    private static double variation(Entite e, int champ) {
+        double c = e.montant(COURANTE, champ);
+        double p = e.montant(PRECEDENTE, champ);
+        if (p == 0) return c > 0 ? 100.0 : 0.0;
+        return ((c - p) / Math.abs(p)) * 100.0;
+    }
+
+    // ── Résultats ─────────────────────────────────────────────────
+
+    public double totalCredit(int cote)       { return totaux[cote][CREDIT]; }
+    public double totalImpaye(int cote)       { return totaux[cote][IMPAYE]; }
+    public double totalProvision(int cote)    { return totaux[cote][PROVISION]; }
+    public int getLignes(int cote)            { return lignes[cote]; }
+    public boolean isMalforme()               { return malforme[COURANTE] || malforme[PRECEDENTE]; }
+
+    public Map<String, Object> entites() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("communes",        communes);
+        m.put("modifiees",       modifiees);
+        m.put("apparues",        apparues);
+        m.put("disparues",       disparues);
+        m.put("sansIdentifiant", sansIdentifiant);
+        return m;
+    }
+
+    /** Les {@code topN} entités dont un montant a le plus bougé, apparitions et disparitions comprises. */
+    public List<Map<String, Object>> principauxMouvements() { return mouvements.details(false); }
+    public List<Map<String, Object>> apparues()             { return listeApparues.details(false); }
+    public List<Map<String, Object>> disparues()            { return listeDisparues.details(false); }
+
+    public Map<String, Object> depassementsSeuil() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("seuilPourcentage", seuilVariation);
+        m.put("nombre",           depassements);
+        m.put("details",          listeDepassements.details(true));
+        return m;
+    }
+
+    /** Montants cumulés d'une entité, des deux côtés (une entité peut avoir plusieurs lignes). */
+    private static final class Entite {
+        private final String id;
+        private final double[] montants = new double[6];   // côté × (crédit, impayé, provision)
+        private int presence;
+        private double ampleur;
+
+        Entite(String id) {
+            this.id = id;
+        }
+
+        void ajouter(int cote, double credit, double impaye, double provision) {
+            int base = cote * 3;
+            if (!Double.isNaN(credit))    montants[base + CREDIT]    += credit;
+            if (!Double.isNaN(impaye))    montants[base + IMPAYE]    += impaye;
+            if (!Double.isNaN(provision)) montants[base + PROVISION] += provision;
+            presence |= 1 << cote;
+        }
+
+        boolean present(int cote)              { return (presence & (1 << cote)) != 0; }
+        double montant(int cote, int champ)    { return montants[cote * 3 + champ]; }
+        double delta(int champ)                { return montant(COURANTE, champ) - montant(PRECEDENTE, champ); }
+
+        String statut() {
+            if (!present(PRECEDENTE)) return "APPARUE";
+            if (!present(COURANTE))   return "DISPARUE";
+            return "MODIFIEE";
+        }
+    }
+
+    /** Les {@code taille} plus grandes ampleurs, par un tas borné. */
+    private static final class Classement {
+        private final int taille;
+        private final PriorityQueue<Entite> tas = new PriorityQueue<>(PAR_AMPLEUR);
+
+        Classement(int taille) {
+            this.taille = taille;
+        }
+
+        void offrir(Entite e) {
+            if (taille <= 0) return;
+            if (tas.size() < taille) {
+                tas.add(e);
+            } else if (PAR_AMPLEUR.compare(e, tas.peek()) > 0) {
+                tas.poll();
+                tas.add(e);
+            }
+        }
+
+        List<Map<String, Object>> details(boolean avecVariations) {
+            List<Entite> tries = new ArrayList<>(tas);
+            tries.sort(PAR_AMPLEUR.reversed());
+            List<Map<String, Object>> details = new ArrayList<>(tries.size());
+            for (Entite e : tries) {
+                Map<String, Object> d = new LinkedHashMap<>();
+                d.put("id",              e.id);
+                d.put("statut",          e.statut());
+                d.put("creditPrecedent", e.montant(PRECEDENTE, CREDIT));
+                d.put("creditCourant",   e.montant(COURANTE, CREDIT));
+                d.put("deltaCredit",     e.delta(CREDIT));
+                d.put("impayePrecedent", e.montant(PRECEDENTE, IMPAYE));
+                d.put("impayeCourant",   e.montant(COURANTE, IMPAYE));
+                d.put("deltaImpaye",     e.delta(IMPAYE));
+                d.put("deltaProvision",  e.delta(PROVISION));
+                if (avecVariations) {
+                    d.put("variationCredit", variation(e, CREDIT));
+                    d.put("variationImpaye", variation(e, IMPAYE));
+                }
+                details.add(d);
+            }
+            return details;
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package com.wifak.validationservice.service;
 
 import com.wifak.validationservice.dto.CreateTicketRequest;
+import com.wifak.validationservice.dto.DeclarationFilter;
+import com.wifak.validationservice.dto.DeclarationPage;
+import com.wifak.validationservice.dto.DeclarationSummary;
 import com.wifak.validationservice.dto.GenerateDeclarationRequest;
+import com.wifak.validationservice.dto.PendingQueue;
 import com.wifak.validationservice.dto.XsdSqlMappingRequest;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.DeclarationType;
 import com.wifak.validationservice.feign.JiraIntegrationFeignClient;
 import com.wifak.validationservice.repositories.DeclarationRepository;
+import com.wifak.validationservice.repositories.DeclarationSearchRepository.EcheanceGroupe;
 import com.wifak.validationservice.repositories.DeclarationTypeRepository;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -19,18 +25,29 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 public class DeclarationService {
 
     private static final Logger log = LoggerFactory.getLogger(DeclarationService.class);
 
+    // Déclarations retenues comme référence d'une période passée
+    private static final List<Declaration.DeclarationStatut> STATUTS_COMPARABLES =
+            List.of(Declaration.DeclarationStatut.ENVOYEE, Declaration.DeclarationStatut.VALIDEE);
+
     private final DeclarationRepository      declarationRepository;
     private final DeclarationTypeRepository  typeRepository;
     private final XmlGenerationService       xmlGenerationService;
     private final CsvGenerationService       csvGenerationService;
     private final TxtGenerationService       txtGenerationService;
+    private final DeclarationContenuService  contenuService;
+    private final DeclarationCompteurService compteurService;
     private final JiraIntegrationFeignClient jiraClient;
     private final ObjectMapper               objectMapper;
 
@@ -40,6 +57,8 @@ public class DeclarationService {
             XmlGenerationService xmlGenerationService,
             CsvGenerationService csvGenerationService,
             TxtGenerationService txtGenerationService,
+            DeclarationContenuService contenuService,
+            DeclarationCompteurService compteurService,
             JiraIntegrationFeignClient jiraClient,
             ObjectMapper objectMapper
     ) {
@@ -48,6 +67,8 @@ public class DeclarationService {
         this.xmlGenerationService  = xmlGenerationService;
         this.csvGenerationService  = csvGenerationService;
         this.txtGenerationService  = txtGenerationService;
+        this.contenuService        = contenuService;
+        this.compteurService       = compteurService;
         this.jiraClient            = jiraClient;
         this.objectMapper          = objectMapper;
     }
@@ -62,25 +83,27 @@ public class DeclarationService {
 
     /**
      * Génération SANS mapping (CSV, TXT, XML générique).
+     * Le fichier est écrit en flux dans le store (gzip + SHA-256), sans passer par une String.
      */
-    private String generateFileContent(DeclarationType type,
-                                       LocalDate dateDebut, LocalDate dateFin,
-                                       String periode) {
+    private DeclarationContenuService.ContenuRef generateFileContent(DeclarationType type,
+                                                                     LocalDate dateDebut, LocalDate dateFin,
+                                                                     String periode) {
         switch (type.getFormat()) {
             case CSV:
                 log.info("⚙️ Génération CSV via SQL...");
-                return csvGenerationService.generateCsvFromSql(
-                        type.getSqlQuery(), dateDebut, dateFin, type.getCode(), periode);
+                return contenuService.store(out -> csvGenerationService.writeCsvFromSql(
+                        type.getSqlQuery(), dateDebut, dateFin, type.getCode(), periode, out), null);
             case TXT:
                 log.info("⚙️ Génération TXT via SQL...");
-                return txtGenerationService.generateTxtFromSql(
-                        type.getSqlQuery(), dateDebut, dateFin, type.getCode(), periode);
+                return contenuService.store(out -> txtGenerationService.writeTxtFromSql(
+                        type.getSqlQuery(), dateDebut, dateFin, type.getCode(), periode, out), null);
             case XML:
             default:
                 log.info("⚙️ Génération XML générique (sans mapping)...");
-                return xmlGenerationService.generateXmlFromXsdAndSql(
-                        type.getXsdContent(), type.getSqlQuery(),
-                        dateDebut, dateFin, type.getCode(), periode);
+                return contenuService.store(
+                        out -> xmlGenerationService.writeXmlFromXsdAndSql(
+                                type.getSqlQuery(), dateDebut, dateFin, type.getCode(), periode, out),
+                        xml -> xmlGenerationService.validateOptional(xml, type.getXsdContent()));
         }
     }
 
@@ -88,7 +111,7 @@ public class DeclarationService {
      * ✅ NOUVEAU — Génération XML AVEC mapping XSD ↔ SQL.
      * Les mappings JSON sont sérialisés et stockés dans la déclaration.
      */
-    private String generateFileContentWithMapping(
+    private DeclarationContenuService.ContenuRef generateFileContentWithMapping(
             DeclarationType type,
             LocalDate dateDebut, LocalDate dateFin,
             String periode,
@@ -99,11 +122,11 @@ public class DeclarationService {
             return generateFileContent(type, dateDebut, dateFin, periode);
         }
         log.info("⚙️ Génération XML avec mapping ({} champs)...", mappings.size());
-        return xmlGenerationService.generateXmlFromMapping(
-                type.getXsdContent(), type.getSqlQuery(),
-                dateDebut, dateFin, type.getCode(), periode,
-                mappings
-        );
+        return contenuService.store(
+                out -> xmlGenerationService.writeXmlFromMapping(
+                        type.getSqlQuery(), dateDebut, dateFin, type.getCode(), periode, mappings, out),
+                // Validation XSD optionnelle, sur le fichier relu depuis le store
+                xml -> xmlGenerationService.validateOptional(xml, type.getXsdContent()));
     }
 
     // ── Résolution extension / nom de fichier ──────────────────────
@@ -141,15 +164,16 @@ public class DeclarationService {
                 .orElseThrow(() -> new RuntimeException("Type introuvable: " + typeId));
         validateType(type);
 
-        String fileContent   = generateFileContent(type, dateDebut, dateFin, periode);
+        DeclarationContenuService.ContenuRef contenu = generateFileContent(type, dateDebut, dateFin, periode);
         String fileExtension = resolveExtension(type.getFormat());
         String filename      = buildFilename(type.getCode(), periode, fileExtension);
 
-        Declaration declaration = buildDeclaration(type, periode, dateDebut, dateFin, fileContent, filename);
+        Declaration declaration = buildDeclaration(type, periode, dateDebut, dateFin, contenu, filename);
         // Pas de mapping → mappingJson = null
         declaration.setMappingJson(null);
 
         Declaration saved = declarationRepository.save(declaration);
+        compteurService.transition(null, saved.getStatut());
         log.info("✅ Déclaration sauvegardée — ID: {}, Fichier: {}", saved.getId(), filename);
         return saved;
     }
@@ -167,7 +191,9 @@ public class DeclarationService {
                             declaration.getStatut() + " »");
         }
 
-        declaration.setContenuFichier(newContent);
+        String ancienHash = declaration.getContenuHash();
+        Declaration.DeclarationStatut ancienStatut = declaration.getStatut();
+        contenuService.attach(declaration, newContent);
         declaration.setDateGeneration(java.time.LocalDateTime.now());
         declaration.setGenerePar(getCurrentUsername());
         // Remettre en GENEREE après correction
@@ -177,6 +203,8 @@ public class DeclarationService {
         declaration.setDateValidation(null);
 
         Declaration saved = declarationRepository.save(declaration);
+        compteurService.transition(ancienStatut, saved.getStatut());
+        contenuService.releaseIfUnused(ancienHash);
         log.info("✅ Contenu patché — ID: {}", saved.getId());
         return saved;
     }
@@ -196,11 +224,12 @@ public class DeclarationService {
                 .orElseThrow(() -> new RuntimeException("Type introuvable: " + typeId));
         validateType(type);
 
-        String fileContent   = generateFileContentWithMapping(type, dateDebut, dateFin, periode, mappings);
+        DeclarationContenuService.ContenuRef contenu =
+                generateFileContentWithMapping(type, dateDebut, dateFin, periode, mappings);
         String fileExtension = resolveExtension(type.getFormat());
         String filename      = buildFilename(type.getCode(), periode, fileExtension);
 
-        Declaration declaration = buildDeclaration(type, periode, dateDebut, dateFin, fileContent, filename);
+        Declaration declaration = buildDeclaration(type, periode, dateDebut, dateFin, contenu, filename);
 
         // ✅ Sérialiser et stocker le mapping JSON pour traçabilité / ré-génération
         try {
@@ -212,6 +241,7 @@ public class DeclarationService {
         }
 
         Declaration saved = declarationRepository.save(declaration);
+        compteurService.transition(null, saved.getStatut());
         log.info("✅ Déclaration avec mapping sauvegardée — ID: {}, Fichier: {}", saved.getId(), filename);
         return saved;
     }
@@ -220,14 +250,14 @@ public class DeclarationService {
 
     private Declaration buildDeclaration(DeclarationType type, String periode,
                                          LocalDate dateDebut, LocalDate dateFin,
-                                         String fileContent, String filename) {
+                                         DeclarationContenuService.ContenuRef contenu, String filename) {
         Declaration declaration = new Declaration();
         declaration.setDeclarationType(type);
         declaration.setPeriode(periode);
         declaration.setDateDebut(dateDebut);
         declaration.setDateFin(dateFin);
         declaration.setStatut(Declaration.DeclarationStatut.GENEREE);
-        declaration.setContenuFichier(fileContent);
+        contenuService.attach(declaration, contenu);
         declaration.setDateGeneration(LocalDateTime.now());
         declaration.setGenerePar(getCurrentUsername());
         declaration.setSqlQueryUsed(type.getSqlQuery());
@@ -245,16 +275,149 @@ public class DeclarationService {
         }
     }
     // QUERIES
-    public List<Declaration> getMyDeclarations() {
+    // Listes : métadonnées seules, le contenu se lit via findByIdWithContent / download
+    public List<DeclarationSummary> getMyDeclarations() {
         String username = getCurrentUsername();
         log.info("👤 getMyDeclarations — username='{}'", username);
-        List<Declaration> list = declarationRepository.findByGenerePar(username);
+        List<DeclarationSummary> list = declarationRepository.findSummariesByGenerePar(username);
         log.info("📋 {} déclaration(s) pour '{}'", list.size(), username);
         return list;
     }
 
-    public List<Declaration> getAllDeclarations() {
-        return declarationRepository.findAll();
+    public List<DeclarationSummary> getAllDeclarations() {
+        return declarationRepository.findAllSummaries();
+    }
+
+    public List<DeclarationSummary> getDeclarationsByStatut(Declaration.DeclarationStatut statut) {
+        return declarationRepository.findSummariesByStatut(statut);
+    }
+
+    // ── File de validation (managers) ─────────────────────────────
+
+    static final int ECHEANCE_PROCHE_JOURS = 3;
+
+    /**
+     * Page de la file EN_VALIDATION, lue en base dans les deux tris. En tri AGE :
+     * LIMIT/OFFSET sur l'index statut+dateGeneration. En tri ECHEANCE, l'échéance vient
+     * du texte libre dateLimite : elle est calculée par groupe (dateLimite, dateFin) à partir
+     * du GROUP BY des compteurs, puis la base ne lit que les groupes qui couvrent la page,
+     * ordonnés par rang d'échéance (voir {@link #groupesDeLaPage}).
+     */
+    @Transactional(readOnly = true)
+    public PendingQueue getPendingQueue(PendingQueue.Tri tri, Integer page, Integer size) {
+        PendingQueue.Tri ordre = tri != null ? tri : PendingQueue.Tri.AGE;
+        int p     = page == null ? 0 : Math.max(0, page);
+        int limit = size == null ? PAGE_SIZE_DEFAUT : Math.max(1, Math.min(size, PAGE_SIZE_MAX));
+        LocalDate today = LocalDate.now();
+        List<Object[]> sources = declarationRepository.countByEcheanceSource(Declaration.DeclarationStatut.EN_VALIDATION);
+
+        List<DeclarationSummary> rows;
+        if (ordre == PendingQueue.Tri.AGE) {
+            rows = declarationRepository.findSummariesByStatutOldestFirst(
+                    Declaration.DeclarationStatut.EN_VALIDATION, PageRequest.of(p, limit));
+        } else {
+            long offset = (long) p * limit;
+            long[] debut = new long[1];
+            List<EcheanceGroupe> groupes = groupesDeLaPage(sources, offset, limit, debut);
+            rows = declarationRepository.findSummariesByEcheanceGroupes(
+                    Declaration.DeclarationStatut.EN_VALIDATION, groupes, (int) (offset - debut[0]), limit);
+        }
+        List<PendingQueue.Item> items = rows.stream().map(s -> toPendingItem(s, today)).collect(Collectors.toList());
+        return new PendingQueue(items, p, limit, ordre, compteurs(sources, today));
+    }
+
+    /**
+     * Groupes (dateLimite, dateFin) à lire pour la page [offset, offset + limit) du tri ECHEANCE.
+     * Un rang par échéance distincte (sans échéance en dernier) ; avec les effectifs du GROUP BY,
+     * on garde les seuls rangs qui recouvrent la page. {@code debut[0]} reçoit la position du
+     * premier rang gardé, pour ramener l'OFFSET à ces groupes.
+     */
+    static List<EcheanceGroupe> groupesDeLaPage(List<Object[]> sources, long offset, int limit, long[] debut) {
+        TreeMap<LocalDate, List<Object[]>> parEcheance = new TreeMap<>();
+        List<Object[]> sansEcheance = new ArrayList<>();
+        for (Object[] row : sources) {
+            LocalDate echeance = EcheanceCalculator.compute((String) row[0], (LocalDate) row[1]);
+            if (echeance == null) sansEcheance.add(row);
+            else parEcheance.computeIfAbsent(echeance, k -> new ArrayList<>()).add(row);
+        }
+        List<List<Object[]>> rangs = new ArrayList<>(parEcheance.values());
+        if (!sansEcheance.isEmpty()) rangs.add(sansEcheance);
+
+        List<EcheanceGroupe> groupes = new ArrayList<>();
+        long position = 0;
+        int numero = 0;
+        for (List<Object[]> rang : rangs) {
+            long n = rang.stream().mapToLong(row -> ((Number) row[2]).longValue()).sum();
+            if (position + n > offset && position < offset + limit) {
+                if (groupes.isEmpty()) debut[0] = position;
+                for (Object[] row : rang) {
+                    groupes.add(new EcheanceGroupe((String) row[0], (LocalDate) row[1], numero));
+                }
+                numero++;
+            }
+            position += n;
+        }
+        return groupes;
+    }
+
+    /** Compteurs du badge : un GROUP BY (dateLimite, dateFin), aucune ligne de déclaration lue. */
+    @Transactional(readOnly = true)
+    public PendingQueue.Compteurs getPendingCompteurs() {
+        return compteurs(declarationRepository.countByEcheanceSource(Declaration.DeclarationStatut.EN_VALIDATION),
+                LocalDate.now());
+    }
+
+    private static PendingQueue.Compteurs compteurs(List<Object[]> sources, LocalDate today) {
+        long total = 0, enRetard = 0, proche = 0;
+        for (Object[] row : sources) {
+            long n = ((Number) row[2]).longValue();
+            total += n;
+            LocalDate echeance = EcheanceCalculator.compute((String) row[0], (LocalDate) row[1]);
+            if (echeance == null) continue;
+            if (echeance.isBefore(today)) enRetard += n;
+            else if (!echeance.isAfter(today.plusDays(ECHEANCE_PROCHE_JOURS))) proche += n;
+        }
+        return new PendingQueue.Compteurs(total, enRetard, proche);
+    }
+
+    private static PendingQueue.Item toPendingItem(DeclarationSummary s, LocalDate today) {
+        LocalDate echeance = EcheanceCalculator.compute(
+                s.getDeclarationType().getDateLimite(), s.getDateFin());
+        Long restants = echeance != null ? ChronoUnit.DAYS.between(today, echeance) : null;
+        Long age = s.getDateGeneration() != null
+                ? ChronoUnit.DAYS.between(s.getDateGeneration().toLocalDate(), today) : null;
+        return new PendingQueue.Item(s, echeance, restants, age);
+    }
+
+    // ── Listes paginées par curseur (dateGeneration, id) ───────────
+
+    static final int PAGE_SIZE_DEFAUT = 50;
+    static final int PAGE_SIZE_MAX    = 200;
+
+    @Transactional(readOnly = true)
+    public DeclarationPage searchDeclarations(DeclarationFilter filter, String cursor, Integer size) {
+        int limit = size == null ? PAGE_SIZE_DEFAUT : Math.max(1, Math.min(size, PAGE_SIZE_MAX));
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        LocalDateTime afterDate = after != null ? after.getDate() : null;
+        Long afterId            = after != null ? after.getId()   : null;
+
+        // Une ligne de plus que demandé : sa présence indique qu'il reste une page
+        List<DeclarationSummary> rows = declarationRepository.searchSummaries(
+                filter != null ? filter : new DeclarationFilter(), afterDate, afterId, limit + 1);
+        if (rows.size() <= limit) {
+            return new DeclarationPage(rows, null);
+        }
+        List<DeclarationSummary> items = rows.subList(0, limit);
+        DeclarationSummary last = items.get(limit - 1);
+        return new DeclarationPage(items, KeysetCursor.encode(last.getDateGeneration(), last.getId()));
+    }
+
+    /** Comme {@link #searchDeclarations}, restreint aux déclarations de l'utilisateur courant. */
+    @Transactional(readOnly = true)
+    public DeclarationPage searchMyDeclarations(DeclarationFilter filter, String cursor, Integer size) {
+        DeclarationFilter mine = filter != null ? filter : new DeclarationFilter();
+        mine.setGenerePar(getCurrentUsername());
+        return searchDeclarations(mine, cursor, size);
     }
 
     @Transactional(readOnly = true)
@@ -262,6 +425,30 @@ public class DeclarationService {
         return declarationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Déclaration introuvable: " + id));
     }
+
+    /**
+     * Comme {@link #findById(Long)}, avec le fichier chargé depuis le store.
+     * À réserver aux écrans et traitements qui lisent réellement le contenu.
+     */
+    @Transactional(readOnly = true)
+    public Declaration findByIdWithContent(Long id) {
+        return contenuService.hydrate(findById(id));
+    }
+
+    /**
+     * Dernière déclaration ENVOYEE ou VALIDEE du même type sur la période qui précède
+     * celle de {@code declaration} (voir PeriodeCalculator). Vide si la période n'est
+     * pas reconnue ou si rien n'a été validé ou envoyé sur la période précédente.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> findPreviousPeriodId(Declaration declaration) {
+        DeclarationType type = declaration.getDeclarationType();
+        String precedente = PeriodeCalculator.precedente(declaration.getPeriode(), type.getFrequence());
+        if (precedente == null) return Optional.empty();
+        return declarationRepository.findLatestIdsByTypeAndPeriode(type.getId(), precedente,
+                        STATUTS_COMPARABLES, PageRequest.of(0, 1))
+                .stream().findFirst();
+    }
     // UPDATE
     @Transactional
     public Declaration updateDeclaration(Long id, GenerateDeclarationRequest request) {
@@ -281,7 +468,7 @@ public class DeclarationService {
         validateType(type);
 
         // ✅ Si la déclaration avait un mapping, le réutiliser pour la ré-génération
-        String fileContent;
+        DeclarationContenuService.ContenuRef fileContent;
         if (declaration.getMappingJson() != null && !declaration.getMappingJson().isEmpty()
                 && type.getFormat() == DeclarationType.DeclarationFormat.XML) {
             try {
@@ -308,7 +495,9 @@ public class DeclarationService {
         declaration.setPeriode(request.getPeriode());
         declaration.setDateDebut(request.getDateDebut());
         declaration.setDateFin(request.getDateFin());
-        declaration.setContenuFichier(fileContent);
+        String ancienHash = declaration.getContenuHash();
+        Declaration.DeclarationStatut ancienStatut = declaration.getStatut();
+        contenuService.attach(declaration, fileContent);
         declaration.setDateGeneration(LocalDateTime.now());
         declaration.setSqlQueryUsed(type.getSqlQuery());
         declaration.setXsdFileNameUsed(type.getXsdFileName());
@@ -320,6 +509,8 @@ public class DeclarationService {
         declaration.setDateValidation(null);
 
         Declaration saved = declarationRepository.save(declaration);
+        compteurService.transition(ancienStatut, saved.getStatut());
+        contenuService.releaseIfUnused(ancienHash);
         log.info("✅ Déclaration mise à jour — ID: {}", saved.getId());
         return saved;
     }
@@ -338,6 +529,8 @@ public class DeclarationService {
         }
 
         declarationRepository.delete(declaration);
+        compteurService.transition(declaration.getStatut(), null);
+        contenuService.releaseIfUnused(declaration.getContenuHash());
         log.info("✅ Déclaration supprimée — ID: {}", id);
     }
     // UPDATE STATUT
@@ -354,6 +547,7 @@ public class DeclarationService {
             throw new RuntimeException("Statut invalide : « " + nouveauStatut + " »");
         }
 
+        Declaration.DeclarationStatut ancienStatut = declaration.getStatut();
         declaration.setStatut(statut);
 
         switch (statut) {
@@ -379,18 +573,14 @@ public class DeclarationService {
                 log.warn("⚠️ Statut inattendu: {}", statut);
         }
 
-        return declarationRepository.save(declaration);
+        Declaration saved = declarationRepository.save(declaration);
+        compteurService.transition(ancienStatut, statut);
+        return saved;
     }
     // STATS
+    // Lecture des compteurs maintenus par statut (voir DeclarationCompteurService)
     public DeclarationStats getStats() {
-        DeclarationStats stats = new DeclarationStats();
-        stats.setTotal(declarationRepository.count());
-        stats.setGenerees(declarationRepository.countByStatut(Declaration.DeclarationStatut.GENEREE));
-        stats.setEnValidation(declarationRepository.countByStatut(Declaration.DeclarationStatut.EN_VALIDATION));
-        stats.setValidees(declarationRepository.countByStatut(Declaration.DeclarationStatut.VALIDEE));
-        stats.setRejetees(declarationRepository.countByStatut(Declaration.DeclarationStatut.REJETEE));
-        stats.setEnvoyees(declarationRepository.countByStatut(Declaration.DeclarationStatut.ENVOYEE));
-        return stats;
+        return compteurService.getStats();
     }
 
     public static class DeclarationStats {
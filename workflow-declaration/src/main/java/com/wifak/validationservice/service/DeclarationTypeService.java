@@ -1,12 +1,15 @@
 package com.wifak.validationservice.service;
 
 import com.wifak.validationservice.entities.DeclarationType;
+import com.wifak.validationservice.entities.ValidationRule;
+import com.wifak.validationservice.repositories.DeclarationAnalyseRepository;
 import com.wifak.validationservice.repositories.DeclarationTypeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,9 +20,27 @@ public class DeclarationTypeService {
     private static final Logger log = LoggerFactory.getLogger(DeclarationTypeService.class);
 
     private final DeclarationTypeRepository repository;
-
-    public DeclarationTypeService(DeclarationTypeRepository repository) {
+    private final XsdSchemaCache schemaCache;
+    private final SqlResultCache resultCache;
+    private final SqlColumnCatalog columnCatalog;
+    private final SqlQueryCompiler queryCompiler;
+    private final ValidationPlanCache planCache;
+    private final DeclarationAnalyseRepository analyseRepository;
+    private final XsdAnalyzerService xsdAnalyzer;
+
+    public DeclarationTypeService(DeclarationTypeRepository repository, XsdSchemaCache schemaCache,
+                                  SqlResultCache resultCache, SqlColumnCatalog columnCatalog,
+                                  SqlQueryCompiler queryCompiler, ValidationPlanCache planCache,
+                                  DeclarationAnalyseRepository analyseRepository,
+                                  XsdAnalyzerService xsdAnalyzer) {
         this.repository = repository;
+        this.schemaCache = schemaCache;
+        this.resultCache = resultCache;
+        this.columnCatalog = columnCatalog;
+        this.queryCompiler = queryCompiler;
+        this.planCache = planCache;
+        this.analyseRepository = analyseRepository;
+        this.xsdAnalyzer = xsdAnalyzer;
     }
 
     private String getCurrentUsername() {
@@ -71,6 +92,8 @@ public class DeclarationTypeService {
         // ✅ Corriger les champs null avant update
         fixNullAuditFields(existing);
 
+        // Le plan compilé est rangé sous le code : l'ancien ne doit plus servir
+        planCache.evict(existing.getCode());
         existing.setCode(updated.getCode());
         existing.setNom(updated.getNom());
         existing.setDescription(updated.getDescription());
@@ -116,6 +139,9 @@ public class DeclarationTypeService {
         // ✅ CORRECTION PRINCIPALE — réparer les champs null avant le save
         fixNullAuditFields(type);
 
+        // L'ancien XSD compilé et ses champs analysés ne servent plus
+        schemaCache.evict(type.getXsdContent());
+        xsdAnalyzer.evict(type.getXsdContent());
         type.setXsdFileName(xsdFileName);
         type.setXsdContent(xsdContent);
         type.setDerniereModification(LocalDateTime.now());
@@ -125,6 +151,38 @@ public class DeclarationTypeService {
         return repository.save(type);
     }
 
+    /**
+     * ✅ Remplacer les règles de validation du type.
+     * Toutes les règles doivent compiler ; le nouveau plan sert dès l'analyse suivante
+     * et les analyses conservées des déclarations de ce type sont recalculées.
+     */
+    @Transactional
+    public List<ValidationRule> saveValidationRules(Long id, List<ValidationRule> rules) {
+        DeclarationType type = repository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Type de déclaration introuvable: " + id));
+
+        List<String> invalides = ValidationPlan.compile(rules).getIgnorees();
+        if (!invalides.isEmpty()) {
+            throw new IllegalArgumentException("Règles invalides : " + String.join(" ; ", invalides));
+        }
+
+        fixNullAuditFields(type);
+        type.clearValidationRules();
+        for (ValidationRule rule : rules) {
+            rule.setId(null);
+            type.addValidationRule(rule);
+        }
+        type.setDerniereModification(LocalDateTime.now());
+        type.setModifiePar(getCurrentUsername());
+        DeclarationType saved = repository.save(type);
+
+        planCache.evict(type.getCode());
+        int analyses = analyseRepository.deleteAnalysesByDeclarationType(id);
+        log.info("✅ {} règle(s) de validation sauvegardée(s) pour type ID={} — {} analyse(s) à recalculer",
+                rules.size(), id, analyses);
+        return saved.getValidationRules();
+    }
+
     /**
      * ✅ Sauvegarder la requête SQL saisie par l'agent
      */
@@ -135,6 +193,10 @@ public class DeclarationTypeService {
         // ✅ CORRECTION PRINCIPALE — réparer les champs null avant le save
         fixNullAuditFields(type);
 
+        // Les résultats, colonnes et version compilée de l'ancienne requête ne servent plus
+        resultCache.evict(type.getSqlQuery());
+        columnCatalog.evict(id);
+        queryCompiler.evict(type.getSqlQuery());
         type.setSqlQuery(sqlQuery);
         type.setDerniereModification(LocalDateTime.now());
         type.setModifiePar(getCurrentUsername());
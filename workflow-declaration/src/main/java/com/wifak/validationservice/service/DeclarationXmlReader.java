@@ -0,0 +1,165 @@
+package com.wifak.validationservice.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lecture en flux (StAX) d'un fichier de déclaration BCT, en une seule passe :
+ * contrôle de bonne formation, en-tête, puis chaque {@code <Ligne>} dès qu'elle est lue.
+ *
+ *  <Declaration code="..." periode="..." dateDebut="..." dateFin="...">
+ *    <Entete>...</Entete>
+ *    <Donnees>
+ *      <Ligne>...</Ligne>
+ *    </Donnees>
+ *  </Declaration>
+ *
+ * Les champs d'une ligne sont passés au {@link LigneHandler} dans une map réutilisée
+ * d'une ligne à l'autre : la mémoire ne dépend pas du nombre de lignes.
+ * Un champ sans aucun texte ({@code <Tag/>}, {@code <Tag></Tag>}) est absent de la map,
+ * comme avec l'ancienne extraction par regex ; un champ blanc ({@code <Tag> </Tag>}) vaut "".
+ * Toute erreur de syntaxe (ou un DOCTYPE) lève {@link XMLStreamException}.
+ */
+public class DeclarationXmlReader {
+
+    // Implémentation JDK explicite, DTD et entités externes désactivées (CWE-611)
+    private static final XMLInputFactory INPUT_FACTORY = createFactory();
+
+    // Balises d'en-tête reconnues hors <Ligne> (comparaison insensible à la casse)
+    private static final Set<String> ENTETE_TAGS = Set.of(
+            "code", "codedeclaration", "periode", "date_debut", "datedebut",
+            "date_fin", "datefin", "nombrelignes", "nombre_lignes");
+
+    /** Traitement d'une ligne ; {@code champs} n'est valable que pendant l'appel. */
+    @FunctionalInterface
+    public interface LigneHandler {
+        void ligne(int numero, Map<String, String> champs);
+    }
+
+    private final Reader in;
+    private final Entete entete = new Entete();
+
+    public DeclarationXmlReader(Reader in) {
+        this.in = in;
+    }
+
+    /** En-tête lu jusqu'ici ; complet une fois {@link #read} terminé. */
+    public Entete getEntete() {
+        return entete;
+    }
+
+    /** @return nombre de lignes lues */
+    public int read(LigneHandler handler) throws XMLStreamException {
+        XMLStreamReader xml = INPUT_FACTORY.createXMLStreamReader(in);
+        Map<String, String> champs = new HashMap<>();
+        StringBuilder text = new StringBuilder();
+        int lignes = 0;
+        int depth = 0;
+        int ligneDepth = -1;       // profondeur du <Ligne> ouvert, -1 hors ligne
+        int captureDepth = -1;     // profondeur de l'élément dont on lit le texte
+        String captureName = null;
+        boolean captureText = false; // au moins un événement texte dans l'élément capturé
+        try {
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.DTD ->
+                            throw new XMLStreamException("DOCTYPE interdit", xml.getLocation());
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        depth++;
+                        String name = xml.getLocalName();
+                        if (depth == 1) {
+                            readRootAttributes(xml);
+                        }
+                        if (ligneDepth < 0 && "ligne".equalsIgnoreCase(name)) {
+                            ligneDepth = depth;
+                            champs.clear();
+                        } else if (ligneDepth > 0 && depth == ligneDepth + 1) {
+                            captureDepth = depth;
+                            captureName  = name;
+                            captureText  = false;
+                            text.setLength(0);
+                        } else if (ligneDepth < 0 && captureDepth < 0
+                                && ENTETE_TAGS.contains(name.toLowerCase(Locale.ROOT))) {
+                            captureDepth = depth;
+                            captureName  = name.toLowerCase(Locale.ROOT);
+                            text.setLength(0);
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                        if (captureDepth > 0) {
+                            text.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                            captureText = true;
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (depth == captureDepth) {
+                            String value = text.toString().trim();
+                            if (ligneDepth > 0) {
+                                if (captureText) champs.put(captureName, value);
+                            } else if (!value.isEmpty()) {
+                                entete.tags.putIfAbsent(captureName, value);
+                            }
+                            captureDepth = -1;
+                        } else if (depth == ligneDepth) {
+                            ligneDepth = -1;
+                            handler.ligne(++lignes, champs);
+                        }
+                        depth--;
+                    }
+                    default -> { }
+                }
+            }
+        } finally {
+            xml.close();
+        }
+        return lignes;
+    }
+
+    private void readRootAttributes(XMLStreamReader xml) {
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+            entete.attributes.put(xml.getAttributeLocalName(i).toLowerCase(Locale.ROOT), xml.getAttributeValue(i));
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    // ── En-tête ───────────────────────────────────────────────────
+
+    /**
+     * Champs d'en-tête : attributs de la racine d'abord, sinon première valeur
+     * non vide de la balise correspondante hors {@code <Ligne>}.
+     */
+    public static final class Entete {
+        private final Map<String, String> attributes = new HashMap<>();
+        private final Map<String, String> tags       = new HashMap<>();
+
+        public String getCode()            { return first(attributes.get("code"), tags.get("code"), tags.get("codedeclaration")); }
+        public String getPeriode()         { return first(attributes.get("periode"), tags.get("periode")); }
+        public String getDateDebut()       { return first(attributes.get("datedebut"), tags.get("date_debut"), tags.get("datedebut")); }
+        public String getDateFin()         { return first(attributes.get("datefin"), tags.get("date_fin"), tags.get("datefin")); }
+        public String getNombreLignes()    { return first(tags.get("nombrelignes"), tags.get("nombre_lignes")); }
+
+        /** Code du type pour le choix des règles : balise {@code <CodeDeclaration>}, sinon attribut {@code code}. */
+        public String getCodeDeclaration() { return first(tags.get("codedeclaration"), attributes.get("code")); }
+
+        private static String first(String... values) {
+            for (String v : values) {
+                if (v != null) return v;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.wifak.validationservice.service;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Écriture en flux (StAX) d'un fichier de déclaration BCT.
+ *
+ *  <Declaration code="..." periode="...">
+ *    <Entete>...</Entete>
+ *    <Donnees>
+ *      <Ligne>...</Ligne>
+ *    </Donnees>
+ *  </Declaration>
+ *
+ * Chaque ligne est écrite directement dans le Writer cible : aucun arbre DOM
+ * n'est construit, la mémoire reste constante quel que soit le nombre de lignes.
+ * L'indentation (2 espaces) reproduit la sortie de l'ancien Transformer.
+ *
+ * Les lignes peuvent aussi être écrites seules dans un fichier tampon (sans prologue
+ * ni racine, voir {@link #flush()}) puis recopiées après l'en-tête avec
+ * {@link #copyLignes(Reader)} : l'en-tête peut ainsi porter le nombre de lignes
+ * réellement écrites.
+ */
+public class DeclarationXmlWriter implements AutoCloseable {
+
+    // Implémentation JDK explicite — sortie identique que Woodstox soit présent ou non sur le classpath
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newDefaultFactory();
+    private static final String INDENT_1 = "\n  ";
+    private static final String INDENT_2 = "\n    ";
+    private static final String INDENT_3 = "\n      ";
+
+    private final XMLStreamWriter xml;
+    private final Writer out;
+    private boolean ligneOpen = false;
+
+    public DeclarationXmlWriter(Writer out) {
+        try {
+            this.xml = OUTPUT_FACTORY.createXMLStreamWriter(out);
+            this.out = out;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Impossible d'initialiser l'écriture XML: " + e.getMessage(), e);
+        }
+    }
+
+    /** Prologue + ouverture de la racine <Declaration> avec ses attributs (ordre conservé). */
+    public void startDeclaration(Map<String, String> attributes) throws XMLStreamException {
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.writeCharacters("\n");
+        xml.writeStartElement("Declaration");
+        for (Map.Entry<String, String> attr : attributes.entrySet()) {
+            xml.writeAttribute(attr.getKey(), safe(attr.getValue()));
+        }
+    }
+
+    public void startEntete() throws XMLStreamException {
+        xml.writeCharacters(INDENT_1);
+        xml.writeStartElement("Entete");
+    }
+
+    public void writeEnteteField(String tagName, String value) throws XMLStreamException {
+        writeField(INDENT_2, tagName, value);
+    }
+
+    public void endEntete() throws XMLStreamException {
+        xml.writeCharacters(INDENT_1);
+        xml.writeEndElement();
+    }
+
+    public void startDonnees() throws XMLStreamException {
+        xml.writeCharacters(INDENT_1);
+        xml.writeStartElement("Donnees");
+    }
+
+    public void startLigne() throws XMLStreamException {
+        xml.writeCharacters(INDENT_2);
+        xml.writeStartElement("Ligne");
+        ligneOpen = true;
+    }
+
+    /** Champ d'une ligne — le nom de balise doit déjà être assaini. */
+    public void writeLigneField(String tagName, String value) throws XMLStreamException {
+        writeField(INDENT_3, tagName, value);
+    }
+
+    public void endLigne() throws XMLStreamException {
+        xml.writeCharacters(INDENT_2);
+        xml.writeEndElement();
+        ligneOpen = false;
+    }
+
+    /**
+     * Recopie telles quelles, dans <Donnees>, des lignes écrites par un autre
+     * DeclarationXmlWriter (même indentation) : le contenu n'est pas réanalysé.
+     */
+    public void copyLignes(Reader lignes) throws XMLStreamException, IOException {
+        xml.writeCharacters("");   // ferme la balise ouvrante <Donnees>
+        xml.flush();
+        lignes.transferTo(out);
+    }
+
+    /** Vide le tampon StAX vers le Writer (lignes écrites seules, sans endDeclaration). */
+    public void flush() throws XMLStreamException {
+        xml.flush();
+    }
+
+    /** Ferme <Donnees>, la racine et le document, puis vide le tampon vers le Writer. */
+    public void endDeclaration() throws XMLStreamException {
+        if (ligneOpen) endLigne();
+        xml.writeCharacters(INDENT_1);
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+        xml.writeEndElement();
+        xml.writeEndDocument();
+        xml.flush();
+    }
+
+    private void writeField(String indent, String tagName, String value) throws XMLStreamException {
+        xml.writeCharacters(indent);
+        String v = safe(value);
+        if (v.isEmpty()) {
+            xml.writeEmptyElement(tagName);
+        } else {
+            xml.writeStartElement(tagName);
+            xml.writeCharacters(v);
+            xml.writeEndElement();
+        }
+    }
+
+    private String safe(String s) {
+        return s != null ? s : "";
+    }
+
+    /** Ne ferme pas le Writer sous-jacent (géré par l'appelant). */
+    @Override
+    public void close() throws XMLStreamException {
+        xml.close();
+    }
+}
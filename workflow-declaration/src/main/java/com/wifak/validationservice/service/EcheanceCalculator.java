@@ -0,0 +1,69 @@
+package com.wifak.validationservice.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Échéance réglementaire d'une déclaration, déduite du texte libre
+ * {@code DeclarationType.dateLimite} et de la fin de période déclarée.
+ *
+ * Formes reconnues : date ISO (« 2025-02-15 »), délai « J+10 », « dernier jour
+ * (ouvrable) du mois [suivant] », et un jour du mois (« 15 », « le 20 du mois
+ * suivant ») pris dans le mois qui suit la période. Tout autre texte → null.
+ */
+public final class EcheanceCalculator {
+
+    private static final Pattern DELAI_JOURS  = Pattern.compile("j\\s*\\+\\s*(\\d{1,3})");
+    private static final Pattern JOUR_DU_MOIS = Pattern.compile("\\b(\\d{1,2})\\b");
+
+    private EcheanceCalculator() {}
+
+    public static LocalDate compute(String dateLimite, LocalDate dateFin) {
+        if (dateLimite == null || dateLimite.isBlank() || dateFin == null) return null;
+        String texte = dateLimite.trim();
+        try {
+            return LocalDate.parse(texte);
+        } catch (DateTimeParseException ignored) {
+            // texte libre
+        }
+
+        String t = Normalizer.normalize(texte, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+
+        Matcher delai = DELAI_JOURS.matcher(t);
+        if (delai.find()) {
+            return dateFin.plusDays(Long.parseLong(delai.group(1)));
+        }
+
+        if (t.contains("dernier jour")) {
+            YearMonth mois = YearMonth.from(dateFin);
+            if (t.contains("suivant")) mois = mois.plusMonths(1);
+            LocalDate fin = mois.atEndOfMonth();
+            return t.contains("ouvrable") ? jourOuvrablePrecedent(fin) : fin;
+        }
+
+        Matcher jour = JOUR_DU_MOIS.matcher(t);
+        if (jour.find()) {
+            int j = Integer.parseInt(jour.group(1));
+            if (j < 1 || j > 31) return null;
+            YearMonth mois = YearMonth.from(dateFin).plusMonths(1);
+            return mois.atDay(Math.min(j, mois.lengthOfMonth()));
+        }
+        return null;
+    }
+
+    private static LocalDate jourOuvrablePrecedent(LocalDate date) {
+        LocalDate d = date;
+        while (d.getDayOfWeek() == DayOfWeek.SATURDAY || d.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            d = d.minusDays(1);
+        }
+        return d;
+    }
+}
@@ -0,0 +1,437 @@
+package com.wifak.validationservice.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.XsdSqlMappingRequest;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.GenerationJob;
+import com.wifak.validationservice.repositories.GenerationJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Générations asynchrones : la requête HTTP crée un {@link GenerationJob} et rend
+ * la main ; un pool borné exécute {@code DeclarationService.generateAndSave*}.
+ *
+ * L'avancement des jobs en cours est lu en mémoire ({@link GenerationProgress}) sur
+ * l'instance qui les exécute, et recopié sur la ligne du job à chaque battement de cœur
+ * ({@code app.generation.jobs.heartbeat}) pour les autres instances. L'état final est persisté.
+ *
+ * Plusieurs instances partagent la table : chaque job porte un bail
+ * ({@code app.generation.jobs.lease}) prolongé par son propriétaire. Au démarrage puis
+ * périodiquement, une instance ne reprend que les jobs dont le bail a expiré, et les
+ * prend par UPDATE conditionnel — un job interrompu n'est relancé qu'une fois.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private final GenerationJobRepository jobRepository;
+    private final DeclarationService      declarationService;
+    private final ObjectMapper            objectMapper;
+    private final TaskExecutor            executor;
+
+    private static final List<GenerationJob.JobStatut> NON_TERMINES =
+            List.of(GenerationJob.JobStatut.EN_ATTENTE, GenerationJob.JobStatut.EN_COURS);
+
+    private final String   instanceId;
+    private final Duration bail;
+    private final Duration battement;
+    private ScheduledExecutorService scheduler;
+
+    private final Map<Long, GenerationProgress> enCours = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GenerationJobService(GenerationJobRepository jobRepository,
+                                DeclarationService declarationService,
+                                ObjectMapper objectMapper,
+                                @Value("${app.generation.jobs.pool-size:2}") int poolSize,
+                                @Value("${app.generation.jobs.queue-capacity:50}") int queueCapacity,
+                                @Value("${app.generation.jobs.instance-id:}") String instanceId,
+                                @Value("${app.generation.jobs.lease:60s}") Duration bail,
+                                @Value("${app.generation.jobs.heartbeat:10s}") Duration battement) {
+        this(jobRepository, declarationService, objectMapper, buildExecutor(poolSize, queueCapacity),
+                instanceId, bail, battement);
+    }
+
+    GenerationJobService(GenerationJobRepository jobRepository,
+                         DeclarationService declarationService,
+                         ObjectMapper objectMapper,
+                         TaskExecutor executor) {
+        this(jobRepository, declarationService, objectMapper, executor, "test", Duration.ofSeconds(60), Duration.ZERO);
+    }
+
+    GenerationJobService(GenerationJobRepository jobRepository,
+                         DeclarationService declarationService,
+                         ObjectMapper objectMapper,
+                         TaskExecutor executor,
+                         String instanceId,
+                         Duration bail,
+                         Duration battement) {
+        this.jobRepository      = jobRepository;
+        this.declarationService = declarationService;
+        this.objectMapper       = objectMapper;
+        this.executor           = executor;
+        this.instanceId         = resolveInstanceId(instanceId);
+        this.bail               = bail;
+        this.battement          = battement;
+    }
+
+    // Suffixe aléatoire : après un redémarrage, les baux de l'ancien processus ne sont pas repris pour siens
+    private static String resolveInstanceId(String configured) {
+        String base = configured;
+        if (base == null || base.isBlank()) {
+            try {
+                base = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                base = "instance";
+            }
+        }
+        return base + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    // Chaque worker garde une connexion JDBC pendant toute la génération :
+    // la taille du pool plafonne aussi la charge sur la base.
+    private static ThreadPoolTaskExecutor buildExecutor(int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(poolSize);
+        pool.setMaxPoolSize(poolSize);
+        pool.setQueueCapacity(queueCapacity);
+        pool.setThreadNamePrefix("generation-");
+        pool.initialize();
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+        if (executor instanceof ThreadPoolTaskExecutor pool) pool.shutdown();
+    }
+
+    private String getCurrentUsername() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "system";
+    }
+
+    // ── Soumission ─────────────────────────────────────────────────
+
+    /**
+     * Enregistre le job et le met dans la file. {@code mappings} null ou vide = sans mapping.
+     */
+    public GenerationJob submit(Long typeId, String periode, LocalDate dateDebut, LocalDate dateFin,
+                                List<XsdSqlMappingRequest.FieldMapping> mappings) {
+        return submit(null, typeId, periode, dateDebut, dateFin, mappings);
+    }
+
+    /**
+     * Job rattaché à un lot de génération (voir BatchGenerationService). File pleine :
+     * le job reste EN_ATTENTE sans bail, et la reprise périodique le lance dès qu'un
+     * worker se libère, ici ou sur une autre instance.
+     */
+    public GenerationJob submitInLot(String lotId, Long typeId, String periode,
+                                     LocalDate dateDebut, LocalDate dateFin) {
+        GenerationJob job = create(lotId, typeId, periode, dateDebut, dateFin, null);
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (TaskRejectedException e) {
+            jobRepository.releaseLease(job.getId(), instanceId);
+            job.setProprietaire(null);
+            job.setBailExpiration(null);
+            log.info("⏳ File de génération pleine — job {} du lot {} différé", job.getId(), lotId);
+        }
+        return job;
+    }
+
+    private GenerationJob submit(String lotId, Long typeId, String periode, LocalDate dateDebut, LocalDate dateFin,
+                                 List<XsdSqlMappingRequest.FieldMapping> mappings) {
+        GenerationJob saved = create(lotId, typeId, periode, dateDebut, dateFin, mappings);
+        dispatch(saved);
+        return saved;
+    }
+
+    private GenerationJob create(String lotId, Long typeId, String periode, LocalDate dateDebut, LocalDate dateFin,
+                                 List<XsdSqlMappingRequest.FieldMapping> mappings) {
+        GenerationJob job = new GenerationJob();
+        job.setLotId(lotId);
+        job.setDeclarationTypeId(typeId);
+        job.setPeriode(periode);
+        job.setDateDebut(dateDebut);
+        job.setDateFin(dateFin);
+        job.setDemandePar(getCurrentUsername());
+        job.setEtape(GenerationProgress.Etape.EN_ATTENTE.name());
+        job.setProprietaire(instanceId);
+        job.setBailExpiration(LocalDateTime.now().plus(bail));
+        if (mappings != null && !mappings.isEmpty()) {
+            try {
+                job.setMappingJson(objectMapper.writeValueAsString(mappings));
+            } catch (Exception e) {
+                throw new RuntimeException("Mapping non sérialisable: " + e.getMessage(), e);
+            }
+        }
+        GenerationJob saved = jobRepository.save(job);
+        log.info("📥 Job de génération {} créé — Type: {}, Période: {}", saved.getId(), typeId, periode);
+        return saved;
+    }
+
+    private void dispatch(GenerationJob job) {
+        Long jobId = job.getId();
+        try {
+            executor.execute(() -> run(jobId));
+        } catch (TaskRejectedException e) {
+            log.warn("⚠️ File de génération pleine — job {} refusé", jobId);
+            finish(job, GenerationJob.JobStatut.ECHEC, GenerationProgress.Etape.ECHEC,
+                    "File de génération pleine, réessayez plus tard");
+            jobRepository.save(job);
+            throw new IllegalStateException("File de génération pleine, réessayez plus tard");
+        }
+    }
+
+    // ── Exécution ──────────────────────────────────────────────────
+
+    void run(Long jobId) {
+        GenerationJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null || job.getStatut() == GenerationJob.JobStatut.TERMINE
+                || job.getStatut() == GenerationJob.JobStatut.ECHEC) {
+            return;
+        }
+        if (!instanceId.equals(job.getProprietaire())) {
+            // Bail expiré pendant l'attente en file : le job a été repris ailleurs
+            log.warn("⚠️ Job {} repris par {} — non exécuté ici", jobId, job.getProprietaire());
+            return;
+        }
+
+        GenerationProgress progress = new GenerationProgress();
+        enCours.put(jobId, progress);
+        GenerationProgress.bind(progress);
+        runAs(job.getDemandePar());
+
+        LocalDateTime demarrage = LocalDateTime.now();
+        if (jobRepository.markStarted(jobId, instanceId, GenerationJob.JobStatut.EN_COURS,
+                progress.getEtape().name(), demarrage, NON_TERMINES) == 0) {
+            log.warn("⚠️ Job {} repris par une autre instance avant son démarrage — non exécuté ici", jobId);
+            enCours.remove(jobId);
+            GenerationProgress.clear();
+            SecurityContextHolder.clearContext();
+            return;
+        }
+        job.setStatut(GenerationJob.JobStatut.EN_COURS);
+        job.setEtape(progress.getEtape().name());
+        job.setDateDemarrage(demarrage);
+        log.info("⚙️ Job {} démarré", jobId);
+
+        Declaration saved = null;
+        try {
+            if (job.getMappingJson() != null) {
+                List<XsdSqlMappingRequest.FieldMapping> mappings = objectMapper.readValue(
+                        job.getMappingJson(),
+                        new TypeReference<List<XsdSqlMappingRequest.FieldMapping>>() {});
+                saved = declarationService.generateAndSaveWithMapping(
+                        job.getDeclarationTypeId(), job.getPeriode(),
+                        job.getDateDebut(), job.getDateFin(), mappings);
+            } else {
+                saved = declarationService.generateAndSave(
+                        job.getDeclarationTypeId(), job.getPeriode(),
+                        job.getDateDebut(), job.getDateFin());
+            }
+            job.setDeclarationId(saved.getId());
+            copyProgress(job, progress);
+            finish(job, GenerationJob.JobStatut.TERMINE, GenerationProgress.Etape.TERMINE, null);
+        } catch (Exception e) {
+            log.error("❌ Job {} en échec: {}", jobId, e.getMessage());
+            copyProgress(job, progress);
+            finish(job, GenerationJob.JobStatut.ECHEC, GenerationProgress.Etape.ECHEC, e.getMessage());
+        } finally {
+            enCours.remove(jobId);
+            GenerationProgress.clear();
+        }
+
+        try {
+            if (complete(job)) {
+                if (saved != null) {
+                    declarationService.notifyJiraTicketCreation(saved.getId(), job.getDemandePar());
+                    log.info("✅ Job {} terminé — déclaration {}", jobId, saved.getId());
+                }
+            } else {
+                // Bail perdu en cours de route (battement manqué) : le job a été repris et
+                // relancé ailleurs, c'est cette autre exécution qui fait foi
+                log.warn("⚠️ Job {} repris par une autre instance — résultat de cette exécution écarté", jobId);
+                if (saved != null) declarationService.deleteDeclaration(saved.getId());
+            }
+        } catch (Exception e) {
+            log.error("❌ Job {} — finalisation en échec: {}", jobId, e.getMessage());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    // État final écrit seulement si cette instance détient toujours le job
+    private boolean complete(GenerationJob job) {
+        return jobRepository.complete(job.getId(), instanceId, GenerationJob.JobStatut.EN_COURS,
+                job.getStatut(), job.getEtape(), job.getMessageErreur(), job.getDeclarationId(),
+                job.getLignesTraitees(), job.getOctetsEcrits(), job.getLignesTotal(),
+                job.getDateTerminaison()) == 1;
+    }
+
+    // La génération lit l'utilisateur courant (generePar) : on le reporte sur le worker
+    private void runAs(String username) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(new UsernamePasswordAuthenticationToken(
+                username != null ? username : "system", null, Collections.emptyList()));
+        SecurityContextHolder.setContext(context);
+    }
+
+    private void copyProgress(GenerationJob job, GenerationProgress progress) {
+        job.setLignesTraitees(progress.getLignesTraitees());
+        job.setOctetsEcrits(progress.getOctetsEcrits());
+        job.setLignesTotal(progress.getLignesTotal() >= 0 ? progress.getLignesTotal() : null);
+    }
+
+    private void finish(GenerationJob job, GenerationJob.JobStatut statut,
+                        GenerationProgress.Etape etape, String erreur) {
+        job.setStatut(statut);
+        job.setEtape(etape.name());
+        job.setMessageErreur(erreur);
+        job.setDateTerminaison(LocalDateTime.now());
+        job.setBailExpiration(null);
+    }
+
+    // ── Consultation ───────────────────────────────────────────────
+
+    /**
+     * Job avec, s'il tourne sur cette instance, l'avancement en mémoire du worker ;
+     * sinon l'avancement enregistré au dernier battement de cœur.
+     */
+    public GenerationJob getJob(Long id) {
+        GenerationJob job = jobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Job de génération introuvable: " + id));
+        GenerationProgress progress = enCours.get(id);
+        if (progress != null && job.getStatut() == GenerationJob.JobStatut.EN_COURS) {
+            job.setEtape(progress.getEtape().name());
+            copyProgress(job, progress);
+        }
+        return job;
+    }
+
+    /** Jobs d'un lot, avec l'avancement en mémoire de ceux qui tournent encore. */
+    public List<GenerationJob> getLotJobs(String lotId) {
+        List<GenerationJob> jobs = jobRepository.findByLotIdOrderByIdAsc(lotId);
+        for (GenerationJob job : jobs) {
+            GenerationProgress progress = enCours.get(job.getId());
+            if (progress != null && job.getStatut() == GenerationJob.JobStatut.EN_COURS) {
+                job.setEtape(progress.getEtape().name());
+                copyProgress(job, progress);
+            }
+        }
+        return jobs;
+    }
+
+    public List<GenerationJob> getMyJobs() {
+        return jobRepository.findTop50ByDemandeParOrderByDateDemandeDesc(getCurrentUsername());
+    }
+
+    // ── Reprise et bail ────────────────────────────────────────────
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        resumePendingJobs();
+        if (battement.isZero() || battement.isNegative()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "generation-bail");
+            t.setDaemon(true);
+            return t;
+        });
+        long battementMs = battement.toMillis();
+        long repriseMs = Math.max(battementMs, bail.toMillis());
+        scheduler.scheduleWithFixedDelay(this::heartbeatSafely, battementMs, battementMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::resumeSafely, repriseMs, repriseMs, TimeUnit.MILLISECONDS);
+        log.info("🫀 Jobs de génération — instance {}, bail {}s, battement {}s",
+                instanceId, bail.toSeconds(), battement.toSeconds());
+    }
+
+    /**
+     * Prolonge le bail des jobs de cette instance et recopie l'avancement de ceux
+     * qui tournent : une écriture par job en cours et par battement, au plus.
+     */
+    void heartbeat() {
+        jobRepository.renewLeases(instanceId, NON_TERMINES, LocalDateTime.now().plus(bail));
+        enCours.forEach((id, progress) -> jobRepository.saveProgress(id, instanceId,
+                GenerationJob.JobStatut.EN_COURS, progress.getEtape().name(),
+                progress.getLignesTraitees(), progress.getOctetsEcrits(),
+                progress.getLignesTotal() >= 0 ? progress.getLignesTotal() : null));
+    }
+
+    /**
+     * Reprend les jobs non terminés dont le bail a expiré (instance arrêtée), ou qui
+     * n'en ont jamais eu. Chaque job est pris par UPDATE conditionnel : si une autre
+     * instance l'a pris entre-temps, il est ignoré.
+     */
+    public void resumePendingJobs() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<GenerationJob> pending = jobRepository.findResumable(NON_TERMINES, maintenant);
+        if (pending.isEmpty()) return;
+
+        int repris = 0;
+        for (GenerationJob job : pending) {
+            // Un job interrompu n'a rien sauvegardé (transaction annulée) : on repart de zéro
+            int pris = jobRepository.claim(job.getId(), instanceId, maintenant.plus(bail),
+                    GenerationJob.JobStatut.EN_ATTENTE, GenerationProgress.Etape.EN_ATTENTE.name(),
+                    NON_TERMINES, maintenant);
+            if (pris == 0) continue;
+            repris++;
+            try {
+                executor.execute(() -> run(job.getId()));
+            } catch (TaskRejectedException e) {
+                // File pleine : le job est rendu, une autre instance (ou un prochain passage) le prendra.
+                // Les suivants seraient refusés aussi : inutile de les prendre pour les rendre.
+                jobRepository.releaseLease(job.getId(), instanceId);
+                repris--;
+                log.warn("⚠️ Job {} non relancé: file de génération pleine", job.getId());
+                break;
+            }
+        }
+        log.info("🔁 Reprise de {} job(s) de génération sur {} candidat(s)", repris, pending.size());
+    }
+
+    private void heartbeatSafely() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            log.warn("⚠️ Battement de cœur des jobs en échec: {}", e.getMessage());
+        }
+    }
+
+    private void resumeSafely() {
+        try {
+            resumePendingJobs();
+        } catch (Exception e) {
+            log.warn("⚠️ Reprise des jobs en échec: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.wifak.validationservice.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avancement d'une génération en cours : étape, lignes lues, octets écrits.
+ *
+ * L'instance est attachée au thread qui exécute la génération ({@link #bind}) ;
+ * les générateurs la récupèrent via {@link #current()} sans changer leurs signatures.
+ * Hors job asynchrone, {@link #current()} renvoie une instance inerte.
+ */
+public final class GenerationProgress {
+
+    public enum Etape {
+        EN_ATTENTE, EXTRACTION, STOCKAGE, TERMINE, ECHEC
+    }
+
+    private static final ThreadLocal<GenerationProgress> CURRENT = new ThreadLocal<>();
+    private static final GenerationProgress NONE = new GenerationProgress(false);
+
+    private final boolean    actif;
+    private final AtomicLong lignesTraitees = new AtomicLong();
+    private final AtomicLong octetsEcrits   = new AtomicLong();
+    private volatile long    lignesTotal    = -1;
+    private volatile Etape   etape          = Etape.EN_ATTENTE;
+
+    public GenerationProgress() {
+        this(true);
+    }
+
+    private GenerationProgress(boolean actif) {
+        this.actif = actif;
+    }
+
+    // ── Contexte du thread ─────────────────────────────────────────
+
+    public static GenerationProgress current() {
+        GenerationProgress p = CURRENT.get();
+        return p != null ? p : NONE;
+    }
+
+    public static void bind(GenerationProgress progress) {
+        CURRENT.set(progress);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // ── Mises à jour ───────────────────────────────────────────────
+
+    public void etape(Etape e) {
+        if (actif) this.etape = e;
+    }
+
+    public void ligne() {
+        if (actif) lignesTraitees.incrementAndGet();
+    }
+
+    public void total(long lignes) {
+        if (actif) this.lignesTotal = lignes;
+    }
+
+    /** Enveloppe {@code out} pour compter les octets UTF-8 écrits (sans coût hors job). */
+    public Writer track(Writer out) {
+        return actif ? new CountingWriter(out, octetsEcrits) : out;
+    }
+
+    public Etape getEtape()          { return etape; }
+    public long getLignesTraitees()  { return lignesTraitees.get(); }
+    public long getOctetsEcrits()    { return octetsEcrits.get(); }
+    /** -1 tant que l'extraction n'est pas terminée. */
+    public long getLignesTotal()     { return lignesTotal; }
+
+    // ── Writer compteur ────────────────────────────────────────────
+
+    private static final class CountingWriter extends Writer {
+        private final Writer     out;
+        private final AtomicLong octets;
+
+        CountingWriter(Writer out, AtomicLong octets) {
+            this.out    = out;
+            this.octets = octets;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            octets.addAndGet(utf8Length(cbuf, off, len));
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            long n = 0;
+            for (int i = off; i < off + len; i++) n += utf8Length(str.charAt(i));
+            octets.addAndGet(n);
+        }
+
+        @Override public void flush() throws IOException { out.flush(); }
+        @Override public void close() throws IOException { out.close(); }
+
+        private static long utf8Length(char[] cbuf, int off, int len) {
+            long n = 0;
+            for (int i = off; i < off + len; i++) n += utf8Length(cbuf[i]);
+            return n;
+        }
+
+        // Une paire de surrogates compte 2 + 2 = 4 octets
+        private static int utf8Length(char c) {
+            if (c < 0x80)  return 1;
+            if (c < 0x800) return 2;
+            return Character.isSurrogate(c) ? 2 : 3;
+        }
+    }
+}
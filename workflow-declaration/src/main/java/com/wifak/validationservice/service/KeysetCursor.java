@@ -0,0 +1,41 @@
+package com.wifak.validationservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Curseur opaque des listes triées par (date, id) décroissants : la dernière
+ * ligne de la page, encodée en base64url. Partagé par les déclarations et le
+ * journal d'audit.
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime date;
+    private final Long id;
+
+    private KeysetCursor(LocalDateTime date, Long id) {
+        this.date = date;
+        this.id   = id;
+    }
+
+    public static String encode(LocalDateTime date, Long id) {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return null si {@code cursor} est vide (première page) */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            return new KeysetCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide");
+        }
+    }
+
+    public LocalDateTime getDate() { return date; }
+    public Long getId()            { return id; }
+}
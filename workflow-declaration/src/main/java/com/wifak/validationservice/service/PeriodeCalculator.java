@@ -0,0 +1,131 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.DeclarationType.DeclarationFrequence;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Calculs sur {@code Declaration.periode} selon la fréquence du type : période qui
+ * précède, dans le même format, et dates couvertes.
+ *
+ * Formes reconnues : « 2025-01-31 » (jour), « 2025-01 » (mois), « 2025-T1 » / « 2025Q1 »
+ * (trimestre) et « 2025 » (année). Un mois est reculé de 3 ou 12 pour un type
+ * trimestriel ou annuel, un jour de 7 pour un type hebdomadaire. Tout autre texte → null.
+ */
+public final class PeriodeCalculator {
+
+    private static final Pattern JOUR      = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern MOIS      = Pattern.compile("\\d{4}-\\d{2}");
+    private static final Pattern TRIMESTRE = Pattern.compile("(\\d{4})(-?)([TtQq])([1-4])");
+    private static final Pattern ANNEE     = Pattern.compile("\\d{4}");
+
+    private PeriodeCalculator() {}
+
+    public static String precedente(String periode, DeclarationFrequence frequence) {
+        if (periode == null || periode.isBlank()) return null;
+        String p = periode.trim();
+        try {
+            if (JOUR.matcher(p).matches()) {
+                LocalDate jour = LocalDate.parse(p);
+                if (frequence == null) return jour.minusDays(1).toString();
+                return switch (frequence) {
+                    case HEBDOMADAIRE  -> jour.minusWeeks(1).toString();
+                    case MENSUELLE     -> jour.minusMonths(1).toString();
+                    case TRIMESTRIELLE -> jour.minusMonths(3).toString();
+                    case ANNUELLE      -> jour.minusYears(1).toString();
+                    default            -> jour.minusDays(1).toString();
+                };
+            }
+            if (MOIS.matcher(p).matches()) {
+                int mois = frequence == DeclarationFrequence.TRIMESTRIELLE ? 3
+                         : frequence == DeclarationFrequence.ANNUELLE ? 12 : 1;
+                return YearMonth.parse(p).minusMonths(mois).toString();
+            }
+        } catch (RuntimeException e) {
+            return null;   // « 2025-13 », « 2025-02-30 »…
+        }
+        Matcher t = TRIMESTRE.matcher(p);
+        if (t.matches()) {
+            int annee = Integer.parseInt(t.group(1));
+            int trimestre = Integer.parseInt(t.group(4)) - 1;
+            if (trimestre == 0) {
+                annee--;
+                trimestre = 4;
+            }
+            return annee + t.group(2) + t.group(3) + trimestre;
+        }
+        if (ANNEE.matcher(p).matches()) {
+            return String.valueOf(Integer.parseInt(p) - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Dates couvertes par {@code periode} pour un type de cette fréquence : la semaine
+     * (lundi → dimanche), le mois, le trimestre civil ou l'année qui contient la période.
+     * Une période plus large que la fréquence (un mois pour un type quotidien) est prise
+     * entière. Texte non reconnu → null.
+     */
+    public static Bornes bornes(String periode, DeclarationFrequence frequence) {
+        if (periode == null || periode.isBlank()) return null;
+        String p = periode.trim();
+        try {
+            if (JOUR.matcher(p).matches()) {
+                LocalDate jour = LocalDate.parse(p);
+                if (frequence == DeclarationFrequence.HEBDOMADAIRE) {
+                    LocalDate lundi = jour.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                    return new Bornes(lundi, lundi.plusDays(6));
+                }
+                if (frequence == null || frequence == DeclarationFrequence.QUOTIDIENNE
+                        || frequence == DeclarationFrequence.JOURNALIERE) {
+                    return new Bornes(jour, jour);
+                }
+                return bornesMois(YearMonth.from(jour), frequence);
+            }
+            if (MOIS.matcher(p).matches()) {
+                return bornesMois(YearMonth.parse(p), frequence);
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+        Matcher t = TRIMESTRE.matcher(p);
+        if (t.matches()) {
+            YearMonth debut = YearMonth.of(Integer.parseInt(t.group(1)), (Integer.parseInt(t.group(4)) - 1) * 3 + 1);
+            return new Bornes(debut.atDay(1), debut.plusMonths(2).atEndOfMonth());
+        }
+        if (ANNEE.matcher(p).matches()) {
+            int annee = Integer.parseInt(p);
+            return new Bornes(LocalDate.of(annee, 1, 1), LocalDate.of(annee, 12, 31));
+        }
+        return null;
+    }
+
+    private static Bornes bornesMois(YearMonth mois, DeclarationFrequence frequence) {
+        if (frequence == DeclarationFrequence.TRIMESTRIELLE) {
+            YearMonth debut = mois.withMonth((mois.getMonthValue() - 1) / 3 * 3 + 1);
+            return new Bornes(debut.atDay(1), debut.plusMonths(2).atEndOfMonth());
+        }
+        if (frequence == DeclarationFrequence.ANNUELLE) {
+            return new Bornes(LocalDate.of(mois.getYear(), 1, 1), LocalDate.of(mois.getYear(), 12, 31));
+        }
+        return new Bornes(mois.atDay(1), mois.atEndOfMonth());
+    }
+
+    public static final class Bornes {
+        private final LocalDate debut;
+        private final LocalDate fin;
+
+        Bornes(LocalDate debut, LocalDate fin) {
+            this.debut = debut;
+            this.fin   = fin;
+        }
+
+        public LocalDate getDebut() { return debut; }
+        public LocalDate getFin()   { return fin; }
+    }
+}
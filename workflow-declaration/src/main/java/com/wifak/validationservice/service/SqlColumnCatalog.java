@@ -0,0 +1,208 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Colonnes produites par la requête SQL d'un type, lues dans les métadonnées JDBC.
+ *
+ * La requête est enveloppée dans {@code SELECT * FROM (...) WHERE 1=0} : le driver
+ * fournit les métadonnées dès la préparation (ou après une exécution qui ne lit aucune
+ * ligne), sans parcourir les vues sous-jacentes. Le résultat est mis en cache par type,
+ * tant que le SHA-256 de la requête ne change pas.
+ *
+ * Métriques : sql.columns.cache{result=hit|miss}, sql.columns.describe, sql.columns.cache.size.
+ */
+@Service
+public class SqlColumnCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlColumnCatalog.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, CachedColumns> byType = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer   describeTimer;
+
+    public SqlColumnCatalog(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hits = Counter.builder("sql.columns.cache")
+                .description("Accès au cache des colonnes SQL")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("sql.columns.cache")
+                .description("Accès au cache des colonnes SQL")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.describeTimer = Timer.builder("sql.columns.describe")
+                .description("Durée de lecture des métadonnées d'une requête SQL")
+                .register(meterRegistry);
+        Gauge.builder("sql.columns.cache.size", byType, Map::size)
+                .description("Nombre de types dont les colonnes SQL sont en cache")
+                .register(meterRegistry);
+    }
+
+    public List<SqlColumn> describe(Long typeId, String sqlQuery) {
+        return describe(typeId, sqlQuery, null, null);
+    }
+
+    /**
+     * Colonnes de {@code sqlQuery}, dans l'ordre du SELECT.
+     * Les dates ne servent qu'à lier les paramètres ; elles ne changent pas la clé de cache.
+     * {@code typeId} null = requête ad hoc, jamais mise en cache.
+     */
+    public List<SqlColumn> describe(Long typeId, String sqlQuery, LocalDate dateDebut, LocalDate dateFin) {
+        if (sqlQuery == null || sqlQuery.isBlank()) {
+            throw new IllegalArgumentException("Requête SQL vide");
+        }
+        if (typeId == null) {
+            return describeTimer.record(() -> introspect(sqlQuery, dateDebut, dateFin));
+        }
+        String hash = DeclarationContenuService.sha256(sqlQuery.getBytes(StandardCharsets.UTF_8));
+        CachedColumns cached = byType.get(typeId);
+        if (cached != null && cached.hash.equals(hash)) {
+            hits.increment();
+            return cached.columns;
+        }
+        misses.increment();
+        List<SqlColumn> columns = describeTimer.record(() -> introspect(sqlQuery, dateDebut, dateFin));
+        // Une entrée par type : une nouvelle requête remplace l'ancienne
+        byType.put(typeId, new CachedColumns(hash, columns));
+        return columns;
+    }
+
+    public List<String> columnNames(Long typeId, String sqlQuery, LocalDate dateDebut, LocalDate dateFin) {
+        return describe(typeId, sqlQuery, dateDebut, dateFin).stream().map(SqlColumn::getName).toList();
+    }
+
+    public void evict(Long typeId) {
+        if (typeId != null && byType.remove(typeId) != null) {
+            log.info("🧹 Colonnes SQL retirées du cache — type {}", typeId);
+        }
+    }
+
+    public int size() {
+        return byType.size();
+    }
+
+    private List<SqlColumn> introspect(String sqlQuery, LocalDate dateDebut, LocalDate dateFin) {
+        LocalDate debut = dateDebut != null ? dateDebut : LocalDate.now().withDayOfMonth(1);
+        LocalDate fin   = dateFin   != null ? dateFin   : LocalDate.now();
+
+        // Pas de mise en cache du texte compilé : ce sont les colonnes qui sont gardées
+        SqlQueryCompiler.CompiledQuery compiled =
+                SqlQueryCompiler.parse(SqlQueryCompiler.withoutTrailingOrderBy(sqlQuery));
+        Object[] args = compiled.bind(debut, fin);
+        String sql = "SELECT * FROM (" + compiled.getSql() + ") AS _tmp_meta WHERE 1=0";
+
+        List<SqlColumn> columns;
+        try {
+            columns = metaData(sql, args, 0);
+        } catch (Exception e) {
+            // Ex. MySQL « Duplicate column name » : deux colonnes de même libellé (a.id, b.id)
+            // sont refusées dans une table dérivée — la requête est alors décrite telle quelle
+            log.warn("⚠️ Sous-requête de métadonnées refusée ({}) — requête décrite directement", e.getMessage());
+            try {
+                columns = metaData(compiled.getSql(), args, 1);
+            } catch (Exception direct) {
+                log.error("❌ Erreur extraction colonnes: {}", direct.getMessage());
+                throw new RuntimeException("Impossible d'extraire les colonnes: " + direct.getMessage(), direct);
+            }
+        }
+        log.info("✅ Colonnes SQL lues dans les métadonnées: {}", columns);
+        return columns;
+    }
+
+    private List<SqlColumn> metaData(String sql, Object[] args, int maxRows) {
+        return jdbcTemplate.execute((ConnectionCallback<List<SqlColumn>>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                for (int i = 0; i < args.length; i++) {
+                    ps.setObject(i + 1, args[i]);
+                }
+                // Préparation côté serveur : métadonnées disponibles sans exécution
+                ResultSetMetaData metaData = ps.getMetaData();
+                if (metaData != null) {
+                    return read(metaData);
+                }
+                // Sinon : WHERE 1=0 ne renvoie aucune ligne (au plus maxRows en lecture directe)
+                ps.setMaxRows(maxRows);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return read(rs.getMetaData());
+                }
+            }
+        });
+    }
+
+    private static List<SqlColumn> read(ResultSetMetaData metaData) throws SQLException {
+        List<SqlColumn> columns = new ArrayList<>(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(new SqlColumn(
+                    JdbcUtils.lookupColumnName(metaData, i),
+                    metaData.getColumnType(i),
+                    metaData.getColumnTypeName(i)));
+        }
+        return List.copyOf(columns);
+    }
+
+    private static final class CachedColumns {
+        private final String hash;
+        private final List<SqlColumn> columns;
+
+        CachedColumns(String hash, List<SqlColumn> columns) {
+            this.hash    = hash;
+            this.columns = columns;
+        }
+    }
+
+    /** Colonne d'un résultat SQL : nom (ou alias), type JDBC ({@link java.sql.Types}) et type natif. */
+    public static class SqlColumn {
+
+        private final String name;
+        private final int    sqlType;
+        private final String typeName;
+
+        public SqlColumn(String name, int sqlType, String typeName) {
+            this.name     = name;
+            this.sqlType  = sqlType;
+            this.typeName = typeName;
+        }
+
+        public String getName()     { return name; }
+        public int getSqlType()     { return sqlType; }
+        public String getTypeName() { return typeName; }
+
+        /** Nom du type JDBC (VARCHAR, DECIMAL, DATE…) ; OTHER si le driver renvoie un code inconnu. */
+        public String getJdbcType() {
+            try {
+                return JDBCType.valueOf(sqlType).getName();
+            } catch (IllegalArgumentException e) {
+                return JDBCType.OTHER.getName();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + ":" + typeName;
+        }
+    }
+}
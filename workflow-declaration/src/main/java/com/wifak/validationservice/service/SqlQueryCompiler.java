@@ -0,0 +1,168 @@
+package com.wifak.validationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compile la requête SQL d'un type ({@code :dateDebut}, {@code :dateFin}) en SQL
+ * à {@code ?} + ordre des paramètres, partagé par les générateurs CSV / TXT / XML.
+ *
+ * Le texte exécuté est le même pour toutes les périodes : MySQL réutilise la
+ * requête préparée côté serveur (useServerPrepStmts + cachePrepStmts dans l'URL JDBC)
+ * au lieu d'analyser un nouveau texte à chaque période.
+ * Chaque version de requête n'est analysée qu'une fois, clé = SHA-256 du texte.
+ */
+@Service
+public class SqlQueryCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlQueryCompiler.class);
+
+    public enum Param { DATE_DEBUT, DATE_FIN }
+
+    private final Map<String, CompiledQuery> compiled = new ConcurrentHashMap<>();
+
+    public CompiledQuery compile(String sqlQuery) {
+        String key = DeclarationContenuService.sha256(sqlQuery.getBytes(StandardCharsets.UTF_8));
+        return compiled.computeIfAbsent(key, k -> parse(sqlQuery));
+    }
+
+    /** Retire la version compilée de cette requête (remplacée par saveSqlQuery). */
+    public void evict(String sqlQuery) {
+        if (sqlQuery == null || sqlQuery.isBlank()) return;
+        compiled.remove(DeclarationContenuService.sha256(sqlQuery.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public int size() {
+        return compiled.size();
+    }
+
+    /**
+     * Une seule passe : chaque {@code :dateDebut} / {@code :dateFin} hors littéral
+     * ('...', "...", `...`) devient {@code ?}. Les autres {@code :nom} restent tels quels.
+     */
+    static CompiledQuery parse(String sqlQuery) {
+        StringBuilder sql = new StringBuilder(sqlQuery.length());
+        List<Param> params = new ArrayList<>();
+        char quote = 0;
+        int i = 0;
+        while (i < sqlQuery.length()) {
+            char c = sqlQuery.charAt(i);
+            if (quote != 0) {
+                sql.append(c);
+                if (c == quote) quote = 0;
+                i++;
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                sql.append(c);
+                i++;
+                continue;
+            }
+            if (c == ':' && i + 1 < sqlQuery.length() && Character.isJavaIdentifierStart(sqlQuery.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < sqlQuery.length() && Character.isJavaIdentifierPart(sqlQuery.charAt(end))) end++;
+                String name = sqlQuery.substring(i + 1, end);
+                Param param = "dateDebut".equals(name) ? Param.DATE_DEBUT
+                            : "dateFin".equals(name)   ? Param.DATE_FIN
+                            : null;
+                if (param != null) {
+                    sql.append('?');
+                    params.add(param);
+                } else {
+                    sql.append(sqlQuery, i, end);
+                }
+                i = end;
+                continue;
+            }
+            sql.append(c);
+            i++;
+        }
+        log.debug("SQL compilé — {} paramètre(s): {}", params.size(), params);
+        return new CompiledQuery(sql.toString(), List.copyOf(params));
+    }
+
+    /**
+     * Retire le {@code ORDER BY} final d'une requête destinée à être enveloppée dans une
+     * sous-requête (interdit ou inutile selon la version MySQL), ainsi qu'un {@code ;} final.
+     *
+     * Seul un ORDER BY de premier niveau (hors parenthèses et littéraux) qui termine la
+     * requête est retiré : suivi de LIMIT / OFFSET / FOR UPDATE, il change le résultat
+     * et la requête est renvoyée telle quelle.
+     */
+    static String withoutTrailingOrderBy(String sqlQuery) {
+        String sql = sqlQuery.trim().replaceAll(";\\s*$", "").trim();
+        String upper = sql.toUpperCase(Locale.ROOT);
+        int orderBy = -1;
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < upper.length(); i++) {
+            char c = upper.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+                continue;
+            }
+            switch (c) {
+                case '\'', '"', '`' -> quote = c;
+                case '(' -> depth++;
+                case ')' -> depth--;
+                default -> {
+                    if (depth == 0 && isKeyword(upper, i, "ORDER")) {
+                        int j = skipSpaces(upper, i + 5);
+                        if (j > i + 5 && isKeyword(upper, j, "BY")) orderBy = i;
+                    } else if (depth == 0 && orderBy >= 0
+                            && (isKeyword(upper, i, "LIMIT") || isKeyword(upper, i, "OFFSET")
+                                || isKeyword(upper, i, "FOR") || isKeyword(upper, i, "FETCH"))) {
+                        return sql;
+                    }
+                }
+            }
+        }
+        return orderBy >= 0 ? sql.substring(0, orderBy).trim() : sql;
+    }
+
+    private static boolean isKeyword(String upper, int at, String keyword) {
+        int end = at + keyword.length();
+        return upper.startsWith(keyword, at)
+                && (at == 0 || !Character.isJavaIdentifierPart(upper.charAt(at - 1)))
+                && (end == upper.length() || !Character.isJavaIdentifierPart(upper.charAt(end)));
+    }
+
+    private static int skipSpaces(String s, int from) {
+        while (from < s.length() && Character.isWhitespace(s.charAt(from))) from++;
+        return from;
+    }
+
+    /** Requête compilée : texte à {@code ?} et paramètres dans l'ordre d'apparition. */
+    public static final class CompiledQuery {
+        private final String sql;
+        private final List<Param> params;
+
+        CompiledQuery(String sql, List<Param> params) {
+            this.sql    = sql;
+            this.params = params;
+        }
+
+        public String getSql()          { return sql; }
+        public List<Param> getParams()  { return params; }
+
+        /** Valeurs à lier, dans l'ordre des {@code ?} ; date absente = chaîne vide. */
+        public Object[] bind(LocalDate dateDebut, LocalDate dateFin) {
+            Object[] args = new Object[params.size()];
+            for (int i = 0; i < args.length; i++) {
+                LocalDate date = params.get(i) == Param.DATE_DEBUT ? dateDebut : dateFin;
+                args[i] = date != null ? date.toString() : "";
+            }
+            return args;
+        }
+    }
+}
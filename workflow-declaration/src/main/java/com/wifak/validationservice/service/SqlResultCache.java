@@ -0,0 +1,245 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache court des résultats SQL de génération, désactivé par défaut
+ * ({@code app.generation.result-cache.enabled}).
+ *
+ * Pendant le réglage d'un mapping, l'agent régénère plusieurs fois la même période :
+ * la même requête, avec les mêmes paramètres, repart sur les tables du core banking.
+ * Les lignes lues sont gardées quelques minutes ({@code ttl}), clé = SHA-256 du SQL
+ * exécuté + paramètres liés. L'occupation mémoire est estimée en octets : au-delà de
+ * {@code max-bytes}, les entrées les moins récemment lues sont retirées ; un résultat
+ * plus gros que le quart du budget n'est jamais mis en cache.
+ *
+ * Une entrée reste valable jusqu'à son expiration même si les données changent en base :
+ * c'est le prix de l'option, à n'activer que là où ce délai est acceptable.
+ * {@link #evict(String)} retire tout ce qui provient d'une requête de type remplacée.
+ *
+ * Métriques : sql.result.cache{result=hit|miss}, sql.result.cache.bytes, sql.result.cache.size.
+ */
+@Service
+public class SqlResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlResultCache.class);
+
+    private final boolean  enabled;
+    private final long     maxBytes;
+    private final long     maxEntryBytes;
+    private final Duration ttl;
+
+    // Ordre d'accès : l'entrée la moins récemment lue est la première retirée
+    private final LinkedHashMap<String, CachedResult> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public SqlResultCache(MeterRegistry meterRegistry,
+                          @Value("${app.generation.result-cache.enabled:false}") boolean enabled,
+                          @Value("${app.generation.result-cache.max-bytes:67108864}") long maxBytes,
+                          @Value("${app.generation.result-cache.ttl:5m}") Duration ttl) {
+        this.enabled       = enabled;
+        this.maxBytes      = maxBytes;
+        this.maxEntryBytes = maxBytes / 4;
+        this.ttl           = ttl;
+        this.hits = Counter.builder("sql.result.cache")
+                .description("Accès au cache des résultats SQL de génération")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("sql.result.cache")
+                .description("Accès au cache des résultats SQL de génération")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("sql.result.cache.bytes", this, SqlResultCache::getTotalBytes)
+                .description("Taille estimée des résultats SQL en cache (octets)")
+                .register(meterRegistry);
+        Gauge.builder("sql.result.cache.size", this, SqlResultCache::size)
+                .description("Nombre de résultats SQL en cache")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("🗃️ Cache des résultats SQL actif — {} octets max, TTL {}", maxBytes, ttl);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Résultat encore valable pour ce SQL et ces paramètres, sinon null. */
+    public CachedResult get(String sql, Object[] args) {
+        if (!enabled) return null;
+        String key = key(sql, args);
+        synchronized (this) {
+            CachedResult cached = entries.get(key);
+            if (cached != null && Instant.now().isBefore(cached.expiresAt)) {
+                hits.increment();
+                return cached;
+            }
+            if (cached != null) {
+                remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /** Enregistreur à alimenter pendant la lecture du ResultSet ; null si le cache est désactivé. */
+    public Recorder recorder(String sql, Object[] args) {
+        return enabled ? new Recorder(key(sql, args), shapeHash(sql)) : null;
+    }
+
+    /** Retire les résultats issus de cette requête (avant remplacement par saveSqlQuery). */
+    public void evict(String sqlQuery) {
+        if (!enabled || sqlQuery == null || sqlQuery.isBlank()) return;
+        String shape = shapeHash(sqlQuery);
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Map.Entry<String, CachedResult>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                CachedResult cached = it.next().getValue();
+                if (cached.shapeHash.equals(shape)) {
+                    totalBytes -= cached.bytes;
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("🧹 {} résultat(s) SQL retiré(s) du cache", removed);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized void put(String key, CachedResult result) {
+        remove(key);
+        entries.put(key, result);
+        totalBytes += result.bytes;
+        Iterator<CachedResult> it = entries.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    private void remove(String key) {
+        CachedResult old = entries.remove(key);
+        if (old != null) totalBytes -= old.bytes;
+    }
+
+    private static String key(String sql, Object[] args) {
+        return DeclarationContenuService.sha256(sql.getBytes(StandardCharsets.UTF_8))
+                + "|" + Arrays.deepToString(args != null ? args : new Object[0]);
+    }
+
+    /**
+     * Forme de la requête : paramètres nommés, {@code ?} et dates littérales ramenés à {@code ?}.
+     * La requête saisie sur le type et le SQL exécuté (dates liées ou insérées) ont la même forme.
+     */
+    static String shapeHash(String sql) {
+        String shape = sql.trim()
+                .replaceAll(":(dateDebut|dateFin)\\b|'\\d{4}-\\d{2}-\\d{2}'|\\?", "?");
+        return DeclarationContenuService.sha256(shape.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Estimation grossière de l'empreinte mémoire d'une valeur JDBC. */
+    static long estimate(Object value) {
+        if (value == null)                 return 8;
+        if (value instanceof String s)     return 40 + 2L * s.length();
+        if (value instanceof byte[] b)     return 16 + b.length;
+        if (value instanceof Number
+                || value instanceof Date
+                || value instanceof Temporal
+                || value instanceof Boolean) return 32;
+        return 40 + 2L * value.toString().length();
+    }
+
+    // ── Enregistrement pendant le streaming ───────────────────────
+
+    /**
+     * Copie les lignes lues ; abandonne dès que le résultat dépasse le quart du budget.
+     * Rien n'est publié si la lecture échoue avant {@link #complete()}.
+     */
+    public final class Recorder {
+        private final String key;
+        private final String shapeHash;
+        private String[] columns;
+        private List<Object[]> rows = new ArrayList<>();
+        private long bytes = 0;
+
+        private Recorder(String key, String shapeHash) {
+            this.key       = key;
+            this.shapeHash = shapeHash;
+        }
+
+        void columns(String[] names) {
+            this.columns = names;
+        }
+
+        void row(Object[] values) {
+            if (rows == null) return;
+            long rowBytes = 16 + 8L * values.length;
+            for (Object v : values) rowBytes += estimate(v);
+            bytes += rowBytes;
+            if (bytes > maxEntryBytes) {
+                log.debug("Résultat SQL trop volumineux pour le cache (> {} octets)", maxEntryBytes);
+                rows = null;
+                return;
+            }
+            rows.add(values.clone());
+        }
+
+        void complete() {
+            // columns null : aucune ligne, donc pas de noms de colonnes à rejouer
+            if (rows == null || columns == null) return;
+            put(key, new CachedResult(columns, List.copyOf(rows), bytes, shapeHash, Instant.now().plus(ttl)));
+        }
+    }
+
+    /** Lignes d'un résultat SQL, dans l'ordre de lecture. */
+    public static final class CachedResult {
+        private final String[] columns;
+        private final List<Object[]> rows;
+        private final long bytes;
+        private final String shapeHash;
+        private final Instant expiresAt;
+
+        CachedResult(String[] columns, List<Object[]> rows, long bytes, String shapeHash, Instant expiresAt) {
+            this.columns   = columns;
+            this.rows      = rows;
+            this.bytes     = bytes;
+            this.shapeHash = shapeHash;
+            this.expiresAt = expiresAt;
+        }
+
+        public String[] getColumns()    { return columns; }
+        public List<Object[]> getRows() { return rows; }
+        public long getBytes()          { return bytes; }
+    }
+}
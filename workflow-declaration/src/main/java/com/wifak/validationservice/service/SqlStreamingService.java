@@ -0,0 +1,209 @@
+package com.wifak.validationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Source de lignes SQL en flux, partagée par les générateurs CSV / TXT / XML.
+ *
+ * Contrairement à {@code queryForList}, aucune ligne n'est matérialisée :
+ * chaque ligne du ResultSet est passée au {@link RowHandler} puis oubliée.
+ * Avec MySQL, un fetch size de {@code Integer.MIN_VALUE} active le mode
+ * streaming du driver (une ligne à la fois depuis le socket).
+ *
+ * Si {@link SqlResultCache} est activé, un résultat identique (même SQL, mêmes
+ * paramètres) lu il y a peu est rejoué depuis la mémoire au lieu d'être relu en base.
+ */
+@Service
+public class SqlStreamingService {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStreamingService.class);
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final SqlResultCache resultCache;
+
+    public SqlStreamingService(JdbcTemplate jdbcTemplate,
+                               SqlResultCache resultCache,
+                               @Value("${app.generation.fetch-size:-2147483648}") int fetchSize) {
+        this.resultCache = resultCache;
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /** Traitement d'une ligne ; l'instance {@link StreamedRow} est réutilisée d'une ligne à l'autre. */
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(StreamedRow row) throws Exception;
+    }
+
+    /**
+     * Exécute la requête et pousse chaque ligne vers {@code handler}.
+     * Un seul passage sur la base : le nombre de lignes est connu à la fin du flux.
+     *
+     * @return nombre de lignes lues
+     */
+    public long stream(String sql, Object[] args, RowHandler handler) {
+        GenerationProgress progress = GenerationProgress.current();
+        progress.etape(GenerationProgress.Etape.EXTRACTION);
+        SqlResultCache.CachedResult cached = resultCache.get(sql, args);
+        long count;
+        if (cached != null) {
+            count = replay(cached, handler, progress);
+        } else {
+            SqlResultCache.Recorder recorder = resultCache.recorder(sql, args);
+            StreamingCallback callback = new StreamingCallback(handler, progress, recorder);
+            streamingJdbcTemplate.query(sql, callback, args != null ? args : new Object[0]);
+            if (recorder != null) recorder.complete();
+            count = callback.count;
+        }
+        progress.total(count);
+        return count;
+    }
+
+    private long replay(SqlResultCache.CachedResult cached, RowHandler handler, GenerationProgress progress) {
+        log.debug("🗃️ Résultat SQL rejoué depuis le cache — {} ligne(s)", cached.getRows().size());
+        String[] columns = cached.getColumns();
+        StreamedRow row = new StreamedRow(columns, new int[columns.length]);
+        long count = 0;
+        for (Object[] values : cached.getRows()) {
+            row.load(values, count);
+            dispatch(handler, row, count);
+            count++;
+            progress.ligne();
+        }
+        return count;
+    }
+
+    private static void dispatch(RowHandler handler, StreamedRow row, long count) {
+        try {
+            handler.handle(row);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RowStreamException("Erreur d'écriture à la ligne " + (count + 1) + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ── Callback JDBC ─────────────────────────────────────────────
+
+    private static final class StreamingCallback implements RowCallbackHandler {
+        private final RowHandler handler;
+        private final GenerationProgress progress;
+        private final SqlResultCache.Recorder recorder;
+        private StreamedRow row;
+        private long count = 0;
+
+        StreamingCallback(RowHandler handler, GenerationProgress progress, SqlResultCache.Recorder recorder) {
+            this.handler  = handler;
+            this.progress = progress;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            if (row == null) {
+                row = StreamedRow.fromMetaData(rs.getMetaData());
+                log.debug("📐 Colonnes résolues: {}", String.join(", ", row.getColumns()));
+                if (recorder != null) recorder.columns(row.getColumns());
+            }
+            row.load(rs, count);
+            if (recorder != null) recorder.row(row.values);
+            dispatch(handler, row, count);
+            count++;
+            progress.ligne();
+        }
+    }
+
+    /** Erreur levée par le consommateur pendant le streaming (écriture du fichier). */
+    public static class RowStreamException extends RuntimeException {
+        public RowStreamException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    // ── Ligne courante ────────────────────────────────────────────
+
+    /**
+     * Vue sur la ligne courante. Les noms et positions des colonnes sont lus
+     * une seule fois depuis {@link ResultSetMetaData} ; les valeurs sont
+     * rechargées dans le même tableau à chaque ligne.
+     */
+    public static final class StreamedRow {
+        private final String[] columns;
+        private final int[] jdbcIndexes;
+        private final Map<String, Integer> indexByLowerName;
+        private final Object[] values;
+        private long rowIndex;
+
+        StreamedRow(String[] columns, int[] jdbcIndexes) {
+            this.columns     = columns;
+            this.jdbcIndexes = jdbcIndexes;
+            this.values      = new Object[columns.length];
+            this.indexByLowerName = new HashMap<>();
+            for (int i = 0; i < columns.length; i++) {
+                indexByLowerName.putIfAbsent(columns[i].toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        static StreamedRow fromMetaData(ResultSetMetaData md) throws SQLException {
+            // Même résolution des libellés que queryForList ; un libellé en double garde sa première position
+            Map<String, Integer> unique = new LinkedHashMap<>();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                String name = JdbcUtils.lookupColumnName(md, i);
+                if (unique.keySet().stream().noneMatch(name::equalsIgnoreCase)) {
+                    unique.put(name, i);
+                }
+            }
+            String[] names = unique.keySet().toArray(new String[0]);
+            int[] indexes = unique.values().stream().mapToInt(Integer::intValue).toArray();
+            return new StreamedRow(names, indexes);
+        }
+
+        void load(ResultSet rs, long index) throws SQLException {
+            for (int i = 0; i < jdbcIndexes.length; i++) {
+                values[i] = JdbcUtils.getResultSetValue(rs, jdbcIndexes[i]);
+            }
+            this.rowIndex = index;
+        }
+
+        void load(Object[] cachedValues, long index) {
+            System.arraycopy(cachedValues, 0, values, 0, values.length);
+            this.rowIndex = index;
+        }
+
+        /** Rang de la ligne dans le résultat (0 pour la première). */
+        public long getRowIndex()       { return rowIndex; }
+        public boolean isFirst()        { return rowIndex == 0; }
+        public String[] getColumns()    { return columns; }
+        public int getColumnCount()     { return columns.length; }
+        public Object get(int index)    { return values[index]; }
+
+        /** Valeur en texte, chaîne vide si NULL. */
+        public String getString(int index) {
+            Object v = values[index];
+            return v != null ? v.toString() : "";
+        }
+
+        /** Position d'une colonne (insensible à la casse), -1 si absente. */
+        public int indexOf(String column) {
+            if (column == null) return -1;
+            Integer idx = indexByLowerName.get(column.toLowerCase(Locale.ROOT));
+            return idx != null ? idx : -1;
+        }
+    }
+}
@@ -2,79 +2,83 @@ package com.wifak.validationservice.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
 public class TxtGenerationService {
 
     private static final Logger log = LoggerFactory.getLogger(TxtGenerationService.class);
     private static final int LINE_WIDTH = 80;
-    private final JdbcTemplate jdbcTemplate;
+    private static final String DELIMITER = "|";
+    private final SqlStreamingService sqlStreamingService;
+    private final SqlQueryCompiler queryCompiler;
 
-    public TxtGenerationService(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public TxtGenerationService(SqlStreamingService sqlStreamingService, SqlQueryCompiler queryCompiler) {
+        this.sqlStreamingService = sqlStreamingService;
+        this.queryCompiler = queryCompiler;
     }
 
-    public String generateTxtFromSql(String sqlQuery, LocalDate dateDebut, LocalDate dateFin,
-                                     String typeCode, String periode) {
+    /**
+     * Écrit le TXT ligne par ligne dans {@code out} ; le total est écrit en pied de fichier.
+     */
+    public void writeTxtFromSql(String sqlQuery, LocalDate dateDebut, LocalDate dateFin,
+                                String typeCode, String periode, Writer out) {
         log.info("ðŸ“„ GÃ©nÃ©ration TXT â€” Type: {}, PÃ©riode: {}", typeCode, periode);
 
-        String executableSql = sqlQuery
-                .replace(":dateDebut", "'" + dateDebut.toString() + "'")
-                .replace(":dateFin",   "'" + dateFin.toString()   + "'");
+        // Dates liées en paramètres : même texte SQL pour toutes les périodes
+        SqlQueryCompiler.CompiledQuery query = queryCompiler.compile(sqlQuery);
 
-        List<Map<String, Object>> rows;
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        int[] columnCount = {0};
+        long rows;
         try {
-            rows = jdbcTemplate.queryForList(executableSql);
+            out.write("DECLARATION BCT - TYPE: " + typeCode + " - PERIODE: " + periode + "\r\n");
+            out.write("GENERE_LE=" + timestamp + "\r\n");
+            out.write("DATE_DEBUT=" + dateDebut + "\r\n");
+            out.write("DATE_FIN=" + dateFin + "\r\n");
+            out.write("=".repeat(LINE_WIDTH) + "\r\n");
+
+            rows = sqlStreamingService.stream(query.getSql(), query.bind(dateDebut, dateFin), row -> {
+                if (row.isFirst()) {
+                    columnCount[0] = row.getColumnCount();
+                    out.write(String.join(DELIMITER, row.getColumns()) + "\r\n");
+                    out.write("-".repeat(LINE_WIDTH) + "\r\n");
+                }
+                out.write(String.valueOf(row.getRowIndex() + 1));
+                out.write(DELIMITER);
+                for (int i = 0; i < row.getColumnCount(); i++) {
+                    if (i > 0) out.write(DELIMITER);
+                    out.write(row.getString(i));
+                }
+                out.write("\r\n");
+            });
+
+            if (rows == 0) {
+                out.write("AUCUNE_DONNEE\r\n");
+                out.write("=".repeat(LINE_WIDTH) + "\r\n");
+                out.write("FIN_DECLARATION\r\n");
+            } else {
+                out.write("=".repeat(LINE_WIDTH) + "\r\n");
+                out.write("TOTAL_LIGNES=" + rows + "\r\n");
+                out.write("FIN_DECLARATION=" + LocalDate.now() + "\r\n");
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur d'écriture TXT", e);
+        } catch (SqlStreamingService.RowStreamException e) {
+            throw e;
         } catch (Exception e) {
             log.error("âŒ Erreur SQL TXT: {}", e.getMessage());
             throw new RuntimeException("Erreur SQL: " + e.getMessage());
         }
 
-        StringBuilder txt = new StringBuilder();
-        String delimiter = "|";
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-        txt.append("DECLARATION BCT - TYPE: ").append(typeCode)
-                .append(" - PERIODE: ").append(periode).append("\r\n");
-        txt.append("GENERE_LE=").append(timestamp).append("\r\n");
-        txt.append("DATE_DEBUT=").append(dateDebut).append("\r\n");
-        txt.append("DATE_FIN=").append(dateFin).append("\r\n");
-        txt.append("=".repeat(LINE_WIDTH)).append("\r\n");
-
-        if (rows.isEmpty()) {
-            txt.append("AUCUNE_DONNEE\r\n");
-            txt.append("=".repeat(LINE_WIDTH)).append("\r\n");
-            txt.append("FIN_DECLARATION\r\n");
-            return txt.toString();
-        }
-
-        Set<String> columns = rows.get(0).keySet();
-        txt.append(String.join(delimiter, columns)).append("\r\n");
-        txt.append("-".repeat(LINE_WIDTH)).append("\r\n");
-
-        int lineNum = 1;
-        for (Map<String, Object> row : rows) {
-            String line = columns.stream()
-                    .map(col -> { Object val = row.get(col); return val != null ? val.toString() : ""; })
-                    .collect(Collectors.joining(delimiter));
-            txt.append(lineNum++).append(delimiter).append(line).append("\r\n");
-        }
-
-        txt.append("=".repeat(LINE_WIDTH)).append("\r\n");
-        txt.append("TOTAL_LIGNES=").append(rows.size()).append("\r\n");
-        txt.append("FIN_DECLARATION=").append(LocalDate.now()).append("\r\n");
-
-        log.info("âœ… TXT gÃ©nÃ©rÃ© â€” {} colonnes, {} lignes", columns.size(), rows.size());
-        return txt.toString();
+        log.info("âœ… TXT gÃ©nÃ©rÃ© â€” {} colonnes, {} lignes", columnCount[0], rows);
     }
 }
@@ -0,0 +1,302 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.ValidationRule;
+import com.wifak.validationservice.entities.ValidationRule.TypeValidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Règles ValidationRule d'un type, compilées une fois (voir ValidationPlanCache) :
+ * champs numérotés, expressions régulières et listes de valeurs prêtes, comparaisons
+ * entre champs réduites à des termes (coefficient × champ).
+ *
+ * Chaque ligne est lue une seule fois : une valeur par champ, convertie en nombre
+ * au plus une fois, quel que soit le nombre de règles qui la consultent.
+ * Une règle mal paramétrée est écartée à la compilation (voir {@link #getIgnorees()}).
+ */
+public final class ValidationPlan {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationPlan.class);
+
+    public static final ValidationPlan VIDE = new ValidationPlan(new String[0], new int[0], new Check[0], List.of());
+
+    private static final Pattern DATE    = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern MONTANT = Pattern.compile("-?\\d+([.,]\\d{1,3})?");
+    // Comparaison : opérateur puis somme de termes, ex. "= PositionAchat - PositionVente", ">= MontantImpaye * 0.2"
+    private static final Pattern CALCUL  = Pattern.compile("\\s*(<=|>=|=|<|>)\\s*(.+)");
+    private static final Pattern NOMBRE  = Pattern.compile("\\d+(\\.\\d+)?");
+    private static final Pattern CHAMP   = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final double TOLERANCE = 0.01;
+
+    private final String[] champs;
+    private final int[] obligatoires;
+    private final Check[] checks;
+    private final List<String> ignorees;
+
+    private ValidationPlan(String[] champs, int[] obligatoires, Check[] checks, List<String> ignorees) {
+        this.champs       = champs;
+        this.obligatoires = obligatoires;
+        this.checks       = checks;
+        this.ignorees     = ignorees;
+    }
+
+    public static ValidationPlan compile(List<ValidationRule> rules) {
+        Map<String, Integer> index = new LinkedHashMap<>();
+        Set<Integer> obligatoires = new LinkedHashSet<>();
+        List<Check> checks = new ArrayList<>();
+        List<String> ignorees = new ArrayList<>();
+        for (ValidationRule rule : rules) {
+            String champ = rule.getChampConcerne() != null ? rule.getChampConcerne().trim() : "";
+            if (champ.isEmpty() || rule.getTypeValidation() == null) {
+                ignorees.add("Règle " + rule.getId() + " : champ ou type de validation absent");
+                continue;
+            }
+            int i = index.computeIfAbsent(champ, k -> index.size());
+            if (rule.isObligatoire() || rule.getTypeValidation() == TypeValidation.CHAMP_OBLIGATOIRE) {
+                obligatoires.add(i);
+            }
+            try {
+                Regle regle = compile(rule, champ, i, index);
+                if (regle != null) checks.add(new Check(i, regle));
+            } catch (IllegalArgumentException e) {
+                log.warn("⚠️ Règle {} ({} sur {}) ignorée: {}", rule.getId(), rule.getTypeValidation(), champ, e.getMessage());
+                ignorees.add(rule.getTypeValidation() + " sur '" + champ + "' : " + e.getMessage());
+            }
+        }
+        return new ValidationPlan(
+                index.keySet().toArray(String[]::new),
+                obligatoires.stream().mapToInt(Integer::intValue).toArray(),
+                checks.toArray(Check[]::new),
+                List.copyOf(ignorees));
+    }
+
+    private static Regle compile(ValidationRule rule, String champ, int i, Map<String, Integer> index) {
+        String message = rule.getMessageErreur() != null && !rule.getMessageErreur().isBlank()
+                ? rule.getMessageErreur().trim() : null;
+        String parametre = rule.getParametre() != null ? rule.getParametre().trim() : "";
+        return switch (rule.getTypeValidation()) {
+            case CHAMP_OBLIGATOIRE -> null;
+            case FORMAT_DATE -> (num, l, errors) -> {
+                String v = l.valeur(i);
+                if (!DATE.matcher(v).matches())
+                    errors.add(erreur(num, message, "'" + champ + "' = '" + v + "' — format attendu : YYYY-MM-DD"));
+            };
+            case FORMAT_MONTANT -> (num, l, errors) -> {
+                String v = l.valeur(i);
+                if (!MONTANT.matcher(v).matches())
+                    errors.add(erreur(num, message, "'" + champ + "' = '" + v + "' n'est pas un montant valide (3 décimales au plus)"));
+            };
+            case LONGUEUR_MIN -> {
+                int min = entier(parametre);
+                yield (num, l, errors) -> {
+                    if (l.valeur(i).length() < min)
+                        errors.add(erreur(num, message, "'" + champ + "' doit contenir au moins " + min + " caractère(s)"));
+                };
+            }
+            case LONGUEUR_MAX -> {
+                int max = entier(parametre);
+                yield (num, l, errors) -> {
+                    if (l.valeur(i).length() > max)
+                        errors.add(erreur(num, message, "'" + champ + "' dépasse " + max + " caractère(s)"));
+                };
+            }
+            case VALEUR_NUMERIQUE -> (num, l, errors) -> {
+                if (Double.isNaN(l.nombre(i)))
+                    errors.add(erreur(num, message, "'" + champ + "' = '" + l.valeur(i) + "' n'est pas un nombre valide"));
+            };
+            case VALEUR_POSITIVE -> (num, l, errors) -> {
+                double d = l.nombre(i);
+                if (Double.isNaN(d))
+                    errors.add(erreur(num, message, "'" + champ + "' = '" + l.valeur(i) + "' n'est pas un nombre valide"));
+                else if (d <= 0)
+                    errors.add(erreur(num, message, "'" + champ + "' (" + d + ") doit être > 0"));
+            };
+            case VALEURS_AUTORISEES -> {
+                Set<String> autorisees = new LinkedHashSet<>();
+                for (String v : parametre.split(",")) {
+                    if (!v.isBlank()) autorisees.add(v.trim().toUpperCase(Locale.ROOT));
+                }
+                if (autorisees.isEmpty()) throw new IllegalArgumentException("aucune valeur autorisée");
+                String liste = String.join(", ", autorisees);
+                yield (num, l, errors) -> {
+                    String v = l.valeur(i);
+                    if (!autorisees.contains(v.toUpperCase(Locale.ROOT)))
+                        errors.add(erreur(num, message, "'" + champ + "' = '" + v + "' invalide. Valeurs autorisées : " + liste));
+                };
+            }
+            case FORMAT_REGEX -> {
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(parametre);
+                } catch (PatternSyntaxException e) {
+                    throw new IllegalArgumentException("expression régulière invalide: " + e.getDescription());
+                }
+                yield (num, l, errors) -> {
+                    String v = l.valeur(i);
+                    if (!pattern.matcher(v).matches())
+                        errors.add(erreur(num, message, "'" + champ + "' = '" + v + "' ne respecte pas le format attendu"));
+                };
+            }
+            case CALCUL -> compileCalcul(champ, i, parametre, message, index);
+        };
+    }
+
+    // "<op> terme (± terme)*", terme = facteur (* facteur)*, facteur = nombre ou nom de champ
+    private static Regle compileCalcul(String champ, int i, String parametre, String message, Map<String, Integer> index) {
+        var m = CALCUL.matcher(parametre);
+        if (!m.matches()) throw new IllegalArgumentException("comparaison attendue, ex. \"<= MontantCredit\"");
+        String op = m.group(1);
+        String expression = m.group(2).trim();
+
+        List<double[]> constantes = new ArrayList<>();   // coefficient par terme
+        List<int[]> facteurs = new ArrayList<>();        // champs multipliés dans le terme
+        for (String signe : expression.replace("-", "+-").split("\\+")) {
+            String terme = signe.trim();
+            if (terme.isEmpty()) continue;
+            double coef = 1;
+            if (terme.startsWith("-")) {
+                coef = -1;
+                terme = terme.substring(1).trim();
+            }
+            List<Integer> champsTerme = new ArrayList<>();
+            for (String f : terme.split("\\*")) {
+                String facteur = f.trim();
+                if (facteur.isEmpty()) throw new IllegalArgumentException("terme vide dans \"" + expression + "\"");
+                if (NOMBRE.matcher(facteur).matches()) {
+                    coef *= Double.parseDouble(facteur);
+                } else if (CHAMP.matcher(facteur).matches()) {
+                    champsTerme.add(index.computeIfAbsent(facteur, k -> index.size()));
+                } else {
+                    throw new IllegalArgumentException("facteur invalide: " + facteur);
+                }
+            }
+            constantes.add(new double[]{coef});
+            facteurs.add(champsTerme.stream().mapToInt(Integer::intValue).toArray());
+        }
+        if (constantes.isEmpty()) throw new IllegalArgumentException("expression vide");
+        double[] coefs = constantes.stream().mapToDouble(c -> c[0]).toArray();
+        int[][] termes = facteurs.toArray(int[][]::new);
+
+        return (num, l, errors) -> {
+            double gauche = l.nombre(i);
+            if (Double.isNaN(gauche)) return;     // valeur absente ou non numérique : signalée par les autres règles
+            double droite = 0;
+            for (int t = 0; t < coefs.length; t++) {
+                double produit = coefs[t];
+                for (int f : termes[t]) {
+                    double v = l.nombre(f);
+                    if (Double.isNaN(v)) return;
+                    produit *= v;
+                }
+                droite += produit;
+            }
+            boolean ok = switch (op) {
+                case "="  -> Math.abs(gauche - droite) <= TOLERANCE;
+                case "<=" -> gauche <= droite + TOLERANCE;
+                case ">=" -> gauche >= droite - TOLERANCE;
+                case "<"  -> gauche < droite;
+                default   -> gauche > droite;
+            };
+            if (!ok) {
+                errors.add(erreur(num, message, String.format(Locale.ROOT,
+                        "%s (%.2f) doit être %s %s (%.2f)", champ, gauche, op, expression, droite)));
+            }
+        };
+    }
+
+    private static int entier(String parametre) {
+        try {
+            int n = Integer.parseInt(parametre);
+            if (n < 0) throw new IllegalArgumentException("longueur négative: " + n);
+            return n;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("longueur attendue, reçu '" + parametre + "'");
+        }
+    }
+
+    private static String erreur(int num, String message, String defaut) {
+        return "Ligne " + num + " : " + (message != null ? message : defaut);
+    }
+
+    // ── Évaluation ────────────────────────────────────────────────
+
+    /**
+     * Contrôle une ligne : champs obligatoires d'abord, puis chaque règle dans l'ordre
+     * de déclaration. Une règle ne s'applique pas à un champ vide.
+     */
+    public void evaluer(int num, Map<String, String> ligne, List<String> errors) {
+        if (checks.length == 0 && obligatoires.length == 0) return;
+        Ligne l = new Ligne(ligne);
+        for (int i : obligatoires) {
+            if (l.vide(i)) {
+                errors.add("Ligne " + num + " : Champ obligatoire '" + champs[i] + "' absent ou vide");
+            }
+        }
+        for (Check check : checks) {
+            if (l.vide(check.champ)) continue;
+            check.regle.verifier(num, l, errors);
+        }
+    }
+
+    public boolean isEmpty()   { return checks.length == 0 && obligatoires.length == 0; }
+    public int getRegles()     { return checks.length + obligatoires.length; }
+    /** Règles écartées à la compilation, avec la raison. */
+    public List<String> getIgnorees() { return ignorees; }
+    public List<String> getChamps() { return Arrays.asList(champs); }
+
+    @FunctionalInterface
+    private interface Regle {
+        void verifier(int num, Ligne ligne, List<String> errors);
+    }
+
+    // Règle compilée et champ contrôlé (ignorée si ce champ est vide)
+    private static final class Check {
+        private final int champ;
+        private final Regle regle;
+
+        Check(int champ, Regle regle) {
+            this.champ = champ;
+            this.regle = regle;
+        }
+    }
+
+    /** Valeurs de la ligne par numéro de champ, nombres convertis à la demande. */
+    private final class Ligne {
+        private final String[] valeurs = new String[champs.length];
+        private final double[] nombres = new double[champs.length];
+        private final boolean[] convertis = new boolean[champs.length];
+
+        Ligne(Map<String, String> ligne) {
+            for (int i = 0; i < champs.length; i++) {
+                String v = ligne.get(champs[i]);
+                valeurs[i] = v != null ? v.trim() : "";
+            }
+        }
+
+        boolean vide(int i)    { return valeurs[i].isEmpty(); }
+        String valeur(int i)   { return valeurs[i]; }
+
+        double nombre(int i) {
+            if (!convertis[i]) {
+                convertis[i] = true;
+                try {
+                    nombres[i] = valeurs[i].isEmpty() ? Double.NaN : Double.parseDouble(valeurs[i].replace(",", "."));
+                } catch (NumberFormatException e) {
+                    nombres[i] = Double.NaN;
+                }
+            }
+            return nombres[i];
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import com.wifak.validationservice.repositories.ValidationRuleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plans de validation compilés (voir {@link ValidationPlan}), un par code de type.
+ *
+ * La version d'un type est sa date de dernière modification, relue à chaque analyse
+ * par une requête légère : un changement de règles sur une autre instance est vu
+ * sans redémarrage, et les règles ne sont rechargées et recompilées qu'à ce moment-là.
+ *
+ * Métriques : validation.plan.cache{result=hit|miss}, validation.plan.compile, validation.plan.cache.size.
+ */
+@Service
+public class ValidationPlanCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationPlanCache.class);
+
+    private final DeclarationTypeRepository typeRepository;
+    private final ValidationRuleRepository  ruleRepository;
+    private final Map<String, CachedPlan> byCode = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer   compileTimer;
+
+    public ValidationPlanCache(DeclarationTypeRepository typeRepository,
+                               ValidationRuleRepository ruleRepository,
+                               MeterRegistry meterRegistry) {
+        this.typeRepository = typeRepository;
+        this.ruleRepository = ruleRepository;
+        this.hits = Counter.builder("validation.plan.cache")
+                .description("Accès au cache des plans de validation")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("validation.plan.cache")
+                .description("Accès au cache des plans de validation")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.compileTimer = Timer.builder("validation.plan.compile")
+                .description("Durée de chargement et compilation des règles d'un type")
+                .register(meterRegistry);
+        Gauge.builder("validation.plan.cache.size", byCode, Map::size)
+                .description("Nombre de types dont le plan de validation est en cache")
+                .register(meterRegistry);
+    }
+
+    /** Plan du type {@code code} ; {@link ValidationPlan#VIDE} si le type n'existe pas en base. */
+    public ValidationPlan plan(String code) {
+        if (code == null || code.isBlank()) return ValidationPlan.VIDE;
+        Optional<DeclarationTypeRepository.TypeVersion> version = typeRepository.findVersionByCode(code);
+        if (version.isEmpty()) {
+            byCode.remove(code);
+            return ValidationPlan.VIDE;
+        }
+        Long typeId = version.get().getId();
+        LocalDateTime modification = version.get().getDerniereModification();
+        CachedPlan cached = byCode.get(code);
+        if (cached != null && cached.typeId.equals(typeId) && Objects.equals(cached.version, modification)) {
+            hits.increment();
+            return cached.plan;
+        }
+        misses.increment();
+        ValidationPlan plan = compileTimer.record(() -> ValidationPlan.compile(ruleRepository.findByDeclarationTypeId(typeId)));
+        byCode.put(code, new CachedPlan(typeId, modification, plan));
+        log.info("🧩 Plan de validation compilé — type {} : {} règle(s), {} ignorée(s)",
+                code, plan.getRegles(), plan.getIgnorees().size());
+        return plan;
+    }
+
+    public void evict(String code) {
+        if (code != null && byCode.remove(code) != null) {
+            log.info("🧹 Plan de validation retiré du cache — type {}", code);
+        }
+    }
+
+    public int size() {
+        return byCode.size();
+    }
+
+    private static final class CachedPlan {
+        private final Long typeId;
+        private final LocalDateTime version;
+        private final ValidationPlan plan;
+
+        CachedPlan(Long typeId, LocalDateTime version, ValidationPlan plan) {
+            this.typeId  = typeId;
+            this.version = version;
+            this.plan    = plan;
+        }
+    }
+}
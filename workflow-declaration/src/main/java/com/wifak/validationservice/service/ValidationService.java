@@ -2,6 +2,8 @@ package com.wifak.validationservice.service;
 
 import com.wifak.validationservice.client.NotificationClient;
 import com.wifak.validationservice.dto.AiValidationResult;
+import com.wifak.validationservice.dto.DeclarationSummary;
+import com.wifak.validationservice.dto.PendingQueue;
 import com.wifak.validationservice.dto.jira.TransitionJiraTicketRequest;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.ValidationLog;
@@ -14,9 +16,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 /**
  * Workflow de validation des déclarations.
@@ -31,6 +36,9 @@ public class ValidationService {
     private final JiraIntegrationFeignClient jiraClient;
     private final ValidationLogRepository   logRepository;
     private final NotificationClient        notificationClient;
+    private final AuditRollupService        rollupService;
+    private final AiResultCache             aiResultCache;
+    private final DeclarationContenuService contenuService;
 
     @Autowired
     private AiDeclarationService aiDeclarationService;
@@ -38,11 +46,17 @@ public class ValidationService {
     public ValidationService(DeclarationService declarationService,
                              JiraIntegrationFeignClient jiraClient,
                              ValidationLogRepository logRepository,
-                             NotificationClient notificationClient) {
+                             NotificationClient notificationClient,
+                             AuditRollupService rollupService,
+                             AiResultCache aiResultCache,
+                             DeclarationContenuService contenuService) {
         this.declarationService   = declarationService;
         this.jiraClient           = jiraClient;
         this.logRepository        = logRepository;
         this.notificationClient   = notificationClient;
+        this.rollupService        = rollupService;
+        this.aiResultCache        = aiResultCache;
+        this.contenuService       = contenuService;
     }
     // 1. SOUMETTRE — GENEREE | REJETEE → EN_VALIDATION
     public Declaration submitForValidation(Long declarationId, String correctionComment) {
@@ -150,10 +164,16 @@ public class ValidationService {
         return updated;
     }
     // 5. PENDING
-    public List<Declaration> getPendingDeclarations() {
-        return declarationService.getAllDeclarations().stream()
-                .filter(d -> d.getStatut() == Declaration.DeclarationStatut.EN_VALIDATION)
-                .collect(Collectors.toList());
+    public List<DeclarationSummary> getPendingDeclarations() {
+        return declarationService.getDeclarationsByStatut(Declaration.DeclarationStatut.EN_VALIDATION);
+    }
+
+    public PendingQueue getPendingQueue(PendingQueue.Tri tri, Integer page, Integer size) {
+        return declarationService.getPendingQueue(tri, page, size);
+    }
+
+    public PendingQueue.Compteurs getPendingCompteurs() {
+        return declarationService.getPendingCompteurs();
     }
     // 6. STATS
     public DeclarationService.DeclarationStats getStats() {
@@ -163,38 +183,80 @@ public class ValidationService {
     public List<ValidationLog> getHistory(Long declarationId) {
         return logRepository.findByDeclarationIdOrderByDateActionDesc(declarationId);
     }
-    // 8. AI ANALYSIS
+    // 8. AI ANALYSIS — le fichier n'est lu qu'en l'absence de résultat conservé pour son contenu
     public AiValidationResult analyzeWithAi(Long declarationId) {
         log.info("🤖 analyzeWithAi — ID: {}", declarationId);
         Declaration decl = declarationService.findById(declarationId);
-        return aiDeclarationService.analyzeDeclaration(
-                decl.getContenuFichier(),
+        return aiResultCache.analyse(decl, () -> aiDeclarationService.analyzeDeclaration(
+                readContent(declarationId),
                 decl.getNomFichier()
-        );
+        ));
     }
     // 9. AI SUMMARY
     public Map<String, Object> getAiSummary(Long declarationId) {
         log.info("📊 getAiSummary — ID: {}", declarationId);
         Declaration decl = declarationService.findById(declarationId);
-        return aiDeclarationService.buildAiSummary(
-                decl.getContenuFichier(),
+        return aiResultCache.resume(decl, () -> aiDeclarationService.buildAiSummary(
+                readContent(declarationId),
                 decl.getNomFichier()
-        );
+        ));
     }
     // 10. COMPARAISON PÉRIODE PRÉCÉDENTE
     public Map<String, Object> compareWithPrevious(Long declarationId, Long previousDeclarationId) {
         log.info("📈 compareWithPrevious — ID: {} vs {}", declarationId, previousDeclarationId);
         Declaration curr = declarationService.findById(declarationId);
-        String prevContent = null;
+        Declaration prev = null;
         try {
-            Declaration prev = declarationService.findById(previousDeclarationId);
-            prevContent = prev.getContenuFichier();
+            prev = declarationService.findById(previousDeclarationId);
         } catch (Exception e) {
             log.warn("⚠️ Déclaration précédente {} introuvable: {}", previousDeclarationId, e.getMessage());
         }
-        return aiDeclarationService.compareWithPrevious(curr.getContenuFichier(), prevContent);
+        return comparer(curr, prev);
+    }
+
+    /**
+     * Comme {@link #compareWithPrevious}, avec la déclaration de référence trouvée côté serveur :
+     * dernière ENVOYEE/VALIDEE du même type sur la période précédente.
+     */
+    public Map<String, Object> compareWithPreviousPeriod(Long declarationId) {
+        log.info("📈 compareWithPreviousPeriod — ID: {}", declarationId);
+        Declaration curr = declarationService.findById(declarationId);
+        Optional<Long> previousId = declarationService.findPreviousPeriodId(curr);
+        if (previousId.isEmpty()) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("available", false);
+            result.put("message", "Aucune déclaration envoyée ou validée pour la période précédant " + curr.getPeriode());
+            return result;
+        }
+        Declaration prev = declarationService.findById(previousId.get());
+        Map<String, Object> result = new LinkedHashMap<>(comparer(curr, prev));
+        result.put("declarationPrecedenteId", prev.getId());
+        result.put("periodePrecedente",       prev.getPeriode());
+        return result;
+    }
+
+    // Contenus lus en flux depuis le store, jamais décompressés entiers en mémoire
+    private Map<String, Object> comparer(Declaration curr, Declaration prev) {
+        boolean avecPrecedente = prev != null && prev.getContenuHash() != null;
+        return aiResultCache.comparaison(curr, prev, () -> aiDeclarationService.compareWithPrevious(
+                source(curr), taille(curr),
+                avecPrecedente ? source(prev) : null, avecPrecedente ? taille(prev) : 0
+        ));
+    }
+
+    private DeclarationDiff.Source source(Declaration declaration) {
+        String hash = declaration.getContenuHash();
+        return () -> new InputStreamReader(contenuService.openStream(hash), StandardCharsets.UTF_8);
+    }
+
+    private static long taille(Declaration declaration) {
+        return declaration.getContenuTaille() != null ? declaration.getContenuTaille() : 0;
     }
     // UTILITAIRES PRIVÉS
+    private String readContent(Long declarationId) {
+        return declarationService.findByIdWithContent(declarationId).getContenuFichier();
+    }
+
     private String getCurrentUsername() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null) throw new RuntimeException("Utilisateur non authentifié");
@@ -217,5 +279,11 @@ public class ValidationService {
         vlog.setEffectuePar(effectuePar);
         vlog.setCommentaire(commentaire);
         logRepository.save(vlog);
+        try {
+            rollupService.record(action, effectuePar, vlog.getDateAction());
+        } catch (Exception e) {
+            // Le log fait foi ; l'agrégat est corrigé par POST /api/audit/rollups/rebuild (ADMIN)
+            log.warn("⚠️ Agrégat d'audit non mis à jour: {}", e.getMessage());
+        }
     }
 }
@@ -0,0 +1,102 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.dto.XsdSqlMappingRequest;
+
+import javax.xml.stream.XMLStreamException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Mapping XSD ↔ SQL compilé une fois par génération : balises déjà nettoyées,
+ * champs d'en-tête automatiques écartés, valeurs statiques prêtes à écrire.
+ *
+ * Les positions des colonnes sont résolues sur la première ligne
+ * ({@link #bind}) ; ensuite chaque ligne ne fait que des accès par index.
+ */
+public final class XmlMappingPlan {
+
+    // Champs toujours écrits par le générateur dans <Entete>
+    static final Set<String> AUTO_HEADER_FIELD_NAMES = new HashSet<>(Arrays.asList(
+            "CodeDeclaration", "Periode", "DateDebut", "DateFin",
+            "NombreLignes", "DateGeneration"
+    ));
+
+    private final String[] enteteTags;
+    private final String[] enteteValues;
+    private final String[] ligneTags;
+    private final String[] ligneColumns;
+    private final int staticCount;
+    private final int sqlCount;
+    private final int ignoredCount;
+
+    private XmlMappingPlan(List<String[]> entete, List<String[]> ligne,
+                           int staticCount, int sqlCount, int ignoredCount) {
+        this.enteteTags   = entete.stream().map(e -> e[0]).toArray(String[]::new);
+        this.enteteValues = entete.stream().map(e -> e[1]).toArray(String[]::new);
+        this.ligneTags    = ligne.stream().map(e -> e[0]).toArray(String[]::new);
+        this.ligneColumns = ligne.stream().map(e -> e[1]).toArray(String[]::new);
+        this.staticCount  = staticCount;
+        this.sqlCount     = sqlCount;
+        this.ignoredCount = ignoredCount;
+    }
+
+    public static XmlMappingPlan compile(List<XsdSqlMappingRequest.FieldMapping> mappings) {
+        List<String[]> entete = new ArrayList<>();
+        List<String[]> ligne  = new ArrayList<>();
+        int statics = 0;
+        int sqls    = 0;
+        for (XsdSqlMappingRequest.FieldMapping m : mappings) {
+            boolean auto = AUTO_HEADER_FIELD_NAMES.contains(m.getXsdFieldName());
+            if (m.getSource() == XsdSqlMappingRequest.MappingSource.STATIC && !m.getStaticValue().isEmpty()) {
+                statics++;
+                if (!auto) entete.add(new String[]{ sanitizeTagName(m.getXsdFieldName()), m.getStaticValue() });
+            } else if (m.getSource() == XsdSqlMappingRequest.MappingSource.SQL && !m.getSqlColumn().isEmpty()) {
+                sqls++;
+                if (!auto) ligne.add(new String[]{ sanitizeTagName(m.getXsdFieldName()), m.getSqlColumn() });
+            }
+        }
+        return new XmlMappingPlan(entete, ligne, statics, sqls, mappings.size() - statics - sqls);
+    }
+
+    /** Positions des colonnes mappées dans le résultat (-1 si absente), insensibles à la casse. */
+    public int[] bind(SqlStreamingService.StreamedRow row) {
+        int[] indexes = new int[ligneColumns.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = row.indexOf(ligneColumns[i]);
+        }
+        return indexes;
+    }
+
+    /** Champs statiques de l'en-tête, à écrire après les champs automatiques. */
+    public void writeEntete(DeclarationXmlWriter xml) throws XMLStreamException {
+        for (int i = 0; i < enteteTags.length; i++) {
+            xml.writeEnteteField(enteteTags[i], enteteValues[i]);
+        }
+    }
+
+    public void writeLigne(DeclarationXmlWriter xml, SqlStreamingService.StreamedRow row, int[] indexes)
+            throws XMLStreamException {
+        xml.startLigne();
+        for (int i = 0; i < ligneTags.length; i++) {
+            int idx = indexes[i];
+            xml.writeLigneField(ligneTags[i], idx >= 0 ? row.getString(idx) : "");
+        }
+        xml.endLigne();
+    }
+
+    public int getStaticCount()  { return staticCount; }
+    public int getSqlCount()     { return sqlCount; }
+    public int getIgnoredCount() { return ignoredCount; }
+    public int getLigneFieldCount() { return ligneTags.length; }
+
+    static String sanitizeTagName(String columnName) {
+        if (columnName == null || columnName.trim().isEmpty()) return "field";
+        String s = columnName.trim().replace(" ", "_");
+        if (Character.isDigit(s.charAt(0))) s = "col_" + s;
+        s = s.replaceAll("[^a-zA-Z0-9_\\-.]", "_");
+        return s.isEmpty() ? "field" : s;
+    }
+}
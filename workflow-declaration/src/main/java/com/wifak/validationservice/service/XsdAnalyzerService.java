@@ -1,5 +1,8 @@
 package com.wifak.validationservice.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -12,6 +15,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,6 +25,30 @@ public class XsdAnalyzerService {
     private static final int MAX_XSD_DEPTH = 10;
     private static final String XS_NS = "http://www.w3.org/2001/XMLSchema";
 
+    // Auto-mapping : colonne retenue à partir de SEUIL_AUTO_MAPPING, propositions à partir de SEUIL_CANDIDAT
+    private static final double SEUIL_AUTO_MAPPING = 0.6;
+    private static final double SEUIL_CANDIDAT     = 0.3;
+    private static final int    MAX_CANDIDATS      = 3;
+
+    // Champs XSD déjà analysés, par SHA-256 du XSD (XsdFieldInfo est immuable)
+    private final Map<String, List<XsdFieldInfo>> champsParXsd = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public XsdAnalyzerService(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("xsd.fields.cache")
+                .description("Accès au cache des champs XSD analysés")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("xsd.fields.cache")
+                .description("Accès au cache des champs XSD analysés")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("xsd.fields.cache.size", champsParXsd, Map::size)
+                .description("Nombre de XSD analysés en cache")
+                .register(meterRegistry);
+    }
+
     /**
      * Champs gÃ©nÃ©rÃ©s automatiquement par le backend dans l'en-tÃªte XML.
      * Ils ne doivent PAS apparaÃ®tre dans le panneau de mapping utilisateur.
@@ -70,6 +98,7 @@ public class XsdAnalyzerService {
         private Map<String, String>   autoMapped;
         private List<String>          unmappedXsdFields;
         private List<String>          unmappedSqlColumns;
+        private Map<String, List<ColonneIndex.Candidat>> candidates;
         private int                   compatibilityScore;
         private String                summary;
 
@@ -79,6 +108,9 @@ public class XsdAnalyzerService {
         public void setSqlColumns(List<String> v)           { sqlColumns = v; }
         public Map<String, String> getAutoMapped()          { return autoMapped; }
         public void setAutoMapped(Map<String, String> v)    { autoMapped = v; }
+        /** Colonnes proposées par champ XSD, score de similarité décroissant. */
+        public Map<String, List<ColonneIndex.Candidat>> getCandidates()       { return candidates; }
+        public void setCandidates(Map<String, List<ColonneIndex.Candidat>> v) { candidates = v; }
         public List<String> getUnmappedXsdFields()          { return unmappedXsdFields; }
         public void setUnmappedXsdFields(List<String> v)    { unmappedXsdFields = v; }
         public List<String> getUnmappedSqlColumns()         { return unmappedSqlColumns; }
@@ -92,7 +124,7 @@ public class XsdAnalyzerService {
     public MappingAnalysisResult analyzeCompatibility(String xsdContent, List<String> sqlColumns) {
         log.info("ðŸ” Analyse XSD â€” {} colonnes SQL disponibles", sqlColumns.size());
 
-        List<XsdFieldInfo> allFields  = parseXsdFields(xsdContent);
+        List<XsdFieldInfo> allFields  = fieldsFor(xsdContent);
 
         // âœ… Filtrer les champs d'en-tÃªte auto-gÃ©rÃ©s par le backend
         List<XsdFieldInfo> xsdFields = allFields.stream()
@@ -102,7 +134,8 @@ public class XsdAnalyzerService {
         log.info("ðŸ“‹ {} champs XSD mappables ({} ignorÃ©s car auto-gÃ©nÃ©rÃ©s)",
                 xsdFields.size(), allFields.size() - xsdFields.size());
 
-        Map<String, String> autoMapped    = buildAutoMapping(xsdFields, sqlColumns);
+        Map<String, List<ColonneIndex.Candidat>> candidates = buildCandidates(xsdFields, sqlColumns);
+        Map<String, String> autoMapped    = buildAutoMapping(xsdFields, candidates);
         List<String>        unmappedXsd   = computeUnmappedXsd(xsdFields, autoMapped);
         List<String>        unmappedSql   = computeUnmappedSql(sqlColumns, autoMapped);
         int                 score         = computeScore(xsdFields, autoMapped);
@@ -112,12 +145,39 @@ public class XsdAnalyzerService {
         result.setXsdFields(xsdFields);
         result.setSqlColumns(new ArrayList<>(sqlColumns));
         result.setAutoMapped(autoMapped);
+        result.setCandidates(candidates);
         result.setUnmappedXsdFields(unmappedXsd);
         result.setUnmappedSqlColumns(unmappedSql);
         result.setCompatibilityScore(score);
         result.setSummary(summary);
         return result;
     }
+    // CHAMPS XSD — analysés une fois par contenu
+    private List<XsdFieldInfo> fieldsFor(String xsdContent) {
+        if (xsdContent == null || xsdContent.trim().isEmpty()) {
+            return parseXsdFields(xsdContent);
+        }
+        String key = DeclarationContenuService.sha256(xsdContent.getBytes(StandardCharsets.UTF_8));
+        List<XsdFieldInfo> cached = champsParXsd.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        return champsParXsd.computeIfAbsent(key, k -> {
+            misses.increment();
+            return List.copyOf(parseXsdFields(xsdContent));
+        });
+    }
+
+    /** Retire du cache les champs analysés pour ce XSD (remplacé ou supprimé). */
+    public void evict(String xsdContent) {
+        if (xsdContent == null || xsdContent.isBlank()) return;
+        String key = DeclarationContenuService.sha256(xsdContent.getBytes(StandardCharsets.UTF_8));
+        if (champsParXsd.remove(key) != null) {
+            log.info("🧹 Champs XSD retirés du cache — {}", key);
+        }
+    }
+
     // âœ… PARSING XSD â€” robuste avec ou sans prologue <?xml?>
     private List<XsdFieldInfo> parseXsdFields(String xsdContent) {
         List<XsdFieldInfo> fields = new ArrayList<>();
@@ -318,41 +378,30 @@ public class XsdAnalyzerService {
         log.debug("  âœ… Champ: {} [{}] requis={}", path, resolvedType, required);
     }
     // AUTO-MAPPING XSD â†” SQL
-    private Map<String, String> buildAutoMapping(List<XsdFieldInfo> xsdFields,
-                                                 List<String> sqlColumns) {
-        Map<String, String> mapping = new LinkedHashMap<>();
-
-        // Index SQL normalisÃ© â†’ nom original
-        Map<String, String> sqlIndex = new LinkedHashMap<>();
-        for (String col : sqlColumns) {
-            sqlIndex.put(normalize(col), col);
-        }
-
+    // Index trigrammes + mots des colonnes : chaque champ n'évalue que les colonnes qui lui ressemblent
+    private Map<String, List<ColonneIndex.Candidat>> buildCandidates(List<XsdFieldInfo> xsdFields,
+                                                                   List<String> sqlColumns) {
+        ColonneIndex index = ColonneIndex.of(sqlColumns);
+        Map<String, List<ColonneIndex.Candidat>> candidates = new LinkedHashMap<>();
         for (XsdFieldInfo field : xsdFields) {
-            String normField = normalize(field.getName());
-
-            // 1) Correspondance exacte normalisÃ©e
-            if (sqlIndex.containsKey(normField)) {
-                mapping.put(field.getName(), sqlIndex.get(normField));
-                continue;
+            List<ColonneIndex.Candidat> proches = index.candidats(field.getName(), SEUIL_CANDIDAT, MAX_CANDIDATS);
+            if (!proches.isEmpty()) {
+                candidates.put(field.getName(), proches);
             }
+        }
+        return candidates;
+    }
 
-            // 2) Recherche partielle (XSD âŠ‚ SQL ou SQL âŠ‚ XSD)
-            String best = null;
-            for (Map.Entry<String, String> entry : sqlIndex.entrySet()) {
-                String normSql = entry.getKey();
-                if (normSql.contains(normField) || normField.contains(normSql)) {
-                    best = entry.getValue();
-                    break;
-                }
-            }
-            if (best != null) {
-                mapping.put(field.getName(), best);
+    private Map<String, String> buildAutoMapping(List<XsdFieldInfo> xsdFields,
+                                                 Map<String, List<ColonneIndex.Candidat>> candidates) {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (XsdFieldInfo field : xsdFields) {
+            List<ColonneIndex.Candidat> proches = candidates.get(field.getName());
+            if (proches != null && proches.get(0).getScore() >= SEUIL_AUTO_MAPPING) {
+                mapping.put(field.getName(), proches.get(0).getColonne());
             }
         }
-
-        log.info("ðŸ”— Auto-mapping : {}/{} champs mappÃ©s automatiquement",
-                mapping.size(), xsdFields.size());
+        log.info("🔗 Auto-mapping : {}/{} champs mappés automatiquement", mapping.size(), xsdFields.size());
         return mapping;
     }
     // HELPERS CALCUL
@@ -413,15 +462,6 @@ public class XsdAnalyzerService {
         }
     }
     // UTILITAIRES
-    /** Normalise un nom de champ pour la comparaison : minuscule, sans sÃ©parateurs. */
-    private String normalize(String name) {
-        if (name == null) return "";
-        return name.toLowerCase()
-                .replace("_", "")
-                .replace("-", "")
-                .replace(" ", "");
-    }
-
     /** Supprime le prÃ©fixe d'espace de noms (ex: xs:string â†’ string). */
     private String stripNsPrefix(String typeName) {
         if (typeName == null) return "";
@@ -0,0 +1,98 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache des XSD compilés, indexé par le SHA-256 du contenu XSD.
+ *
+ * Un {@link Schema} est immuable et utilisable depuis plusieurs threads ;
+ * seul le {@link javax.xml.validation.Validator} tiré de lui doit rester local.
+ * Le même XSD n'est donc compilé qu'une fois, jusqu'à son remplacement.
+ *
+ * Métriques : xsd.schema.cache{result=hit|miss}, xsd.schema.compile, xsd.schema.cache.size.
+ */
+@Service
+public class XsdSchemaCache {
+
+    private static final Logger log = LoggerFactory.getLogger(XsdSchemaCache.class);
+
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer   compileTimer;
+
+    public XsdSchemaCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("xsd.schema.cache")
+                .description("Accès au cache des XSD compilés")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("xsd.schema.cache")
+                .description("Accès au cache des XSD compilés")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.compileTimer = Timer.builder("xsd.schema.compile")
+                .description("Durée de compilation d'un XSD")
+                .register(meterRegistry);
+        Gauge.builder("xsd.schema.cache.size", schemas, Map::size)
+                .description("Nombre de XSD compilés en cache")
+                .register(meterRegistry);
+    }
+
+    /** Schéma compilé pour ce XSD — compilé au premier appel seulement. */
+    public Schema getSchema(String xsdContent) {
+        String key = DeclarationContenuService.sha256(xsdContent.getBytes(StandardCharsets.UTF_8));
+        Schema cached = schemas.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        // computeIfAbsent : deux générations simultanées ne compilent pas deux fois
+        return schemas.computeIfAbsent(key, k -> {
+            misses.increment();
+            return compileTimer.record(() -> compile(xsdContent, k));
+        });
+    }
+
+    /** Retire du cache le schéma compilé pour ce XSD (remplacé ou supprimé). */
+    public void evict(String xsdContent) {
+        if (xsdContent == null || xsdContent.isBlank()) return;
+        String key = DeclarationContenuService.sha256(xsdContent.getBytes(StandardCharsets.UTF_8));
+        if (schemas.remove(key) != null) {
+            log.info("🧹 XSD compilé retiré du cache — {}", key);
+        }
+    }
+
+    public int size() {
+        return schemas.size();
+    }
+
+    private Schema compile(String xsdContent, String key) {
+        try {
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            // ✅ Fix XXE — désactiver l'accès aux entités externes (CWE-611)
+            schemaFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            schemaFactory.setProperty(XMLConstants.ACCESS_EXTERNAL_SCHEMA, "");
+            Schema schema = schemaFactory.newSchema(new StreamSource(new StringReader(xsdContent)));
+            log.info("🧩 XSD compilé et mis en cache — {}", key);
+            return schema;
+        } catch (SAXException e) {
+            throw new RuntimeException("XSD invalide: " + e.getMessage(), e);
+        }
+    }
+}
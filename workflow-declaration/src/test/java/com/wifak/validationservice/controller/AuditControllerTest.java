@@ -2,6 +2,8 @@ package com.wifak.validationservice.controller;
 
 import com.wifak.validationservice.dto.AuditLogDTO;
 import com.wifak.validationservice.dto.AuditStatsDTO;
+import com.wifak.validationservice.dto.AuditLogPage;
+import com.wifak.validationservice.service.AuditExportService;
 import com.wifak.validationservice.service.AuditService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,11 +13,16 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,6 +33,58 @@ class AuditControllerTest {
 
     @Autowired MockMvc mockMvc;
     @MockBean  AuditService auditService;
+    @MockBean  AuditExportService exportService;
+    // GET /api/audit/logs/page
+    @Test
+    @WithMockUser(roles = "AUDITOR")
+    @DisplayName("GET /logs/page — filtres liés, page + curseur")
+    void getLogsPage_ok() throws Exception {
+        AuditLogDTO log = new AuditLogDTO();
+        log.setId(5L);
+        when(auditService.searchLogsPage(argThat(f -> "REJECT".equals(f.getAction())
+                && f.getFrom() != null && f.getFrom().getYear() == 2024), isNull(), eq(20)))
+            .thenReturn(new AuditLogPage(List.of(log), "abc"));
+
+        mockMvc.perform(get("/api/audit/logs/page")
+                .param("action", "REJECT").param("from", "2024-01-01").param("size", "20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(5))
+            .andExpect(jsonPath("$.nextCursor").value("abc"))
+            .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    @WithMockUser(roles = "AUDITOR")
+    @DisplayName("GET /logs/page — curseur invalide → 400")
+    void getLogsPage_curseurInvalide_badRequest() throws Exception {
+        when(auditService.searchLogsPage(any(), eq("x"), any()))
+            .thenThrow(new IllegalArgumentException("Curseur de pagination invalide"));
+
+        mockMvc.perform(get("/api/audit/logs/page").param("cursor", "x"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Curseur de pagination invalide"));
+    }
+    // GET /api/audit/logs/export
+    @Test
+    @WithMockUser(roles = "AUDITOR")
+    @DisplayName("GET /logs/export — NDJSON écrit en flux, en pièce jointe")
+    void exportLogs_ndjson() throws Exception {
+        doAnswer(inv -> {
+            OutputStream out = inv.getArgument(2);
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(exportService).export(any(), eq(AuditExportService.Format.NDJSON), any());
+
+        MvcResult started = mockMvc.perform(get("/api/audit/logs/export").param("format", "NDJSON"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "application/x-ndjson"))
+            .andExpect(header().string("Content-Disposition", org.hamcrest.Matchers.containsString(".ndjson")))
+            .andExpect(content().string("{\"id\":1}\n"));
+    }
     // GET /api/audit/logs
     @Test
     @WithMockUser(roles = "AUDITOR")
@@ -121,4 +180,17 @@ class AuditControllerTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.totalDeclarations").value(10));
     }
+
+    // POST /api/audit/rollups/rebuild
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("POST /rollups/rebuild — ADMIN → recalcul lancé, nombre de lignes écrites")
+    void rebuildRollups_admin_ok() throws Exception {
+        when(auditService.rebuildRollups()).thenReturn(12);
+
+        mockMvc.perform(post("/api/audit/rollups/rebuild").with(csrf()))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.lignes").value(12));
+        verify(auditService).rebuildRollups();
+    }
 }
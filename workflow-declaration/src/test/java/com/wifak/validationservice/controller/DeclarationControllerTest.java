@@ -1,12 +1,16 @@
 package com.wifak.validationservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.DeclarationPage;
+import com.wifak.validationservice.dto.DeclarationSummary;
 import com.wifak.validationservice.dto.GenerateDeclarationRequest;
 import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationContenu;
 import com.wifak.validationservice.entities.DeclarationType;
 import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import com.wifak.validationservice.service.DeclarationContenuService;
 import com.wifak.validationservice.service.DeclarationService;
-import com.wifak.validationservice.service.XmlGenerationService;
+import com.wifak.validationservice.service.SqlColumnCatalog;
 import com.wifak.validationservice.service.XsdAnalyzerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,10 +23,13 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -39,8 +46,9 @@ class DeclarationControllerTest {
 
     @MockBean DeclarationService declarationService;
     @MockBean XsdAnalyzerService xsdAnalyzerService;
-    @MockBean XmlGenerationService xmlGenerationService;
+    @MockBean SqlColumnCatalog columnCatalog;
     @MockBean DeclarationTypeRepository typeRepository;
+    @MockBean DeclarationContenuService contenuService;
 
     private Declaration declaration;
     private DeclarationType type;
@@ -63,47 +71,88 @@ class DeclarationControllerTest {
         declaration.setPeriode("2025-01");
         declaration.setNomFichier("declaration_DECL001_202501.xml");
         declaration.setContenuFichier("<xml>test</xml>");
+        declaration.setContenuHash("abc123");
     }
     // GET /api/declarations
     @Test
     @WithMockUser(roles = "AGENT")
     @DisplayName("GET / — retourne toutes les déclarations")
     void getAllDeclarations_ok() throws Exception {
-        when(declarationService.getAllDeclarations()).thenReturn(List.of(declaration));
+        when(declarationService.getAllDeclarations()).thenReturn(List.of(DeclarationSummary.of(declaration)));
 
         mockMvc.perform(get("/api/declarations"))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$[0].id").value(1))
-            .andExpect(jsonPath("$[0].statut").value("GENEREE"));
+            .andExpect(jsonPath("$[0].statut").value("GENEREE"))
+            .andExpect(jsonPath("$[0].declarationType.code").value("DECL001"))
+            .andExpect(jsonPath("$[0].declarationType.xsdContent").doesNotExist())
+            .andExpect(jsonPath("$[0].contenuFichier").doesNotExist())
+            .andExpect(jsonPath("$[0].sqlQueryUsed").doesNotExist());
     }
     // GET /api/declarations/my
     @Test
     @WithMockUser(roles = "AGENT")
     @DisplayName("GET /my — retourne les déclarations de l'agent")
     void getMyDeclarations_ok() throws Exception {
-        when(declarationService.getMyDeclarations()).thenReturn(List.of(declaration));
+        when(declarationService.getMyDeclarations()).thenReturn(List.of(DeclarationSummary.of(declaration)));
 
         mockMvc.perform(get("/api/declarations/my"))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$[0].periode").value("2025-01"));
     }
+    // GET /api/declarations/page
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    @DisplayName("GET /page — filtres liés depuis la query string, page + curseur")
+    void getPage_ok() throws Exception {
+        when(declarationService.searchDeclarations(any(), isNull(), eq(20)))
+            .thenReturn(new DeclarationPage(List.of(DeclarationSummary.of(declaration)), "abc"));
+
+        mockMvc.perform(get("/api/declarations/page")
+                .param("statut", "GENEREE")
+                .param("declarationTypeId", "1")
+                .param("genereDu", "2025-01-01")
+                .param("size", "20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(1))
+            .andExpect(jsonPath("$.nextCursor").value("abc"))
+            .andExpect(jsonPath("$.hasMore").value(true));
+
+        verify(declarationService).searchDeclarations(argThat(f ->
+                f.getStatut() == Declaration.DeclarationStatut.GENEREE
+                        && Long.valueOf(1L).equals(f.getDeclarationTypeId())
+                        && LocalDate.of(2025, 1, 1).equals(f.getGenereDu())), isNull(), eq(20));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /my/page — curseur invalide → 400")
+    void getMyPage_curseurInvalide_400() throws Exception {
+        when(declarationService.searchMyDeclarations(any(), eq("x"), any()))
+            .thenThrow(new IllegalArgumentException("Curseur de pagination invalide"));
+
+        mockMvc.perform(get("/api/declarations/my/page").param("cursor", "x"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Curseur de pagination invalide"));
+    }
     // GET /api/declarations/{id}
     @Test
     @WithMockUser(roles = "AGENT")
     @DisplayName("GET /{id} — retourne une déclaration par ID")
     void getById_ok() throws Exception {
-        when(declarationService.findById(1L)).thenReturn(declaration);
+        when(declarationService.findByIdWithContent(1L)).thenReturn(declaration);
 
         mockMvc.perform(get("/api/declarations/1"))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.id").value(1));
+            .andExpect(jsonPath("$.id").value(1))
+            .andExpect(jsonPath("$.contenuFichier").value("<xml>test</xml>"));
     }
 
     @Test
     @WithMockUser(roles = "AGENT")
     @DisplayName("GET /{id} — ID inexistant → 500")
     void getById_inexistant_error() throws Exception {
-        when(declarationService.findById(99L))
+        when(declarationService.findByIdWithContent(99L))
             .thenThrow(new RuntimeException("Déclaration introuvable: 99"));
 
         mockMvc.perform(get("/api/declarations/99"))
@@ -161,10 +210,55 @@ class DeclarationControllerTest {
     @DisplayName("GET /{id}/download — télécharge le fichier")
     void download_ok() throws Exception {
         when(declarationService.findById(1L)).thenReturn(declaration);
+        stubContenu("<xml>test</xml>");
 
         mockMvc.perform(get("/api/declarations/1/download"))
             .andExpect(status().isOk())
-            .andExpect(header().exists("Content-Disposition"));
+            .andExpect(header().exists("Content-Disposition"))
+            .andExpect(header().doesNotExist("Content-Encoding"))
+            .andExpect(content().string("<xml>test</xml>"));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /{id}/download — client gzip → octets stockés renvoyés tels quels")
+    void download_gzipAccepte_octetsCompresses() throws Exception {
+        byte[] stored = new byte[]{31, -117, 8, 0};
+        when(declarationService.findById(1L)).thenReturn(declaration);
+        DeclarationContenu contenu = contenu(15, stored);
+        when(contenuService.find("abc123")).thenReturn(Optional.of(contenu));
+        when(contenuService.openRaw(contenu)).thenReturn(new ByteArrayInputStream(stored));
+
+        mockMvc.perform(get("/api/declarations/1/download").header("Accept-Encoding", "gzip, deflate"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andExpect(content().bytes(stored));
+        verify(contenuService, never()).openStream(any(DeclarationContenu.class));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /{id}/download — gzip refusé (q=0) → contenu décompressé, sans Content-Encoding")
+    void download_gzipRefuse_decompresse() throws Exception {
+        when(declarationService.findById(1L)).thenReturn(declaration);
+        stubContenu("<xml>test</xml>");
+
+        mockMvc.perform(get("/api/declarations/1/download").header("Accept-Encoding", "gzip;q=0, identity"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist("Content-Encoding"))
+            .andExpect(content().string("<xml>test</xml>"));
+    }
+
+    @Test
+    @DisplayName("acceptsGzip — q-values et joker")
+    void acceptsGzip_qValues() {
+        assertThat(DeclarationController.acceptsGzip("gzip, deflate")).isTrue();
+        assertThat(DeclarationController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(DeclarationController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(DeclarationController.acceptsGzip("gzip; q=0.000, *")).isFalse();
+        assertThat(DeclarationController.acceptsGzip("*;q=0.1")).isTrue();
+        assertThat(DeclarationController.acceptsGzip("identity")).isFalse();
+        assertThat(DeclarationController.acceptsGzip(null)).isFalse();
     }
 
     @Test
@@ -172,7 +266,9 @@ class DeclarationControllerTest {
     @DisplayName("GET /{id}/download — contenu vide → 404")
     void download_contenuVide_notFound() throws Exception {
         declaration.setContenuFichier(null);
+        declaration.setContenuHash(null);
         when(declarationService.findById(1L)).thenReturn(declaration);
+        when(contenuService.find(null)).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/api/declarations/1/download"))
             .andExpect(status().isNotFound());
@@ -258,7 +354,7 @@ class DeclarationControllerTest {
     @DisplayName("POST /analyze-mapping — XML avec XSD et SQL → 200 avec analyse")
     void analyzeMapping_xml_ok() throws Exception {
         when(typeRepository.findById(1L)).thenReturn(java.util.Optional.of(type));
-        when(xmlGenerationService.extractColumnsFromSql(anyString(), any(), any()))
+        when(columnCatalog.columnNames(any(), anyString(), any(), any()))
             .thenReturn(java.util.List.of("col1", "col2"));
 
         XsdAnalyzerService.MappingAnalysisResult analysis = mock(XsdAnalyzerService.MappingAnalysisResult.class);
@@ -374,7 +470,7 @@ class DeclarationControllerTest {
     @DisplayName("POST /analyze-mapping — extractColumns échoue → continue avec liste vide")
     void analyzeMapping_extractColumnsEchoue_continueAvecListeVide() throws Exception {
         when(typeRepository.findById(1L)).thenReturn(java.util.Optional.of(type));
-        when(xmlGenerationService.extractColumnsFromSql(anyString(), any(), any()))
+        when(columnCatalog.columnNames(any(), anyString(), any(), any()))
             .thenThrow(new RuntimeException("SQL error"));
 
         XsdAnalyzerService.MappingAnalysisResult analysis = mock(XsdAnalyzerService.MappingAnalysisResult.class);
@@ -434,6 +530,7 @@ class DeclarationControllerTest {
     void download_csv_contentType() throws Exception {
         declaration.setNomFichier("declaration_DECL001_202501.csv");
         when(declarationService.findById(1L)).thenReturn(declaration);
+        stubContenu("a;b");
 
         mockMvc.perform(get("/api/declarations/1/download"))
             .andExpect(status().isOk())
@@ -446,6 +543,7 @@ class DeclarationControllerTest {
     void download_txt_contentType() throws Exception {
         declaration.setNomFichier("declaration_DECL001_202501.txt");
         when(declarationService.findById(1L)).thenReturn(declaration);
+        stubContenu("a;b");
 
         mockMvc.perform(get("/api/declarations/1/download"))
             .andExpect(status().isOk())
@@ -466,4 +564,20 @@ class DeclarationControllerTest {
                 .content("{\"xmlContent\": \"<xml>test</xml>\"}"))
             .andExpect(status().isInternalServerError());
     }
+
+    private void stubContenu(String texte) throws Exception {
+        byte[] raw = texte.getBytes(StandardCharsets.UTF_8);
+        DeclarationContenu contenu = contenu(raw.length, new byte[]{1, 2, 3});
+        when(contenuService.find("abc123")).thenReturn(Optional.of(contenu));
+        when(contenuService.openStream(contenu)).thenReturn(new ByteArrayInputStream(raw));
+    }
+
+    private DeclarationContenu contenu(long tailleOriginale, byte[] donnees) {
+        DeclarationContenu contenu = new DeclarationContenu();
+        contenu.setHash("abc123");
+        contenu.setCodec(DeclarationContenuService.CODEC_GZIP);
+        contenu.setTailleOriginale(tailleOriginale);
+        contenu.setTailleCompressee(donnees.length);
+        return contenu;
+    }
 }
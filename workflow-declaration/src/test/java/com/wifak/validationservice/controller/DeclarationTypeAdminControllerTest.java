@@ -2,10 +2,11 @@ package com.wifak.validationservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wifak.validationservice.entities.DeclarationType;
+import com.wifak.validationservice.entities.ValidationRule;
 import com.wifak.validationservice.repositories.ValidationRuleRepository;
 import com.wifak.validationservice.service.DeclarationTypeService;
 import com.wifak.validationservice.service.PdfGeneratorService;
-import com.wifak.validationservice.service.XmlGenerationService;
+import com.wifak.validationservice.service.SqlColumnCatalog;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -39,7 +40,7 @@ class DeclarationTypeAdminControllerTest {
     @MockBean DeclarationTypeService service;
     @MockBean ValidationRuleRepository validationRuleRepository;
     @MockBean PdfGeneratorService pdfGeneratorService;
-    @MockBean XmlGenerationService xmlGenerationService;
+    @MockBean SqlColumnCatalog columnCatalog;
 
     private DeclarationType type;
 
@@ -146,6 +147,39 @@ class DeclarationTypeAdminControllerTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$").isArray());
     }
+    // PUT /api/admin/declaration-types/{id}/validation-rules
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("PUT /{id}/validation-rules — règles remplacées → 200")
+    void saveValidationRules_ok() throws Exception {
+        ValidationRule rule = new ValidationRule();
+        rule.setChampConcerne("MontantImpaye");
+        rule.setTypeValidation(ValidationRule.TypeValidation.CALCUL);
+        rule.setParametre("<= MontantCredit");
+        when(service.saveValidationRules(eq(1L), anyList())).thenReturn(List.of(rule));
+
+        mockMvc.perform(put("/api/admin/declaration-types/1/validation-rules")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(rule))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].parametre").value("<= MontantCredit"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("PUT /{id}/validation-rules — règle invalide → 400")
+    void saveValidationRules_invalide() throws Exception {
+        when(service.saveValidationRules(eq(1L), anyList()))
+            .thenThrow(new IllegalArgumentException("Règles invalides : LONGUEUR_MAX sur 'Code'"));
+
+        mockMvc.perform(put("/api/admin/declaration-types/1/validation-rules")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"champConcerne\":\"Code\",\"typeValidation\":\"LONGUEUR_MAX\",\"parametre\":\"dix\"}]"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("Règles invalides : LONGUEUR_MAX sur 'Code'"));
+    }
     // POST /api/admin/declaration-types/{id}/xsd
     @Test
     @WithMockUser(roles = "ADMIN")
@@ -244,15 +278,21 @@ class DeclarationTypeAdminControllerTest {
     void testSqlQuery_ok() throws Exception {
         type.setSqlQuery("SELECT * FROM test");
         when(service.getById(1L)).thenReturn(type);
-        when(xmlGenerationService.extractColumnsFromSql(anyString(), any(), any()))
-            .thenReturn(List.of("col1", "col2"));
+        when(columnCatalog.describe(eq(1L), anyString(), any(), any()))
+            .thenReturn(List.of(
+                new SqlColumnCatalog.SqlColumn("col1", java.sql.Types.VARCHAR, "VARCHAR"),
+                new SqlColumnCatalog.SqlColumn("col2", java.sql.Types.DECIMAL, "DECIMAL")));
 
         mockMvc.perform(post("/api/admin/declaration-types/1/sql/test")
                 .with(csrf())
                 .contentType(MediaType.APPLICATION_JSON)
                 .content("{\"dateDebut\": \"2025-01-01\", \"dateFin\": \"2025-01-31\"}"))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$.success").value(true));
+            .andExpect(jsonPath("$.success").value(true))
+            .andExpect(jsonPath("$.colonnesDisponibles[1]").value("col2"))
+            .andExpect(jsonPath("$.colonnes[1].jdbcType").value("DECIMAL"));
+
+        verify(columnCatalog).evict(1L);
     }
 
     @Test
@@ -0,0 +1,171 @@
+package com.wifak.validationservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.GenerateDeclarationRequest;
+import com.wifak.validationservice.entities.GenerationJob;
+import com.wifak.validationservice.service.BatchGenerationService;
+import com.wifak.validationservice.service.GenerationJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(GenerationJobController.class)
+@ActiveProfiles("test")
+@DisplayName("GenerationJobController — Tests d'intégration")
+class GenerationJobControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired ObjectMapper objectMapper;
+
+    @MockBean GenerationJobService jobService;
+    @MockBean BatchGenerationService batchService;
+
+    private GenerationJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new GenerationJob();
+        job.setId(5L);
+        job.setDeclarationTypeId(1L);
+        job.setPeriode("2025-01");
+        job.setStatut(GenerationJob.JobStatut.EN_COURS);
+        job.setEtape("EXTRACTION");
+        job.setLignesTraitees(1200);
+        job.setOctetsEcrits(64000);
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("POST / — job créé → 202 avec l'ID du job")
+    void submit_accepted() throws Exception {
+        when(jobService.submit(eq(1L), eq("2025-01"), any(), any(), isNull())).thenReturn(job);
+        GenerateDeclarationRequest req = new GenerateDeclarationRequest(1L, "2025-01",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+
+        mockMvc.perform(post("/api/declarations/jobs")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(req)))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.id").value(5));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("POST / — file pleine → 503")
+    void submit_filePleine_503() throws Exception {
+        when(jobService.submit(any(), any(), any(), any(), any()))
+            .thenThrow(new IllegalStateException("File de génération pleine, réessayez plus tard"));
+
+        mockMvc.perform(post("/api/declarations/jobs")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"declarationTypeId\":1,\"periode\":\"2025-01\"}"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(jsonPath("$.error").exists());
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("POST /with-mapping — mapping vide → 400")
+    void submitWithMapping_mappingVide_400() throws Exception {
+        mockMvc.perform(post("/api/declarations/jobs/with-mapping")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"declarationTypeId\":1,\"periode\":\"2025-01\",\"mappings\":[]}"))
+            .andExpect(status().isBadRequest());
+        verifyNoInteractions(jobService);
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /{jobId} — avancement du job")
+    void getJob_ok() throws Exception {
+        when(jobService.getJob(5L)).thenReturn(job);
+
+        mockMvc.perform(get("/api/declarations/jobs/5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.statut").value("EN_COURS"))
+            .andExpect(jsonPath("$.etape").value("EXTRACTION"))
+            .andExpect(jsonPath("$.lignesTraitees").value(1200))
+            .andExpect(jsonPath("$.octetsEcrits").value(64000));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /{jobId} — job inconnu → 404")
+    void getJob_inconnu_404() throws Exception {
+        when(jobService.getJob(99L)).thenThrow(new RuntimeException("Job de génération introuvable: 99"));
+
+        mockMvc.perform(get("/api/declarations/jobs/99"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /my — jobs de l'utilisateur")
+    void getMyJobs_ok() throws Exception {
+        when(jobService.getMyJobs()).thenReturn(List.of(job));
+
+        mockMvc.perform(get("/api/declarations/jobs/my"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].id").value(5));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("POST /batch — lot lancé → 202 avec le rapport")
+    void submitBatch_accepted() throws Exception {
+        BatchGenerationService.BatchReport report = new BatchGenerationService.BatchReport("lot-1", "2025-01");
+        when(batchService.launch(eq("2025-01"), isNull(), isNull(), isNull())).thenReturn(report);
+
+        mockMvc.perform(post("/api/declarations/jobs/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"periode\":\"2025-01\"}"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.lotId").value("lot-1"))
+            .andExpect(jsonPath("$.periode").value("2025-01"));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("POST /batch — période invalide → 400")
+    void submitBatch_periodeInvalide_400() throws Exception {
+        when(batchService.launch(any(), any(), any(), any()))
+            .thenThrow(new IllegalArgumentException("La période est obligatoire"));
+
+        mockMvc.perform(post("/api/declarations/jobs/batch")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("La période est obligatoire"));
+    }
+
+    @Test
+    @WithMockUser(roles = "AGENT")
+    @DisplayName("GET /batch/{lotId} — lot inconnu → 404")
+    void getBatch_inconnu_404() throws Exception {
+        when(batchService.getReport("x")).thenThrow(new RuntimeException("Lot de génération introuvable: x"));
+
+        mockMvc.perform(get("/api/declarations/jobs/batch/x"))
+            .andExpect(status().isNotFound());
+    }
+}
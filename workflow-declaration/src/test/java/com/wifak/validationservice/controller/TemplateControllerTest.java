@@ -4,14 +4,18 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.wifak.validationservice.service.TemplateService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -30,6 +34,14 @@ class TemplateControllerTest {
     @Autowired ObjectMapper objectMapper;
 
     @MockBean TemplateService templateService;
+
+    @TempDir static Path generatedDir;
+
+    // Les fichiers générés par /generate-and-save ne doivent pas atterrir dans le module
+    @DynamicPropertySource
+    static void generatedDir(DynamicPropertyRegistry registry) {
+        registry.add("file.generated-dir", () -> generatedDir.toString());
+    }
     // POST /api/templates/generate
     @Test
     @WithMockUser(roles = "AGENT")
@@ -91,7 +103,8 @@ class TemplateControllerTest {
                 .content(objectMapper.writeValueAsString(request)))
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.success").value(true))
-            .andExpect(jsonPath("$.fileName").exists());
+            .andExpect(jsonPath("$.fileName").exists())
+            .andExpect(jsonPath("$.filePath").value(org.hamcrest.Matchers.startsWith(generatedDir.toString())));
     }
 
     @Test
@@ -1,6 +1,8 @@
 package com.wifak.validationservice.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.DeclarationSummary;
+import com.wifak.validationservice.dto.PendingQueue;
 import com.wifak.validationservice.dto.RejectRequest;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.DeclarationType;
@@ -56,11 +58,45 @@ class ValidationControllerTest {
     @WithMockUser(roles = "MANAGER")
     @DisplayName("GET /pending — retourne liste des déclarations en attente")
     void getPending_manager_ok() throws Exception {
-        when(validationService.getPendingDeclarations()).thenReturn(List.of(declaration));
+        when(validationService.getPendingDeclarations()).thenReturn(List.of(DeclarationSummary.of(declaration)));
 
         mockMvc.perform(get("/api/validation/pending"))
             .andExpect(status().isOk())
-            .andExpect(jsonPath("$[0].id").value(1));
+            .andExpect(jsonPath("$[0].id").value(1))
+            .andExpect(jsonPath("$[0].declarationType.code").value("DECL001"))
+            .andExpect(jsonPath("$[0].contenuFichier").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    @DisplayName("GET /pending/queue — page triée, champs du résumé à plat + échéance, compteurs du badge")
+    void getPendingQueue_manager_ok() throws Exception {
+        PendingQueue.Item item = new PendingQueue.Item(DeclarationSummary.of(declaration),
+            java.time.LocalDate.of(2025, 2, 15), 3L, 2L);
+        when(validationService.getPendingQueue(PendingQueue.Tri.ECHEANCE, 0, 20))
+            .thenReturn(new PendingQueue(List.of(item), 0, 20, PendingQueue.Tri.ECHEANCE,
+                new PendingQueue.Compteurs(1, 0, 1)));
+
+        mockMvc.perform(get("/api/validation/pending/queue")
+                .param("tri", "ECHEANCE").param("page", "0").param("size", "20"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items[0].id").value(1))
+            .andExpect(jsonPath("$.items[0].echeance").value("2025-02-15"))
+            .andExpect(jsonPath("$.items[0].contenuFichier").doesNotExist())
+            .andExpect(jsonPath("$.compteurs.echeanceProche").value(1));
+    }
+
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    @DisplayName("GET /pending/count — compteurs du badge seuls")
+    void getPendingCount_manager_ok() throws Exception {
+        when(validationService.getPendingCompteurs()).thenReturn(new PendingQueue.Compteurs(7, 2, 1));
+
+        mockMvc.perform(get("/api/validation/pending/count"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(7))
+            .andExpect(jsonPath("$.enRetard").value(2))
+            .andExpect(jsonPath("$.items").doesNotExist());
     }
 
     @Test
@@ -170,6 +206,18 @@ class ValidationControllerTest {
             .andExpect(jsonPath("$.diff").value("minor"));
     }
 
+    @Test
+    @WithMockUser(roles = "MANAGER")
+    @DisplayName("GET /{id}/compare/previous → 200, résolue côté serveur")
+    void compareWithPreviousPeriod_ok() throws Exception {
+        when(validationService.compareWithPreviousPeriod(1L))
+            .thenReturn(java.util.Map.of("declarationPrecedenteId", 5));
+
+        mockMvc.perform(get("/api/validation/1/compare/previous"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.declarationPrecedenteId").value(5));
+    }
+
     @Test
     @WithMockUser(roles = "AGENT")
     @DisplayName("POST /{id}/submit avec correctionComment → 200")
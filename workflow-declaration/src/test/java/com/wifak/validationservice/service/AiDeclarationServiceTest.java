@@ -0,0 +1,167 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.dto.AiValidationResult;
+import com.wifak.validationservice.entities.ValidationRule;
+import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import com.wifak.validationservice.repositories.ValidationRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("AiDeclarationService — Tests unitaires")
+class AiDeclarationServiceTest {
+
+    private final DeclarationTypeRepository typeRepository = mock(DeclarationTypeRepository.class);
+    private final ValidationRuleRepository ruleRepository = mock(ValidationRuleRepository.class);
+    private final ValidationPlanCache planCache =
+            new ValidationPlanCache(typeRepository, ruleRepository, new SimpleMeterRegistry());
+    private final AiDeclarationService service = new AiDeclarationService(null, 2000, planCache);
+
+    private static String bct05(int nombreLignes, String... lignes) {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<Declaration code=\"BCT_05\" periode=\"2025-01\" dateDebut=\"2025-01-01\" dateFin=\"2025-01-31\">")
+                .append("<Entete><CodeDeclaration>BCT_05</CodeDeclaration>")
+                .append("<NombreLignes>").append(nombreLignes).append("</NombreLignes></Entete><Donnees>");
+        for (String l : lignes) sb.append("<Ligne>").append(l).append("</Ligne>");
+        return sb.append("</Donnees></Declaration>").toString();
+    }
+
+    private static String ligne(String id, String credit, String impaye, String classe, String provision) {
+        return "<IdClient>" + id + "</IdClient><NomClient>Société " + id + "</NomClient>"
+                + "<MontantCredit>" + credit + "</MontantCredit><MontantImpaye>" + impaye + "</MontantImpaye>"
+                + "<ClasseRisque>" + classe + "</ClasseRisque><Provision>" + provision + "</Provision>"
+                + "<DureeRetard>0</DureeRetard><TypeClient>PME</TypeClient>"
+                + "<DateClassification>2025-01-15</DateClassification>";
+    }
+
+    @Test
+    @DisplayName("analyzeDeclaration — BCT_05 conforme → score 100, VALIDATE")
+    void analyze_conforme() {
+        String xml = bct05(2, ligne("C1", "1000", "100", "B", "10"), ligne("C2", "500", "0", "A", "0"));
+
+        AiValidationResult result = service.analyzeDeclaration(xml, "decl.xml");
+
+        assertThat(result.getScore()).isEqualTo(100);
+        assertThat(result.getRecommendation()).isEqualTo("VALIDATE");
+        assertThat(result.getAnomalies()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("analyzeDeclaration — doublon, impayé > crédit, NombreLignes faux → anomalies dans l'ordre des lignes")
+    void analyze_anomalies() {
+        String xml = bct05(3, ligne("C1", "1000", "2000", "A", "500"), ligne("C1", "500", "0", "A", "0"));
+
+        AiValidationResult result = service.analyzeDeclaration(xml, "decl.xml");
+
+        assertThat(result.getAnomalies()).hasSize(3);
+        assertThat(result.getAnomalies().get(0)).contains("2 ligne(s)");
+        assertThat(result.getAnomalies().get(1)).startsWith("Ligne 1 [C1] CRITIQUE");
+        assertThat(result.getAnomalies().get(2)).startsWith("Ligne 2 : IdClient 'C1' en double");
+        assertThat(result.getScore()).isEqualTo(100 - 15 - 2 * 8);
+    }
+
+    @Test
+    @DisplayName("analyzeDeclaration — évaluation parallèle par lots → mêmes anomalies, même ordre, même score")
+    void analyze_parallele_identiqueAuSequentiel() {
+        List<String> lignes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // Doublons à cheval sur plusieurs lots, impayés > crédit et valeurs fictives dispersés
+            String id = "C" + (i % 7 == 0 ? i / 2 : i);
+            String impaye = i % 11 == 0 ? "5000" : "100";
+            String classe = i % 13 == 0 ? "test" : "B";
+            lignes.add(ligne(id, "1000", impaye, classe, "10"));
+        }
+        String xml = bct05(500, lignes.toArray(String[]::new));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            AiValidationResult sequentiel = service.analyzeDeclaration(xml, "decl.xml");
+            AiValidationResult parallele = new AiDeclarationService(pool, 7, planCache).analyzeDeclaration(xml, "decl.xml");
+
+            assertThat(parallele.getAnomalies()).containsExactlyElementsOf(sequentiel.getAnomalies());
+            assertThat(parallele.getScore()).isEqualTo(sequentiel.getScore());
+            assertThat(parallele.getAnomalies()).anyMatch(a -> a.contains("en double"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("analyzeDeclaration — type défini en base → ses règles remplacent le contrôle générique")
+    void analyze_reglesEnBase() {
+        ValidationRule obligatoire = new ValidationRule();
+        obligatoire.setChampConcerne("Compte");
+        obligatoire.setTypeValidation(ValidationRule.TypeValidation.CHAMP_OBLIGATOIRE);
+        ValidationRule plafond = new ValidationRule();
+        plafond.setChampConcerne("Solde");
+        plafond.setTypeValidation(ValidationRule.TypeValidation.CALCUL);
+        plafond.setObligatoire(false);
+        plafond.setParametre("<= Plafond");
+        DeclarationTypeRepository.TypeVersion version = mock(DeclarationTypeRepository.TypeVersion.class);
+        when(version.getId()).thenReturn(9L);
+        when(typeRepository.findVersionByCode("BCT_09")).thenReturn(Optional.of(version));
+        when(ruleRepository.findByDeclarationTypeId(9L)).thenReturn(List.of(obligatoire, plafond));
+        String xml = "<Declaration code=\"BCT_09\" periode=\"2025-01\" dateDebut=\"2025-01-01\" dateFin=\"2025-01-31\">"
+                + "<Donnees><Ligne><Compte>401</Compte><Solde>50</Solde><Plafond>100</Plafond><Note></Note></Ligne>"
+                + "<Ligne><Compte></Compte><Solde>150</Solde><Plafond>100</Plafond><Note>x</Note></Ligne></Donnees></Declaration>";
+
+        AiValidationResult result = service.analyzeDeclaration(xml, "decl.xml");
+
+        assertThat(result.getAnomalies()).containsExactly(
+                "Ligne 2 : Champ obligatoire 'Compte' absent ou vide",
+                "Ligne 2 : Solde (150.00) doit être <= Plafond (100.00)");
+    }
+
+    @Test
+    @DisplayName("analyzeDeclaration — XML malformé → REJECT, score 0")
+    void analyze_malforme() {
+        AiValidationResult result = service.analyzeDeclaration("<Declaration><Ligne></Declaration>", "decl.xml");
+
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getScore()).isZero();
+        assertThat(result.getAnomalies()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("buildAiSummary — totaux, répartition et anomalies en une passe")
+    void summary_totaux() {
+        String xml = bct05(2, ligne("C1", "1000", "200", "D", "50"), ligne("C2", "500", "0", "A", "0"));
+
+        Map<String, Object> summary = service.buildAiSummary(xml, "decl.xml");
+
+        assertThat(summary).containsEntry("periode", "2025-01")
+                .containsEntry("codeDeclaration", "BCT_05")
+                .containsEntry("nombreLignes", 2)
+                .containsEntry("totalMontantCredit", 1500.0)
+                .containsEntry("totalMontantImpaye", 200.0)
+                .containsEntry("nombreAnomaliesMajeures", 1L);
+        assertThat(summary.get("repartitionClasses")).isEqualTo(Map.of("D", 1, "A", 1));
+    }
+
+    @Test
+    @DisplayName("compareWithPrevious — variations globales et mouvements par client")
+    @SuppressWarnings("unchecked")
+    void compare_variationsEtMouvements() {
+        String precedente = bct05(2, ligne("C1", "1000", "100", "A", "5"), ligne("C2", "500", "0", "A", "0"));
+        String courante   = bct05(2, ligne("C1", "1000", "400", "A", "20"), ligne("C3", "300", "0", "A", "0"));
+
+        Map<String, Object> result = service.compareWithPrevious(courante, precedente);
+
+        assertThat(result).containsEntry("available", true)
+                .containsEntry("variationImpaye", 300.0)
+                .containsEntry("variationLignes", 0.0);
+        assertThat(result.get("entites")).isEqualTo(Map.of(
+                "communes", 1, "modifiees", 1, "apparues", 1, "disparues", 1, "sansIdentifiant", 0));
+        List<Map<String, Object>> mouvements = (List<Map<String, Object>>) result.get("principauxMouvements");
+        assertThat(mouvements).extracting(m -> m.get("id")).containsExactly("C2", "C1", "C3");
+        assertThat((Map<String, Object>) result.get("depassementsSeuil")).containsEntry("nombre", 1);
+    }
+}
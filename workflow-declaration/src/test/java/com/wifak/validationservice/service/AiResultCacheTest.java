@@ -0,0 +1,142 @@
+package com.wifak.validationservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.AiValidationResult;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationAnalyse;
+import com.wifak.validationservice.repositories.DeclarationAnalyseRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("AiResultCache — Tests unitaires")
+class AiResultCacheTest {
+
+    @Mock private DeclarationAnalyseRepository repository;
+
+    private AiResultCache cache;
+    private Declaration declaration;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AiResultCache(repository, new ObjectMapper(), new SimpleMeterRegistry());
+        declaration = new Declaration();
+        declaration.setContenuHash("h1");
+        declaration.setNomFichier("BCT_05_2025-01.xml");
+    }
+
+    private static AiValidationResult resultat(int score) {
+        AiValidationResult r = new AiValidationResult();
+        r.setValid(score >= 70);
+        r.setScore(score);
+        r.setRecommendation(score >= 70 ? "VALIDATE" : "REJECT");
+        r.setAnomalies(List.of("Ligne 1 : anomalie"));
+        return r;
+    }
+
+    private static DeclarationAnalyse ligne(String json, int version) {
+        DeclarationAnalyse a = new DeclarationAnalyse();
+        a.setContenuHash("h1");
+        a.setType(AiResultCache.ANALYSE);
+        a.setVariante("BCT_05_2025-01.xml");
+        a.setVersion(version);
+        a.setResultatJson(json);
+        return a;
+    }
+
+    @Test
+    @DisplayName("analyse — absent → calculé puis conservé sous l'empreinte du contenu")
+    void analyse_absent_calculeEtConserve() {
+        when(repository.findByContenuHashAndTypeAndVariante("h1", "ANALYSE", "BCT_05_2025-01.xml"))
+                .thenReturn(Optional.empty());
+
+        AiValidationResult result = cache.analyse(declaration, () -> resultat(55));
+
+        ArgumentCaptor<DeclarationAnalyse> captor = ArgumentCaptor.forClass(DeclarationAnalyse.class);
+        verify(repository).save(captor.capture());
+        assertThat(result.getScore()).isEqualTo(55);
+        assertThat(captor.getValue().getContenuHash()).isEqualTo("h1");
+        assertThat(captor.getValue().getVersion()).isEqualTo(AiResultCache.VERSION);
+        assertThat(captor.getValue().getResultatJson()).contains("\"score\":55");
+    }
+
+    @Test
+    @DisplayName("analyse — conservé, même version → relu sans calcul")
+    void analyse_conserve_sansCalcul() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(resultat(82));
+        when(repository.findByContenuHashAndTypeAndVariante("h1", "ANALYSE", "BCT_05_2025-01.xml"))
+                .thenReturn(Optional.of(ligne(json, AiResultCache.VERSION)));
+
+        AiValidationResult result = cache.analyse(declaration, () -> {
+            throw new AssertionError("ne doit pas recalculer");
+        });
+
+        assertThat(result.getScore()).isEqualTo(82);
+        assertThat(result.isValid()).isTrue();
+        assertThat(result.getAnomalies()).containsExactly("Ligne 1 : anomalie");
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("analyse — autre version des règles → recalculé, la ligne existante est mise à jour")
+    void analyse_versionPerimee_recalcule() {
+        DeclarationAnalyse perimee = ligne("{\"score\":10}", AiResultCache.VERSION - 1);
+        when(repository.findByContenuHashAndTypeAndVariante("h1", "ANALYSE", "BCT_05_2025-01.xml"))
+                .thenReturn(Optional.of(perimee));
+
+        AiValidationResult result = cache.analyse(declaration, () -> resultat(95));
+
+        assertThat(result.getScore()).isEqualTo(95);
+        verify(repository).save(perimee);
+        assertThat(perimee.getVersion()).isEqualTo(AiResultCache.VERSION);
+    }
+
+    @Test
+    @DisplayName("resume — map relue avec le même ordre de clés")
+    void resume_ordreConserve() {
+        Map<String, Object> resume = new LinkedHashMap<>();
+        resume.put("periode", "2025-01");
+        resume.put("nombreLignes", 2);
+        resume.put("totalMontantCredit", 1500.0);
+        when(repository.findByContenuHashAndTypeAndVariante(anyString(), anyString(), anyString()))
+                .thenReturn(Optional.empty());
+        cache.resume(declaration, () -> resume);
+        ArgumentCaptor<DeclarationAnalyse> captor = ArgumentCaptor.forClass(DeclarationAnalyse.class);
+        verify(repository).save(captor.capture());
+        when(repository.findByContenuHashAndTypeAndVariante("h1", "RESUME", "BCT_05_2025-01.xml"))
+                .thenReturn(Optional.of(captor.getValue()));
+
+        Map<String, Object> relu = cache.resume(declaration, Map::of);
+
+        assertThat(relu).containsExactlyEntriesOf(resume);
+    }
+
+    @Test
+    @DisplayName("comparaison — sans précédente ou sans empreinte → calculé, rien n'est conservé")
+    void comparaison_sansPrecedente_nonConservee() {
+        Declaration sansContenu = new Declaration();
+
+        cache.comparaison(declaration, null, () -> Map.of("available", false));
+        cache.comparaison(declaration, sansContenu, () -> Map.of("available", false));
+        cache.analyse(sansContenu, () -> resultat(70));
+
+        verifyNoInteractions(repository);
+    }
+}
@@ -0,0 +1,85 @@
+package com.wifak.validationservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.repositories.ValidationLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ActiveProfiles("test")
+@DisplayName("AuditExportService — Tests unitaires")
+class AuditExportServiceTest {
+
+    @Mock private ValidationLogRepository logRepository;
+
+    private AuditExportService service;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        service = new AuditExportService(logRepository, mapper);
+
+        AuditLogDTO reject = new AuditLogDTO(2L, 10L, "BCT_01", "Crédits", "2025-01",
+            Declaration.DeclarationStatut.REJETEE, "REJECT", "EN_VALIDATION", "REJETEE",
+            "manager1", "Montants; \"faux\"", LocalDateTime.of(2025, 2, 3, 10, 15));
+        AuditLogDTO orphan = new AuditLogDTO(1L, 99L, null, null, null, null,
+            "SUBMIT", "GENEREE", "EN_VALIDATION", "agent1", null, LocalDateTime.of(2025, 2, 1, 9, 0));
+        when(logRepository.streamAuditLogs(any()))
+            .thenReturn(Stream.of(reject, orphan).onClose(() -> closed.set(true)));
+    }
+
+    @Test
+    @DisplayName("export CSV — en-tête, échappement des séparateurs et guillemets, curseur fermé")
+    void export_csv() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = service.export(new AuditLogFilter(), AuditExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("id;dateAction;action;");
+        assertThat(lines[1]).contains("\"Montants; \"\"faux\"\"\"").contains("BCT_01").endsWith("REJETEE");
+        assertThat(lines[2]).startsWith("1;2025-02-01T09:00;SUBMIT;").endsWith(";99;;;;");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    @DisplayName("export NDJSON — un objet JSON par ligne, sans en-tête")
+    void export_ndjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(null, AuditExportService.Format.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{").contains("\"declarationCode\":\"BCT_01\"")
+            .contains("\"dateAction\":\"2025-02-03T10:15:00\"");
+        assertThat(lines[1]).contains("\"declarationCode\":null");
+        assertThat(closed).isTrue();
+    }
+}
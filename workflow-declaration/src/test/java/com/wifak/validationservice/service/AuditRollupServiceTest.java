@@ -0,0 +1,96 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.dto.AuditStatsDTO;
+import com.wifak.validationservice.repositories.AuditRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ActiveProfiles("test")
+@DisplayName("AuditRollupService — Tests unitaires")
+class AuditRollupServiceTest {
+
+    @Mock private AuditRollupRepository rollupRepository;
+
+    private AuditRollupService service;
+
+    private static final LocalDate JOUR = LocalDate.of(2025, 3, 14);
+
+    @BeforeEach
+    void setUp() {
+        service = new AuditRollupService(rollupRepository, false);
+    }
+
+    @Test
+    @DisplayName("record — une seule instruction d'insertion ou d'incrément, première action du jour comprise")
+    void record_upsert() {
+        service.record("REJECT", "manager1", JOUR.atTime(18, 0));
+
+        verify(rollupRepository).increment(JOUR, "REJECT", "manager1");
+        verify(rollupRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("rebuild — recalcul en base depuis validation_logs, sans vider la table")
+    void rebuild_enBase() {
+        when(rollupRepository.rebuildFromLogs()).thenReturn(2);
+
+        service.rebuild();
+
+        verify(rollupRepository).rebuildFromLogs();
+        verify(rollupRepository, never()).deleteAllInBatch();
+        verify(rollupRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("démarrage — agrégats présents : recalcul seulement si rebuild-on-startup est activé")
+    void demarrage_recalculSurOption() {
+        when(rollupRepository.count()).thenReturn(42L);
+
+        service.onApplicationReady();
+        verify(rollupRepository, never()).rebuildFromLogs();
+
+        new AuditRollupService(rollupRepository, true).onApplicationReady();
+        verify(rollupRepository).rebuildFromLogs();
+    }
+
+    @Test
+    @DisplayName("démarrage — table vide (base existante, première mise en service) → amorçage automatique")
+    void demarrage_tableVide_amorcage() {
+        when(rollupRepository.count()).thenReturn(0L);
+
+        service.onApplicationReady();
+
+        verify(rollupRepository).rebuildFromLogs();
+    }
+
+    @Test
+    @DisplayName("getTopUsers — limite appliquée en base via la pagination")
+    void getTopUsers_limiteEnBase() {
+        when(rollupRepository.sumByUser(List.of("SUBMIT"), PageRequest.of(0, 5)))
+            .thenReturn(List.<Object[]>of(new Object[]{ "agent1", 7L }));
+
+        List<AuditStatsDTO.UserActionCount> top = service.getTopUsers(List.of("SUBMIT"), 5);
+
+        assertThat(top).singleElement().satisfies(u -> {
+            assertThat(u.getUsername()).isEqualTo("agent1");
+            assertThat(u.getCount()).isEqualTo(7L);
+        });
+    }
+}
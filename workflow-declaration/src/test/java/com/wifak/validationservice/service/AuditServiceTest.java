@@ -1,5 +1,8 @@
 package com.wifak.validationservice.service;
 
+import com.wifak.validationservice.dto.AuditLogDTO;
+import com.wifak.validationservice.dto.AuditLogFilter;
+import com.wifak.validationservice.dto.AuditLogPage;
 import com.wifak.validationservice.dto.AuditStatsDTO;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.DeclarationType;
@@ -16,12 +19,17 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +40,7 @@ class AuditServiceTest {
 
     @Mock private ValidationLogRepository logRepository;
     @Mock private DeclarationService declarationService;
+    @Mock private AuditRollupService rollupService;
 
     @InjectMocks
     private AuditService auditService;
@@ -78,11 +87,21 @@ class AuditServiceTest {
         rejectLog.setCommentaire("Format incorrect");
         rejectLog.setDateAction(LocalDateTime.now());
     }
+    // Ligne telle que produite par ValidationLogRepository.AUDIT_SELECT
+    private AuditLogDTO auditLog(ValidationLog l, Declaration d) {
+        return new AuditLogDTO(l.getId(), l.getDeclarationId(),
+            d != null ? d.getDeclarationType().getCode() : null,
+            d != null ? d.getDeclarationType().getNom() : null,
+            d != null ? d.getPeriode() : null,
+            d != null ? d.getStatut() : null,
+            l.getAction(), l.getStatutAvant(), l.getStatutApres(),
+            l.getEffectuePar(), l.getCommentaire(), l.getDateAction());
+    }
     // getAllLogs
     @Test
     @DisplayName("getAllLogs — retourne liste vide si aucun log")
     void getAllLogs_listeVide() {
-        when(logRepository.findAllByOrderByDateActionDesc()).thenReturn(Collections.emptyList());
+        when(logRepository.findAuditLogs()).thenReturn(Collections.emptyList());
 
         var result = auditService.getAllLogs();
 
@@ -90,33 +109,36 @@ class AuditServiceTest {
     }
 
     @Test
-    @DisplayName("getAllLogs — enrichit les logs avec les infos déclaration")
+    @DisplayName("getAllLogs — logs enrichis par la jointure, aucune lecture de déclaration")
     void getAllLogs_enrichitAvecDeclaration() {
-        when(logRepository.findAllByOrderByDateActionDesc()).thenReturn(List.of(submitLog));
-        when(declarationService.findById(1L)).thenReturn(declaration);
+        when(logRepository.findAuditLogs()).thenReturn(List.of(auditLog(submitLog, declaration)));
 
         var result = auditService.getAllLogs();
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getDeclarationCode()).isEqualTo("DECL001");
+        assertThat(result.get(0).getDeclarationStatut()).isEqualTo("VALIDEE");
         assertThat(result.get(0).getAction()).isEqualTo("SUBMIT");
+        verifyNoInteractions(declarationService);
     }
 
     @Test
-    @DisplayName("getAllLogs — gère déclaration introuvable sans exception")
+    @DisplayName("getAllLogs — déclaration supprimée → log conservé sans infos déclaration")
     void getAllLogs_declarationIntrouvable_pasException() {
-        when(logRepository.findAllByOrderByDateActionDesc()).thenReturn(List.of(submitLog));
-        when(declarationService.findById(1L)).thenThrow(new RuntimeException("Not found"));
+        when(logRepository.findAuditLogs()).thenReturn(List.of(auditLog(submitLog, null)));
+
+        var result = auditService.getAllLogs();
 
-        assertThatCode(() -> auditService.getAllLogs()).doesNotThrowAnyException();
+        assertThat(result).hasSize(1);
+        assertThat(result.get(0).getDeclarationCode()).isNull();
+        assertThat(result.get(0).getDeclarationStatut()).isNull();
     }
     // getLogsByDeclaration
     @Test
     @DisplayName("getLogsByDeclaration — retourne les logs d'une déclaration")
     void getLogsByDeclaration_retourneLogs() {
-        when(logRepository.findByDeclarationIdOrderByDateActionDesc(1L))
-            .thenReturn(List.of(submitLog, validateLog));
-        when(declarationService.findById(1L)).thenReturn(declaration);
+        when(logRepository.findAuditLogsByDeclarationId(1L))
+            .thenReturn(List.of(auditLog(submitLog, declaration), auditLog(validateLog, declaration)));
 
         var result = auditService.getLogsByDeclaration(1L);
 
@@ -145,7 +167,7 @@ class AuditServiceTest {
         declStats.setEnValidation(0L);
 
         when(declarationService.getStats()).thenReturn(declStats);
-        when(logRepository.findAll()).thenReturn(List.of(submitLog, validateLog, rejectLog));
+        when(rollupService.getActionCounts()).thenReturn(Map.of("SUBMIT", 1L, "VALIDATE", 1L, "REJECT", 1L));
 
         AuditStatsDTO stats = auditService.getAuditStats();
 
@@ -156,6 +178,8 @@ class AuditServiceTest {
         assertThat(stats.getTotalSoumissions()).isEqualTo(1L);
         assertThat(stats.getTotalValidations()).isEqualTo(1L);
         assertThat(stats.getTotalRejets()).isEqualTo(1L);
+        assertThat(stats.getTotalEnvois()).isZero();
+        verify(logRepository, never()).findAll();
     }
 
     @Test
@@ -165,7 +189,7 @@ class AuditServiceTest {
         declStats.setTotal(0L);
 
         when(declarationService.getStats()).thenReturn(declStats);
-        when(logRepository.findAll()).thenReturn(Collections.emptyList());
+        when(rollupService.getActionCounts()).thenReturn(Collections.emptyMap());
 
         AuditStatsDTO stats = auditService.getAuditStats();
 
@@ -174,31 +198,91 @@ class AuditServiceTest {
     }
 
     @Test
-    @DisplayName("getAuditStats — topAgents triés par nombre de soumissions")
+    @DisplayName("getAuditStats — top agents (SUBMIT) et managers (VALIDATE + REJECT) lus dans les agrégats")
     void getAuditStats_topAgentsTries() {
-        ValidationLog submit2 = new ValidationLog();
-        submit2.setDeclarationId(2L);
-        submit2.setAction("SUBMIT");
-        submit2.setEffectuePar("agent1");
-        submit2.setDateAction(LocalDateTime.now());
-
-        DeclarationService.DeclarationStats declStats = new DeclarationService.DeclarationStats();
-        when(declarationService.getStats()).thenReturn(declStats);
-        when(logRepository.findAll()).thenReturn(List.of(submitLog, submit2, validateLog));
+        when(declarationService.getStats()).thenReturn(new DeclarationService.DeclarationStats());
+        when(rollupService.getActionCounts()).thenReturn(Map.of("SUBMIT", 3L));
+        when(rollupService.getTopUsers(List.of("SUBMIT"), 5))
+            .thenReturn(List.of(new AuditStatsDTO.UserActionCount("agent1", 2L),
+                                new AuditStatsDTO.UserActionCount("agent2", 1L)));
+        when(rollupService.getTopUsers(List.of("VALIDATE", "REJECT"), 5))
+            .thenReturn(List.of(new AuditStatsDTO.UserActionCount("manager1", 1L)));
 
         AuditStatsDTO stats = auditService.getAuditStats();
 
         assertThat(stats.getTopAgents()).isNotEmpty();
         assertThat(stats.getTopAgents().get(0).getUsername()).isEqualTo("agent1");
         assertThat(stats.getTopAgents().get(0).getCount()).isEqualTo(2L);
+        assertThat(stats.getTopManagers()).extracting(AuditStatsDTO.UserActionCount::getUsername)
+            .containsExactly("manager1");
+    }
+
+    @Test
+    @DisplayName("getAuditStats — 30 jours et 12 mois d'activité, périodes vides à zéro")
+    void getAuditStats_activiteParPeriode() {
+        LocalDate today = LocalDate.now();
+        when(declarationService.getStats()).thenReturn(new DeclarationService.DeclarationStats());
+        when(rollupService.getActionCounts()).thenReturn(Collections.emptyMap());
+        Map<LocalDate, Long> parJour = new TreeMap<>();
+        parJour.put(today.minusMonths(3), 4L);
+        parJour.put(today, 2L);
+        when(rollupService.getDailyCounts(YearMonth.from(today).minusMonths(11).atDay(1))).thenReturn(parJour);
+
+        AuditStatsDTO stats = auditService.getAuditStats();
+
+        assertThat(stats.getActiviteParJour()).hasSize(30);
+        assertThat(stats.getActiviteParJour().get(29).getPeriode()).isEqualTo(today.toString());
+        assertThat(stats.getActiviteParJour().get(29).getCount()).isEqualTo(2L);
+        assertThat(stats.getActiviteParMois()).hasSize(12);
+        assertThat(stats.getActiviteParMois().get(11).getCount()).isEqualTo(2L);
+        assertThat(stats.getActiviteParMois().get(8).getPeriode())
+            .isEqualTo(YearMonth.from(today).minusMonths(3).toString());
+        assertThat(stats.getActiviteParMois().get(8).getCount()).isEqualTo(4L);
+    }
+    // searchLogsPage — pagination par curseur
+    private AuditLogDTO logAt(long id, LocalDateTime dateAction) {
+        AuditLogDTO dto = new AuditLogDTO();
+        dto.setId(id);
+        dto.setDateAction(dateAction);
+        return dto;
+    }
+
+    @Test
+    @DisplayName("searchLogsPage — page pleine → curseur (dateAction, id) relu à la page suivante")
+    void searchLogsPage_curseur() {
+        LocalDateTime t0 = LocalDateTime.of(2025, 2, 1, 10, 0);
+        when(logRepository.searchAuditLogs(any(), isNull(), isNull(), eq(3)))
+            .thenReturn(List.of(logAt(9L, t0), logAt(8L, t0), logAt(7L, t0.minusHours(1))));
+
+        AuditLogPage page = auditService.searchLogsPage(new AuditLogFilter(), null, 2);
+
+        assertThat(page.getItems()).extracting(AuditLogDTO::getId).containsExactly(9L, 8L);
+        assertThat(page.isHasMore()).isTrue();
+
+        when(logRepository.searchAuditLogs(any(), eq(t0), eq(8L), eq(3)))
+            .thenReturn(List.of(logAt(7L, t0.minusHours(1))));
+
+        AuditLogPage next = auditService.searchLogsPage(new AuditLogFilter(), page.getNextCursor(), 2);
+
+        assertThat(next.getItems()).extracting(AuditLogDTO::getId).containsExactly(7L);
+        assertThat(next.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("searchLogsPage — curseur illisible → IllegalArgumentException, taille bornée")
+    void searchLogsPage_curseurInvalide_tailleBornee() {
+        assertThatThrownBy(() -> auditService.searchLogsPage(null, "???", 10))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        auditService.searchLogsPage(null, null, 100_000);
+        verify(logRepository).searchAuditLogs(isNull(), isNull(), isNull(), eq(AuditService.PAGE_SIZE_MAX + 1));
     }
     // searchLogs
     @Test
     @DisplayName("searchLogs — filtre par action")
     void searchLogs_filtreParAction() {
-        when(logRepository.findWithFilters("SUBMIT", null, null, null))
-            .thenReturn(List.of(submitLog));
-        when(declarationService.findById(1L)).thenReturn(declaration);
+        when(logRepository.findAuditLogsWithFilters("SUBMIT", null, null, null))
+            .thenReturn(List.of(auditLog(submitLog, declaration)));
 
         var result = auditService.searchLogs("submit", null, null, null);
 
@@ -209,12 +293,12 @@ class AuditServiceTest {
     @Test
     @DisplayName("searchLogs — action vide → null passé au repository")
     void searchLogs_actionVide_nullPasseAuRepo() {
-        when(logRepository.findWithFilters(null, null, null, null))
+        when(logRepository.findAuditLogsWithFilters(null, null, null, null))
             .thenReturn(Collections.emptyList());
 
         var result = auditService.searchLogs("", null, null, null);
 
         assertThat(result).isEmpty();
-        verify(logRepository).findWithFilters(null, null, null, null);
+        verify(logRepository).findAuditLogsWithFilters(null, null, null, null);
     }
 }
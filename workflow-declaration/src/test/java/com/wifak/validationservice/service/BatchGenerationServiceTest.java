@@ -0,0 +1,180 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.DeclarationType;
+import com.wifak.validationservice.entities.GenerationJob;
+import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ActiveProfiles("test")
+@DisplayName("BatchGenerationService — Tests unitaires")
+class BatchGenerationServiceTest {
+
+    @Mock private DeclarationTypeRepository typeRepository;
+    @Mock private GenerationJobService jobService;
+
+    @InjectMocks private BatchGenerationService service;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private DeclarationType type(Long id, String code, boolean actif, String sql) {
+        DeclarationType t = new DeclarationType();
+        ReflectionTestUtils.setField(t, "id", id);
+        t.setCode(code);
+        t.setActif(actif);
+        t.setSqlQuery(sql);
+        return t;
+    }
+
+    private GenerationJob job(String lotId, Long typeId, GenerationJob.JobStatut statut) {
+        GenerationJob j = new GenerationJob();
+        j.setId(ids.incrementAndGet());
+        j.setLotId(lotId);
+        j.setDeclarationTypeId(typeId);
+        j.setPeriode("2025-01");
+        j.setStatut(statut);
+        return j;
+    }
+
+    private void acceptJobs() {
+        when(jobService.submitInLot(anyString(), anyLong(), anyString(), any(), any()))
+            .thenAnswer(inv -> job(inv.getArgument(0), inv.getArgument(1), GenerationJob.JobStatut.EN_ATTENTE));
+    }
+
+    @Test
+    @DisplayName("launch — un job par type actif, dates du mois déduites de la période")
+    void launch_tousTypesActifs() {
+        when(typeRepository.findByActifTrue()).thenReturn(List.of(
+            type(1L, "BCT_01", true, "SELECT 1"),
+            type(2L, "BCT_02", true, "SELECT 2")));
+        acceptJobs();
+
+        BatchGenerationService.BatchReport report = service.launch("2025-02", null, null, null);
+
+        assertThat(report.getLotId()).isNotBlank();
+        assertThat(report.getTotal()).isEqualTo(2);
+        assertThat(report.getEnAttente()).isEqualTo(2);
+        assertThat(report.isComplet()).isFalse();
+        verify(jobService).submitInLot(eq(report.getLotId()), eq(1L), eq("2025-02"),
+            eq(LocalDate.of(2025, 2, 1)), eq(LocalDate.of(2025, 2, 28)));
+        verify(jobService).submitInLot(eq(report.getLotId()), eq(2L), eq("2025-02"), any(), any());
+    }
+
+    @Test
+    @DisplayName("launch — dates déduites de la fréquence : trimestre civil, année")
+    void launch_datesSelonFrequence() {
+        DeclarationType trimestriel = type(1L, "T", true, "SELECT 1");
+        trimestriel.setFrequence(DeclarationType.DeclarationFrequence.TRIMESTRIELLE);
+        DeclarationType annuel = type(2L, "A", true, "SELECT 1");
+        annuel.setFrequence(DeclarationType.DeclarationFrequence.ANNUELLE);
+        when(typeRepository.findByActifTrue()).thenReturn(List.of(trimestriel, annuel));
+        acceptJobs();
+
+        service.launch("2025-06", null, null, null);
+
+        verify(jobService).submitInLot(anyString(), eq(1L), eq("2025-06"),
+            eq(LocalDate.of(2025, 4, 1)), eq(LocalDate.of(2025, 6, 30)));
+        verify(jobService).submitInLot(anyString(), eq(2L), eq("2025-06"),
+            eq(LocalDate.of(2025, 1, 1)), eq(LocalDate.of(2025, 12, 31)));
+    }
+
+    @Test
+    @DisplayName("launch — codes ciblés : inconnu, inactif et sans SQL ignorés")
+    void launch_codesCibles_ignores() {
+        when(typeRepository.findByCode("OK")).thenReturn(Optional.of(type(1L, "OK", true, "SELECT 1")));
+        when(typeRepository.findByCode("OFF")).thenReturn(Optional.of(type(2L, "OFF", false, "SELECT 1")));
+        when(typeRepository.findByCode("NOSQL")).thenReturn(Optional.of(type(3L, "NOSQL", true, " ")));
+        when(typeRepository.findByCode("X")).thenReturn(Optional.empty());
+        acceptJobs();
+
+        BatchGenerationService.BatchReport report = service.launch("2025-01",
+            LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), List.of("OK", "OFF", "NOSQL", "X"));
+
+        assertThat(report.getTotal()).isEqualTo(4);
+        assertThat(report.getEnAttente()).isEqualTo(1);
+        assertThat(report.getIgnores()).isEqualTo(3);
+        verify(jobService, times(1)).submitInLot(anyString(), anyLong(), anyString(), any(), any());
+        verify(typeRepository, never()).findByActifTrue();
+    }
+
+    @Test
+    @DisplayName("launch — file pleine pour un type → ECHEC sur sa ligne, les autres sont lancés")
+    void launch_filePleine_isolee() {
+        when(typeRepository.findByActifTrue()).thenReturn(List.of(
+            type(1L, "A", true, "SELECT 1"),
+            type(2L, "B", true, "SELECT 1"),
+            type(3L, "C", true, "SELECT 1")));
+        acceptJobs();
+        when(jobService.submitInLot(anyString(), eq(2L), anyString(), any(), any()))
+            .thenThrow(new IllegalStateException("File de génération pleine, réessayez plus tard"));
+
+        BatchGenerationService.BatchReport report = service.launch("2025-01", null, null, null);
+
+        assertThat(report.getEnAttente()).isEqualTo(2);
+        assertThat(report.getEchecs()).isEqualTo(1);
+        assertThat(report.getLignes().get(1).getTypeCode()).isEqualTo("B");
+        assertThat(report.getLignes().get(1).getMessage()).contains("pleine");
+    }
+
+    @Test
+    @DisplayName("launch — période absente ou dates manquantes hors yyyy-MM → IllegalArgumentException")
+    void launch_periodeInvalide() {
+        assertThatThrownBy(() -> service.launch(" ", null, null, null))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.launch("T1-2025", null, null, null))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("yyyy-MM");
+        verifyNoInteractions(jobService);
+    }
+
+    @Test
+    @DisplayName("getReport — consolide les jobs du lot avec les codes des types")
+    void getReport_consolide() {
+        GenerationJob termine = job("lot-1", 1L, GenerationJob.JobStatut.TERMINE);
+        termine.setDeclarationId(42L);
+        GenerationJob echec = job("lot-1", 2L, GenerationJob.JobStatut.ECHEC);
+        echec.setMessageErreur("Requête SQL invalide");
+        when(jobService.getLotJobs("lot-1")).thenReturn(List.of(termine, echec));
+        when(typeRepository.findAllById(any())).thenReturn(List.of(
+            type(1L, "A", true, "SELECT 1"), type(2L, "B", true, "SELECT 1")));
+
+        BatchGenerationService.BatchReport report = service.getReport("lot-1");
+
+        assertThat(report.getPeriode()).isEqualTo("2025-01");
+        assertThat(report.getTermines()).isEqualTo(1);
+        assertThat(report.getEchecs()).isEqualTo(1);
+        assertThat(report.isComplet()).isTrue();
+        assertThat(report.getLignes().get(0).getTypeCode()).isEqualTo("A");
+        assertThat(report.getLignes().get(0).getDeclarationId()).isEqualTo(42L);
+        assertThat(report.getLignes().get(1).getMessage()).isEqualTo("Requête SQL invalide");
+    }
+
+    @Test
+    @DisplayName("getReport — lot inconnu → RuntimeException")
+    void getReport_inconnu() {
+        when(jobService.getLotJobs("x")).thenReturn(List.of());
+
+        assertThatThrownBy(() -> service.getReport("x"))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessageContaining("introuvable");
+    }
+}
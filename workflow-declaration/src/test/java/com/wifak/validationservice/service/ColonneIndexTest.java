@@ -0,0 +1,54 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ColonneIndex — Tests unitaires")
+class ColonneIndexTest {
+
+    @Test
+    @DisplayName("candidats — nom normalisé identique → score 1, en tête")
+    void candidats_exact() {
+        ColonneIndex index = ColonneIndex.of(List.of("MONTANT_CREDIT_BRUT", "montant_credit"));
+
+        List<ColonneIndex.Candidat> candidats = index.candidats("MontantCredit", 0.3, 3);
+
+        assertThat(candidats).extracting(ColonneIndex.Candidat::getColonne)
+                .containsExactly("montant_credit", "MONTANT_CREDIT_BRUT");
+        assertThat(candidats.get(0).getScore()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("candidats — abréviation retrouvée par trigrammes, mot commun seul écarté")
+    void candidats_trigrammes() {
+        ColonneIndex index = ColonneIndex.of(List.of("DATE_FIN", "MNT_IMPAYE"));
+
+        assertThat(index.candidats("MontantImpaye", 0.6, 3))
+                .singleElement().satisfies(c -> {
+                    assertThat(c.getColonne()).isEqualTo("MNT_IMPAYE");
+                    assertThat(c.getScore()).isEqualTo(0.67);
+                });
+        // « date » en commun, mais DateDebut ≠ DATE_FIN
+        assertThat(index.candidats("DateDebut", 0.6, 3)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("candidats — vue large : classement borné à max, ordre des colonnes à égalité")
+    void candidats_vueLarge() {
+        List<String> colonnes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) colonnes.add("COL_" + i);
+        colonnes.add("ID_CLIENT");
+        colonnes.add("CLIENT_ID");
+        ColonneIndex index = ColonneIndex.of(colonnes);
+
+        List<ColonneIndex.Candidat> candidats = index.candidats("IdClient", 0.3, 2);
+
+        assertThat(candidats).extracting(ColonneIndex.Candidat::getColonne).containsExactly("ID_CLIENT", "CLIENT_ID");
+        assertThat(index.candidats("Inconnu", 0.3, 2)).isEmpty();
+    }
+}
@@ -0,0 +1,67 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ContenuBlobStore — Tests unitaires")
+class ContenuBlobStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ContenuBlobStore store;
+
+    @TempDir Path dir;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:blobs_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE declaration_contenus (hash VARCHAR(64) PRIMARY KEY, codec VARCHAR(16), "
+                + "taille_originale BIGINT, taille_compressee BIGINT, donnees BLOB, date_creation TIMESTAMP)");
+        store = new ContenuBlobStore(jdbcTemplate, 7);
+    }
+
+    private Path fichier(byte[] octets) throws IOException {
+        return Files.write(dir.resolve("contenu.gz"), octets);
+    }
+
+    @Test
+    @DisplayName("insertIfAbsent puis open — octets relus à l'identique, tranche par tranche")
+    void insertPuisOpen_allerRetour() throws Exception {
+        byte[] octets = new byte[100];
+        new Random(1).nextBytes(octets);
+
+        assertThat(store.insertIfAbsent("h1", "gzip", 500, fichier(octets))).isEqualTo(1);
+        assertThat(store.insertIfAbsent("h1", "gzip", 500, fichier(new byte[]{9}))).isZero();
+
+        try (InputStream in = store.open("h1", octets.length)) {
+            assertThat(in.readAllBytes()).isEqualTo(octets);
+        }
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT taille_compressee FROM declaration_contenus WHERE hash = 'h1'", Long.class)).isEqualTo(100L);
+    }
+
+    @Test
+    @DisplayName("open — contenu supprimé pendant la lecture → IOException")
+    void open_supprimePendantLecture() throws Exception {
+        store.insertIfAbsent("h2", "gzip", 50, fichier(new byte[20]));
+
+        InputStream in = store.open("h2", 20);
+        assertThat(in.read(new byte[7])).isEqualTo(7);
+        jdbcTemplate.update("DELETE FROM declaration_contenus WHERE hash = 'h2'");
+
+        assertThatThrownBy(in::readAllBytes).isInstanceOf(IOException.class).hasMessageContaining("supprimé");
+    }
+}
@@ -0,0 +1,70 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DeclarationColonnes — Tests unitaires")
+class DeclarationColonnesTest {
+
+    private static String ligne(String id, String credit, String impaye, String classe, String devise) {
+        return "<Ligne><IdClient>" + id + "</IdClient>" +
+                (credit != null ? "<MontantCredit>" + credit + "</MontantCredit>" : "") +
+                (impaye != null ? "<MontantImpaye>" + impaye + "</MontantImpaye>" : "") +
+                (classe != null ? "<ClasseRisque>" + classe + "</ClasseRisque>" : "") +
+                (devise != null ? "<Devise>" + devise + "</Devise>" : "") +
+                "</Ligne>";
+    }
+
+    @Test
+    @DisplayName("lire — montants en double[] (NaN si absent ou invalide), totaux sans les NaN")
+    void lire_montantsEtTotaux() {
+        DeclarationColonnes colonnes = DeclarationColonnes.lire(
+                "<Declaration periode=\"2025-01\"><Donnees>" +
+                ligne("C1", "100,5", "10", "A", "TND") +
+                ligne("C2", "abc", null, null, null) +
+                ligne("C3", "200", "5", "b", "EUR") +
+                "</Donnees></Declaration>");
+
+        assertThat(colonnes.getTaille()).isEqualTo(3);
+        assertThat(colonnes.isMalforme()).isFalse();
+        assertThat(colonnes.credit(0)).isEqualTo(100.5);
+        assertThat(colonnes.credit(1)).isNaN();
+        assertThat(colonnes.impaye(1)).isNaN();
+        assertThat(colonnes.totalCredit()).isEqualTo(300.5);
+        assertThat(colonnes.totalImpaye()).isEqualTo(15.0);
+        assertThat(colonnes.totalProvision()).isZero();
+        assertThat(colonnes.id(2)).isEqualTo("C3");
+        assertThat(colonnes.getEntete().getPeriode()).isEqualTo("2025-01");
+    }
+
+    @Test
+    @DisplayName("lire — énumérations codées : valeur brute par ligne, répartition en majuscules dans l'ordre du fichier")
+    void lire_dictionnaire() {
+        StringBuilder xml = new StringBuilder("<Declaration><Donnees>");
+        // Au-delà de la capacité initiale pour exercer l'agrandissement des tableaux
+        for (int i = 0; i < 600; i++) {
+            xml.append(ligne("C" + i, "1", null, i % 3 == 0 ? "c" : i % 3 == 1 ? "A" : "C", i % 2 == 0 ? "TND" : null));
+        }
+        DeclarationColonnes colonnes = DeclarationColonnes.lire(xml.append("</Donnees></Declaration>").toString());
+
+        assertThat(colonnes.getTaille()).isEqualTo(600);
+        assertThat(colonnes.classe(0)).isEqualTo("c");
+        assertThat(colonnes.devise(1)).isNull();
+        assertThat(colonnes.repartitionClasses()).containsExactly(entry("C", 400), entry("A", 200));
+        assertThat(colonnes.repartitionDevises()).containsExactly(entry("TND", 300));
+        assertThat(colonnes.totalCredit()).isEqualTo(600.0);
+    }
+
+    @Test
+    @DisplayName("lire — XML malformé → lignes lues avant l'erreur, marqué malformé")
+    void lire_malforme_partiel() {
+        DeclarationColonnes colonnes = DeclarationColonnes.lire(
+                "<Declaration><Donnees>" + ligne("C1", "100", "10", "A", null) + "<Ligne><IdClient>C2</Ligne>");
+
+        assertThat(colonnes.isMalforme()).isTrue();
+        assertThat(colonnes.getTaille()).isEqualTo(1);
+        assertThat(colonnes.totalCredit()).isEqualTo(100.0);
+    }
+}
@@ -0,0 +1,108 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationCompteur;
+import com.wifak.validationservice.repositories.DeclarationCompteurRepository;
+import com.wifak.validationservice.repositories.DeclarationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ActiveProfiles("test")
+@DisplayName("DeclarationCompteurService — Tests unitaires")
+class DeclarationCompteurServiceTest {
+
+    @Mock private DeclarationCompteurRepository compteurRepository;
+    @Mock private DeclarationRepository declarationRepository;
+
+    @InjectMocks private DeclarationCompteurService service;
+
+    @Test
+    @DisplayName("transition — décrémente l'ancien statut, incrémente le nouveau")
+    void transition_deplaceLeCompteur() {
+        service.transition(Declaration.DeclarationStatut.EN_VALIDATION, Declaration.DeclarationStatut.VALIDEE);
+
+        verify(compteurRepository).increment(Declaration.DeclarationStatut.EN_VALIDATION, -1);
+        verify(compteurRepository).increment(Declaration.DeclarationStatut.VALIDEE, 1);
+    }
+
+    @Test
+    @DisplayName("transition — création / suppression / statut inchangé")
+    void transition_creationSuppression() {
+        service.transition(null, Declaration.DeclarationStatut.GENEREE);
+        service.transition(Declaration.DeclarationStatut.REJETEE, null);
+        service.transition(Declaration.DeclarationStatut.GENEREE, Declaration.DeclarationStatut.GENEREE);
+
+        verify(compteurRepository).increment(Declaration.DeclarationStatut.GENEREE, 1);
+        verify(compteurRepository).increment(Declaration.DeclarationStatut.REJETEE, -1);
+        verifyNoMoreInteractions(compteurRepository);
+    }
+
+    @Test
+    @DisplayName("getStats — compteurs complets → lus tels quels, sans GROUP BY")
+    void getStats_compteurs() {
+        List<DeclarationCompteur> compteurs = Arrays.stream(Declaration.DeclarationStatut.values())
+            .map(s -> new DeclarationCompteur(s, s == Declaration.DeclarationStatut.GENEREE ? 4 : 1))
+            .collect(Collectors.toList());
+        when(compteurRepository.findAll()).thenReturn(compteurs);
+
+        DeclarationService.DeclarationStats stats = service.getStats();
+
+        assertThat(stats.getTotal()).isEqualTo(9L);
+        assertThat(stats.getGenerees()).isEqualTo(4L);
+        assertThat(stats.getEnvoyees()).isEqualTo(1L);
+        verify(declarationRepository, never()).countGroupByStatut();
+    }
+
+    @Test
+    @DisplayName("getStats — compteurs pas encore initialisés → un seul GROUP BY")
+    void getStats_fallbackGroupBy() {
+        when(compteurRepository.findAll()).thenReturn(List.of());
+        when(declarationRepository.countGroupByStatut()).thenReturn(List.of(
+            new Object[]{ Declaration.DeclarationStatut.GENEREE, 3L },
+            new Object[]{ Declaration.DeclarationStatut.VALIDEE, 2L }));
+
+        DeclarationService.DeclarationStats stats = service.getStats();
+
+        assertThat(stats.getTotal()).isEqualTo(5L);
+        assertThat(stats.getGenerees()).isEqualTo(3L);
+        assertThat(stats.getValidees()).isEqualTo(2L);
+        assertThat(stats.getRejetees()).isZero();
+    }
+
+    @Test
+    @DisplayName("rebuild — une ligne par statut puis recomptage en base, sans écrire de valeurs lues")
+    void rebuild_toutesLesLignes() {
+        when(compteurRepository.recount()).thenReturn(Declaration.DeclarationStatut.values().length);
+
+        service.rebuild();
+
+        ArgumentCaptor<String> statuts = ArgumentCaptor.forClass(String.class);
+        verify(compteurRepository, times(Declaration.DeclarationStatut.values().length)).insertIfAbsent(statuts.capture());
+        assertThat(statuts.getAllValues()).containsExactlyInAnyOrderElementsOf(
+            Arrays.stream(Declaration.DeclarationStatut.values()).map(Enum::name).collect(Collectors.toList()));
+        InOrder ordre = inOrder(compteurRepository);
+        ordre.verify(compteurRepository, atLeastOnce()).insertIfAbsent(anyString());
+        ordre.verify(compteurRepository).recount();
+        verify(compteurRepository, never()).save(any());
+        verify(declarationRepository, never()).countGroupByStatut();
+    }
+}
@@ -0,0 +1,183 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.DeclarationContenu;
+import com.wifak.validationservice.repositories.DeclarationAnalyseRepository;
+import com.wifak.validationservice.repositories.DeclarationContenuRepository;
+import com.wifak.validationservice.repositories.DeclarationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ActiveProfiles("test")
+@DisplayName("DeclarationContenuService — Tests unitaires")
+class DeclarationContenuServiceTest {
+
+    private static final String XML = "<Declaration>" + "<Ligne>0123456789</Ligne>".repeat(200) + "</Declaration>";
+
+    @Mock private DeclarationContenuRepository contenuRepository;
+    @Mock private DeclarationRepository declarationRepository;
+    @Mock private DeclarationAnalyseRepository analyseRepository;
+    @Mock private ContenuBlobStore blobStore;
+    @InjectMocks private DeclarationContenuService service;
+
+    // Store en mémoire : le fichier compressé est relu au moment de l'insertion (il est supprimé ensuite)
+    private final Map<String, byte[]> blobs = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(blobStore.insertIfAbsent(anyString(), anyString(), anyLong(), any(Path.class))).thenAnswer(inv -> {
+            blobs.put(inv.getArgument(0), Files.readAllBytes(inv.<Path>getArgument(3)));
+            return 1;
+        });
+        when(blobStore.open(anyString(), anyLong()))
+            .thenAnswer(inv -> new ByteArrayInputStream(blobs.get(inv.<String>getArgument(0))));
+    }
+
+    // Ligne passée à l'insertion idempotente, sous forme de métadonnées
+    private DeclarationContenu inserted() {
+        ArgumentCaptor<String> hash = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> codec = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Long> taille = ArgumentCaptor.forClass(Long.class);
+        verify(blobStore).insertIfAbsent(hash.capture(), codec.capture(), taille.capture(), any(Path.class));
+        return new DeclarationContenu(hash.getValue(), codec.getValue(), taille.getValue(),
+                blobs.get(hash.getValue()).length);
+    }
+
+    @Test
+    @DisplayName("store — nouveau contenu → compressé et enregistré sous son SHA-256")
+    void store_nouveau_compresseEtEnregistre() {
+        DeclarationContenuService.ContenuRef ref = service.store(XML);
+
+        DeclarationContenu saved = inserted();
+        assertThat(ref.getHash()).hasSize(64).isEqualTo(saved.getHash());
+        assertThat(ref.getTaille()).isEqualTo(XML.length());
+        assertThat(saved.getCodec()).isEqualTo("gzip");
+        assertThat(saved.getTailleCompressee()).isLessThan(saved.getTailleOriginale());
+    }
+
+    @Test
+    @DisplayName("store — contenu identique déjà présent → aucune écriture")
+    void store_dejaPresent_deduplique() {
+        when(contenuRepository.lockByHash(anyString())).thenAnswer(inv -> Optional.of(inv.getArgument(0)));
+
+        DeclarationContenuService.ContenuRef ref = service.store(XML);
+
+        assertThat(ref.getHash()).isEqualTo(DeclarationContenuService.sha256(XML.getBytes()));
+        verify(blobStore, never()).insertIfAbsent(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("store en flux — même empreinte et même taille qu'en mémoire, vérification sur le fichier relu")
+    void store_flux_gzipEtSha256() throws Exception {
+        String[] relu = new String[1];
+
+        DeclarationContenuService.ContenuRef ref = service.store(
+                out -> out.write(XML),
+                in -> relu[0] = new String(in.readAllBytes(), StandardCharsets.UTF_8));
+
+        assertThat(ref.getHash()).isEqualTo(DeclarationContenuService.sha256(XML.getBytes(StandardCharsets.UTF_8)));
+        assertThat(ref.getTaille()).isEqualTo(XML.length());
+        assertThat(relu[0]).isEqualTo(XML);
+        try (InputStream in = service.openStream(inserted())) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(XML);
+        }
+    }
+
+    @Test
+    @DisplayName("attach + hydrate — le contenu relu est identique à l'original")
+    void attach_puisRead_allerRetour() {
+        when(blobStore.insertIfAbsent(anyString(), anyString(), anyLong(), any(Path.class))).thenAnswer(inv -> {
+            blobs.put(inv.getArgument(0), Files.readAllBytes(inv.<Path>getArgument(3)));
+            when(contenuRepository.lockByHash(inv.getArgument(0))).thenReturn(Optional.of(inv.getArgument(0)));
+            return 1;
+        });
+
+        Declaration declaration = new Declaration();
+        service.attach(declaration, XML);
+        assertThat(declaration.getContenuHash()).isNotNull();
+        assertThat(declaration.getContenuTaille()).isEqualTo(XML.length());
+
+        DeclarationContenu stocke = inserted();
+        when(contenuRepository.findInfo(declaration.getContenuHash())).thenReturn(Optional.of(stocke));
+        Declaration relue = new Declaration();
+        relue.setContenuHash(declaration.getContenuHash());
+
+        assertThat(service.hydrate(relue).getContenuFichier()).isEqualTo(XML);
+    }
+
+    @Test
+    @DisplayName("read — hash absent du store → RuntimeException")
+    void read_hashInconnu_throwsException() {
+        when(contenuRepository.findInfo("inconnu")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.read("inconnu"))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessageContaining("Contenu introuvable");
+    }
+
+    @Test
+    @DisplayName("releaseIfUnused — encore référencé → conservé, sinon supprimé avec ses analyses")
+    void releaseIfUnused_selonReferences() {
+        when(contenuRepository.lockByHash(anyString())).thenAnswer(inv -> Optional.of(inv.getArgument(0)));
+        when(declarationRepository.lockIdsByContenuHash("partage")).thenReturn(List.of(7L));
+        when(declarationRepository.lockIdsByContenuHash("orphelin")).thenReturn(List.of());
+
+        service.releaseIfUnused("partage");
+        service.releaseIfUnused("orphelin");
+        service.releaseIfUnused(null);
+
+        verify(contenuRepository, never()).deleteById("partage");
+        verify(contenuRepository).deleteById("orphelin");
+        verify(analyseRepository).deleteByContenu("orphelin");
+        verify(contenuRepository, times(2)).lockByHash(anyString());
+        verifyNoMoreInteractions(contenuRepository, analyseRepository);
+    }
+
+    @Test
+    @DisplayName("store — hash inséré entre-temps par une génération concurrente → référence renvoyée sans erreur")
+    void store_insertionConcurrente_ignoree() {
+        when(blobStore.insertIfAbsent(anyString(), anyString(), anyLong(), any(Path.class))).thenReturn(0);
+
+        DeclarationContenuService.ContenuRef ref = service.store(XML);
+
+        assertThat(ref.getHash()).isEqualTo(DeclarationContenuService.sha256(XML.getBytes(StandardCharsets.UTF_8)));
+        verify(contenuRepository, never()).save(any());
+        verify(contenuRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("releaseIfUnused — contenu déjà supprimé (verrou sans ligne) → aucune suppression")
+    void releaseIfUnused_dejaSupprime() {
+        when(contenuRepository.lockByHash("absent")).thenReturn(Optional.empty());
+
+        service.releaseIfUnused("absent");
+
+        verify(declarationRepository, never()).lockIdsByContenuHash(any());
+        verify(contenuRepository, never()).deleteById(any());
+    }
+}
@@ -0,0 +1,135 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.wifak.validationservice.service.DeclarationDiff.COURANTE;
+import static com.wifak.validationservice.service.DeclarationDiff.PRECEDENTE;
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DeclarationDiff — Tests unitaires")
+class DeclarationDiffTest {
+
+    private static String declaration(String... lignes) {
+        StringBuilder sb = new StringBuilder("<Declaration><Donnees>");
+        for (String l : lignes) sb.append("<Ligne>").append(l).append("</Ligne>");
+        return sb.append("</Donnees></Declaration>").toString();
+    }
+
+    private static String client(String id, String credit, String impaye) {
+        return "<IdClient>" + id + "</IdClient><MontantCredit>" + credit + "</MontantCredit>"
+                + "<MontantImpaye>" + impaye + "</MontantImpaye>";
+    }
+
+    @Test
+    @DisplayName("comparer — lignes d'un même client cumulées, IdContrepartie en repli, totaux globaux")
+    void comparer_cumulEtTotaux() {
+        String precedente = declaration(client("C1", "100", "0"), client("C1", "50", "0"),
+                "<IdContrepartie>K1</IdContrepartie><MontantCredit>10</MontantCredit>");
+        String courante = declaration(client("C1", "150", "0"),
+                "<IdContrepartie>K1</IdContrepartie><MontantCredit>10</MontantCredit>",
+                "<MontantCredit>5</MontantCredit>");
+
+        DeclarationDiff diff = DeclarationDiff.comparer(courante, precedente, 5, 50);
+
+        assertThat(diff.entites()).containsEntry("communes", 2)
+                .containsEntry("modifiees", 0)
+                .containsEntry("sansIdentifiant", 1);
+        assertThat(diff.principauxMouvements()).isEmpty();
+        assertThat(diff.totalCredit(COURANTE)).isEqualTo(165.0);
+        assertThat(diff.totalCredit(PRECEDENTE)).isEqualTo(160.0);
+        assertThat(diff.getLignes(COURANTE)).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("comparer — classements bornés à topN, par ampleur décroissante, même résultat quel que soit le côté indexé")
+    void comparer_topN_symetrique() {
+        StringBuilder prec = new StringBuilder(), curr = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            prec.append("<Ligne>").append(client("C" + i, "1000", "0")).append("</Ligne>");
+            curr.append("<Ligne>").append(client("C" + i, String.valueOf(1000 + i), "0")).append("</Ligne>");
+        }
+        String precedente = "<Declaration><Donnees>" + prec + "</Donnees></Declaration>";
+        curr.append("<Ligne>").append(client("X", "0", "0")).append("</Ligne>");
+        String courante   = "<Declaration><Donnees>" + curr + "</Donnees></Declaration>";
+
+        DeclarationDiff diff    = DeclarationDiff.comparer(courante, precedente, 3, 50);
+        DeclarationDiff inverse = DeclarationDiff.comparer(precedente, courante, 3, 50);
+
+        List<Map<String, Object>> mouvements = diff.principauxMouvements();
+        assertThat(mouvements).extracting(m -> m.get("id")).containsExactly("C99", "C98", "C97");
+        assertThat(mouvements.get(0)).containsEntry("statut", "MODIFIEE").containsEntry("deltaCredit", 99.0);
+        assertThat(diff.entites()).containsEntry("modifiees", 99).containsEntry("apparues", 1);
+        assertThat(diff.apparues()).extracting(m -> m.get("id")).containsExactly("X");
+        assertThat(inverse.entites()).containsEntry("modifiees", 99).containsEntry("disparues", 1);
+        assertThat(inverse.principauxMouvements()).extracting(m -> m.get("id")).containsExactly("C99", "C98", "C97");
+    }
+
+    @Test
+    @DisplayName("comparer — dépassement du seuil de variation sur l'impayé d'un client")
+    void comparer_depassementSeuil() {
+        String precedente = declaration(client("C1", "1000", "100"), client("C2", "1000", "100"));
+        String courante   = declaration(client("C1", "1000", "300"), client("C2", "1000", "120"));
+
+        Map<String, Object> depassements = DeclarationDiff.comparer(courante, precedente, 5, 50).depassementsSeuil();
+
+        assertThat(depassements).containsEntry("nombre", 1).containsEntry("seuilPourcentage", 50.0);
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> details = (List<Map<String, Object>>) depassements.get("details");
+        assertThat(details).singleElement().satisfies(d -> assertThat(d)
+                .containsEntry("id", "C1")
+                .containsEntry("variationImpaye", 200.0));
+    }
+
+    @Test
+    @DisplayName("comparer(Source) — le côté le plus petit (taille annoncée) est lu en premier, chaque flux ouvert puis fermé")
+    void comparer_sources_indexSelonTaille() {
+        String precedente = declaration(client("C1", "100", "0"));
+        String courante   = declaration(client("C1", "300", "0"), client("C2", "10", "0"));
+        List<String> evenements = new ArrayList<>();
+
+        DeclarationDiff diff = DeclarationDiff.comparer(
+                suivie("courante", courante, evenements), 1_000,
+                suivie("precedente", precedente, evenements), 10, 5, 50);
+
+        assertThat(evenements).containsSubsequence(
+                "ouvre precedente", "ferme precedente", "ouvre courante", "ferme courante");
+        assertThat(diff.entites()).containsEntry("communes", 1).containsEntry("apparues", 1);
+        assertThat(diff.totalCredit(COURANTE)).isEqualTo(310.0);
+    }
+
+    @Test
+    @DisplayName("comparer(Source) — erreur de lecture du store → UncheckedIOException, pas un XML malformé")
+    void comparer_sources_erreurLecture() {
+        DeclarationDiff.Source enPanne = () -> new Reader() {
+            @Override public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("Contenu supprimé pendant la lecture");
+            }
+            @Override public void close() { }
+        };
+        String courante = declaration(client("C1", "100", "0"));
+
+        assertThatThrownBy(() -> DeclarationDiff.comparer(() -> new StringReader(courante), 1, enPanne, 10, 5, 50))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    private static DeclarationDiff.Source suivie(String nom, String contenu, List<String> evenements) {
+        return () -> {
+            evenements.add("ouvre " + nom);
+            return new StringReader(contenu) {
+                @Override public void close() {
+                    evenements.add("ferme " + nom);
+                    super.close();
+                }
+            };
+        };
+    }
+}
@@ -1,32 +1,43 @@
 package com.wifak.validationservice.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.DeclarationFilter;
+import com.wifak.validationservice.dto.DeclarationPage;
+import com.wifak.validationservice.dto.DeclarationSummary;
 import com.wifak.validationservice.dto.GenerateDeclarationRequest;
+import com.wifak.validationservice.dto.PendingQueue;
 import com.wifak.validationservice.dto.XsdSqlMappingRequest;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.DeclarationType;
 import com.wifak.validationservice.feign.JiraIntegrationFeignClient;
 import com.wifak.validationservice.repositories.DeclarationRepository;
+import com.wifak.validationservice.repositories.DeclarationSearchRepository;
 import com.wifak.validationservice.repositories.DeclarationTypeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +51,8 @@ class DeclarationServiceExtendedTest {
     @Mock private XmlGenerationService xmlGenerationService;
     @Mock private CsvGenerationService csvGenerationService;
     @Mock private TxtGenerationService txtGenerationService;
+    @Mock private DeclarationContenuService contenuService;
+    @Mock private DeclarationCompteurService compteurService;
     @Mock private JiraIntegrationFeignClient jiraClient;
     @Mock private ObjectMapper objectMapper;
 
@@ -65,6 +78,14 @@ class DeclarationServiceExtendedTest {
         genereeDeclaration.setGenerePar("agent1");
 
         mockSecurityContext("agent1");
+
+        // Le store exécute l'écriture (et la vérification) comme en production
+        when(contenuService.store(any(DeclarationContenuService.ContenuWriter.class), any())).thenAnswer(inv -> {
+            inv.getArgument(0, DeclarationContenuService.ContenuWriter.class).write(new StringWriter());
+            DeclarationContenuService.ContenuVerifier verifier = inv.getArgument(1);
+            if (verifier != null) verifier.verifier(new ByteArrayInputStream(new byte[0]));
+            return new DeclarationContenuService.ContenuRef("abc123", 10, DeclarationContenuService.CODEC_GZIP);
+        });
     }
 
     private DeclarationType buildType(String code, DeclarationType.DeclarationFormat format) {
@@ -91,20 +112,22 @@ class DeclarationServiceExtendedTest {
     @Test
     @DisplayName("getAllDeclarations — retourne toutes les déclarations")
     void getAllDeclarations_retourneTout() {
-        when(declarationRepository.findAll()).thenReturn(List.of(genereeDeclaration));
+        when(declarationRepository.findAllSummaries()).thenReturn(List.of(DeclarationSummary.of(genereeDeclaration)));
 
-        List<Declaration> result = service.getAllDeclarations();
+        List<DeclarationSummary> result = service.getAllDeclarations();
 
         assertThat(result).hasSize(1);
-        verify(declarationRepository).findAll();
+        verify(declarationRepository).findAllSummaries();
+        verify(declarationRepository, never()).findAll();
     }
     // getMyDeclarations
     @Test
     @DisplayName("getMyDeclarations — retourne les déclarations de l'utilisateur courant")
     void getMyDeclarations_retourneLesMiennes() {
-        when(declarationRepository.findByGenerePar("agent1")).thenReturn(List.of(genereeDeclaration));
+        when(declarationRepository.findSummariesByGenerePar("agent1"))
+            .thenReturn(List.of(DeclarationSummary.of(genereeDeclaration)));
 
-        List<Declaration> result = service.getMyDeclarations();
+        List<DeclarationSummary> result = service.getMyDeclarations();
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getGenerePar()).isEqualTo("agent1");
@@ -113,12 +136,175 @@ class DeclarationServiceExtendedTest {
     @Test
     @DisplayName("getMyDeclarations — aucune déclaration → liste vide")
     void getMyDeclarations_listeVide() {
-        when(declarationRepository.findByGenerePar("agent1")).thenReturn(List.of());
+        when(declarationRepository.findSummariesByGenerePar("agent1")).thenReturn(List.of());
 
-        List<Declaration> result = service.getMyDeclarations();
+        List<DeclarationSummary> result = service.getMyDeclarations();
 
         assertThat(result).isEmpty();
     }
+    // searchDeclarations — pagination par curseur
+    private DeclarationSummary summary(long id, LocalDateTime dateGeneration) {
+        Declaration d = new Declaration();
+        d.setId(id);
+        d.setDeclarationType(xmlType);
+        d.setStatut(Declaration.DeclarationStatut.GENEREE);
+        d.setPeriode("2025-01");
+        d.setDateGeneration(dateGeneration);
+        return DeclarationSummary.of(d);
+    }
+
+    @Test
+    @DisplayName("searchDeclarations — page pleine → curseur sur la dernière ligne, relu à la page suivante")
+    void searchDeclarations_curseur() {
+        LocalDateTime t0 = LocalDateTime.of(2025, 2, 1, 10, 0);
+        when(declarationRepository.searchSummaries(any(), isNull(), isNull(), eq(3)))
+            .thenReturn(List.of(summary(9L, t0), summary(8L, t0), summary(7L, t0.minusDays(1))));
+
+        DeclarationPage page = service.searchDeclarations(new DeclarationFilter(), null, 2);
+
+        assertThat(page.getItems()).extracting(DeclarationSummary::getId).containsExactly(9L, 8L);
+        assertThat(page.isHasMore()).isTrue();
+
+        when(declarationRepository.searchSummaries(any(), eq(t0), eq(8L), eq(3)))
+            .thenReturn(List.of(summary(7L, t0.minusDays(1))));
+
+        DeclarationPage next = service.searchDeclarations(new DeclarationFilter(), page.getNextCursor(), 2);
+
+        assertThat(next.getItems()).extracting(DeclarationSummary::getId).containsExactly(7L);
+        assertThat(next.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("searchDeclarations — taille bornée à PAGE_SIZE_MAX, défaut PAGE_SIZE_DEFAUT")
+    void searchDeclarations_tailleBornee() {
+        when(declarationRepository.searchSummaries(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        service.searchDeclarations(null, null, 10_000);
+        service.searchDeclarations(null, null, null);
+
+        verify(declarationRepository).searchSummaries(any(), isNull(), isNull(), eq(DeclarationService.PAGE_SIZE_MAX + 1));
+        verify(declarationRepository).searchSummaries(any(), isNull(), isNull(), eq(DeclarationService.PAGE_SIZE_DEFAUT + 1));
+    }
+
+    @Test
+    @DisplayName("searchDeclarations — curseur illisible → IllegalArgumentException")
+    void searchDeclarations_curseurInvalide() {
+        assertThatThrownBy(() -> service.searchDeclarations(null, "pas-un-curseur", 10))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Curseur");
+        verify(declarationRepository, never()).searchSummaries(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("searchMyDeclarations — generePar forcé sur l'utilisateur courant")
+    void searchMyDeclarations_forceGenerePar() {
+        when(declarationRepository.searchSummaries(any(), any(), any(), anyInt())).thenReturn(List.of());
+        DeclarationFilter filter = new DeclarationFilter();
+        filter.setGenerePar("autre");
+
+        service.searchMyDeclarations(filter, null, 20);
+
+        verify(declarationRepository).searchSummaries(
+            argThat(f -> "agent1".equals(f.getGenerePar())), isNull(), isNull(), eq(21));
+    }
+    // getPendingQueue — file de validation
+    private DeclarationSummary pending(long id, String dateLimite, LocalDate dateFin, LocalDateTime dateGeneration) {
+        DeclarationType t = new DeclarationType();
+        t.setCode("T" + id);
+        t.setDateLimite(dateLimite);
+        Declaration d = new Declaration();
+        d.setId(id);
+        d.setDeclarationType(t);
+        d.setStatut(Declaration.DeclarationStatut.EN_VALIDATION);
+        d.setPeriode("2025-01");
+        d.setDateFin(dateFin);
+        d.setDateGeneration(dateGeneration);
+        return DeclarationSummary.of(d);
+    }
+
+    @Test
+    @DisplayName("getPendingQueue — tri AGE : page lue en base, plus anciennes d'abord")
+    void getPendingQueue_age_pageEnBase() {
+        LocalDateTime t0 = LocalDateTime.now().minusDays(5);
+        when(declarationRepository.findSummariesByStatutOldestFirst(
+                Declaration.DeclarationStatut.EN_VALIDATION, PageRequest.of(1, 2)))
+            .thenReturn(List.of(pending(3L, null, null, t0)));
+        when(declarationRepository.countByEcheanceSource(Declaration.DeclarationStatut.EN_VALIDATION))
+            .thenReturn(List.<Object[]>of(new Object[]{ null, null, 3L }));
+
+        PendingQueue queue = service.getPendingQueue(null, 1, 2);
+
+        assertThat(queue.getTri()).isEqualTo(PendingQueue.Tri.AGE);
+        assertThat(queue.getItems()).hasSize(1);
+        assertThat(queue.getItems().get(0).getAgeJours()).isEqualTo(5L);
+        assertThat(queue.getItems().get(0).getEcheance()).isNull();
+        assertThat(queue.getCompteurs().getTotal()).isEqualTo(3L);
+        assertThat(queue.getTotalPages()).isEqualTo(2);
+        verify(declarationRepository, never()).findSummariesByStatut(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPendingQueue — tri ECHEANCE : page lue en base sur les seuls groupes qui la couvrent")
+    void getPendingQueue_echeance_pageEnBase() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime gen = LocalDateTime.now();
+        when(declarationRepository.countByEcheanceSource(Declaration.DeclarationStatut.EN_VALIDATION))
+            .thenReturn(List.of(
+                new Object[]{ null, today, 4L },
+                new Object[]{ "J+1", today.minusDays(3), 3L },
+                new Object[]{ "J+2", today.minusDays(4), 1L },
+                new Object[]{ "J+10", today, 5L }));
+        when(declarationRepository.findSummariesByEcheanceGroupes(any(), any(), anyInt(), anyInt()))
+            .thenReturn(List.of(pending(3L, "J+1", today.minusDays(3), gen)));
+
+        // Rangs : [J+1 / J+2 → 4 lignes] [J+10 → 5] [sans échéance → 4] ; page 1 de 3 = positions 3 à 5
+        PendingQueue queue = service.getPendingQueue(PendingQueue.Tri.ECHEANCE, 1, 3);
+
+        ArgumentCaptor<List<DeclarationSearchRepository.EcheanceGroupe>> groupes = ArgumentCaptor.forClass(List.class);
+        verify(declarationRepository).findSummariesByEcheanceGroupes(
+            eq(Declaration.DeclarationStatut.EN_VALIDATION), groupes.capture(), eq(3), eq(3));
+        assertThat(groupes.getValue())
+            .extracting(DeclarationSearchRepository.EcheanceGroupe::getDateLimite,
+                        DeclarationSearchRepository.EcheanceGroupe::getRang)
+            .containsExactly(tuple("J+1", 0), tuple("J+2", 0), tuple("J+10", 1));
+        assertThat(queue.getItems().get(0).getJoursRestants()).isEqualTo(-2L);
+        assertThat(queue.getCompteurs().getTotal()).isEqualTo(13L);
+        verify(declarationRepository, never()).findSummariesByStatut(any());
+    }
+
+    @Test
+    @DisplayName("groupesDeLaPage — sans échéance en dernier, page au-delà de la file → aucun groupe")
+    void groupesDeLaPage_sansEcheanceEnDernier() {
+        LocalDate today = LocalDate.now();
+        List<Object[]> sources = List.of(
+            new Object[]{ "À définir", today, 2L },
+            new Object[]{ "J+1", today, 2L });
+        long[] debut = new long[1];
+
+        assertThat(DeclarationService.groupesDeLaPage(sources, 2, 2, debut))
+            .extracting(DeclarationSearchRepository.EcheanceGroupe::getDateLimite).containsExactly("À définir");
+        assertThat(debut[0]).isEqualTo(2L);
+        assertThat(DeclarationService.groupesDeLaPage(sources, 4, 2, new long[1])).isEmpty();
+    }
+
+    @Test
+    @DisplayName("getPendingCompteurs — en retard / échéance proche calculés par groupe (dateLimite, dateFin)")
+    void getPendingCompteurs_parGroupe() {
+        LocalDate today = LocalDate.now();
+        when(declarationRepository.countByEcheanceSource(Declaration.DeclarationStatut.EN_VALIDATION))
+            .thenReturn(List.of(
+                new Object[]{ "J+1", today.minusDays(10), 4L },
+                new Object[]{ "J+2", today, 2L },
+                new Object[]{ "J+30", today, 1L },
+                new Object[]{ "À définir", today, 5L }));
+
+        PendingQueue.Compteurs c = service.getPendingCompteurs();
+
+        assertThat(c.getTotal()).isEqualTo(12L);
+        assertThat(c.getEnRetard()).isEqualTo(4L);
+        assertThat(c.getEcheanceProche()).isEqualTo(2L);
+    }
     // notifyJiraTicketCreation
     @Test
     @DisplayName("notifyJiraTicketCreation — Jira disponible → ticket créé")
@@ -144,8 +330,6 @@ class DeclarationServiceExtendedTest {
     @DisplayName("generateAndSave — format CSV → génère via CsvGenerationService")
     void generateAndSave_csv_ok() {
         when(typeRepository.findById(2L)).thenReturn(Optional.of(csvType));
-        when(csvGenerationService.generateCsvFromSql(anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("col1,col2\nval1,val2");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         Declaration result = service.generateAndSave(2L, "2025-01",
@@ -153,15 +337,14 @@ class DeclarationServiceExtendedTest {
 
         assertThat(result).isNotNull();
         assertThat(result.getNomFichier()).endsWith(".csv");
-        verify(csvGenerationService).generateCsvFromSql(anyString(), any(), any(), anyString(), anyString());
+        verify(csvGenerationService).writeCsvFromSql(anyString(), any(), any(), anyString(), anyString(), any());
+        verify(compteurService).transition(null, Declaration.DeclarationStatut.GENEREE);
     }
 
     @Test
     @DisplayName("generateAndSave — format TXT → génère via TxtGenerationService")
     void generateAndSave_txt_ok() {
         when(typeRepository.findById(3L)).thenReturn(Optional.of(txtType));
-        when(txtGenerationService.generateTxtFromSql(anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("ligne1\nligne2");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         Declaration result = service.generateAndSave(3L, "2025-01",
@@ -169,15 +352,13 @@ class DeclarationServiceExtendedTest {
 
         assertThat(result).isNotNull();
         assertThat(result.getNomFichier()).endsWith(".txt");
-        verify(txtGenerationService).generateTxtFromSql(anyString(), any(), any(), anyString(), anyString());
+        verify(txtGenerationService).writeTxtFromSql(anyString(), any(), any(), anyString(), anyString(), any());
     }
 
     @Test
     @DisplayName("generateAndSave — format XML → génère via XmlGenerationService")
     void generateAndSave_xml_ok() {
         when(typeRepository.findById(1L)).thenReturn(Optional.of(xmlType));
-        when(xmlGenerationService.generateXmlFromXsdAndSql(anyString(), anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("<xml>content</xml>");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         Declaration result = service.generateAndSave(1L, "2025-01",
@@ -185,6 +366,9 @@ class DeclarationServiceExtendedTest {
 
         assertThat(result).isNotNull();
         assertThat(result.getNomFichier()).endsWith(".xml");
+        verify(xmlGenerationService).writeXmlFromXsdAndSql(anyString(), any(), any(), anyString(), anyString(), any());
+        verify(xmlGenerationService).validateOptional(any(), eq("<xs:schema/>"));
+        verify(contenuService).attach(eq(result), any(DeclarationContenuService.ContenuRef.class));
     }
 
     @Test
@@ -206,8 +390,6 @@ class DeclarationServiceExtendedTest {
         mapping.setSqlColumn("col1");
 
         when(typeRepository.findById(1L)).thenReturn(Optional.of(xmlType));
-        when(xmlGenerationService.generateXmlFromMapping(anyString(), anyString(), any(), any(),
-            anyString(), anyString(), anyList())).thenReturn("<xml>mapped</xml>");
         when(objectMapper.writeValueAsString(anyList())).thenReturn("[{\"xsdField\":\"field1\"}]");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
@@ -224,8 +406,6 @@ class DeclarationServiceExtendedTest {
         XsdSqlMappingRequest.FieldMapping mapping = new XsdSqlMappingRequest.FieldMapping();
 
         when(typeRepository.findById(2L)).thenReturn(Optional.of(csvType));
-        when(csvGenerationService.generateCsvFromSql(anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("col1,col2");
         when(objectMapper.writeValueAsString(anyList())).thenReturn("[]");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
@@ -233,7 +413,7 @@ class DeclarationServiceExtendedTest {
             LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), List.of(mapping));
 
         assertThat(result).isNotNull();
-        verify(csvGenerationService).generateCsvFromSql(anyString(), any(), any(), anyString(), anyString());
+        verify(csvGenerationService).writeCsvFromSql(anyString(), any(), any(), anyString(), anyString(), any());
     }
 
     @Test
@@ -242,8 +422,6 @@ class DeclarationServiceExtendedTest {
         XsdSqlMappingRequest.FieldMapping mapping = new XsdSqlMappingRequest.FieldMapping();
 
         when(typeRepository.findById(1L)).thenReturn(Optional.of(xmlType));
-        when(xmlGenerationService.generateXmlFromMapping(anyString(), anyString(), any(), any(),
-            anyString(), anyString(), anyList())).thenReturn("<xml>mapped</xml>");
         when(objectMapper.writeValueAsString(anyList())).thenThrow(new RuntimeException("JSON error"));
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
@@ -340,8 +518,6 @@ class DeclarationServiceExtendedTest {
     void updateDeclaration_generee_ok() {
         when(declarationRepository.findById(1L)).thenReturn(Optional.of(genereeDeclaration));
         when(typeRepository.findById(1L)).thenReturn(Optional.of(xmlType));
-        when(xmlGenerationService.generateXmlFromXsdAndSql(anyString(), anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("<xml>updated</xml>");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         GenerateDeclarationRequest req = new GenerateDeclarationRequest();
@@ -363,8 +539,6 @@ class DeclarationServiceExtendedTest {
         genereeDeclaration.setStatut(Declaration.DeclarationStatut.REJETEE);
         when(declarationRepository.findById(1L)).thenReturn(Optional.of(genereeDeclaration));
         when(typeRepository.findById(1L)).thenReturn(Optional.of(xmlType));
-        when(xmlGenerationService.generateXmlFromXsdAndSql(anyString(), anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("<xml>updated</xml>");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         GenerateDeclarationRequest req = new GenerateDeclarationRequest();
@@ -405,8 +579,6 @@ class DeclarationServiceExtendedTest {
         fm.setSqlColumn("col1");
         when(objectMapper.readValue(anyString(), any(com.fasterxml.jackson.core.type.TypeReference.class)))
             .thenReturn(List.of(fm));
-        when(xmlGenerationService.generateXmlFromMapping(anyString(), anyString(), any(), any(),
-            anyString(), anyString(), anyList())).thenReturn("<xml>remapped</xml>");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         GenerateDeclarationRequest req = new GenerateDeclarationRequest();
@@ -418,8 +590,8 @@ class DeclarationServiceExtendedTest {
         Declaration result = service.updateDeclaration(1L, req);
 
         assertThat(result).isNotNull();
-        verify(xmlGenerationService).generateXmlFromMapping(anyString(), anyString(), any(), any(),
-            anyString(), anyString(), anyList());
+        verify(xmlGenerationService).writeXmlFromMapping(anyString(), any(), any(),
+            anyString(), anyString(), anyList(), any());
     }
 
     @Test
@@ -430,8 +602,6 @@ class DeclarationServiceExtendedTest {
         when(typeRepository.findById(1L)).thenReturn(Optional.of(xmlType));
         when(objectMapper.readValue(anyString(), any(com.fasterxml.jackson.core.type.TypeReference.class)))
             .thenThrow(new RuntimeException("JSON parse error"));
-        when(xmlGenerationService.generateXmlFromXsdAndSql(anyString(), anyString(), any(), any(), anyString(), anyString()))
-            .thenReturn("<xml>generic</xml>");
         when(declarationRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
         GenerateDeclarationRequest req = new GenerateDeclarationRequest();
@@ -441,7 +611,7 @@ class DeclarationServiceExtendedTest {
         req.setDateFin(LocalDate.of(2025, 1, 31));
 
         assertThatCode(() -> service.updateDeclaration(1L, req)).doesNotThrowAnyException();
-        verify(xmlGenerationService).generateXmlFromXsdAndSql(anyString(), anyString(), any(), any(), anyString(), anyString());
+        verify(xmlGenerationService).writeXmlFromXsdAndSql(anyString(), any(), any(), anyString(), anyString(), any());
     }
     // deleteDeclaration — cas ENVOYEE
     @Test
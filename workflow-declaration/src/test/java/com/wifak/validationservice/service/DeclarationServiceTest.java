@@ -15,17 +15,20 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -38,6 +41,8 @@ class DeclarationServiceTest {
     @Mock private XmlGenerationService xmlGenerationService;
     @Mock private CsvGenerationService csvGenerationService;
     @Mock private TxtGenerationService txtGenerationService;
+    @Mock private DeclarationContenuService contenuService;
+    @Mock private DeclarationCompteurService compteurService;
     @Mock private JiraIntegrationFeignClient jiraClient;
     @Mock private ObjectMapper objectMapper;
 
@@ -143,6 +148,7 @@ class DeclarationServiceTest {
         assertThatCode(() -> declarationService.deleteDeclaration(1L))
             .doesNotThrowAnyException();
         verify(declarationRepository).delete(genereeDeclaration);
+        verify(compteurService).transition(Declaration.DeclarationStatut.GENEREE, null);
     }
     // patchContent
     @Test
@@ -158,6 +164,7 @@ class DeclarationServiceTest {
     @Test
     @DisplayName("patchContent — GENEREE → mise à jour OK")
     void patchContent_generee_ok() {
+        genereeDeclaration.setContenuHash("ancien");
         when(declarationRepository.findById(1L)).thenReturn(Optional.of(genereeDeclaration));
         when(declarationRepository.save(any())).thenReturn(genereeDeclaration);
 
@@ -165,6 +172,8 @@ class DeclarationServiceTest {
 
         assertThat(result).isNotNull();
         verify(declarationRepository).save(any());
+        verify(contenuService).attach(genereeDeclaration, "<xml>new</xml>");
+        verify(contenuService).releaseIfUnused("ancien");
     }
     // updateStatut
     @Test
@@ -176,6 +185,7 @@ class DeclarationServiceTest {
             declarationService.updateStatut(1L, "REJETEE", null, "manager1")
         ).isInstanceOf(RuntimeException.class)
          .hasMessageContaining("commentaire");
+        verifyNoInteractions(compteurService);
     }
 
     @Test
@@ -188,6 +198,7 @@ class DeclarationServiceTest {
 
         assertThat(result).isNotNull();
         verify(declarationRepository).save(any());
+        verify(compteurService).transition(Declaration.DeclarationStatut.GENEREE, Declaration.DeclarationStatut.REJETEE);
     }
 
     @Test
@@ -201,23 +212,19 @@ class DeclarationServiceTest {
     }
     // getStats
     @Test
-    @DisplayName("getStats — retourne les compteurs corrects")
+    @DisplayName("getStats — lit les compteurs maintenus, sans compter la table")
     void getStats_retourneCompteurs() {
-        when(declarationRepository.count()).thenReturn(10L);
-        when(declarationRepository.countByStatut(Declaration.DeclarationStatut.GENEREE)).thenReturn(3L);
-        when(declarationRepository.countByStatut(Declaration.DeclarationStatut.EN_VALIDATION)).thenReturn(2L);
-        when(declarationRepository.countByStatut(Declaration.DeclarationStatut.VALIDEE)).thenReturn(2L);
-        when(declarationRepository.countByStatut(Declaration.DeclarationStatut.REJETEE)).thenReturn(1L);
-        when(declarationRepository.countByStatut(Declaration.DeclarationStatut.ENVOYEE)).thenReturn(2L);
+        DeclarationService.DeclarationStats compteurs = new DeclarationService.DeclarationStats();
+        compteurs.setTotal(10L);
+        compteurs.setGenerees(3L);
+        when(compteurService.getStats()).thenReturn(compteurs);
 
         DeclarationService.DeclarationStats stats = declarationService.getStats();
 
         assertThat(stats.getTotal()).isEqualTo(10L);
         assertThat(stats.getGenerees()).isEqualTo(3L);
-        assertThat(stats.getEnValidation()).isEqualTo(2L);
-        assertThat(stats.getValidees()).isEqualTo(2L);
-        assertThat(stats.getRejetees()).isEqualTo(1L);
-        assertThat(stats.getEnvoyees()).isEqualTo(2L);
+        verify(declarationRepository, never()).count();
+        verify(declarationRepository, never()).countByStatut(any());
     }
     // findById
     @Test
@@ -240,4 +247,27 @@ class DeclarationServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getId()).isEqualTo(1L);
     }
+
+    @Test
+    @DisplayName("findPreviousPeriodId — mois précédent, ENVOYEE/VALIDEE du même type, la plus récente")
+    void findPreviousPeriodId_moisPrecedent() {
+        ReflectionTestUtils.setField(activeType, "id", 7L);
+        activeType.setFrequence(DeclarationType.DeclarationFrequence.MENSUELLE);
+        when(declarationRepository.findLatestIdsByTypeAndPeriode(eq(7L), eq("2024-12"), any(), any()))
+            .thenReturn(List.of(42L));
+
+        assertThat(declarationService.findPreviousPeriodId(genereeDeclaration)).contains(42L);
+        verify(declarationRepository).findLatestIdsByTypeAndPeriode(eq(7L), eq("2024-12"),
+            eq(List.of(Declaration.DeclarationStatut.ENVOYEE, Declaration.DeclarationStatut.VALIDEE)),
+            eq(PageRequest.of(0, 1)));
+    }
+
+    @Test
+    @DisplayName("findPreviousPeriodId — période non reconnue → vide, sans requête")
+    void findPreviousPeriodId_periodeInconnue_vide() {
+        genereeDeclaration.setPeriode("Janvier");
+
+        assertThat(declarationService.findPreviousPeriodId(genereeDeclaration)).isEmpty();
+        verifyNoInteractions(declarationRepository);
+    }
 }
@@ -1,6 +1,8 @@
 package com.wifak.validationservice.service;
 
 import com.wifak.validationservice.entities.DeclarationType;
+import com.wifak.validationservice.entities.ValidationRule;
+import com.wifak.validationservice.repositories.DeclarationAnalyseRepository;
 import com.wifak.validationservice.repositories.DeclarationTypeRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -30,6 +32,13 @@ import static org.mockito.Mockito.*;
 class DeclarationTypeServiceTest {
 
     @Mock private DeclarationTypeRepository repository;
+    @Mock private XsdSchemaCache schemaCache;
+    @Mock private SqlResultCache resultCache;
+    @Mock private SqlColumnCatalog columnCatalog;
+    @Mock private SqlQueryCompiler queryCompiler;
+    @Mock private ValidationPlanCache planCache;
+    @Mock private DeclarationAnalyseRepository analyseRepository;
+    @Mock private XsdAnalyzerService xsdAnalyzer;
     @InjectMocks private DeclarationTypeService service;
 
     private DeclarationType type;
@@ -165,6 +174,19 @@ class DeclarationTypeServiceTest {
         assertThat(result.getXsdFileName()).isEqualTo("schema.xsd");
         assertThat(result.getXsdContent()).isEqualTo("<xs:schema/>");
     }
+
+    @Test
+    @DisplayName("saveXsd — remplace le XSD → l'ancien schéma compilé est évincé")
+    void saveXsd_remplacement_evinceAncienSchema() {
+        type.setXsdContent("<xs:schema>ancien</xs:schema>");
+        when(repository.findById(1L)).thenReturn(Optional.of(type));
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.saveXsd(1L, "schema.xsd", "<xs:schema/>");
+
+        verify(schemaCache).evict("<xs:schema>ancien</xs:schema>");
+        verify(xsdAnalyzer).evict("<xs:schema>ancien</xs:schema>");
+    }
     // saveSqlQuery
     @Test
     @DisplayName("saveSqlQuery — sauvegarde la requête SQL")
@@ -176,6 +198,60 @@ class DeclarationTypeServiceTest {
 
         assertThat(result.getSqlQuery()).isEqualTo("SELECT * FROM test");
     }
+
+    @Test
+    @DisplayName("saveSqlQuery — résultats, colonnes et version compilée de l'ancienne requête retirés des caches")
+    void saveSqlQuery_invalideLesCaches() {
+        type.setSqlQuery("SELECT * FROM ancienne");
+        when(repository.findById(1L)).thenReturn(Optional.of(type));
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.saveSqlQuery(1L, "SELECT * FROM nouvelle");
+
+        verify(resultCache).evict("SELECT * FROM ancienne");
+        verify(columnCatalog).evict(1L);
+        verify(queryCompiler).evict("SELECT * FROM ancienne");
+    }
+    // saveValidationRules
+    private static ValidationRule rule(String champ, ValidationRule.TypeValidation typeValidation, String parametre) {
+        ValidationRule r = new ValidationRule();
+        r.setChampConcerne(champ);
+        r.setTypeValidation(typeValidation);
+        r.setParametre(parametre);
+        return r;
+    }
+
+    @Test
+    @DisplayName("saveValidationRules — règles remplacées, plan retiré du cache, analyses du type à recalculer")
+    void saveValidationRules_ok() {
+        type.addValidationRule(rule("Ancien", ValidationRule.TypeValidation.CHAMP_OBLIGATOIRE, null));
+        LocalDateTime avant = type.getDerniereModification();
+        when(repository.findById(1L)).thenReturn(Optional.of(type));
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        List<ValidationRule> result = service.saveValidationRules(1L, List.of(
+                rule("IdClient", ValidationRule.TypeValidation.CHAMP_OBLIGATOIRE, null),
+                rule("MontantImpaye", ValidationRule.TypeValidation.CALCUL, "<= MontantCredit")));
+
+        assertThat(result).extracting(ValidationRule::getChampConcerne).containsExactly("IdClient", "MontantImpaye");
+        assertThat(result).allMatch(r -> r.getDeclarationType() == type);
+        assertThat(type.getDerniereModification()).isAfterOrEqualTo(avant);
+        verify(planCache).evict("DECL001");
+        verify(analyseRepository).deleteAnalysesByDeclarationType(1L);
+    }
+
+    @Test
+    @DisplayName("saveValidationRules — règle invalide → IllegalArgumentException, rien n'est modifié")
+    void saveValidationRules_invalide() {
+        when(repository.findById(1L)).thenReturn(Optional.of(type));
+
+        assertThatThrownBy(() -> service.saveValidationRules(1L, List.of(
+                rule("Code", ValidationRule.TypeValidation.LONGUEUR_MAX, "dix"))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("LONGUEUR_MAX sur 'Code'");
+        verify(repository, never()).save(any());
+        verifyNoInteractions(planCache, analyseRepository);
+    }
     // update
     @Test
     @DisplayName("update — met à jour tous les champs")
@@ -0,0 +1,80 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DeclarationXmlReader — Tests unitaires")
+class DeclarationXmlReaderTest {
+
+    private static final String XML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+            "<Declaration code=\"BCT_05\" periode=\"2025-01\">" +
+            "<Entete><CodeDeclaration>BCT_05</CodeDeclaration><DateDebut>2025-01-01</DateDebut>" +
+            "<DateFin> 2025-01-31 </DateFin><NombreLignes>2</NombreLignes></Entete>" +
+            "<Donnees>" +
+            "<Ligne><IdClient>C1</IdClient><MontantCredit>100</MontantCredit><Periode>ignorée</Periode></Ligne>" +
+            "<Ligne><IdClient>C2</IdClient><NomClient><![CDATA[A & B]]></NomClient></Ligne>" +
+            "</Donnees></Declaration>";
+
+    @Test
+    @DisplayName("read — en-tête (attributs puis balises) et lignes dans l'ordre")
+    void read_enteteEtLignes() throws Exception {
+        DeclarationXmlReader reader = new DeclarationXmlReader(new StringReader(XML));
+        List<Map<String, String>> lignes = new ArrayList<>();
+
+        int count = reader.read((num, champs) -> lignes.add(new TreeMap<>(champs)));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(lignes.get(0)).containsEntry("IdClient", "C1").containsEntry("MontantCredit", "100");
+        assertThat(lignes.get(1)).containsOnlyKeys("IdClient", "NomClient").containsEntry("NomClient", "A & B");
+
+        DeclarationXmlReader.Entete entete = reader.getEntete();
+        assertThat(entete.getCode()).isEqualTo("BCT_05");
+        assertThat(entete.getPeriode()).isEqualTo("2025-01");
+        assertThat(entete.getDateDebut()).isEqualTo("2025-01-01");
+        assertThat(entete.getDateFin()).isEqualTo("2025-01-31");
+        assertThat(entete.getNombreLignes()).isEqualTo("2");
+        assertThat(entete.getCodeDeclaration()).isEqualTo("BCT_05");
+    }
+
+    @Test
+    @DisplayName("read — champ sans texte ignoré, champ blanc conservé vide")
+    void read_champSansTexte_ignore() throws Exception {
+        String xml = "<Declaration><Donnees><Ligne>"
+                + "<IdClient>C1</IdClient><Vide/><Ferme></Ferme><Blanc>  </Blanc>"
+                + "</Ligne></Donnees></Declaration>";
+        List<Map<String, String>> lignes = new ArrayList<>();
+
+        new DeclarationXmlReader(new StringReader(xml)).read((num, champs) -> lignes.add(new TreeMap<>(champs)));
+
+        assertThat(lignes.get(0)).containsOnlyKeys("IdClient", "Blanc").containsEntry("Blanc", "");
+    }
+
+    @Test
+    @DisplayName("read — balise non fermée → XMLStreamException")
+    void read_malforme_exception() {
+        DeclarationXmlReader reader = new DeclarationXmlReader(new StringReader("<Declaration><Ligne></Declaration>"));
+
+        assertThatThrownBy(() -> reader.read((num, champs) -> { }))
+                .isInstanceOf(XMLStreamException.class);
+    }
+
+    @Test
+    @DisplayName("read — DOCTYPE refusé (XXE)")
+    void read_doctype_refuse() {
+        String xxe = "<!DOCTYPE d [<!ENTITY x SYSTEM \"file:///etc/passwd\">]><Declaration>&x;</Declaration>";
+        DeclarationXmlReader reader = new DeclarationXmlReader(new StringReader(xxe));
+
+        assertThatThrownBy(() -> reader.read((num, champs) -> { }))
+                .isInstanceOf(XMLStreamException.class);
+    }
+}
@@ -0,0 +1,114 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("DeclarationXmlWriter — Tests unitaires")
+class DeclarationXmlWriterTest {
+
+    private String write(int lignes) throws Exception {
+        StringWriter out = new StringWriter();
+        try (DeclarationXmlWriter xml = new DeclarationXmlWriter(out)) {
+            Map<String, String> attrs = new LinkedHashMap<>();
+            attrs.put("code", "BCT_05");
+            attrs.put("periode", "2025-01");
+            xml.startDeclaration(attrs);
+            xml.startEntete();
+            xml.writeEnteteField("CodeDeclaration", "BCT_05");
+            xml.writeEnteteField("NombreLignes", String.valueOf(lignes));
+            xml.writeEnteteField("Vide", null);
+            xml.endEntete();
+            xml.startDonnees();
+            for (int i = 0; i < lignes; i++) {
+                xml.startLigne();
+                xml.writeLigneField("IdClient", "C" + i);
+                xml.writeLigneField("NomClient", "A & B <SARL>");
+                xml.endLigne();
+            }
+            xml.endDeclaration();
+        }
+        return out.toString();
+    }
+
+    private Document parse(String xml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(xml)));
+    }
+
+    @Test
+    @DisplayName("Structure Declaration/Entete/Donnees/Ligne bien formée")
+    void write_producesWellFormedStructure() throws Exception {
+        String xml = write(3);
+
+        Document doc = parse(xml);
+        assertThat(doc.getDocumentElement().getTagName()).isEqualTo("Declaration");
+        assertThat(doc.getDocumentElement().getAttribute("code")).isEqualTo("BCT_05");
+        assertThat(doc.getElementsByTagName("Ligne").getLength()).isEqualTo(3);
+        assertThat(doc.getElementsByTagName("NombreLignes").item(0).getTextContent()).isEqualTo("3");
+        assertThat(xml).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        assertThat(xml).contains("\n    <Ligne>\n      <IdClient>C0</IdClient>");
+    }
+
+    @Test
+    @DisplayName("Caractères spéciaux échappés et champs vides en balise auto-fermante")
+    void write_escapesAndEmptyElements() throws Exception {
+        String xml = write(1);
+
+        assertThat(xml).contains("A &amp; B &lt;SARL&gt;");
+        assertThat(xml).contains("<Vide/>");
+        assertThat(parse(xml).getElementsByTagName("NomClient").item(0).getTextContent())
+                .isEqualTo("A & B <SARL>");
+    }
+
+    @Test
+    @DisplayName("Aucune ligne → Donnees vide mais XML valide")
+    void write_noLignes_stillWellFormed() throws Exception {
+        Document doc = parse(write(0));
+        assertThat(doc.getElementsByTagName("Donnees").getLength()).isEqualTo(1);
+        assertThat(doc.getElementsByTagName("Ligne").getLength()).isZero();
+    }
+
+    @Test
+    @DisplayName("copyLignes — lignes écrites à part puis recopiées → sortie identique à l'écriture directe")
+    void copyLignes_sortieIdentique() throws Exception {
+        StringWriter tampon = new StringWriter();
+        try (DeclarationXmlWriter lignes = new DeclarationXmlWriter(tampon)) {
+            for (int i = 0; i < 3; i++) {
+                lignes.startLigne();
+                lignes.writeLigneField("IdClient", "C" + i);
+                lignes.writeLigneField("NomClient", "A & B <SARL>");
+                lignes.endLigne();
+            }
+            lignes.flush();
+        }
+
+        StringWriter out = new StringWriter();
+        try (DeclarationXmlWriter xml = new DeclarationXmlWriter(out)) {
+            Map<String, String> attrs = new LinkedHashMap<>();
+            attrs.put("code", "BCT_05");
+            attrs.put("periode", "2025-01");
+            xml.startDeclaration(attrs);
+            xml.startEntete();
+            xml.writeEnteteField("CodeDeclaration", "BCT_05");
+            xml.writeEnteteField("NombreLignes", "3");
+            xml.writeEnteteField("Vide", null);
+            xml.endEntete();
+            xml.startDonnees();
+            xml.copyLignes(new StringReader(tampon.toString()));
+            xml.endDeclaration();
+        }
+
+        assertThat(out.toString()).isEqualTo(write(3));
+    }
+}
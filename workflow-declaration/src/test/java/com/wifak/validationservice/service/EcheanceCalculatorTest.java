@@ -0,0 +1,49 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("EcheanceCalculator — Tests unitaires")
+class EcheanceCalculatorTest {
+
+    private static final LocalDate FIN_JANVIER = LocalDate.of(2025, 1, 31);
+
+    @Test
+    @DisplayName("compute — date ISO et délai J+N")
+    void compute_isoEtDelai() {
+        assertThat(EcheanceCalculator.compute("2025-03-10", FIN_JANVIER)).isEqualTo(LocalDate.of(2025, 3, 10));
+        assertThat(EcheanceCalculator.compute("J+15", FIN_JANVIER)).isEqualTo(LocalDate.of(2025, 2, 15));
+    }
+
+    @Test
+    @DisplayName("compute — dernier jour (ouvrable) du mois, courant ou suivant")
+    void compute_dernierJour() {
+        // 31/05/2025 est un samedi
+        LocalDate finMai = LocalDate.of(2025, 5, 31);
+        assertThat(EcheanceCalculator.compute("Dernier jour du mois", finMai)).isEqualTo(finMai);
+        assertThat(EcheanceCalculator.compute("Dernier jour ouvrable du mois", finMai))
+            .isEqualTo(LocalDate.of(2025, 5, 30));
+        assertThat(EcheanceCalculator.compute("dernier jour du mois suivant", FIN_JANVIER))
+            .isEqualTo(LocalDate.of(2025, 2, 28));
+    }
+
+    @Test
+    @DisplayName("compute — jour du mois suivant, borné à la longueur du mois")
+    void compute_jourDuMoisSuivant() {
+        assertThat(EcheanceCalculator.compute("Le 20 du mois suivant", FIN_JANVIER)).isEqualTo(LocalDate.of(2025, 2, 20));
+        assertThat(EcheanceCalculator.compute("30", FIN_JANVIER)).isEqualTo(LocalDate.of(2025, 2, 28));
+    }
+
+    @Test
+    @DisplayName("compute — texte non reconnu ou données manquantes → null")
+    void compute_nonReconnu() {
+        assertThat(EcheanceCalculator.compute("À définir", FIN_JANVIER)).isNull();
+        assertThat(EcheanceCalculator.compute("45", FIN_JANVIER)).isNull();
+        assertThat(EcheanceCalculator.compute(null, FIN_JANVIER)).isNull();
+        assertThat(EcheanceCalculator.compute("J+5", null)).isNull();
+    }
+}
@@ -0,0 +1,294 @@
+package com.wifak.validationservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wifak.validationservice.dto.XsdSqlMappingRequest;
+import com.wifak.validationservice.entities.Declaration;
+import com.wifak.validationservice.entities.GenerationJob;
+import com.wifak.validationservice.repositories.GenerationJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ActiveProfiles("test")
+@DisplayName("GenerationJobService — Tests unitaires")
+class GenerationJobServiceTest {
+
+    @Mock private GenerationJobRepository jobRepository;
+    @Mock private DeclarationService declarationService;
+
+    private final Map<Long, GenerationJob> store = new HashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        // Repository en mémoire : save attribue un id, findById relit la même instance
+        when(jobRepository.save(any())).thenAnswer(inv -> {
+            GenerationJob job = inv.getArgument(0);
+            if (job.getId() == null) job.setId(ids.incrementAndGet());
+            store.put(job.getId(), job);
+            return job;
+        });
+        when(jobRepository.findById(anyLong())).thenAnswer(inv -> Optional.ofNullable(store.get(inv.getArgument(0))));
+        // UPDATE conditionnels : appliqués seulement par le propriétaire du bail
+        when(jobRepository.markStarted(anyLong(), anyString(), any(), anyString(), any(), anyCollection()))
+            .thenAnswer(inv -> proprietaire(inv.getArgument(0), inv.getArgument(1)) ? 1 : 0);
+        when(jobRepository.complete(anyLong(), anyString(), any(), any(), anyString(), any(), any(),
+                anyLong(), anyLong(), any(), any()))
+            .thenAnswer(inv -> proprietaire(inv.getArgument(0), inv.getArgument(1)) ? 1 : 0);
+    }
+
+    private boolean proprietaire(Long id, String instance) {
+        GenerationJob job = store.get(id);
+        return job != null && instance.equals(job.getProprietaire());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private GenerationJobService service(TaskExecutor executor) {
+        return new GenerationJobService(jobRepository, declarationService, new ObjectMapper(), executor);
+    }
+
+    private Declaration declaration(Long id) {
+        Declaration d = new Declaration();
+        d.setId(id);
+        return d;
+    }
+
+    @Test
+    @DisplayName("submit — sans mapping → generateAndSave exécuté, job TERMINE avec l'ID de déclaration")
+    void submit_sansMapping_termine() {
+        when(declarationService.generateAndSave(eq(1L), eq("2025-01"), any(), any())).thenAnswer(inv -> {
+            // Simule l'avancement rapporté par les générateurs
+            GenerationProgress.current().ligne();
+            GenerationProgress.current().ligne();
+            Writer w = GenerationProgress.current().track(new StringWriter());
+            w.write("é;a\n");
+            return declaration(42L);
+        });
+
+        GenerationJob job = service(new SyncTaskExecutor()).submit(1L, "2025-01",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), null);
+
+        assertThat(job.getStatut()).isEqualTo(GenerationJob.JobStatut.TERMINE);
+        assertThat(job.getEtape()).isEqualTo("TERMINE");
+        assertThat(job.getDeclarationId()).isEqualTo(42L);
+        assertThat(job.getLignesTraitees()).isEqualTo(2);
+        assertThat(job.getOctetsEcrits()).isEqualTo(5);
+        assertThat(job.getLignesTotal()).isNull();
+        verify(declarationService).notifyJiraTicketCreation(42L, "system");
+        assertThat(GenerationProgress.current().getLignesTraitees()).isZero();
+    }
+
+    @Test
+    @DisplayName("submit — avec mapping → generateAndSaveWithMapping avec le mapping relu")
+    void submit_avecMapping_generateWithMapping() {
+        XsdSqlMappingRequest.FieldMapping fm = new XsdSqlMappingRequest.FieldMapping();
+        fm.setXsdFieldName("IdClient");
+        fm.setSqlColumn("id_client");
+        fm.setSource(XsdSqlMappingRequest.MappingSource.SQL);
+        when(declarationService.generateAndSaveWithMapping(eq(1L), anyString(), any(), any(), anyList()))
+            .thenReturn(declaration(7L));
+
+        GenerationJob job = service(new SyncTaskExecutor()).submit(1L, "2025-01", null, null, List.of(fm));
+
+        assertThat(job.getStatut()).isEqualTo(GenerationJob.JobStatut.TERMINE);
+        verify(declarationService).generateAndSaveWithMapping(eq(1L), eq("2025-01"), any(), any(),
+                argThat(l -> l.size() == 1 && "id_client".equals(l.get(0).getSqlColumn())));
+    }
+
+    @Test
+    @DisplayName("submit — génération en erreur → job ECHEC avec le message")
+    void submit_erreurGeneration_echec() {
+        when(declarationService.generateAndSave(anyLong(), anyString(), any(), any()))
+            .thenThrow(new RuntimeException("Erreur SQL: table absente"));
+
+        GenerationJob job = service(new SyncTaskExecutor()).submit(1L, "2025-01", null, null, null);
+
+        assertThat(job.getStatut()).isEqualTo(GenerationJob.JobStatut.ECHEC);
+        assertThat(job.getMessageErreur()).contains("table absente");
+        assertThat(job.getDateTerminaison()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("submit — file pleine → job ECHEC et IllegalStateException")
+    void submit_filePleine_refuse() {
+        TaskExecutor full = task -> { throw new TaskRejectedException("plein"); };
+
+        assertThatThrownBy(() -> service(full).submit(1L, "2025-01", null, null, null))
+            .isInstanceOf(IllegalStateException.class);
+        assertThat(store.get(1L).getStatut()).isEqualTo(GenerationJob.JobStatut.ECHEC);
+        verifyNoInteractions(declarationService);
+    }
+
+    @Test
+    @DisplayName("submitInLot — job rattaché au lot, sans mapping")
+    void submitInLot_rattacheAuLot() {
+        when(declarationService.generateAndSave(eq(3L), eq("2025-01"), any(), any())).thenReturn(declaration(11L));
+
+        GenerationJob job = service(new SyncTaskExecutor()).submitInLot("lot-1", 3L, "2025-01",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+
+        assertThat(job.getLotId()).isEqualTo("lot-1");
+        assertThat(job.getMappingJson()).isNull();
+        assertThat(job.getStatut()).isEqualTo(GenerationJob.JobStatut.TERMINE);
+        verify(declarationService, never()).generateAndSaveWithMapping(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("submitInLot — file pleine → job EN_ATTENTE sans bail, repris plus tard")
+    void submitInLot_filePleine_differe() {
+        TaskExecutor full = task -> { throw new TaskRejectedException("plein"); };
+
+        GenerationJob job = service(full).submitInLot("lot-1", 3L, "2025-01",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+
+        assertThat(job.getStatut()).isEqualTo(GenerationJob.JobStatut.EN_ATTENTE);
+        assertThat(job.getBailExpiration()).isNull();
+        verify(jobRepository).releaseLease(eq(job.getId()), anyString());
+        verifyNoInteractions(declarationService);
+    }
+
+    // claim simulé : réussit si le bail du job est expiré ou absent, comme l'UPDATE conditionnel
+    private void claimEnMemoire() {
+        when(jobRepository.claim(anyLong(), anyString(), any(), any(), anyString(), anyCollection(), any()))
+            .thenAnswer(inv -> {
+                GenerationJob job = store.get(inv.getArgument(0));
+                LocalDateTime maintenant = inv.getArgument(6);
+                if (job.getBailExpiration() != null && !job.getBailExpiration().isBefore(maintenant)) return 0;
+                job.setProprietaire(inv.getArgument(1));
+                job.setBailExpiration(inv.getArgument(2));
+                job.setStatut(inv.getArgument(3));
+                job.setLignesTraitees(0);
+                return 1;
+            });
+    }
+
+    @Test
+    @DisplayName("resumePendingJobs — job au bail expiré pris puis relancé depuis zéro")
+    void resumePendingJobs_relance() {
+        GenerationJob interrompu = new GenerationJob();
+        interrompu.setDeclarationTypeId(1L);
+        interrompu.setPeriode("2025-01");
+        interrompu.setStatut(GenerationJob.JobStatut.EN_COURS);
+        interrompu.setLignesTraitees(500);
+        interrompu.setProprietaire("pod-a-1234");
+        interrompu.setBailExpiration(LocalDateTime.now().minusMinutes(5));
+        jobRepository.save(interrompu);
+        when(jobRepository.findResumable(anyCollection(), any())).thenReturn(List.of(interrompu));
+        claimEnMemoire();
+        when(declarationService.generateAndSave(anyLong(), anyString(), any(), any())).thenReturn(declaration(9L));
+
+        service(new SyncTaskExecutor()).resumePendingJobs();
+
+        assertThat(interrompu.getStatut()).isEqualTo(GenerationJob.JobStatut.TERMINE);
+        assertThat(interrompu.getProprietaire()).startsWith("test-");
+        assertThat(interrompu.getLignesTraitees()).isZero();
+        assertThat(interrompu.getDeclarationId()).isEqualTo(9L);
+        assertThat(interrompu.getBailExpiration()).isNull();
+    }
+
+    @Test
+    @DisplayName("resumePendingJobs — job déjà pris par une autre instance (claim = 0) → non relancé")
+    void resumePendingJobs_dejaPris_ignore() {
+        GenerationJob job = new GenerationJob();
+        job.setDeclarationTypeId(1L);
+        job.setPeriode("2025-01");
+        job.setStatut(GenerationJob.JobStatut.EN_ATTENTE);
+        jobRepository.save(job);
+        when(jobRepository.findResumable(anyCollection(), any())).thenReturn(List.of(job));
+        when(jobRepository.claim(anyLong(), anyString(), any(), any(), anyString(), anyCollection(), any())).thenReturn(0);
+
+        service(new SyncTaskExecutor()).resumePendingJobs();
+
+        assertThat(job.getStatut()).isEqualTo(GenerationJob.JobStatut.EN_ATTENTE);
+        verifyNoInteractions(declarationService);
+    }
+
+    @Test
+    @DisplayName("heartbeat — bail prolongé et avancement du job en cours recopié sur sa ligne")
+    void heartbeat_persisteAvancement() {
+        GenerationJobService service = service(new SyncTaskExecutor());
+        when(declarationService.generateAndSave(anyLong(), anyString(), any(), any())).thenAnswer(inv -> {
+            GenerationProgress.current().ligne();
+            GenerationProgress.current().ligne();
+            service.heartbeat();
+            return declaration(5L);
+        });
+
+        GenerationJob job = service.submit(1L, "2025-01", null, null, null);
+
+        verify(jobRepository).renewLeases(eq(job.getProprietaire()), anyCollection(), any());
+        verify(jobRepository).saveProgress(eq(job.getId()), eq(job.getProprietaire()),
+                eq(GenerationJob.JobStatut.EN_COURS), anyString(), eq(2L), eq(0L), isNull());
+    }
+
+    @Test
+    @DisplayName("run — bail perdu pendant la génération → état final non écrit, déclaration de cette exécution supprimée")
+    void run_bailPerdu_resultatEcarte() {
+        when(declarationService.generateAndSave(anyLong(), anyString(), any(), any())).thenAnswer(inv -> {
+            // Une autre instance reprend le job pendant la génération
+            store.values().forEach(j -> j.setProprietaire("pod-b-5678"));
+            return declaration(21L);
+        });
+
+        service(new SyncTaskExecutor()).submit(1L, "2025-01", null, null, null);
+
+        verify(jobRepository).complete(eq(1L), startsWith("test-"), any(), eq(GenerationJob.JobStatut.TERMINE),
+                anyString(), any(), eq(21L), anyLong(), anyLong(), any(), any());
+        verify(declarationService).deleteDeclaration(21L);
+        verify(declarationService, never()).notifyJiraTicketCreation(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("run — job repris ailleurs avant son démarrage → aucune génération")
+    void run_reprisAvantDemarrage_ignore() {
+        GenerationJobService service = service(task -> {
+            store.values().forEach(j -> j.setProprietaire("pod-b-5678"));
+            task.run();
+        });
+
+        service.submit(1L, "2025-01", null, null, null);
+
+        verifyNoInteractions(declarationService);
+        verify(jobRepository, never()).complete(anyLong(), anyString(), any(), any(), anyString(), any(), any(),
+                anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    @DisplayName("getJob — ID inexistant → RuntimeException")
+    void getJob_inexistant_throwsException() {
+        assertThatThrownBy(() -> service(new SyncTaskExecutor()).getJob(99L))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessageContaining("introuvable");
+    }
+}
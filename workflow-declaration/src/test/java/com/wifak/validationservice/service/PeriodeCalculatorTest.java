@@ -0,0 +1,66 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.DeclarationType.DeclarationFrequence;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("PeriodeCalculator — Tests unitaires")
+class PeriodeCalculatorTest {
+
+    @Test
+    @DisplayName("precedente — mois reculé selon la fréquence, passage d'année")
+    void precedente_mois() {
+        assertThat(PeriodeCalculator.precedente("2025-01", DeclarationFrequence.MENSUELLE)).isEqualTo("2024-12");
+        assertThat(PeriodeCalculator.precedente("2025-03", DeclarationFrequence.TRIMESTRIELLE)).isEqualTo("2024-12");
+        assertThat(PeriodeCalculator.precedente("2025-12", DeclarationFrequence.ANNUELLE)).isEqualTo("2024-12");
+        assertThat(PeriodeCalculator.precedente("2025-06", null)).isEqualTo("2025-05");
+    }
+
+    @Test
+    @DisplayName("precedente — jour, trimestre et année dans le format d'origine")
+    void precedente_autresFormats() {
+        assertThat(PeriodeCalculator.precedente("2025-03-01", DeclarationFrequence.QUOTIDIENNE)).isEqualTo("2025-02-28");
+        assertThat(PeriodeCalculator.precedente("2025-03-10", DeclarationFrequence.HEBDOMADAIRE)).isEqualTo("2025-03-03");
+        assertThat(PeriodeCalculator.precedente("2025-T1", DeclarationFrequence.TRIMESTRIELLE)).isEqualTo("2024-T4");
+        assertThat(PeriodeCalculator.precedente("2025Q3", DeclarationFrequence.TRIMESTRIELLE)).isEqualTo("2025Q2");
+        assertThat(PeriodeCalculator.precedente("2025", DeclarationFrequence.ANNUELLE)).isEqualTo("2024");
+    }
+
+    @Test
+    @DisplayName("precedente — texte libre ou date impossible → null")
+    void precedente_nonReconnue() {
+        assertThat(PeriodeCalculator.precedente("Janvier 2025", DeclarationFrequence.MENSUELLE)).isNull();
+        assertThat(PeriodeCalculator.precedente("2025-13", DeclarationFrequence.MENSUELLE)).isNull();
+        assertThat(PeriodeCalculator.precedente(null, DeclarationFrequence.MENSUELLE)).isNull();
+    }
+
+    @Test
+    @DisplayName("bornes — mois, trimestre civil ou année contenant la période selon la fréquence")
+    void bornes_selonFrequence() {
+        PeriodeCalculator.Bornes mois = PeriodeCalculator.bornes("2024-02", DeclarationFrequence.MENSUELLE);
+        assertThat(mois.getDebut()).isEqualTo(LocalDate.of(2024, 2, 1));
+        assertThat(mois.getFin()).isEqualTo(LocalDate.of(2024, 2, 29));
+
+        PeriodeCalculator.Bornes trimestre = PeriodeCalculator.bornes("2025-05", DeclarationFrequence.TRIMESTRIELLE);
+        assertThat(trimestre.getDebut()).isEqualTo(LocalDate.of(2025, 4, 1));
+        assertThat(trimestre.getFin()).isEqualTo(LocalDate.of(2025, 6, 30));
+
+        PeriodeCalculator.Bornes annee = PeriodeCalculator.bornes("2025-05", DeclarationFrequence.ANNUELLE);
+        assertThat(annee.getDebut()).isEqualTo(LocalDate.of(2025, 1, 1));
+        assertThat(annee.getFin()).isEqualTo(LocalDate.of(2025, 12, 31));
+
+        PeriodeCalculator.Bornes semaine = PeriodeCalculator.bornes("2025-03-13", DeclarationFrequence.HEBDOMADAIRE);
+        assertThat(semaine.getDebut()).isEqualTo(LocalDate.of(2025, 3, 10));
+        assertThat(semaine.getFin()).isEqualTo(LocalDate.of(2025, 3, 16));
+
+        PeriodeCalculator.Bornes t4 = PeriodeCalculator.bornes("2025-T4", null);
+        assertThat(t4.getDebut()).isEqualTo(LocalDate.of(2025, 10, 1));
+        assertThat(t4.getFin()).isEqualTo(LocalDate.of(2025, 12, 31));
+
+        assertThat(PeriodeCalculator.bornes("Janvier 2025", DeclarationFrequence.MENSUELLE)).isNull();
+    }
+}
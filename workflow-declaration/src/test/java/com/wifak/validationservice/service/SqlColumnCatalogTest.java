@@ -0,0 +1,113 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Types;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SqlColumnCatalog — Tests unitaires")
+class SqlColumnCatalogTest {
+
+    private static final String SQL =
+            "SELECT code_client AS CodeClient, montant AS Montant, date_op FROM operations " +
+            "WHERE date_op BETWEEN :dateDebut AND :dateFin ORDER BY date_op";
+
+    private SimpleMeterRegistry registry;
+    private JdbcTemplate jdbcTemplate;
+    private SqlColumnCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:columns_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE operations (code_client VARCHAR(20), montant DECIMAL(15,3), date_op DATE)");
+        registry = new SimpleMeterRegistry();
+        catalog = new SqlColumnCatalog(jdbcTemplate, registry);
+    }
+
+    private double count(String result) {
+        return registry.get("sql.columns.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("describe — table vide → noms (alias) et types lus dans les métadonnées")
+    void describe_tableVide_nomsEtTypes() {
+        List<SqlColumnCatalog.SqlColumn> columns = catalog.describe(1L, SQL);
+
+        assertThat(columns).extracting(SqlColumnCatalog.SqlColumn::getName)
+                .containsExactly("CODECLIENT", "MONTANT", "DATE_OP");
+        assertThat(columns).extracting(SqlColumnCatalog.SqlColumn::getSqlType)
+                .containsExactly(Types.VARCHAR, Types.DECIMAL, Types.DATE);
+        assertThat(columns.get(1).getJdbcType()).isEqualTo("DECIMAL");
+    }
+
+    @Test
+    @DisplayName("describe — même type, même SQL → métadonnées lues une seule fois")
+    void describe_memeSql_cache() {
+        List<SqlColumnCatalog.SqlColumn> first  = catalog.describe(1L, SQL);
+        List<SqlColumnCatalog.SqlColumn> second = catalog.describe(1L, SQL);
+
+        assertThat(second).isSameAs(first);
+        assertThat(count("miss")).isEqualTo(1.0);
+        assertThat(count("hit")).isEqualTo(1.0);
+        assertThat(catalog.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("describe — SQL modifiée → relue, l'ancienne entrée est remplacée")
+    void describe_sqlModifiee_relue() {
+        catalog.describe(1L, SQL);
+        List<String> names = catalog.columnNames(1L, "SELECT montant FROM operations", null, null);
+
+        assertThat(names).containsExactly("MONTANT");
+        assertThat(count("miss")).isEqualTo(2.0);
+        assertThat(catalog.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("evict — les métadonnées sont relues au prochain appel")
+    void evict_relue() {
+        catalog.describe(1L, SQL);
+        catalog.evict(1L);
+        catalog.describe(1L, SQL);
+
+        assertThat(count("miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("describe — typeId null → jamais mis en cache")
+    void describe_sansType_pasDeCache() {
+        catalog.describe(null, SQL);
+        catalog.describe(null, SQL);
+
+        assertThat(catalog.size()).isZero();
+        assertThat(count("miss")).isZero();
+    }
+
+    @Test
+    @DisplayName("describe — SQL invalide → RuntimeException, rien en cache")
+    void describe_sqlInvalide_exception() {
+        assertThatThrownBy(() -> catalog.describe(1L, "SELECT inconnue FROM operations"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Impossible d'extraire les colonnes");
+        assertThat(catalog.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("describe — libellés en double (jointure) → colonnes lues même si la sous-requête est refusée")
+    void describe_libellesEnDouble() {
+        List<String> names = catalog.columnNames(null,
+                "SELECT o.code_client, p.code_client FROM operations o JOIN operations p ON p.date_op = o.date_op "
+                + "WHERE o.date_op BETWEEN :dateDebut AND :dateFin", null, null);
+
+        assertThat(names).containsExactly("CODE_CLIENT", "CODE_CLIENT");
+    }
+}
@@ -0,0 +1,80 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SqlQueryCompiler — Tests unitaires")
+class SqlQueryCompilerTest {
+
+    private SqlQueryCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new SqlQueryCompiler();
+    }
+
+    @Test
+    @DisplayName("compile — paramètres nommés → ? dans l'ordre d'apparition")
+    void compile_parametresDansLOrdre() {
+        SqlQueryCompiler.CompiledQuery query = compiler.compile(
+                "SELECT * FROM t WHERE d <= :dateFin AND d >= :dateDebut AND f = :dateFin");
+
+        assertThat(query.getSql()).isEqualTo("SELECT * FROM t WHERE d <= ? AND d >= ? AND f = ?");
+        assertThat(query.getParams()).containsExactly(
+                SqlQueryCompiler.Param.DATE_FIN, SqlQueryCompiler.Param.DATE_DEBUT, SqlQueryCompiler.Param.DATE_FIN);
+        assertThat(query.bind(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)))
+                .containsExactly("2025-01-31", "2025-01-01", "2025-01-31");
+    }
+
+    @Test
+    @DisplayName("compile — littéraux, autres :noms et préfixes conservés")
+    void compile_litterauxConserves() {
+        SqlQueryCompiler.CompiledQuery query = compiler.compile(
+                "SELECT ':dateDebut' AS lib, `:dateFin` FROM t "
+                + "WHERE h > '10:30' AND x = :autre AND d = :dateDebutMois AND d >= :dateDebut");
+
+        assertThat(query.getSql()).isEqualTo("SELECT ':dateDebut' AS lib, `:dateFin` FROM t "
+                + "WHERE h > '10:30' AND x = :autre AND d = :dateDebutMois AND d >= ?");
+        assertThat(query.getParams()).containsExactly(SqlQueryCompiler.Param.DATE_DEBUT);
+    }
+
+    @Test
+    @DisplayName("compile — même texte → analysé une fois, même instance ; evict → réanalysé")
+    void compile_cacheParVersion() {
+        String sql = "SELECT * FROM t WHERE d BETWEEN :dateDebut AND :dateFin";
+
+        SqlQueryCompiler.CompiledQuery first = compiler.compile(sql);
+        assertThat(compiler.compile(sql)).isSameAs(first);
+        assertThat(compiler.size()).isEqualTo(1);
+
+        compiler.evict(sql);
+        assertThat(compiler.size()).isZero();
+        assertThat(compiler.compile(sql)).isNotSameAs(first);
+    }
+
+    @Test
+    @DisplayName("bind — date absente → chaîne vide")
+    void bind_dateAbsente() {
+        SqlQueryCompiler.CompiledQuery query = compiler.compile("SELECT * FROM t WHERE d BETWEEN :dateDebut AND :dateFin");
+
+        assertThat(query.bind(null, LocalDate.of(2025, 1, 31))).containsExactly("", "2025-01-31");
+    }
+
+    @Test
+    @DisplayName("withoutTrailingOrderBy — ORDER BY final retiré, conservé s'il est imbriqué ou suivi de LIMIT")
+    void withoutTrailingOrderBy() {
+        assertThat(SqlQueryCompiler.withoutTrailingOrderBy("SELECT * FROM t WHERE d BETWEEN ? AND ? ORDER BY d DESC;"))
+                .isEqualTo("SELECT * FROM t WHERE d BETWEEN ? AND ?");
+        assertThat(SqlQueryCompiler.withoutTrailingOrderBy("SELECT * FROM t ORDER BY d LIMIT 10"))
+                .isEqualTo("SELECT * FROM t ORDER BY d LIMIT 10");
+        assertThat(SqlQueryCompiler.withoutTrailingOrderBy("SELECT * FROM (SELECT a FROM t ORDER BY a) x"))
+                .isEqualTo("SELECT * FROM (SELECT a FROM t ORDER BY a) x");
+        assertThat(SqlQueryCompiler.withoutTrailingOrderBy("SELECT 'ORDER BY x' AS lib, border_by FROM t"))
+                .isEqualTo("SELECT 'ORDER BY x' AS lib, border_by FROM t");
+    }
+}
@@ -0,0 +1,149 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("SqlResultCache — Tests unitaires")
+class SqlResultCacheTest {
+
+    private static final String TYPE_SQL = "SELECT code_client, montant FROM operations "
+            + "WHERE date_op BETWEEN :dateDebut AND :dateFin ORDER BY code_client";
+    private static final String SQL  = "SELECT code_client, montant FROM operations "
+            + "WHERE date_op BETWEEN ? AND ? ORDER BY code_client";
+    private static final Object[] ARGS = {"2025-01-01", "2025-01-31"};
+
+    private SimpleMeterRegistry registry;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:results_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE operations (code_client VARCHAR(20), montant DECIMAL(15,3), date_op DATE)");
+        jdbcTemplate.update("INSERT INTO operations VALUES ('C1', 100.000, DATE '2025-01-10')");
+        jdbcTemplate.update("INSERT INTO operations VALUES ('C2', 250.500, DATE '2025-01-20')");
+        registry = new SimpleMeterRegistry();
+    }
+
+    private SqlResultCache cache(boolean enabled, long maxBytes, Duration ttl) {
+        return new SqlResultCache(registry, enabled, maxBytes, ttl);
+    }
+
+    private List<String> read(SqlStreamingService service) {
+        List<String> lignes = new ArrayList<>();
+        service.stream(SQL, ARGS, row -> lignes.add(row.getString(0) + "=" + row.getString(row.indexOf("MONTANT"))));
+        return lignes;
+    }
+
+    private double count(String result) {
+        return registry.get("sql.result.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("stream — même SQL et paramètres → rejoué depuis le cache, sans relire la base")
+    void stream_memeRequete_rejoue() {
+        SqlResultCache cache = cache(true, 1_000_000, Duration.ofMinutes(5));
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        List<String> first = read(service);
+        jdbcTemplate.update("INSERT INTO operations VALUES ('C3', 1.000, DATE '2025-01-25')");
+        List<String> second = read(service);
+
+        assertThat(second).isEqualTo(first).containsExactly("C1=100.000", "C2=250.500");
+        assertThat(count("hit")).isEqualTo(1.0);
+        assertThat(cache.getTotalBytes()).isPositive();
+    }
+
+    @Test
+    @DisplayName("stream — paramètres différents → nouvelle lecture")
+    void stream_autresParametres_relu() {
+        SqlResultCache cache = cache(true, 1_000_000, Duration.ofMinutes(5));
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        read(service);
+        List<String> lignes = new ArrayList<>();
+        service.stream(SQL, new Object[]{"2025-01-15", "2025-01-31"}, row -> lignes.add(row.getString(0)));
+
+        assertThat(lignes).containsExactly("C2");
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("evict — requête du type remplacée → ses résultats sont relus")
+    void evict_requeteDuType_relue() {
+        SqlResultCache cache = cache(true, 1_000_000, Duration.ofMinutes(5));
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        read(service);
+        jdbcTemplate.update("INSERT INTO operations VALUES ('C3', 1.000, DATE '2025-01-25')");
+        cache.evict(TYPE_SQL);
+
+        assertThat(read(service)).hasSize(3);
+        assertThat(count("hit")).isZero();
+    }
+
+    @Test
+    @DisplayName("TTL écoulé → l'entrée n'est plus servie")
+    void ttl_expire() {
+        SqlResultCache cache = cache(true, 1_000_000, Duration.ZERO);
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        read(service);
+        read(service);
+
+        assertThat(count("hit")).isZero();
+        assertThat(count("miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("résultat plus gros que le quart du budget → jamais mis en cache")
+    void resultatTropGros_pasMisEnCache() {
+        SqlResultCache cache = cache(true, 400, Duration.ofMinutes(5));
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        read(service);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getTotalBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("budget dépassé → l'entrée la moins récemment lue est retirée")
+    void budgetDepasse_lruRetiree() {
+        SqlResultCache cache = cache(true, 1_000, Duration.ofMinutes(5));
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        for (int jour = 10; jour < 20; jour++) {
+            service.stream(SQL, new Object[]{"2025-01-" + jour, "2025-01-31"}, row -> { });
+        }
+
+        assertThat(cache.getTotalBytes()).isLessThanOrEqualTo(1_000);
+        assertThat(cache.size()).isLessThan(10);
+        assertThat(cache.get(SQL, new Object[]{"2025-01-19", "2025-01-31"})).isNotNull();
+        assertThat(cache.get(SQL, new Object[]{"2025-01-10", "2025-01-31"})).isNull();
+    }
+
+    @Test
+    @DisplayName("désactivé → aucun enregistrement")
+    void desactive_aucunEnregistrement() {
+        SqlResultCache cache = cache(false, 1_000_000, Duration.ofMinutes(5));
+        SqlStreamingService service = new SqlStreamingService(jdbcTemplate, cache, 100);
+
+        read(service);
+
+        assertThat(cache.recorder(SQL, ARGS)).isNull();
+        assertThat(cache.get(SQL, ARGS)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+}
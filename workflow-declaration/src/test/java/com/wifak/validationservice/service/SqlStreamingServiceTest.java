@@ -0,0 +1,31 @@
+package com.wifak.validationservice.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSetMetaData;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("SqlStreamingService — Tests unitaires")
+class SqlStreamingServiceTest {
+
+    @Test
+    @DisplayName("StreamedRow — colonnes lues une fois, doublons ignorés, recherche insensible à la casse")
+    void streamedRow_resolvesColumnsFromMetaData() throws Exception {
+        ResultSetMetaData md = mock(ResultSetMetaData.class);
+        when(md.getColumnCount()).thenReturn(3);
+        when(md.getColumnLabel(1)).thenReturn("IdClient");
+        when(md.getColumnLabel(2)).thenReturn("Montant");
+        when(md.getColumnLabel(3)).thenReturn("MONTANT");
+
+        SqlStreamingService.StreamedRow row = SqlStreamingService.StreamedRow.fromMetaData(md);
+
+        assertThat(row.getColumns()).containsExactly("IdClient", "Montant");
+        assertThat(row.indexOf("idclient")).isZero();
+        assertThat(row.indexOf("montant")).isEqualTo(1);
+        assertThat(row.indexOf("Inconnue")).isEqualTo(-1);
+        assertThat(row.getString(0)).isEmpty();
+    }
+}
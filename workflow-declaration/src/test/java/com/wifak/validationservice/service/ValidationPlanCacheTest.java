@@ -0,0 +1,77 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.ValidationRule;
+import com.wifak.validationservice.repositories.DeclarationTypeRepository;
+import com.wifak.validationservice.repositories.ValidationRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ValidationPlanCache — Tests unitaires")
+class ValidationPlanCacheTest {
+
+    private static final LocalDateTime V1 = LocalDateTime.of(2025, 1, 1, 10, 0);
+
+    @Mock private DeclarationTypeRepository typeRepository;
+    @Mock private ValidationRuleRepository ruleRepository;
+
+    private ValidationPlanCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ValidationPlanCache(typeRepository, ruleRepository, new SimpleMeterRegistry());
+        ValidationRule rule = new ValidationRule();
+        rule.setChampConcerne("IdClient");
+        rule.setTypeValidation(ValidationRule.TypeValidation.CHAMP_OBLIGATOIRE);
+        when(ruleRepository.findByDeclarationTypeId(3L)).thenReturn(List.of(rule));
+    }
+
+    private static DeclarationTypeRepository.TypeVersion version(Long id, LocalDateTime modification) {
+        return new DeclarationTypeRepository.TypeVersion() {
+            public Long getId()                              { return id; }
+            public LocalDateTime getDerniereModification()   { return modification; }
+        };
+    }
+
+    @Test
+    @DisplayName("plan — même version → compilé une seule fois ; type modifié → recompilé")
+    void plan_parVersion() {
+        when(typeRepository.findVersionByCode("BCT_07")).thenReturn(Optional.of(version(3L, V1)));
+
+        ValidationPlan premier = cache.plan("BCT_07");
+        ValidationPlan second  = cache.plan("BCT_07");
+        when(typeRepository.findVersionByCode("BCT_07")).thenReturn(Optional.of(version(3L, V1.plusMinutes(5))));
+        ValidationPlan recompile = cache.plan("BCT_07");
+
+        assertThat(second).isSameAs(premier);
+        assertThat(recompile).isNotSameAs(premier);
+        assertThat(recompile.getRegles()).isEqualTo(1);
+        verify(ruleRepository, times(2)).findByDeclarationTypeId(3L);
+    }
+
+    @Test
+    @DisplayName("plan — type inconnu → plan vide, aucune règle chargée")
+    void plan_typeInconnu_vide() {
+        when(typeRepository.findVersionByCode("INCONNU")).thenReturn(Optional.empty());
+
+        assertThat(cache.plan("INCONNU")).isSameAs(ValidationPlan.VIDE);
+        assertThat(cache.plan(null)).isSameAs(ValidationPlan.VIDE);
+        assertThat(cache.size()).isZero();
+        verifyNoInteractions(ruleRepository);
+    }
+}
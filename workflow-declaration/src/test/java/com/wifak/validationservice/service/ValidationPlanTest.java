@@ -0,0 +1,112 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.entities.ValidationRule;
+import com.wifak.validationservice.entities.ValidationRule.TypeValidation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("ValidationPlan — Tests unitaires")
+class ValidationPlanTest {
+
+    private static ValidationRule rule(String champ, TypeValidation type, boolean obligatoire, String parametre) {
+        ValidationRule r = new ValidationRule();
+        r.setChampConcerne(champ);
+        r.setTypeValidation(type);
+        r.setObligatoire(obligatoire);
+        r.setParametre(parametre);
+        return r;
+    }
+
+    private static List<String> evaluer(ValidationPlan plan, Map<String, String> ligne) {
+        List<String> errors = new ArrayList<>();
+        plan.evaluer(7, ligne, errors);
+        return errors;
+    }
+
+    @Test
+    @DisplayName("obligatoires d'abord, puis règles dans l'ordre ; une règle ne s'applique pas à un champ vide")
+    void evaluer_ordreEtChampsVides() {
+        ValidationPlan plan = ValidationPlan.compile(List.of(
+                rule("IdClient", TypeValidation.CHAMP_OBLIGATOIRE, true, null),
+                rule("Devise", TypeValidation.VALEURS_AUTORISEES, false, "TND, EUR,usd"),
+                rule("DateOperation", TypeValidation.FORMAT_DATE, true, null),
+                rule("Reference", TypeValidation.FORMAT_REGEX, false, "[A-Z]{3}-\\d{4}")));
+
+        List<String> errors = evaluer(plan, Map.of("Devise", "gbp", "DateOperation", "", "Reference", "ab-12"));
+
+        assertThat(errors).containsExactly(
+                "Ligne 7 : Champ obligatoire 'IdClient' absent ou vide",
+                "Ligne 7 : Champ obligatoire 'DateOperation' absent ou vide",
+                "Ligne 7 : 'Devise' = 'gbp' invalide. Valeurs autorisées : TND, EUR, USD",
+                "Ligne 7 : 'Reference' = 'ab-12' ne respecte pas le format attendu");
+        assertThat(evaluer(plan, Map.of("IdClient", "C1", "Devise", "eur", "DateOperation", "2025-01-31", "Reference", "ABC-1234")))
+                .isEmpty();
+    }
+
+    @Test
+    @DisplayName("CALCUL — égalité et inégalités entre champs, avec coefficients et tolérance")
+    void evaluer_calculEntreChamps() {
+        ValidationPlan plan = ValidationPlan.compile(List.of(
+                rule("PositionNette", TypeValidation.CALCUL, false, "= PositionAchat - PositionVente"),
+                rule("MontantImpaye", TypeValidation.CALCUL, false, "<= MontantCredit"),
+                rule("Provision", TypeValidation.CALCUL, false, ">= MontantImpaye * 0.2")));
+
+        assertThat(evaluer(plan, Map.of("PositionAchat", "100", "PositionVente", "40", "PositionNette", "60.005",
+                "MontantCredit", "1000", "MontantImpaye", "500", "Provision", "100"))).isEmpty();
+
+        List<String> errors = evaluer(plan, Map.of("PositionAchat", "100", "PositionVente", "40", "PositionNette", "70",
+                "MontantCredit", "1000", "MontantImpaye", "1500", "Provision", "100"));
+
+        assertThat(errors).containsExactly(
+                "Ligne 7 : PositionNette (70.00) doit être = PositionAchat - PositionVente (60.00)",
+                "Ligne 7 : MontantImpaye (1500.00) doit être <= MontantCredit (1000.00)",
+                "Ligne 7 : Provision (100.00) doit être >= MontantImpaye * 0.2 (300.00)");
+    }
+
+    @Test
+    @DisplayName("CALCUL — opérande absente ou non numérique → règle non évaluée")
+    void evaluer_calculOperandeAbsente() {
+        ValidationPlan plan = ValidationPlan.compile(List.of(
+                rule("MontantImpaye", TypeValidation.CALCUL, false, "<= MontantCredit")));
+
+        assertThat(evaluer(plan, Map.of("MontantImpaye", "1500", "MontantCredit", "abc"))).isEmpty();
+        assertThat(evaluer(plan, Map.of("MontantImpaye", "1500"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("message d'erreur personnalisé et règles numériques")
+    void evaluer_messagePersonnalise() {
+        ValidationRule positive = rule("MontantCredit", TypeValidation.VALEUR_POSITIVE, false, null);
+        positive.setMessageErreur("Le crédit doit être strictement positif");
+        ValidationPlan plan = ValidationPlan.compile(List.of(
+                positive,
+                rule("Code", TypeValidation.LONGUEUR_MAX, false, "3"),
+                rule("Taux", TypeValidation.FORMAT_MONTANT, false, null)));
+
+        assertThat(evaluer(plan, Map.of("MontantCredit", "-5", "Code", "ABCD", "Taux", "1.23456"))).containsExactly(
+                "Ligne 7 : Le crédit doit être strictement positif",
+                "Ligne 7 : 'Code' dépasse 3 caractère(s)",
+                "Ligne 7 : 'Taux' = '1.23456' n'est pas un montant valide (3 décimales au plus)");
+    }
+
+    @Test
+    @DisplayName("compile — règles mal paramétrées écartées avec leur raison")
+    void compile_reglesInvalidesIgnorees() {
+        ValidationPlan plan = ValidationPlan.compile(List.of(
+                rule("Code", TypeValidation.LONGUEUR_MIN, false, "abc"),
+                rule("Ref", TypeValidation.FORMAT_REGEX, false, "[A-"),
+                rule("Impaye", TypeValidation.CALCUL, false, "MontantCredit"),
+                rule("Devise", TypeValidation.VALEURS_AUTORISEES, false, " , "),
+                rule("Montant", TypeValidation.VALEUR_NUMERIQUE, false, null)));
+
+        assertThat(plan.getIgnorees()).hasSize(4);
+        assertThat(plan.getRegles()).isEqualTo(1);
+        assertThat(ValidationPlan.VIDE.isEmpty()).isTrue();
+    }
+}
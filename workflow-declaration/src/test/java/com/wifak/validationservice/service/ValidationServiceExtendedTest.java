@@ -2,6 +2,7 @@ package com.wifak.validationservice.service;
 
 import com.wifak.validationservice.client.NotificationClient;
 import com.wifak.validationservice.dto.AiValidationResult;
+import com.wifak.validationservice.dto.DeclarationSummary;
 import com.wifak.validationservice.dto.jira.TransitionJiraTicketRequest;
 import com.wifak.validationservice.entities.Declaration;
 import com.wifak.validationservice.entities.DeclarationType;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -24,8 +26,14 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,7 +48,10 @@ class ValidationServiceExtendedTest {
     @Mock private JiraIntegrationFeignClient jiraClient;
     @Mock private ValidationLogRepository   logRepository;
     @Mock private NotificationClient        notificationClient;
+    @Mock private AuditRollupService        rollupService;
     @Mock private AiDeclarationService      aiDeclarationService;
+    @Mock private AiResultCache             aiResultCache;
+    @Mock private DeclarationContenuService contenuService;
 
     @InjectMocks
     private ValidationService validationService;
@@ -69,6 +80,11 @@ class ValidationServiceExtendedTest {
         rejeteeDeclaration.setDeclarationType(type);
 
         mockSecurityContext("agent1");
+
+        // Par défaut : aucun résultat conservé, le calcul est exécuté
+        when(aiResultCache.analyse(any(), any())).thenAnswer(inv -> inv.<Supplier<?>>getArgument(1).get());
+        when(aiResultCache.resume(any(), any())).thenAnswer(inv -> inv.<Supplier<?>>getArgument(1).get());
+        when(aiResultCache.comparaison(any(), any(), any())).thenAnswer(inv -> inv.<Supplier<?>>getArgument(2).get());
     }
 
     private Declaration buildDeclaration(Long id, Declaration.DeclarationStatut statut, String generePar) {
@@ -213,22 +229,23 @@ class ValidationServiceExtendedTest {
     @Test
     @DisplayName("getPendingDeclarations — filtre EN_VALIDATION")
     void getPendingDeclarations_filtreEnValidation() {
-        when(declarationService.getAllDeclarations())
-            .thenReturn(List.of(genereeDeclaration, enValidationDeclaration, valideeDeclaration));
+        when(declarationService.getDeclarationsByStatut(Declaration.DeclarationStatut.EN_VALIDATION))
+            .thenReturn(List.of(DeclarationSummary.of(enValidationDeclaration)));
 
-        List<Declaration> result = validationService.getPendingDeclarations();
+        List<DeclarationSummary> result = validationService.getPendingDeclarations();
 
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getStatut()).isEqualTo(Declaration.DeclarationStatut.EN_VALIDATION);
+        verify(declarationService, never()).getAllDeclarations();
     }
 
     @Test
     @DisplayName("getPendingDeclarations — aucune EN_VALIDATION → liste vide")
     void getPendingDeclarations_aucune_listeVide() {
-        when(declarationService.getAllDeclarations())
-            .thenReturn(List.of(genereeDeclaration, valideeDeclaration));
+        when(declarationService.getDeclarationsByStatut(Declaration.DeclarationStatut.EN_VALIDATION))
+            .thenReturn(List.of());
 
-        List<Declaration> result = validationService.getPendingDeclarations();
+        List<DeclarationSummary> result = validationService.getPendingDeclarations();
 
         assertThat(result).isEmpty();
     }
@@ -265,6 +282,7 @@ class ValidationServiceExtendedTest {
     void analyzeWithAi_delegue() {
         AiValidationResult aiResult = new AiValidationResult();
         when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
+        when(declarationService.findByIdWithContent(1L)).thenReturn(genereeDeclaration);
         when(aiDeclarationService.analyzeDeclaration(anyString(), anyString())).thenReturn(aiResult);
 
         AiValidationResult result = validationService.analyzeWithAi(1L);
@@ -272,12 +290,28 @@ class ValidationServiceExtendedTest {
         assertThat(result).isNotNull();
         verify(aiDeclarationService).analyzeDeclaration("<xml>content</xml>", "decl_1.xml");
     }
+
+    @Test
+    @DisplayName("analyzeWithAi — résultat conservé pour ce contenu → fichier ni relu ni analysé")
+    void analyzeWithAi_resultatConserve_sansLecture() {
+        AiValidationResult conserve = new AiValidationResult();
+        conserve.setScore(90);
+        when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
+        doReturn(conserve).when(aiResultCache).analyse(eq(genereeDeclaration), any());
+
+        AiValidationResult result = validationService.analyzeWithAi(1L);
+
+        assertThat(result.getScore()).isEqualTo(90);
+        verify(declarationService, never()).findByIdWithContent(any());
+        verifyNoInteractions(aiDeclarationService);
+    }
     // getAiSummary
     @Test
     @DisplayName("getAiSummary — délègue à aiDeclarationService")
     void getAiSummary_delegue() {
         Map<String, Object> summary = Map.of("score", 85);
         when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
+        when(declarationService.findByIdWithContent(1L)).thenReturn(genereeDeclaration);
         when(aiDeclarationService.buildAiSummary(anyString(), anyString())).thenReturn(summary);
 
         Map<String, Object> result = validationService.getAiSummary(1L);
@@ -285,34 +319,94 @@ class ValidationServiceExtendedTest {
         assertThat(result).containsKey("score");
     }
     // compareWithPrevious
+    private Declaration stockee(Declaration d, String hash, String contenu) throws IOException {
+        byte[] octets = contenu.getBytes(StandardCharsets.UTF_8);
+        d.setContenuFichier(null);
+        d.setContenuHash(hash);
+        d.setContenuTaille((long) octets.length);
+        when(contenuService.openStream(hash)).thenAnswer(inv -> new ByteArrayInputStream(octets));
+        return d;
+    }
+
+    private static String lire(DeclarationDiff.Source source) throws IOException {
+        try (Reader in = source.ouvrir()) {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[64];
+            for (int n; (n = in.read(buf)) > 0; ) sb.append(buf, 0, n);
+            return sb.toString();
+        }
+    }
+
     @Test
-    @DisplayName("compareWithPrevious — déclaration précédente trouvée")
-    void compareWithPrevious_precedenteTrouvee() {
-        Declaration prev = buildDeclaration(5L, Declaration.DeclarationStatut.VALIDEE, "agent1");
-        prev.setContenuFichier("<xml>old</xml>");
+    @DisplayName("compareWithPrevious — déclaration précédente trouvée → contenus lus en flux depuis le store")
+    void compareWithPrevious_precedenteTrouvee() throws IOException {
+        stockee(genereeDeclaration, "h1", "<xml>content</xml>");
+        Declaration prev = stockee(buildDeclaration(5L, Declaration.DeclarationStatut.VALIDEE, "agent1"), "h5", "<xml>old</xml>");
 
         when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
         when(declarationService.findById(5L)).thenReturn(prev);
-        when(aiDeclarationService.compareWithPrevious(anyString(), anyString()))
+        when(aiDeclarationService.compareWithPrevious(any(DeclarationDiff.Source.class), anyLong(), any(), anyLong()))
             .thenReturn(Map.of("diff", "minor"));
 
         Map<String, Object> result = validationService.compareWithPrevious(1L, 5L);
 
         assertThat(result).containsKey("diff");
-        verify(aiDeclarationService).compareWithPrevious("<xml>content</xml>", "<xml>old</xml>");
+        ArgumentCaptor<DeclarationDiff.Source> courante   = ArgumentCaptor.forClass(DeclarationDiff.Source.class);
+        ArgumentCaptor<DeclarationDiff.Source> precedente = ArgumentCaptor.forClass(DeclarationDiff.Source.class);
+        verify(aiDeclarationService).compareWithPrevious(courante.capture(), eq(18L), precedente.capture(), eq(14L));
+        assertThat(lire(courante.getValue())).isEqualTo("<xml>content</xml>");
+        assertThat(lire(precedente.getValue())).isEqualTo("<xml>old</xml>");
+        verify(declarationService, never()).findByIdWithContent(any());
     }
 
     @Test
     @DisplayName("compareWithPrevious — déclaration précédente introuvable → compare avec null")
-    void compareWithPrevious_precedenteIntrouvable_compareAvecNull() {
+    void compareWithPrevious_precedenteIntrouvable_compareAvecNull() throws IOException {
+        stockee(genereeDeclaration, "h1", "<xml>content</xml>");
         when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
         when(declarationService.findById(99L)).thenThrow(new RuntimeException("Not found"));
-        when(aiDeclarationService.compareWithPrevious(anyString(), isNull()))
+        when(aiDeclarationService.compareWithPrevious(any(DeclarationDiff.Source.class), anyLong(), isNull(), anyLong()))
             .thenReturn(Map.of("diff", "no previous"));
 
         Map<String, Object> result = validationService.compareWithPrevious(1L, 99L);
 
         assertThat(result).containsKey("diff");
-        verify(aiDeclarationService).compareWithPrevious("<xml>content</xml>", null);
+        verify(aiDeclarationService).compareWithPrevious(any(DeclarationDiff.Source.class), eq(18L), isNull(), eq(0L));
+    }
+
+    @Test
+    @DisplayName("compareWithPreviousPeriod — précédente résolue côté serveur → comparée, id et période ajoutés")
+    void compareWithPreviousPeriod_resolue() throws IOException {
+        stockee(genereeDeclaration, "h1", "<xml>content</xml>");
+        Declaration prev = stockee(buildDeclaration(5L, Declaration.DeclarationStatut.ENVOYEE, "agent1"), "h5", "<xml>old</xml>");
+        prev.setPeriode("2024-12");
+
+        when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
+        when(declarationService.findPreviousPeriodId(genereeDeclaration)).thenReturn(Optional.of(5L));
+        when(declarationService.findById(5L)).thenReturn(prev);
+        when(aiDeclarationService.compareWithPrevious(any(DeclarationDiff.Source.class), anyLong(), any(), anyLong()))
+            .thenReturn(Map.of("available", true));
+
+        Map<String, Object> result = validationService.compareWithPreviousPeriod(1L);
+
+        assertThat(result).containsEntry("available", true)
+            .containsEntry("declarationPrecedenteId", 5L)
+            .containsEntry("periodePrecedente", "2024-12");
+        ArgumentCaptor<DeclarationDiff.Source> precedente = ArgumentCaptor.forClass(DeclarationDiff.Source.class);
+        verify(aiDeclarationService).compareWithPrevious(any(DeclarationDiff.Source.class), eq(18L), precedente.capture(), eq(14L));
+        assertThat(lire(precedente.getValue())).isEqualTo("<xml>old</xml>");
+    }
+
+    @Test
+    @DisplayName("compareWithPreviousPeriod — rien sur la période précédente → indisponible, aucun contenu lu")
+    void compareWithPreviousPeriod_absente() {
+        when(declarationService.findById(1L)).thenReturn(genereeDeclaration);
+        when(declarationService.findPreviousPeriodId(genereeDeclaration)).thenReturn(Optional.empty());
+
+        Map<String, Object> result = validationService.compareWithPreviousPeriod(1L);
+
+        assertThat(result).containsEntry("available", false);
+        verify(declarationService, never()).findByIdWithContent(any());
+        verifyNoInteractions(aiDeclarationService);
     }
 }
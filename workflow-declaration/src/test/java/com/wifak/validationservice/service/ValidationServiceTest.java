@@ -33,6 +33,8 @@ class ValidationServiceTest {
     @Mock private JiraIntegrationFeignClient jiraClient;
     @Mock private ValidationLogRepository logRepository;
     @Mock private NotificationClient notificationClient;
+    @Mock private AuditRollupService rollupService;
+    @Mock private AiResultCache aiResultCache;
 
     @InjectMocks
     private ValidationService validationService;
@@ -124,6 +126,20 @@ class ValidationServiceTest {
 
         assertThat(result).isNotNull();
         assertThat(result.getStatut()).isEqualTo(Declaration.DeclarationStatut.VALIDEE);
+        verify(rollupService).record(eq("VALIDATE"), eq("manager1"), any());
+    }
+
+    @Test
+    @DisplayName("validateDeclaration — agrégat d'audit en échec → validation conservée")
+    void validate_rollupEnEchec_pasException() {
+        mockSecurityContext("manager1");
+        when(declarationService.findById(2L)).thenReturn(enValidationDeclaration);
+        when(declarationService.updateStatut(eq(2L), eq("VALIDEE"), any(), eq("manager1")))
+            .thenReturn(valideeDeclaration);
+        doThrow(new RuntimeException("Deadlock")).when(rollupService).record(anyString(), anyString(), any());
+
+        assertThatCode(() -> validationService.validateDeclaration(2L)).doesNotThrowAnyException();
+        verify(logRepository).save(any());
     }
 
     @Test
@@ -0,0 +1,70 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("XmlGenerationService — Tests unitaires")
+class XmlGenerationServiceTest {
+
+    private static final LocalDate DEBUT = LocalDate.of(2025, 1, 1);
+    private static final LocalDate FIN   = LocalDate.of(2025, 1, 31);
+
+    private XmlGenerationService service;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:xml_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE clients (id VARCHAR(20), nom VARCHAR(50))");
+        jdbcTemplate.execute("CREATE TABLE operations (id VARCHAR(20), client_id VARCHAR(20), date_op DATE)");
+        jdbcTemplate.update("INSERT INTO clients VALUES ('C1', 'A & B')");
+        jdbcTemplate.update("INSERT INTO clients VALUES ('C2', 'Zeta')");
+        jdbcTemplate.update("INSERT INTO operations VALUES ('O1', 'C1', DATE '2025-01-10')");
+        jdbcTemplate.update("INSERT INTO operations VALUES ('O2', 'C2', DATE '2025-01-20')");
+        jdbcTemplate.update("INSERT INTO operations VALUES ('O3', 'C2', DATE '2025-01-25')");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlStreamingService streaming = new SqlStreamingService(jdbcTemplate,
+                new SqlResultCache(registry, false, 0, Duration.ZERO), 100);
+        service = new XmlGenerationService(streaming, new XsdSchemaCache(registry), new SqlQueryCompiler());
+    }
+
+    @Test
+    @DisplayName("writeXmlFromXsdAndSql — NombreLignes = lignes écrites, y compris avec LIMIT et libellés en double")
+    void write_nombreLignesDepuisLeFlux() {
+        StringWriter out = new StringWriter();
+
+        service.writeXmlFromXsdAndSql(
+                "SELECT o.id, c.id, c.nom FROM operations o JOIN clients c ON c.id = o.client_id "
+                + "WHERE o.date_op BETWEEN :dateDebut AND :dateFin ORDER BY o.id LIMIT 2",
+                DEBUT, FIN, "BCT_05", "2025-01", out);
+
+        String xml = out.toString();
+        assertThat(xml).contains("nombreLignes=\"2\"").contains("<NombreLignes>2</NombreLignes>");
+        assertThat(xml.split("<Ligne>", -1)).hasSize(3);
+        assertThat(xml).contains("<NOM>A &amp; B</NOM>").endsWith("</Donnees>\n</Declaration>");
+    }
+
+    @Test
+    @DisplayName("writeXmlFromXsdAndSql — aucune ligne → NombreLignes à 0 et Donnees vide")
+    void write_aucuneLigne() {
+        StringWriter out = new StringWriter();
+
+        service.writeXmlFromXsdAndSql("SELECT id FROM operations WHERE date_op BETWEEN :dateDebut AND :dateFin",
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "BCT_05", "2024-01", out);
+
+        assertThat(out.toString()).contains("<NombreLignes>0</NombreLignes>")
+                .contains("<Donnees>\n  </Donnees>");
+    }
+}
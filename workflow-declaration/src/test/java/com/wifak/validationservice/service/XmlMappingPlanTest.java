@@ -0,0 +1,93 @@
+package com.wifak.validationservice.service;
+
+import com.wifak.validationservice.dto.XsdSqlMappingRequest;
+import com.wifak.validationservice.dto.XsdSqlMappingRequest.MappingSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("XmlMappingPlan — Tests unitaires")
+class XmlMappingPlanTest {
+
+    private XsdSqlMappingRequest.FieldMapping fm(String name, MappingSource source, String col, String value) {
+        return new XsdSqlMappingRequest.FieldMapping(name, null, "xs:string", false, source, col, value);
+    }
+
+    // Ligne chargée depuis un ResultSet simulé (colonnes JDBC 1..n)
+    private SqlStreamingService.StreamedRow row(String[] columns, Object... values) throws Exception {
+        int[] jdbcIndexes = new int[columns.length];
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < columns.length; i++) {
+            jdbcIndexes[i] = i + 1;
+            when(rs.getObject(i + 1)).thenReturn(values[i]);
+        }
+        SqlStreamingService.StreamedRow row = new SqlStreamingService.StreamedRow(columns, jdbcIndexes);
+        row.load(rs, 0);
+        return row;
+    }
+
+    @Test
+    @DisplayName("compile — classe statiques / SQL / ignorés et écarte les champs d'en-tête auto")
+    void compile_classification() {
+        XmlMappingPlan plan = XmlMappingPlan.compile(List.of(
+            fm("Banque", MappingSource.STATIC, null, "WIFAK"),
+            fm("Periode", MappingSource.STATIC, null, "2025-01"),
+            fm("StaticVide", MappingSource.STATIC, null, ""),
+            fm("Id Client", MappingSource.SQL, "id_client", null),
+            fm("NombreLignes", MappingSource.SQL, "nb", null),
+            fm("Absent", MappingSource.NONE, null, null)));
+
+        assertThat(plan.getStaticCount()).isEqualTo(2);
+        assertThat(plan.getSqlCount()).isEqualTo(2);
+        assertThat(plan.getIgnoredCount()).isEqualTo(2);
+        assertThat(plan.getLigneFieldCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("sanitizeTagName — espaces, chiffre initial et caractères interdits")
+    void sanitizeTagName_cases() {
+        assertThat(XmlMappingPlan.sanitizeTagName("Id Client")).isEqualTo("Id_Client");
+        assertThat(XmlMappingPlan.sanitizeTagName("1ere")).isEqualTo("col_1ere");
+        assertThat(XmlMappingPlan.sanitizeTagName("montant€")).isEqualTo("montant_");
+        assertThat(XmlMappingPlan.sanitizeTagName(" ")).isEqualTo("field");
+        assertThat(XmlMappingPlan.sanitizeTagName(null)).isEqualTo("field");
+    }
+
+    @Test
+    @DisplayName("bind + writeLigne — colonnes insensibles à la casse, colonne absente → valeur vide")
+    void bindEtWriteLigne() throws Exception {
+        XmlMappingPlan plan = XmlMappingPlan.compile(List.of(
+            fm("Banque", MappingSource.STATIC, null, "WIFAK"),
+            fm("Id Client", MappingSource.SQL, "ID_CLIENT", null),
+            fm("Montant", MappingSource.SQL, "montant", null),
+            fm("Inconnu", MappingSource.SQL, "colonne_absente", null)));
+        SqlStreamingService.StreamedRow row = row(new String[]{ "montant", "id_client" }, 150.5, null);
+
+        int[] indexes = plan.bind(row);
+        assertThat(indexes).containsExactly(1, 0, -1);
+
+        StringWriter out = new StringWriter();
+        try (DeclarationXmlWriter xml = new DeclarationXmlWriter(out)) {
+            xml.startDeclaration(Map.of("code", "BCT_05"));
+            xml.startEntete();
+            plan.writeEntete(xml);
+            xml.endEntete();
+            xml.startDonnees();
+            plan.writeLigne(xml, row, indexes);
+            xml.endDeclaration();
+        }
+
+        assertThat(out.toString())
+            .contains("<Banque>WIFAK</Banque>")
+            .contains("<Id_Client/>")
+            .contains("<Montant>150.5</Montant>")
+            .contains("<Inconnu/>");
+    }
+}
@@ -1,5 +1,6 @@
 package com.wifak.validationservice.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -38,7 +39,7 @@ class XsdAnalyzerServiceTest {
 
     @BeforeEach
     void setUp() {
-        service = new XsdAnalyzerService();
+        service = new XsdAnalyzerService(new SimpleMeterRegistry());
     }
     // analyzeCompatibility
     @Test
@@ -170,4 +171,37 @@ class XsdAnalyzerServiceTest {
         // Le mapping partiel doit trouver NomClient → nom
         assertThat(result.getAutoMapped()).isNotEmpty();
     }
+
+    @Test
+    @DisplayName("analyzeCompatibility — candidats classés par similarité, abréviation mappée, nom voisin seulement proposé")
+    void analyzeCompatibility_candidatsClasses() {
+        List<String> sqlColumns = List.of("DATE_FIN", "MNT", "NOM_CLIENT_BIS", "MNT_TOTAL");
+
+        var result = service.analyzeCompatibility(SIMPLE_XSD, sqlColumns);
+
+        // « NomClient » ⊂ « NOM_CLIENT_BIS » (mots) ; « Montant » ne ressemble assez à aucune colonne
+        assertThat(result.getAutoMapped()).containsEntry("NomClient", "NOM_CLIENT_BIS")
+                .doesNotContainKey("Montant");
+        assertThat(result.getCandidates().get("NomClient"))
+                .extracting(ColonneIndex.Candidat::getColonne).first().isEqualTo("NOM_CLIENT_BIS");
+        assertThat(result.getCandidates().get("NomClient").get(0).getScore()).isEqualTo(0.83);
+    }
+
+    @Test
+    @DisplayName("analyzeCompatibility — même XSD → champs analysés une seule fois (cache par empreinte)")
+    void analyzeCompatibility_champsEnCache() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        XsdAnalyzerService avecMetriques = new XsdAnalyzerService(registry);
+
+        var premier = avecMetriques.analyzeCompatibility(SIMPLE_XSD, List.of("NomClient"));
+        var second  = avecMetriques.analyzeCompatibility(SIMPLE_XSD, List.of("Montant"));
+
+        assertThat(second.getXsdFields()).isEqualTo(premier.getXsdFields());
+        assertThat(registry.counter("xsd.fields.cache", "result", "miss").count()).isEqualTo(1.0);
+        assertThat(registry.counter("xsd.fields.cache", "result", "hit").count()).isEqualTo(1.0);
+
+        avecMetriques.evict(SIMPLE_XSD);
+        avecMetriques.analyzeCompatibility(SIMPLE_XSD, List.of());
+        assertThat(registry.counter("xsd.fields.cache", "result", "miss").count()).isEqualTo(2.0);
+    }
 }
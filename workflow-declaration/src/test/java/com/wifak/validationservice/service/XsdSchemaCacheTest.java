@@ -0,0 +1,68 @@
+package com.wifak.validationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("XsdSchemaCache — Tests unitaires")
+class XsdSchemaCacheTest {
+
+    private static final String XSD =
+            "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" +
+            "<xs:element name=\"Declaration\" type=\"xs:string\"/>" +
+            "</xs:schema>";
+
+    private SimpleMeterRegistry registry;
+    private XsdSchemaCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new XsdSchemaCache(registry);
+    }
+
+    private double count(String result) {
+        return registry.get("xsd.schema.cache").tag("result", result).counter().count();
+    }
+
+    @Test
+    @DisplayName("getSchema — même XSD → compilé une seule fois, même instance")
+    void getSchema_memeXsd_compileUneFois() throws Exception {
+        Schema first  = cache.getSchema(XSD);
+        Schema second = cache.getSchema(XSD);
+
+        assertThat(second).isSameAs(first);
+        assertThat(count("miss")).isEqualTo(1.0);
+        assertThat(count("hit")).isEqualTo(1.0);
+        assertThat(registry.get("xsd.schema.compile").timer().count()).isEqualTo(1L);
+        first.newValidator().validate(new StreamSource(new StringReader("<Declaration>ok</Declaration>")));
+    }
+
+    @Test
+    @DisplayName("evict — le XSD est recompilé au prochain appel")
+    void evict_recompile() {
+        Schema first = cache.getSchema(XSD);
+
+        cache.evict(XSD);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getSchema(XSD)).isNotSameAs(first);
+        assertThat(count("miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("getSchema — XSD invalide → RuntimeException, rien en cache")
+    void getSchema_xsdInvalide_throwsException() {
+        assertThatThrownBy(() -> cache.getSchema("<pas-un-xsd"))
+            .isInstanceOf(RuntimeException.class)
+            .hasMessageContaining("XSD invalide");
+        assertThat(cache.size()).isZero();
+    }
+}